@@ -23,6 +23,12 @@ const LinkedDataMetadataProvider = ({children, ...otherProps}) => {
         [] // eslint-disable-line react-hooks/exhaustive-deps
     );
 
+    const fetchInverseLinks = useCallback(
+        (subject, predicate, continuationToken) =>
+            metadataAPI.getInverseLinks(subject, predicate, continuationToken),
+        [] // eslint-disable-line react-hooks/exhaustive-deps
+    );
+
     const submitLinkedDataChanges = useCallback(
         (subject, values) =>
             metadataAPI
@@ -69,6 +75,7 @@ const LinkedDataMetadataProvider = ({children, ...otherProps}) => {
 
                 // Backend interactions
                 fetchLinkedDataForSubject: fetchMetadataBySubject,
+                fetchInverseLinks,
                 createLinkedDataEntity,
                 deleteLinkedDataEntity,
                 submitLinkedDataChanges,
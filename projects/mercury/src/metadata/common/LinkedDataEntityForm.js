@@ -53,6 +53,7 @@ function descriptionFirst(x: PropertyType, y: PropertyType): number {
 
 export const LinkedDataEntityForm = ({
     id,
+    subject,
     onSubmit,
     properties = [],
     values = {},
@@ -105,6 +106,7 @@ export const LinkedDataEntityForm = ({
                         <ListItem key={p.key} disableGutters style={{display: 'block'}}>
                             <LinkedDataProperty
                                 formEditable={editable}
+                                subject={subject}
                                 property={p}
                                 values={values[p.key]}
                                 validationErrors={validationErrors[p.key]}
@@ -125,6 +127,7 @@ LinkedDataEntityForm.propTypes = {
     onDelete: PropTypes.func,
 
     errorMessage: PropTypes.string,
+    subject: PropTypes.string,
     typeIri: PropTypes.string,
 
     loading: PropTypes.bool,
@@ -117,6 +117,7 @@ const LinkedDataEntityFormContainer = ({
                         <LinkedDataEntityForm
                             {...otherProps}
                             id={formId}
+                            subject={subject}
                             editable={editingEnabled}
                             onSubmit={validateAndSubmit}
                             errorMessage={linkedDataError}
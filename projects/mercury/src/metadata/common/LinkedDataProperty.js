@@ -4,13 +4,15 @@ import PropTypes from 'prop-types';
 import {FormControl, FormGroup, FormHelperText, FormLabel} from '@mui/material';
 import LinkedDataInputFieldsTable from './LinkedDataInputFieldsTable';
 import LinkedDataRelationTable from './LinkedDataRelationTable';
-import {LABEL_URI, MAX_LIST_LENGTH, TOOLTIP_ENTER_DELAY} from '../../constants';
+import {LABEL_URI, MAX_LIST_LENGTH, SHACL_INVERS_PATH, TOOLTIP_ENTER_DELAY} from '../../constants';
 import GenericTooltip from '../../common/components/GenericTooltip';
 import Iri from '../../common/components/Iri';
 import LinkedDataContext from '../LinkedDataContext';
+import {getFirstPredicateId} from './jsonLdUtils';
 
 const LinkedDataProperty = ({
     formEditable = true,
+    subject,
     property,
     values = [],
     validationErrors = [],
@@ -18,7 +20,7 @@ const LinkedDataProperty = ({
     onChange,
     onDelete
 }) => {
-    const {editorPath, valueComponentFactory} = useContext(LinkedDataContext);
+    const {editorPath, valueComponentFactory, shapes, fetchInverseLinks} = useContext(LinkedDataContext);
 
     const {key, machineOnly, minValuesCount, label, description, path} = property;
     const hasErrors = validationErrors && validationErrors.length > 0;
@@ -28,6 +30,10 @@ const LinkedDataProperty = ({
     const canEdit = formEditable && property.isEditable && !machineOnly;
     const labelId = `label-${key}`;
 
+    // Links of an inverse property can be loaded page by page, beyond the first MAX_LIST_LENGTH
+    const inverseShape = key && key.startsWith('_') && Array.isArray(shapes) && shapes.find(e => e['@id'] === key);
+    const inversePredicate = getFirstPredicateId(inverseShape, SHACL_INVERS_PATH);
+
     // Checks whether the configuration of this property disallow editing of existing values
     // This is the case if:
     // - the property is machineOnly
@@ -84,6 +90,9 @@ const LinkedDataProperty = ({
                         onDelete={onDelete}
                         addComponent={addInputComponent}
                         editorPath={editorPath}
+                        subject={subject}
+                        inversePredicate={inversePredicate}
+                        fetchInverseLinks={fetchInverseLinks}
                     />
                 ) : (
                     <LinkedDataInputFieldsTable
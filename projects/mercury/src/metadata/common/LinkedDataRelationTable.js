@@ -1,11 +1,12 @@
-import React from 'react';
+import React, {useEffect, useState} from 'react';
 import PropTypes from 'prop-types';
 import {withRouter} from 'react-router-dom';
 
-import {TOOLTIP_ENTER_DELAY} from '../../constants';
+import {MAX_LIST_LENGTH, TOOLTIP_ENTER_DELAY} from '../../constants';
 import LinkedDataValuesList from './LinkedDataValuesList';
 import IriTooltip from '../../common/components/IriTooltip';
 import Iri from '../../common/components/Iri';
+import {getLabelStrict} from './metadataUtils';
 
 const IDENTIFIER_COLUMN = {id: '@id', label: 'Uri', getValue: entry => entry.label || entry['@id']};
 
@@ -17,8 +18,37 @@ export const LinkedDataRelationTable = ({
     canEdit,
     addComponent,
     editorPath,
-    history
+    history,
+    subject,
+    inversePredicate,
+    fetchInverseLinks
 }) => {
+    // Once more links are loaded, the pages replace the first MAX_LIST_LENGTH values in the form
+    const [pagedValues, setPagedValues] = useState(null);
+    const [continuationToken, setContinuationToken] = useState(null);
+    const [loadingMore, setLoadingMore] = useState(false);
+
+    useEffect(() => {
+        setPagedValues(null);
+        setContinuationToken(null);
+    }, [values]);
+
+    const canPage = !!(subject && inversePredicate && fetchInverseLinks);
+    const hasMore = pagedValues ? !!continuationToken : values.length > MAX_LIST_LENGTH;
+
+    const loadMore = () => {
+        setLoadingMore(true);
+        fetchInverseLinks(subject, inversePredicate, pagedValues ? continuationToken : null)
+            .then(({entities, continuationToken: next}) => {
+                const page = Object.values(entities)
+                    .filter(entity => Array.isArray(entity[inversePredicate]))
+                    .map(entity => ({id: entity['@id'], label: getLabelStrict(entity)}));
+                setPagedValues(pagedValues ? [...pagedValues, ...page] : page);
+                setContinuationToken(next);
+            })
+            .finally(() => setLoadingMore(false));
+    };
+
     const rowDecorator = (entry, children) => (
         <IriTooltip key={entry.id} enterDelay={TOOLTIP_ENTER_DELAY} title={<Iri iri={entry.id} />}>
             {children}
@@ -33,11 +63,13 @@ export const LinkedDataRelationTable = ({
             onDelete={onDelete}
             columnDefinition={IDENTIFIER_COLUMN}
             property={property}
-            values={values}
+            values={pagedValues || values}
             showHeader={false}
-            canEdit={canEdit}
+            canEdit={canEdit && !pagedValues}
             addComponent={addComponent}
             rowDecorator={rowDecorator}
+            onLoadMore={canPage && hasMore ? loadMore : null}
+            loadingMore={loadingMore}
         />
     );
 };
@@ -47,7 +79,10 @@ LinkedDataRelationTable.propTypes = {
     onDelete: PropTypes.func,
     property: PropTypes.object,
     canEdit: PropTypes.bool,
-    editorPath: PropTypes.string
+    editorPath: PropTypes.string,
+    subject: PropTypes.string,
+    inversePredicate: PropTypes.string,
+    fetchInverseLinks: PropTypes.func
 };
 
 LinkedDataRelationTable.defaultProps = {
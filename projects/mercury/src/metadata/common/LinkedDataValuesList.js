@@ -1,5 +1,5 @@
 import React, {useState} from 'react';
-import {Divider, Grid, IconButton, Tooltip, Typography} from '@mui/material';
+import {Button, Divider, Grid, IconButton, Tooltip, Typography} from '@mui/material';
 import withStyles from '@mui/styles/withStyles';
 import {Add, Clear} from '@mui/icons-material';
 import {FixedSizeList as List} from 'react-window';
@@ -85,7 +85,9 @@ type LinkedDataValuesListProps = {
     property: any,
     values: any[],
     classes: any,
-    addComponent: any
+    addComponent: any,
+    onLoadMore: () => {},
+    loadingMore: boolean
 };
 
 export const LinkedDataValuesList = (props: LinkedDataValuesListProps) => {
@@ -101,7 +103,9 @@ export const LinkedDataValuesList = (props: LinkedDataValuesListProps) => {
         canEdit = true,
         showHeader = true,
         labelId,
-        addComponent: AddComponent
+        addComponent: AddComponent,
+        onLoadMore = null,
+        loadingMore = false
     } = props;
 
     const [hoveredIndex, setHoveredIndex] = useState(null);
@@ -169,7 +173,7 @@ export const LinkedDataValuesList = (props: LinkedDataValuesListProps) => {
                 // eslint-disable-next-line react/no-array-index-key
                 key={index}
             >
-                {index === MAX_LIST_LENGTH ? renderListLimitMessage(entry) : renderListItem(entry, index)}
+                {index === MAX_LIST_LENGTH && !onLoadMore ? renderListLimitMessage(entry) : renderListItem(entry, index)}
                 {property.isEditable && isDeleteButtonEnabled(entry) && (
                     <Grid item xs={2}>
                         <IconButton
@@ -204,6 +208,13 @@ export const LinkedDataValuesList = (props: LinkedDataValuesListProps) => {
         return values.map((entry, idx) => renderValue(entry, idx));
     };
 
+    // Values beyond the display limit are loaded on request, if the list supports it
+    const renderLoadMore = () => (
+        <Button data-testid="load-more-btn" size="small" disabled={loadingMore} onClick={onLoadMore}>
+            Load more
+        </Button>
+    );
+
     return (
         <>
             {showHeader ? (
@@ -214,6 +225,7 @@ export const LinkedDataValuesList = (props: LinkedDataValuesListProps) => {
                 </Grid>
             ) : undefined}
             {renderValues()}
+            {onLoadMore && renderLoadMore()}
             {isAddButtonEnabled &&
                 (property.maxValuesCount === 1 ? (
                     <Grid container spacing={1} alignItems="center">
@@ -1,6 +1,7 @@
 import axios from 'axios';
+import {expand} from 'jsonld';
 import LinkedDataAPI from './LinkedDataAPI';
-import {toJsonLd} from './jsonLdConverter';
+import {normalizeTypesBySubjectId, toJsonLd} from './jsonLdConverter';
 import {handleHttpError} from '../../common/utils/httpUtils';
 
 export class MetadataAPI extends LinkedDataAPI {
@@ -45,6 +46,33 @@ export class MetadataAPI extends LinkedDataAPI {
         });
     }
 
+    /**
+     * Retrieves a page of the entities that link to a subject with the given (inverse) property
+     * @param subject
+     * @param predicate
+     * @param continuationToken The token of the previous page, or null for the first page
+     * @returns {Promise<{entities: *, continuationToken: string}>} The continuation token is undefined on the last page
+     */
+    getInverseLinks(subject, predicate, continuationToken = null) {
+        const params = {subject, predicate, withValueProperties: true};
+        if (continuationToken) {
+            params.continuationToken = continuationToken;
+        }
+        const query = Object.keys(params)
+            .map(key => `${key}=${encodeURIComponent(params[key])}`)
+            .join('&');
+
+        return axios
+            .get(`${this.getStatementsUrl()}links?${query}`, {headers: {Accept: 'application/ld+json'}})
+            .then(response =>
+                expand(response.data).then(expanded => ({
+                    entities: normalizeTypesBySubjectId(expanded),
+                    continuationToken: response.headers['x-continuation-token']
+                }))
+            )
+            .catch(handleHttpError('Failure when retrieving linked entities'));
+    }
+
     /**
      * Deletes a subject from the metadata store
      * @param subject
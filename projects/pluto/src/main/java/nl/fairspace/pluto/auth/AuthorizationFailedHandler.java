@@ -1,8 +1,6 @@
 package nl.fairspace.pluto.auth;
 
 import java.net.URI;
-import java.time.Duration;
-import java.util.Optional;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpHeaders;
@@ -10,8 +8,8 @@ import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.web.server.ServerWebExchange;
-import org.springframework.web.server.WebSession;
 import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
 
 import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR;
 
@@ -26,7 +24,12 @@ public class AuthorizationFailedHandler {
     public static final String LOGIN_PATH_HEADER = "X-Login-Path";
     public static final String STATIC_PATH = "/static/";
 
-    public ServerWebExchange handleFailedAuthorization(ServerWebExchange exchange) {
+    /**
+     * Redirects the request to the login page, storing the request URI in the session, or answers 401.
+     *
+     * @return the exchange to complete, once the session has been saved
+     */
+    public Mono<ServerWebExchange> handleFailedAuthorization(ServerWebExchange exchange) {
         log.trace("Authentication failed for request {}", exchange.getRequest().getURI());
 
         if (shouldRedirect(exchange.getRequest())) {
@@ -35,15 +38,6 @@ public class AuthorizationFailedHandler {
                     .replacePath(LOGIN_PATH)
                     .build()
                     .toUri();
-            Optional<WebSession> session = exchange.getSession().blockOptional(Duration.ofMillis(500));
-            if (session.isPresent()) {
-                session.get()
-                        .getAttributes()
-                        .put(
-                                AuthConstants.PREVIOUS_REQUEST_SESSION_ATTRIBUTE,
-                                exchange.getRequest().getURI().toString());
-                session.get().save();
-            }
             ServerHttpRequest modifiedRequest =
                     exchange.getRequest().mutate().uri(redirectURI).build();
             ServerWebExchange modifiedExchange =
@@ -51,7 +45,13 @@ public class AuthorizationFailedHandler {
             modifiedExchange.getAttributes().put(GATEWAY_REQUEST_URL_ATTR, redirectURI);
             modifiedExchange.getResponse().getHeaders().set(HttpHeaders.LOCATION, redirectURI.toString());
             modifiedExchange.getResponse().setStatusCode(HttpStatus.FOUND);
-            return modifiedExchange;
+            return exchange.getSession()
+                    .flatMap(session -> {
+                        session.getAttributes()
+                                .put(AuthConstants.PREVIOUS_REQUEST_SESSION_ATTRIBUTE, originalRequestUri.toString());
+                        return session.save();
+                    })
+                    .thenReturn(modifiedExchange);
         } else {
             exchange.getResponse().getHeaders().add(LOGIN_PATH_HEADER, LOGIN_PATH);
             exchange.getResponse().getHeaders().add(WWW_AUTHENTICATE_HEADER, BEARER_AUTH);
@@ -60,7 +60,7 @@ public class AuthorizationFailedHandler {
                 exchange.getResponse().getHeaders().add(WWW_AUTHENTICATE_HEADER, BASIC_AUTH);
             }
             exchange.getResponse().setStatusCode(HttpStatus.UNAUTHORIZED);
-            return exchange;
+            return Mono.just(exchange);
         }
     }
 
@@ -2,24 +2,71 @@ package nl.fairspace.pluto.auth;
 
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Date;
+import java.util.HexFormat;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import com.nimbusds.jose.JWSAlgorithm;
 import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
 import com.nimbusds.jose.jwk.source.JWKSource;
-import com.nimbusds.jose.jwk.source.RemoteJWKSet;
+import com.nimbusds.jose.jwk.source.JWKSourceBuilder;
 import com.nimbusds.jose.proc.JWSKeySelector;
 import com.nimbusds.jose.proc.JWSVerificationKeySelector;
 import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jose.util.DefaultResourceRetriever;
 import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimbusds.jwt.proc.*;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Validates JWT access tokens.
+ * The claims of validated tokens are cached by the SHA-256 hash of the token until the token expires,
+ * so that a token that is sent with many requests is verified only once.
+ */
 @Slf4j
 public class JwtTokenValidator {
+    private static final int MAX_CACHED_TOKENS = 10_000;
+    // The time to cache the claims of tokens that do not expire
+    private static final Duration MAX_CACHE_TIME = Duration.ofMinutes(5);
+    // The connect and read timeouts of the key set retrieval, which is slow when the authorization server is busy
+    private static final int KEY_SET_TIMEOUT_MS = 2_000;
+
     private final JWTProcessor<?> jwtProcessor;
 
+    // The claims expire with their token. Tokens that have not been used recently are evicted when the cache is full
+    private final Cache<String, Map<String, Object>> cache = Caffeine.newBuilder()
+            .maximumSize(MAX_CACHED_TOKENS)
+            .expireAfter(new Expiry<String, Map<String, Object>>() {
+                @Override
+                public long expireAfterCreate(String key, Map<String, Object> claims, long currentTime) {
+                    return timeToLive(claims).toNanos();
+                }
+
+                @Override
+                public long expireAfterUpdate(
+                        String key, Map<String, Object> claims, long currentTime, long currentDuration) {
+                    return timeToLive(claims).toNanos();
+                }
+
+                @Override
+                public long expireAfterRead(
+                        String key, Map<String, Object> claims, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .build();
+
     public static JwtTokenValidator create(String jwkSetUrl, String expectedJWSAlgorithm) {
         try {
             return create(new URL(jwkSetUrl), JWSAlgorithm.parse(expectedJWSAlgorithm));
@@ -44,11 +91,21 @@ public class JwtTokenValidator {
         ConfigurableJWTProcessor<C> jwtProcessor = new DefaultJWTProcessor<C>();
 
         // The public RSA keys to validate the signatures will be sourced from the
-        // OAuth 2.0 server's JWK set, published at a well-known URL. The RemoteJWKSet
-        // object caches the retrieved keys to speed up subsequent look-ups and can
-        // also gracefully handle key-rollover
+        // OAuth 2.0 server's JWK set, published at a well-known URL. The key source
+        // caches the retrieved keys and refreshes them in the background before they expire,
+        // so that requests do not wait for the key set. It also handles key-rollover.
         log.info("Using remote key set from URL {}", jwkSetUrl);
-        JWKSource<C> keySource = new RemoteJWKSet<>(jwkSetUrl);
+        // A retrieval that fails on a network error is retried once. The retrievals are not rate limited,
+        // so that a failed retrieval, e.g. at startup, does not fail the requests that follow.
+        JWKSource<C> keySource = JWKSourceBuilder.<C>create(
+                        jwkSetUrl,
+                        new DefaultResourceRetriever(
+                                KEY_SET_TIMEOUT_MS, KEY_SET_TIMEOUT_MS, JWKSourceBuilder.DEFAULT_HTTP_SIZE_LIMIT))
+                .refreshAheadCache(JWKSourceBuilder.DEFAULT_REFRESH_AHEAD_TIME, true)
+                .retrying(true)
+                .rateLimited(false)
+                .build();
+        prefetchKeys(keySource);
 
         // Configure the JWT processor with a key selector to feed matching public
         // RSA keys sourced from the JWK set URL
@@ -78,6 +135,19 @@ public class JwtTokenValidator {
         return jwtProcessor;
     }
 
+    /**
+     * Fetches the key set in the background, so that the first requests do not wait for it.
+     */
+    private static <C extends SecurityContext> void prefetchKeys(JWKSource<C> keySource) {
+        CompletableFuture.runAsync(() -> {
+            try {
+                keySource.get(new JWKSelector(new JWKMatcher.Builder().build()), null);
+            } catch (KeySourceException e) {
+                log.warn("Exception while prefetching keys for JWT validation: {}", e.getMessage());
+            }
+        });
+    }
+
     JwtTokenValidator(JWTProcessor<?> jwtProcessor) {
         this.jwtProcessor = jwtProcessor;
     }
@@ -88,12 +158,20 @@ public class JwtTokenValidator {
             return null;
         }
 
+        String key = hash(token);
+        Map<String, Object> cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+
         // Process the token
         try {
             JWTClaimsSet claimsSet = jwtProcessor.process(token, null);
 
             if (claimsSet != null) {
-                return claimsSet.getClaims();
+                Map<String, Object> claims = claimsSet.getClaims();
+                cache.put(key, claims);
+                return claims;
             } else {
                 log.warn("Provided JWT is valid and could be parsed, but does not result in a claimsset");
                 return null;
@@ -108,6 +186,35 @@ public class JwtTokenValidator {
         }
     }
 
+    /**
+     * @return the expiration time of a token with the claims, or null if the token does not expire.
+     */
+    public static Instant getExpiration(Map<String, Object> claims) {
+        Object exp = claims.get("exp");
+        if (exp instanceof Date date && date.getTime() != 0L) {
+            return date.toInstant();
+        }
+        return null;
+    }
+
+    private static Duration timeToLive(Map<String, Object> claims) {
+        Instant expiration = getExpiration(claims);
+        if (expiration == null) {
+            return MAX_CACHE_TIME;
+        }
+        Duration remaining = Duration.between(Instant.now(), expiration);
+        return remaining.isNegative() ? Duration.ZERO : remaining;
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     public JWTProcessor<?> getJwtProcessor() {
         return jwtProcessor;
     }
@@ -43,8 +43,9 @@ public class AuthFilterConfiguration {
     @Bean
     @Order(Ordered.HIGHEST_PRECEDENCE + 100)
     public GlobalFilter sessionAuthenticationFilter() {
-        return (exchange, chain) ->
-                new SessionAuthenticationFilter(jwtTokenValidator, oAuthFlow).filter(exchange, chain);
+        // A single instance, as it keeps track of the tokens that are being refreshed in the background
+        var filter = new SessionAuthenticationFilter(jwtTokenValidator, oAuthFlow);
+        return filter::filter;
     }
 
     @Bean
@@ -29,8 +29,9 @@ public class HandleFailedAuthenticationFilter implements GatewayFilter {
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
         if (!Boolean.TRUE.equals(exchange.getAttribute(AUTHORIZATION_CHECKED_REQUEST_ATTRIBUTE))) {
-            var mutatedExchange = failedHandler.handleFailedAuthorization(exchange);
-            return mutatedExchange.getResponse().setComplete();
+            return failedHandler
+                    .handleFailedAuthorization(exchange)
+                    .flatMap(mutatedExchange -> mutatedExchange.getResponse().setComplete());
         }
 
         return chain.filter(exchange);
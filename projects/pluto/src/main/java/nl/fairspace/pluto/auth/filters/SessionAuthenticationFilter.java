@@ -1,15 +1,19 @@
 package nl.fairspace.pluto.auth.filters;
 
+import java.io.IOException;
 import java.time.Duration;
+import java.time.Instant;
 import java.util.Map;
-import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
+import com.nimbusds.oauth2.sdk.ParseException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cloud.gateway.filter.GatewayFilter;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.web.server.ServerWebExchange;
 import org.springframework.web.server.WebSession;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import nl.fairspace.pluto.auth.JwtTokenValidator;
 import nl.fairspace.pluto.auth.OAuthFlow;
@@ -18,17 +22,32 @@ import nl.fairspace.pluto.auth.model.OAuthAuthenticationToken;
 import static nl.fairspace.pluto.auth.AuthConstants.AUTHORIZATION_REQUEST_ATTRIBUTE;
 import static nl.fairspace.pluto.auth.AuthConstants.AUTHORIZATION_SESSION_ATTRIBUTE;
 
+/**
+ * This filter authenticates the request with the token stored in the user session.
+ *
+ * The filter does not block: the session is retrieved reactively, and refreshing a token,
+ * which calls the authorization server, is done on the bounded elastic scheduler.
+ * Access tokens that are about to expire are refreshed in the background,
+ * so that requests only wait for a refresh when the access token has expired already.
+ * A refresh token is used for one refresh at a time, which concurrent requests share.
+ */
 @Slf4j
 public class SessionAuthenticationFilter implements GatewayFilter {
-    private JwtTokenValidator jwtTokenValidator;
-    private OAuthFlow oAuthFlow;
+    static final Duration REFRESH_AHEAD_TIME = Duration.ofSeconds(30);
+
+    private final JwtTokenValidator jwtTokenValidator;
+    private final OAuthFlow oAuthFlow;
+
+    // The refreshes in progress, by refresh token
+    private final Map<String, Mono<OAuthAuthenticationToken>> refreshing = new ConcurrentHashMap<>();
 
     public SessionAuthenticationFilter(JwtTokenValidator jwtTokenValidator, OAuthFlow oAuthFlow) {
         this.jwtTokenValidator = jwtTokenValidator;
         this.oAuthFlow = oAuthFlow;
     }
 
-    private OAuthAuthenticationToken retrieveSessionAuthentication(ServerWebExchange exchange, WebSession session) {
+    private Mono<OAuthAuthenticationToken> retrieveSessionAuthentication(
+            ServerWebExchange exchange, WebSession session) {
         log.trace("Handle authentication for " + exchange.getRequest().getURI().getPath());
 
         // Get token from session
@@ -37,7 +56,7 @@ public class SessionAuthenticationFilter implements GatewayFilter {
         // Nothing in session
         if (token == null) {
             log.trace("No JWT has been found in the user session");
-            return null;
+            return Mono.empty();
         }
 
         log.trace("Retrieved authentication token from session: {}", token);
@@ -48,52 +67,82 @@ public class SessionAuthenticationFilter implements GatewayFilter {
         // If it validates, return
         if (claims != null) {
             log.trace("Valid JWT found in the user session");
-            return token.toBuilder().claimsSet(claims).build();
+            if (token.getRefreshToken() != null && expiresSoon(claims)) {
+                refreshInBackground(token, session);
+            }
+            return Mono.just(token.toBuilder().claimsSet(claims).build());
         }
 
         // If it does not validate, but we have a valid refresh token, perform a refresh
         log.trace("JWT in user session is not valid anymore.");
         if (token.getRefreshToken() != null) {
-            try {
-                log.debug(
-                        "Access token has expired and a valid refresh token was found in the user session. Try refreshing the access token");
-
-                // Refresh the token
-                OAuthAuthenticationToken refreshedToken = oAuthFlow.refreshToken(token);
-
-                log.trace("Refreshed authentication token: {}", refreshedToken);
-
-                if (refreshedToken != null) {
-                    // Parse the refreshed token and return the data
-                    Map<String, Object> refreshedTokenClaims =
-                            jwtTokenValidator.parseAndValidate(refreshedToken.getAccessToken());
-
-                    if (refreshedTokenClaims != null) {
-                        log.trace("The access token has been refreshed. Storing the new access token in session.");
-                        OAuthAuthenticationToken tokenWithClaims = refreshedToken.toBuilder()
-                                .claimsSet(refreshedTokenClaims)
-                                .build();
-                        storeTokenInSession(tokenWithClaims, session);
-                        return tokenWithClaims;
-                    } else {
-                        log.warn("The access token has been refreshed, but the returned token seems to be invalid.");
-                        return null;
-                    }
-                }
-
-                // If for some reasons the validation failed, the authentication is invalid
-                log.trace("Refreshing the access token has failed.");
-                return null;
-            } catch (Exception e) {
+            log.debug(
+                    "Access token has expired and a valid refresh token was found in the user session. Try refreshing the access token");
+            return refresh(token, session).onErrorResume(e -> {
                 log.error("An error occurred while refreshing oAuth token", e);
-                return null;
-            }
+                return Mono.empty();
+            });
         }
 
         // In this case, both the accesstoken and the refresh token have expired
         log.info(
                 "A token was found in session, but both the access_token has expired and no refresh token was available");
-        return null;
+        return Mono.empty();
+    }
+
+    private static boolean expiresSoon(Map<String, Object> claims) {
+        Instant expiration = JwtTokenValidator.getExpiration(claims);
+        return expiration != null && expiration.isBefore(Instant.now().plus(REFRESH_AHEAD_TIME));
+    }
+
+    private void refreshInBackground(OAuthAuthenticationToken token, WebSession session) {
+        if (!refreshing.containsKey(token.getRefreshToken())) {
+            log.debug("Access token expires soon. Refreshing the access token in the background");
+            refresh(token, session)
+                    .subscribe(
+                            refreshedToken -> {}, e -> log.error("An error occurred while refreshing oAuth token", e));
+        }
+    }
+
+    /**
+     * Refreshes the token and stores the refreshed token in the session,
+     * or joins the refresh of the token that is in progress.
+     *
+     * @return the refreshed token with its claims, or an empty Mono if refreshing the token failed
+     */
+    private Mono<OAuthAuthenticationToken> refresh(OAuthAuthenticationToken token, WebSession session) {
+        String refreshToken = token.getRefreshToken();
+        return refreshing.computeIfAbsent(refreshToken, key -> Mono.fromCallable(() -> refreshToken(token))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(refreshedToken -> {
+                    log.trace("The access token has been refreshed. Storing the new access token in session.");
+                    return storeTokenInSession(refreshedToken, session).thenReturn(refreshedToken);
+                })
+                .doFinally(signal -> refreshing.remove(key))
+                .cache());
+    }
+
+    private OAuthAuthenticationToken refreshToken(OAuthAuthenticationToken token) throws IOException, ParseException {
+        // Refresh the token
+        OAuthAuthenticationToken refreshedToken = oAuthFlow.refreshToken(token);
+
+        log.trace("Refreshed authentication token: {}", refreshedToken);
+
+        // If for some reasons the validation failed, the authentication is invalid
+        if (refreshedToken == null) {
+            log.trace("Refreshing the access token has failed.");
+            return null;
+        }
+
+        // Parse the refreshed token and return the data
+        Map<String, Object> refreshedTokenClaims = jwtTokenValidator.parseAndValidate(refreshedToken.getAccessToken());
+
+        if (refreshedTokenClaims == null) {
+            log.warn("The access token has been refreshed, but the returned token seems to be invalid.");
+            return null;
+        }
+
+        return refreshedToken.toBuilder().claimsSet(refreshedTokenClaims).build();
     }
 
     private OAuthAuthenticationToken getTokenFromSession(WebSession session) {
@@ -107,9 +156,9 @@ public class SessionAuthenticationFilter implements GatewayFilter {
         }
     }
 
-    private void storeTokenInSession(OAuthAuthenticationToken token, WebSession session) {
+    private Mono<Void> storeTokenInSession(OAuthAuthenticationToken token, WebSession session) {
         session.getAttributes().put(AUTHORIZATION_SESSION_ATTRIBUTE, token);
-        session.save();
+        return session.save();
     }
 
     @Override
@@ -118,13 +167,10 @@ public class SessionAuthenticationFilter implements GatewayFilter {
         if (exchange.getAttribute(AUTHORIZATION_REQUEST_ATTRIBUTE) != null) {
             return chain.filter(exchange);
         }
-        Optional<WebSession> session = exchange.getSession().blockOptional(Duration.ofMillis(500));
-        if (session.isPresent()) {
-            OAuthAuthenticationToken authenticationToken = retrieveSessionAuthentication(exchange, session.get());
-            if (authenticationToken != null) {
-                exchange.getAttributes().put(AUTHORIZATION_REQUEST_ATTRIBUTE, authenticationToken);
-            }
-        }
-        return chain.filter(exchange);
+        return exchange.getSession()
+                .flatMap(session -> retrieveSessionAuthentication(exchange, session))
+                .doOnNext(authenticationToken ->
+                        exchange.getAttributes().put(AUTHORIZATION_REQUEST_ATTRIBUTE, authenticationToken))
+                .then(Mono.defer(() -> chain.filter(exchange)));
     }
 }
@@ -1,11 +1,8 @@
 package nl.fairspace.pluto.auth.filters;
 
 import java.io.IOException;
-import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
-import java.time.Duration;
 import java.util.Base64;
-import java.util.Optional;
 
 import com.nimbusds.oauth2.sdk.ParseException;
 import lombok.extern.slf4j.Slf4j;
@@ -14,8 +11,8 @@ import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.server.ServerWebExchange;
-import org.springframework.web.server.WebSession;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import nl.fairspace.pluto.auth.OAuthFlow;
 import nl.fairspace.pluto.auth.model.OAuthAuthenticationToken;
@@ -33,8 +30,10 @@ public class UsernamePasswordAuthenticationFilter implements GatewayFilter {
         this.oAuthFlow = oAuthFlow;
     }
 
-    private OAuthAuthenticationToken retrieveHeaderAuthorization(ServerWebExchange exchange)
-            throws ParseException, IOException, URISyntaxException {
+    /**
+     * @return the encoded credentials from the Basic authorization header, or null if there are none
+     */
+    private String retrieveHeaderAuthorization(ServerWebExchange exchange) {
         log.debug("Check authentication header for "
                 + exchange.getRequest().getURI().getPath());
 
@@ -50,9 +49,7 @@ public class UsernamePasswordAuthenticationFilter implements GatewayFilter {
             return null;
         }
 
-        var auth = authorizationHeader.substring(BASIC_PREFIX.length());
-
-        return fetchToken(auth);
+        return authorizationHeader.substring(BASIC_PREFIX.length());
     }
 
     private OAuthAuthenticationToken fetchToken(String auth) throws ParseException, IOException {
@@ -72,24 +69,29 @@ public class UsernamePasswordAuthenticationFilter implements GatewayFilter {
         }
 
         // Otherwise, check if the authorization can be found in the header
-        OAuthAuthenticationToken authenticationToken;
-        try {
-            authenticationToken = retrieveHeaderAuthorization(exchange);
-        } catch (ParseException | URISyntaxException | IOException e) {
-            log.error("Error retrieving authentication token", e);
-            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, e.getMessage());
+        String auth = retrieveHeaderAuthorization(exchange);
+        if (auth == null) {
+            return chain.filter(exchange);
         }
 
-        log.trace("Retrieved authentication token from request: {}", authenticationToken);
-
-        if (authenticationToken != null) {
-            exchange.getAttributes().put(AUTHORIZATION_REQUEST_ATTRIBUTE, authenticationToken);
-            Optional<WebSession> session = exchange.getSession().blockOptional(Duration.ofMillis(500));
-            if (session.isPresent()) {
-                session.get().getAttributes().put(AUTHORIZATION_SESSION_ATTRIBUTE, authenticationToken);
-                session.get().save();
-            }
-        }
-        return chain.filter(exchange);
+        // Retrieving the token calls the authorization server, which must not be done on the event loop
+        return Mono.fromCallable(() -> {
+                    try {
+                        return fetchToken(auth);
+                    } catch (ParseException | IOException e) {
+                        log.error("Error retrieving authentication token", e);
+                        throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, e.getMessage());
+                    }
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(authenticationToken -> {
+                    log.trace("Retrieved authentication token from request: {}", authenticationToken);
+                    exchange.getAttributes().put(AUTHORIZATION_REQUEST_ATTRIBUTE, authenticationToken);
+                    return exchange.getSession().flatMap(session -> {
+                        session.getAttributes().put(AUTHORIZATION_SESSION_ATTRIBUTE, authenticationToken);
+                        return session.save();
+                    });
+                })
+                .then(Mono.defer(() -> chain.filter(exchange)));
     }
 }
@@ -1,12 +1,8 @@
 package nl.fairspace.pluto.config;
 
-import java.time.Duration;
-import java.util.Optional;
-
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.GlobalFilter;
 import org.springframework.web.server.ServerWebExchange;
-import org.springframework.web.server.WebSession;
 import reactor.core.publisher.Mono;
 
 import nl.fairspace.pluto.auth.model.OAuthAuthenticationToken;
@@ -23,31 +19,27 @@ public class WebDAVHostRoutingFilter implements GlobalFilter {
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
         var token = (OAuthAuthenticationToken) exchange.getAttribute(AUTHORIZATION_REQUEST_ATTRIBUTE);
-        if (token == null) {
-            Optional<WebSession> session = exchange.getSession().blockOptional(Duration.ofMillis(500));
-            if (session.isPresent()) {
-                if (session.get().getAttribute(AUTHORIZATION_REQUEST_ATTRIBUTE) != null) {
-                    OAuthAuthenticationToken finalToken = session.get().getAttribute(AUTHORIZATION_REQUEST_ATTRIBUTE);
-                    if (finalToken != null) {
-                        exchange.getRequest()
-                                .mutate()
-                                .headers(h -> {
-                                    h.remove(AUTHORIZATION_HEADER);
-                                    h.add(AUTHORIZATION_HEADER, BEARER_PREFIX + finalToken.getAccessToken());
-                                })
-                                .build();
-                    }
-                }
-            }
-        } else {
-            exchange.getRequest()
-                    .mutate()
-                    .headers(h -> {
-                        h.remove(AUTHORIZATION_HEADER);
-                        h.add(AUTHORIZATION_HEADER, BEARER_PREFIX + token.getAccessToken());
-                    })
-                    .build();
+        if (token != null) {
+            setAuthorizationHeader(exchange, token);
+            return chain.filter(exchange);
         }
-        return chain.filter(exchange);
+        return exchange.getSession()
+                .doOnNext(session -> {
+                    OAuthAuthenticationToken sessionToken = session.getAttribute(AUTHORIZATION_REQUEST_ATTRIBUTE);
+                    if (sessionToken != null) {
+                        setAuthorizationHeader(exchange, sessionToken);
+                    }
+                })
+                .then(Mono.defer(() -> chain.filter(exchange)));
+    }
+
+    private static void setAuthorizationHeader(ServerWebExchange exchange, OAuthAuthenticationToken token) {
+        exchange.getRequest()
+                .mutate()
+                .headers(h -> {
+                    h.remove(AUTHORIZATION_HEADER);
+                    h.add(AUTHORIZATION_HEADER, BEARER_PREFIX + token.getAccessToken());
+                })
+                .build();
     }
 }
@@ -31,7 +31,7 @@ public class AuthorizationFailedHandlerTest {
                 .header("Accept", "text/html")
                 .build();
         exchange = MockServerWebExchange.from(request);
-        authorizationFailedHandler.handleFailedAuthorization(exchange);
+        authorizationFailedHandler.handleFailedAuthorization(exchange).block();
         assertEquals(HttpStatusCode.valueOf(302), exchange.getResponse().getStatusCode());
         assertEquals(
                 "http://localhost/login",
@@ -44,7 +44,7 @@ public class AuthorizationFailedHandlerTest {
                 .header("Accept", "text/html, application/json, other-types")
                 .build();
         exchange = MockServerWebExchange.from(request);
-        authorizationFailedHandler.handleFailedAuthorization(exchange);
+        authorizationFailedHandler.handleFailedAuthorization(exchange).block();
         assertEquals(HttpStatusCode.valueOf(302), exchange.getResponse().getStatusCode());
         assertEquals(
                 "http://localhost/login",
@@ -57,7 +57,7 @@ public class AuthorizationFailedHandlerTest {
                 .header("Accept", "text/html")
                 .build();
         exchange = MockServerWebExchange.from(request);
-        authorizationFailedHandler.handleFailedAuthorization(exchange);
+        authorizationFailedHandler.handleFailedAuthorization(exchange).block();
         assertEquals(
                 "http://request-uri",
                 exchange.getSession()
@@ -71,7 +71,7 @@ public class AuthorizationFailedHandlerTest {
                 .header("Accept", "application/json")
                 .build();
         exchange = MockServerWebExchange.from(request);
-        authorizationFailedHandler.handleFailedAuthorization(exchange);
+        authorizationFailedHandler.handleFailedAuthorization(exchange).block();
         assertEquals(HttpStatusCode.valueOf(401), exchange.getResponse().getStatusCode());
     }
 
@@ -81,7 +81,7 @@ public class AuthorizationFailedHandlerTest {
                 .header("Accept", "X-Requested-With")
                 .build();
         exchange = MockServerWebExchange.from(request);
-        authorizationFailedHandler.handleFailedAuthorization(exchange);
+        authorizationFailedHandler.handleFailedAuthorization(exchange).block();
         assertEquals(HttpStatusCode.valueOf(401), exchange.getResponse().getStatusCode());
     }
 
@@ -91,7 +91,7 @@ public class AuthorizationFailedHandlerTest {
                 MockServerHttpRequest.get("http://localhost").build();
         assertEquals(0, request.getHeaders().size());
         exchange = MockServerWebExchange.from(request);
-        authorizationFailedHandler.handleFailedAuthorization(exchange);
+        authorizationFailedHandler.handleFailedAuthorization(exchange).block();
         assertEquals(HttpStatusCode.valueOf(401), exchange.getResponse().getStatusCode());
     }
 }
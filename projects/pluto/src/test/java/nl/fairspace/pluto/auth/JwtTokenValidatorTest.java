@@ -1,6 +1,7 @@
 package nl.fairspace.pluto.auth;
 
 import java.text.ParseException;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -18,6 +19,8 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -59,4 +62,30 @@ public class JwtTokenValidatorTest {
 
         assertNull(returnedClaims);
     }
+
+    @Test
+    void testValidatedTokensAreCached() throws ParseException, JOSEException, BadJOSEException {
+        JWTClaimsSet claimsSet = new JWTClaimsSet.Builder()
+                .claim("firstclaim", "value")
+                .expirationTime(new Date(System.currentTimeMillis() + 60_000))
+                .build();
+        when(jwtProcessor.process(eq(token), any())).thenReturn(claimsSet);
+
+        assertEquals(claimsSet.getClaims(), tokenValidator.parseAndValidate(token));
+        assertEquals(claimsSet.getClaims(), tokenValidator.parseAndValidate(token));
+
+        verify(jwtProcessor, times(1)).process(eq(token), any());
+    }
+
+    @Test
+    void testExpiredTokensAreValidatedAgain() throws ParseException, JOSEException, BadJOSEException {
+        JWTClaimsSet claimsSet = new JWTClaimsSet.Builder()
+                .claim("firstclaim", "value")
+                .expirationTime(new Date(System.currentTimeMillis() - 1_000))
+                .build();
+        when(jwtProcessor.process(eq(token), any())).thenReturn(claimsSet).thenThrow(new RuntimeException("Expired"));
+
+        assertEquals(claimsSet.getClaims(), tokenValidator.parseAndValidate(token));
+        assertNull(tokenValidator.parseAndValidate(token));
+    }
 }
@@ -3,8 +3,11 @@ package nl.fairspace.pluto.auth.filters;
 import java.io.IOException;
 import java.time.Duration;
 import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import com.nimbusds.oauth2.sdk.ParseException;
 import org.junit.Before;
@@ -17,6 +20,7 @@ import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
 import org.springframework.mock.web.server.MockServerWebExchange;
 import org.springframework.web.server.ServerWebExchange;
 import org.springframework.web.server.WebSession;
+import reactor.core.publisher.Mono;
 
 import nl.fairspace.pluto.auth.JwtTokenValidator;
 import nl.fairspace.pluto.auth.OAuthFlow;
@@ -26,7 +30,13 @@ import static nl.fairspace.pluto.auth.AuthConstants.AUTHORIZATION_REQUEST_ATTRIB
 import static nl.fairspace.pluto.auth.AuthConstants.AUTHORIZATION_SESSION_ATTRIBUTE;
 
 import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 @RunWith(MockitoJUnitRunner.class)
 public class SessionAuthenticationFilterTest {
@@ -59,6 +69,7 @@ public class SessionAuthenticationFilterTest {
         claims.put("authorities", Collections.singletonList("test"));
         tokenWithClaims = token.toBuilder().claimsSet(claims).build();
         exchange = MockServerWebExchange.builder(MockServerHttpRequest.get("/")).build();
+        doReturn(Mono.empty()).when(filterChain).filter(any());
     }
 
     @Test
@@ -67,7 +78,7 @@ public class SessionAuthenticationFilterTest {
         assertNotNull(session);
         session.getAttributes().put(AUTHORIZATION_SESSION_ATTRIBUTE, token);
         doReturn(claims).when(accessTokenValidator).parseAndValidate("test-token");
-        filter.filter(exchange, filterChain);
+        filter.filter(exchange, filterChain).block();
 
         assertEquals(tokenWithClaims, exchange.getAttribute(AUTHORIZATION_REQUEST_ATTRIBUTE));
     }
@@ -82,7 +93,7 @@ public class SessionAuthenticationFilterTest {
 
         int originalAttributesSize = exchange.getAttributes().size();
 
-        filter.filter(exchange, filterChain);
+        filter.filter(exchange, filterChain).block();
 
         assertEquals(token, exchange.getAttributes().get(AUTHORIZATION_REQUEST_ATTRIBUTE));
         assertEquals(originalAttributesSize, exchange.getAttributes().size());
@@ -94,7 +105,7 @@ public class SessionAuthenticationFilterTest {
         assertNotNull(session);
         int originalAttributesSize = exchange.getAttributes().size();
 
-        filter.filter(exchange, filterChain);
+        filter.filter(exchange, filterChain).block();
 
         assertNull(exchange.getAttributes().get(AUTHORIZATION_REQUEST_ATTRIBUTE));
         assertEquals(originalAttributesSize, exchange.getAttributes().size());
@@ -108,7 +119,7 @@ public class SessionAuthenticationFilterTest {
         doReturn(null).when(accessTokenValidator).parseAndValidate("test-token");
         int originalAttributesSize = exchange.getAttributes().size();
 
-        filter.filter(exchange, filterChain);
+        filter.filter(exchange, filterChain).block();
 
         assertNull(exchange.getAttributes().get(AUTHORIZATION_REQUEST_ATTRIBUTE));
         assertEquals(originalAttributesSize, exchange.getAttributes().size());
@@ -124,7 +135,7 @@ public class SessionAuthenticationFilterTest {
         doReturn(refreshedToken).when(oAuthFlow).refreshToken(token);
         int originalAttributesSize = exchange.getAttributes().size();
 
-        filter.filter(exchange, filterChain);
+        filter.filter(exchange, filterChain).block();
 
         OAuthAuthenticationToken finalToken =
                 refreshedToken.toBuilder().claimsSet(claims).build();
@@ -139,6 +150,35 @@ public class SessionAuthenticationFilterTest {
                         .get(AUTHORIZATION_SESSION_ATTRIBUTE));
     }
 
+    @Test
+    public void testConcurrentRequestsShareTheRefreshOfAnExpiredToken() throws Exception {
+        var other =
+                MockServerWebExchange.builder(MockServerHttpRequest.get("/")).build();
+        for (var e : new ServerWebExchange[] {exchange, other}) {
+            e.getSession().block(Duration.ofMillis(500)).getAttributes().put(AUTHORIZATION_SESSION_ATTRIBUTE, token);
+        }
+        doReturn(null).when(accessTokenValidator).parseAndValidate("test-token");
+        doReturn(claims).when(accessTokenValidator).parseAndValidate("refreshed-test-token");
+        var refreshed = new CountDownLatch(1);
+        doAnswer(invocation -> {
+                    refreshed.await(5, TimeUnit.SECONDS);
+                    return refreshedToken;
+                })
+                .when(oAuthFlow)
+                .refreshToken(token);
+
+        var requests = Mono.when(filter.filter(exchange, filterChain), filter.filter(other, filterChain))
+                .toFuture();
+        refreshed.countDown();
+        requests.get(5, TimeUnit.SECONDS);
+
+        OAuthAuthenticationToken finalToken =
+                refreshedToken.toBuilder().claimsSet(claims).build();
+        assertEquals(finalToken, exchange.getAttribute(AUTHORIZATION_REQUEST_ATTRIBUTE));
+        assertEquals(finalToken, other.getAttribute(AUTHORIZATION_REQUEST_ATTRIBUTE));
+        verify(oAuthFlow, times(1)).refreshToken(token);
+    }
+
     @Test
     public void testRefreshingFailed() throws IOException, ParseException {
         WebSession session = this.exchange.getSession().block(Duration.ofMillis(500));
@@ -149,9 +189,51 @@ public class SessionAuthenticationFilterTest {
         doReturn(null).when(accessTokenValidator).parseAndValidate("refreshed-test-token");
         int originalAttributesSize = exchange.getAttributes().size();
 
-        filter.filter(exchange, filterChain);
+        filter.filter(exchange, filterChain).block();
 
         assertNull(exchange.getAttributes().get(AUTHORIZATION_REQUEST_ATTRIBUTE));
         assertEquals(originalAttributesSize, exchange.getAttributes().size());
     }
+
+    @Test
+    public void testTokenThatExpiresSoonIsRefreshedInTheBackground()
+            throws IOException, ParseException, InterruptedException {
+        WebSession session = this.exchange.getSession().block(Duration.ofMillis(500));
+        assertNotNull(session);
+        session.getAttributes().put(AUTHORIZATION_SESSION_ATTRIBUTE, token);
+        claims.put("exp", new Date(System.currentTimeMillis() + 10_000));
+        doReturn(claims).when(accessTokenValidator).parseAndValidate("test-token");
+        doReturn(refreshedToken).when(oAuthFlow).refreshToken(token);
+        doReturn(claims).when(accessTokenValidator).parseAndValidate("refreshed-test-token");
+
+        filter.filter(exchange, filterChain).block();
+
+        // The request is authenticated with the current token
+        assertEquals(
+                token.toBuilder().claimsSet(claims).build(), exchange.getAttribute(AUTHORIZATION_REQUEST_ATTRIBUTE));
+
+        // The refreshed token is stored in the session
+        verify(oAuthFlow, timeout(1000)).refreshToken(token);
+        OAuthAuthenticationToken finalToken =
+                refreshedToken.toBuilder().claimsSet(claims).build();
+        for (int i = 0; i < 100 && !finalToken.equals(session.getAttribute(AUTHORIZATION_SESSION_ATTRIBUTE)); i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(finalToken, session.getAttribute(AUTHORIZATION_SESSION_ATTRIBUTE));
+    }
+
+    @Test
+    public void testTokenThatDoesNotExpireSoonIsNotRefreshed() throws IOException, ParseException {
+        WebSession session = this.exchange.getSession().block(Duration.ofMillis(500));
+        assertNotNull(session);
+        session.getAttributes().put(AUTHORIZATION_SESSION_ATTRIBUTE, token);
+        claims.put("exp", new Date(System.currentTimeMillis() + 300_000));
+        doReturn(claims).when(accessTokenValidator).parseAndValidate("test-token");
+
+        filter.filter(exchange, filterChain).block();
+
+        assertEquals(
+                token.toBuilder().claimsSet(claims).build(), exchange.getAttribute(AUTHORIZATION_REQUEST_ATTRIBUTE));
+        verify(oAuthFlow, never()).refreshToken(any());
+    }
 }
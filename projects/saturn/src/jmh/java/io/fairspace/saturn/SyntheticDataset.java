@@ -0,0 +1,313 @@
+package io.fairspace.saturn;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import javax.security.auth.Subject;
+
+import io.milton.resource.MakeCollectionableResource;
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.rdf.model.Literal;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.sparql.util.Context;
+import org.apache.jena.vocabulary.RDF;
+import org.apache.jena.vocabulary.RDFS;
+import org.eclipse.jetty.security.DefaultUserIdentity;
+import org.eclipse.jetty.security.UserAuthentication;
+import org.eclipse.jetty.server.Request;
+import org.keycloak.KeycloakPrincipal;
+import org.keycloak.KeycloakSecurityContext;
+import org.keycloak.admin.client.resource.UsersResource;
+import org.keycloak.representations.AccessToken;
+import org.keycloak.representations.idm.UserRepresentation;
+
+import io.fairspace.saturn.config.Config;
+import io.fairspace.saturn.config.ConfigLoader;
+import io.fairspace.saturn.rdf.dao.DAO;
+import io.fairspace.saturn.rdf.transactions.SimpleTransactions;
+import io.fairspace.saturn.rdf.transactions.Transactions;
+import io.fairspace.saturn.services.metadata.MetadataPermissions;
+import io.fairspace.saturn.services.users.User;
+import io.fairspace.saturn.services.users.UserService;
+import io.fairspace.saturn.services.workspaces.Workspace;
+import io.fairspace.saturn.services.workspaces.WorkspaceRole;
+import io.fairspace.saturn.services.workspaces.WorkspaceService;
+import io.fairspace.saturn.webdav.DavFactory;
+import io.fairspace.saturn.webdav.blobstore.BlobInfo;
+import io.fairspace.saturn.webdav.blobstore.BlobStore;
+import io.fairspace.saturn.webdav.resources.BaseResource;
+import io.fairspace.saturn.webdav.resources.DirectoryResource;
+
+import static io.fairspace.saturn.auth.RequestContext.setCurrentRequest;
+import static io.fairspace.saturn.auth.RequestContext.setCurrentUserStringUri;
+import static io.fairspace.saturn.rdf.SparqlUtils.generateMetadataIri;
+
+import static org.apache.jena.rdf.model.ModelFactory.createDefaultModel;
+import static org.apache.jena.rdf.model.ResourceFactory.createProperty;
+import static org.apache.jena.rdf.model.ResourceFactory.createResource;
+import static org.apache.jena.rdf.model.ResourceFactory.createTypedLiteral;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * A synthetic dataset for the benchmarks, generated from a fixed seed so that every run measures the same data:
+ * users, workspaces with managers and members, and collections with a directory of files each,
+ * created through the services the API uses.
+ * The first user is an administrator; the others are members of every other workspace.
+ * The metadata is shaped like testdata.ttl and uses the test vocabulary, taxonomies and views.
+ */
+public class SyntheticDataset {
+    public static final String BASE_PATH = "/api/webdav";
+    public static final String DIRECTORY = "data";
+    public static final String VIEWS_CONFIG = "src/test/resources/test-views.yaml";
+
+    private static final String CURIE = "https://institut-curie.org/ontology#";
+    private static final String[] GENDERS = {
+        "http://hl7.org/fhir/administrative-gender#male", "http://hl7.org/fhir/administrative-gender#female"
+    };
+    private static final String SPECIES = "https://bioportal.bioontology.org/ontologies/NCBITAXON/9606";
+    private static final String[] NATURES = {
+        "http://ncicb.nci.nih.gov/xml/owl/EVS/Thesaurus.owl#C12434",
+        "http://ncicb.nci.nih.gov/xml/owl/EVS/Thesaurus.owl#C812"
+    };
+    private static final String[] TOPOGRAPHIES = {
+        "https://bioportal.bioontology.org/ontologies/ICD-O-3-T/C42",
+        "https://bioportal.bioontology.org/ontologies/ICD-O-3-T/C22.0",
+        "https://bioportal.bioontology.org/ontologies/ICD-O-3-T/C34.9"
+    };
+
+    public final Dataset dataset;
+    public final Transactions transactions;
+    public final Model vocabulary;
+    public final UserService userService;
+    public final WorkspaceService workspaceService;
+    public final DavFactory davFactory;
+    public final MetadataPermissions permissions;
+    public final List<User> users = new ArrayList<>();
+    public final List<Workspace> workspaces = new ArrayList<>();
+    public final List<Resource> collections = new ArrayList<>();
+    public final List<Resource> files = new ArrayList<>();
+
+    private final BenchmarkRequest request = new BenchmarkRequest();
+
+    /**
+     * @param dataset            an empty dataset.
+     * @param userCount          the number of users, at least 2.
+     * @param workspaceCount     the number of workspaces.
+     * @param collectionCount    the number of collections, divided over the workspaces.
+     * @param filesPerDirectory  the number of files in the directory of each collection.
+     */
+    public SyntheticDataset(
+            Dataset dataset, int userCount, int workspaceCount, int collectionCount, int filesPerDirectory)
+            throws Exception {
+        this.dataset = dataset;
+        transactions = new SimpleTransactions(dataset);
+        vocabulary = createDefaultModel().read("test-vocabulary.ttl");
+
+        var keycloakUsers = new ArrayList<UserRepresentation>();
+        transactions.executeWrite(model -> {
+            var dao = new DAO(model);
+            for (var i = 0; i < userCount; i++) {
+                var user = new User();
+                user.setId("user" + i);
+                user.setUsername("user" + i);
+                user.setName("user" + i);
+                user.setIri(generateMetadataIri(user.getId()));
+                user.setAdmin(i == 0);
+                users.add(dao.write(user));
+
+                var keycloakUser = new UserRepresentation();
+                keycloakUser.setId(user.getId());
+                keycloakUser.setUsername(user.getUsername());
+                keycloakUsers.add(keycloakUser);
+            }
+        });
+        var usersResource = mock(UsersResource.class);
+        when(usersResource.list(anyInt(), anyInt())).thenAnswer(invocation -> {
+            int first = invocation.getArgument(0);
+            int max = invocation.getArgument(1);
+            return keycloakUsers.subList(
+                    Math.min(first, keycloakUsers.size()), Math.min(first + max, keycloakUsers.size()));
+        });
+        userService = new UserService(new Config.Auth(), transactions, usersResource);
+        workspaceService = new WorkspaceService(transactions, userService);
+        davFactory = new DavFactory(
+                dataset.getDefaultModel().createResource(ConfigLoader.CONFIG.publicUrl + BASE_PATH),
+                mock(BlobStore.class),
+                userService,
+                new Context());
+        permissions = new MetadataPermissions(workspaceService, davFactory, userService);
+
+        setCurrentRequest(request);
+        request.setAttribute("BLOB", new BlobInfo("id", 0, "md5"));
+        selectUser(admin());
+
+        for (var i = 0; i < workspaceCount; i++) {
+            var workspace = workspaceService.createWorkspace(
+                    Workspace.builder().code("WS" + i).build());
+            for (var u = 1; u < userCount; u++) {
+                if (u % workspaceCount == i) {
+                    workspaceService.setUserRole(
+                            workspace.getIri(), users.get(u).getIri(), WorkspaceRole.Manager);
+                } else if (u % 2 == i % 2) {
+                    workspaceService.setUserRole(
+                            workspace.getIri(), users.get(u).getIri(), WorkspaceRole.Member);
+                }
+            }
+            workspaces.add(workspace);
+        }
+
+        var root = (MakeCollectionableResource) davFactory.root;
+        transactions.executeWrite(model -> {
+            for (var c = 0; c < collectionCount; c++) {
+                request.headers.put(
+                        "Owner", workspaces.get(c % workspaceCount).getIri().getURI());
+                var collection = (DirectoryResource) root.createCollection("coll" + c);
+                collections.add(model.createResource(collection.getIri()));
+                var directory = (DirectoryResource) collection.createCollection(DIRECTORY);
+                for (var f = 0; f < filesPerDirectory; f++) {
+                    var file = (BaseResource) directory.createNew("file" + f + ".txt", null, 0L, "text/plain");
+                    files.add(model.createResource(file.getIri()));
+                }
+            }
+        });
+        request.headers.remove("Owner");
+    }
+
+    public User admin() {
+        return users.get(0);
+    }
+
+    /**
+     * @return a user who is not an administrator.
+     */
+    public User regularUser() {
+        return users.get(1);
+    }
+
+    /**
+     * Makes the user the current user of the request the benchmark runs in.
+     * The request is bound to the calling thread, so benchmarks depending on it use thread scoped state.
+     */
+    public void selectUser(User user) {
+        var token = new AccessToken();
+        token.subject(user.getId());
+        token.setPreferredUsername(user.getUsername());
+        var principal = new KeycloakPrincipal<>(user.getId(), new KeycloakSecurityContext(null, token, null, null));
+        request.setAuthentication(
+                new UserAuthentication("bearer", new DefaultUserIdentity(new Subject(), principal, new String[0])));
+        setCurrentRequest(request);
+        setCurrentUserStringUri(null);
+    }
+
+    /**
+     * Generates the metadata of the subjects with a tumor pathology event and two biological samples each,
+     * and links each of the files to a subject and a sample.
+     *
+     * @param first the number of the first subject; the IRIs and labels of the subjects are numbered.
+     */
+    public static Model metadata(int first, int subjectCount, List<Resource> files, long seed) {
+        var random = new Random(seed);
+        var model = createDefaultModel();
+        var subjects = new ArrayList<Resource>();
+        var samples = new ArrayList<Resource>();
+        for (var s = first; s < first + subjectCount; s++) {
+            var subject = model.createResource("http://example.com/subjects#s" + s)
+                    .addProperty(RDF.type, curie("Subject"))
+                    .addProperty(RDFS.label, "Subject " + s)
+                    .addProperty(curieProperty("isOfGender"), createResource(GENDERS[random.nextInt(GENDERS.length)]))
+                    .addProperty(curieProperty("isOfSpecies"), createResource(SPECIES));
+            subjects.add(subject);
+
+            model.createResource("http://example.com/events#s" + s + "-e1")
+                    .addProperty(RDF.type, curie("TumorPathologyEvent"))
+                    .addProperty(RDFS.label, "Tumor pathology event 1 for subject " + s)
+                    .addLiteral(curieProperty("ageAtDiagnosis"), integer(20 + random.nextInt(60)))
+                    .addProperty(curieProperty("eventSubject"), subject)
+                    .addProperty(
+                            curieProperty("topography"),
+                            createResource(TOPOGRAPHIES[random.nextInt(TOPOGRAPHIES.length)]));
+
+            for (var n = 0; n < 2; n++) {
+                samples.add(model.createResource("http://example.com/samples#s" + s + "-" + n)
+                        .addProperty(RDF.type, curie("BiologicalSample"))
+                        .addProperty(RDFS.label, "Sample " + n + " for subject " + s)
+                        .addProperty(curieProperty("isOfNature"), createResource(NATURES[n % NATURES.length]))
+                        .addProperty(curieProperty("subject"), subject)
+                        .addProperty(
+                                curieProperty("topography"),
+                                createResource(TOPOGRAPHIES[random.nextInt(TOPOGRAPHIES.length)]))
+                        .addLiteral(curieProperty("tumorCellularity"), integer(random.nextInt(100))));
+            }
+        }
+        if (!subjects.isEmpty()) {
+            for (var f = 0; f < files.size(); f++) {
+                model.createResource(files.get(f).getURI())
+                        .addProperty(curieProperty("aboutSubject"), subjects.get(f % subjects.size()))
+                        .addProperty(curieProperty("sample"), samples.get(f % samples.size()));
+            }
+        }
+        return model;
+    }
+
+    /**
+     * @return the taxonomies of the test vocabulary, which the metadata refers to.
+     */
+    public static Model taxonomies() {
+        return createDefaultModel().read("test-taxonomies.ttl");
+    }
+
+    private static Literal integer(int value) {
+        return createTypedLiteral(String.valueOf(value), XSDDatatype.XSDinteger);
+    }
+
+    private static Resource curie(String name) {
+        return createResource(CURIE + name);
+    }
+
+    private static org.apache.jena.rdf.model.Property curieProperty(String name) {
+        return createProperty(CURIE + name);
+    }
+
+    /**
+     * A request with the headers and attributes set by the benchmarks, and without a connection.
+     */
+    private static class BenchmarkRequest extends Request {
+        private final Map<String, String> headers = new HashMap<>();
+        private final Map<String, Object> attributes = new HashMap<>();
+
+        BenchmarkRequest() {
+            super(null, null);
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return headers.get(name);
+        }
+
+        @Override
+        public String getParameter(String name) {
+            return null;
+        }
+
+        @Override
+        public Object getAttribute(String name) {
+            return attributes.get(name);
+        }
+
+        @Override
+        public void setAttribute(String name, Object value) {
+            attributes.put(name, value);
+        }
+
+        @Override
+        public void removeAttribute(String name) {
+            attributes.remove(name);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package io.fairspace.saturn.rdf.dao;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.rdf.model.Model;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.fairspace.saturn.services.users.User;
+
+import static org.apache.jena.graph.NodeFactory.createURI;
+import static org.apache.jena.rdf.model.ModelFactory.createDefaultModel;
+
+/**
+ * Reads users the way UserService.fetchUsers does, with the reflective reader DAO used before,
+ * with DAO.read per user and with DAO.readAll.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DAOBenchmark {
+    @Param({"1000", "10000"})
+    private int users;
+
+    private Model model;
+    private List<Node> iris;
+
+    @Setup
+    public void setup() {
+        model = createDefaultModel();
+        iris = new ArrayList<>(users);
+        var dao = new DAO(model);
+        for (var i = 0; i < users; i++) {
+            var user = new User();
+            user.setIri(createURI("http://localhost/iri/user" + i));
+            user.setId("user" + i);
+            user.setName("User " + i);
+            user.setEmail("user" + i + "@example.com");
+            user.setUsername("user" + i);
+            user.setCanViewPublicMetadata(i % 2 == 0);
+            dao.write(user);
+            iris.add(user.getIri());
+        }
+    }
+
+    @Benchmark
+    public List<User> reflectiveRead() throws Exception {
+        var result = new ArrayList<User>(users);
+        for (var iri : iris) {
+            result.add(ReflectiveEntityReader.read(User.class, model.wrapAsResource(iri)));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<User> read() {
+        var dao = new DAO(model);
+        var result = new ArrayList<User>(users);
+        for (var iri : iris) {
+            result.add(dao.read(User.class, iri));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<User> readAll() {
+        return new DAO(model).readAll(User.class, iris);
+    }
+
+    @Benchmark
+    public List<User> list() {
+        return new DAO(model).list(User.class);
+    }
+}
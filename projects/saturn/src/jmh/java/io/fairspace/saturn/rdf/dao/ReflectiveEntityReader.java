@@ -0,0 +1,85 @@
+package io.fairspace.saturn.rdf.dao;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.time.Instant;
+import java.util.Collection;
+
+import org.apache.jena.datatypes.xsd.XSDDateTime;
+import org.apache.jena.graph.Node;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.vocabulary.RDF;
+
+import static com.fasterxml.jackson.databind.type.TypeFactory.rawClass;
+import static java.time.Instant.ofEpochMilli;
+import static org.apache.jena.rdf.model.ResourceFactory.createProperty;
+import static org.apache.jena.rdf.model.ResourceFactory.createResource;
+
+/**
+ * The reflective entity reader that DAO used before EntityMapper: the fields, annotations and value types
+ * of the entity class are looked up on every read, and each field is read with a separate lookup.
+ * It is the baseline of {@link DAOBenchmark}.
+ */
+class ReflectiveEntityReader {
+    static <T extends PersistentEntity> T read(Class<T> type, Resource resource) throws Exception {
+        var typeResource = createResource(type.getAnnotation(RDFType.class).value());
+        if (!resource.hasProperty(RDF.type, typeResource)) {
+            throw new DAOException("Wrong type");
+        }
+        var ctor = type.getDeclaredConstructor();
+        ctor.setAccessible(true);
+        var entity = ctor.newInstance();
+        entity.setIri(resource.asNode());
+        for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+            for (var field : c.getDeclaredFields()) {
+                var annotation = field.getAnnotation(RDFProperty.class);
+                if (annotation != null) {
+                    field.setAccessible(true);
+                    readField(entity, field, annotation, resource);
+                }
+            }
+        }
+        return entity;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static void readField(Object entity, Field field, RDFProperty annotation, Resource resource)
+            throws IllegalAccessException {
+        var stmts = resource.listProperties(createProperty(annotation.value())).toList();
+        if (Collection.class.isAssignableFrom(field.getType())) {
+            var collection = (Collection) field.get(entity);
+            var valueType = rawClass(((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0]);
+            stmts.forEach(stmt -> collection.add(nodeToType(stmt.getObject(), valueType)));
+        } else if (stmts.size() > 1) {
+            throw new DAOException("Too many values");
+        } else if (!stmts.isEmpty()) {
+            field.set(entity, nodeToType(stmts.get(0).getObject(), field.getType()));
+        } else if (annotation.required()) {
+            throw new DAOException("No value");
+        }
+    }
+
+    private static Object nodeToType(RDFNode object, Class<?> type) {
+        if (type == Node.class) {
+            return object.asNode();
+        }
+        var literal = object.asLiteral();
+        if (type == String.class) {
+            return literal.getString();
+        }
+        if (type == Long.class || type == long.class) {
+            return literal.getLong();
+        }
+        if (type == Integer.class || type == int.class) {
+            return literal.getInt();
+        }
+        if (type == Boolean.class || type == boolean.class) {
+            return literal.getBoolean();
+        }
+        if (type == Instant.class) {
+            return ofEpochMilli(((XSDDateTime) literal.getValue()).asCalendar().getTimeInMillis());
+        }
+        throw new DAOException("Unsupported type " + type.getName());
+    }
+}
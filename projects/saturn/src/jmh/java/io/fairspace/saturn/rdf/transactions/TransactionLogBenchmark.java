@@ -0,0 +1,115 @@
+package io.fairspace.saturn.rdf.transactions;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.DatasetGraphFactory;
+import org.apache.jena.sparql.core.Quad;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.fairspace.saturn.SyntheticDataset;
+
+/**
+ * Writes and reads a transaction with SparqlTransactionCodec, and restores a dataset from a transaction log
+ * with a transaction per subject, as after losing the database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransactionLogBenchmark {
+    private static final long SEED = 42;
+
+    @Param({"100", "1000"})
+    private int subjects;
+
+    private final TransactionCodec codec = new SparqlTransactionCodec();
+    private List<Triple> triples;
+    private byte[] encoded;
+    private File logDirectory;
+    private LocalTransactionLog transactionLog;
+
+    @Setup
+    public void setup() throws IOException {
+        var metadata = SyntheticDataset.metadata(0, subjects, List.of(), SEED);
+        triples = metadata.getGraph().find().toList();
+        encoded = encode(triples);
+
+        logDirectory = Files.createTempDirectory("transaction-log-benchmark").toFile();
+        transactionLog = new LocalTransactionLog(logDirectory, codec);
+        for (var subject : metadata.listSubjects().toList()) {
+            write(transactionLog, subject.listProperties().toModel());
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(logDirectory);
+    }
+
+    private byte[] encode(List<Triple> triples) throws IOException {
+        var out = new ByteArrayOutputStream();
+        var listener = codec.write(out);
+        listener.onMetadata("user", "User", 0L);
+        for (var t : triples) {
+            listener.onAdd(Quad.defaultGraphIRI, t.getSubject(), t.getPredicate(), t.getObject());
+        }
+        listener.onCommit();
+        return out.toByteArray();
+    }
+
+    private static void write(TransactionLog log, Model model) throws IOException {
+        log.onBegin();
+        log.onMetadata("user", "User", 0L);
+        for (var t : model.getGraph().find().toList()) {
+            log.onAdd(Quad.defaultGraphIRI, t.getSubject(), t.getPredicate(), t.getObject());
+        }
+        log.onCommit();
+    }
+
+    @Benchmark
+    public byte[] write() throws IOException {
+        return encode(triples);
+    }
+
+    @Benchmark
+    public void read(Blackhole blackhole) throws IOException {
+        codec.read(new ByteArrayInputStream(encoded), new TransactionListener() {
+            @Override
+            public void onAdd(Node graph, Node subject, Node predicate, Node object) {
+                blackhole.consume(object);
+            }
+        });
+    }
+
+    @Benchmark
+    public DatasetGraph restore() {
+        var dsg = DatasetGraphFactory.createTxnMem();
+        Restore.restore(dsg, transactionLog);
+        return dsg;
+    }
+}
@@ -0,0 +1,75 @@
+package io.fairspace.saturn.services.metadata;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jena.rdf.model.Model;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.fairspace.saturn.SyntheticDataset;
+import io.fairspace.saturn.services.metadata.validation.ComposedValidator;
+import io.fairspace.saturn.services.metadata.validation.DeletionValidator;
+import io.fairspace.saturn.services.metadata.validation.MachineOnlyClassesValidator;
+import io.fairspace.saturn.services.metadata.validation.ProtectMachineOnlyPredicatesValidator;
+import io.fairspace.saturn.services.metadata.validation.ShaclValidator;
+import io.fairspace.saturn.services.metadata.validation.UniqueLabelValidator;
+
+import static org.apache.jena.query.DatasetFactory.createTxnMem;
+
+/**
+ * Adds a batch of new subjects, events and samples with MetadataService.put, validated by the validators
+ * the application uses, as a bulk PUT to the metadata API does.
+ * Every invocation adds new subjects, so the dataset is created again for every iteration.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MetadataServiceBenchmark {
+    private static final long SEED = 42;
+
+    @Param({"10", "100"})
+    private int subjects;
+
+    private MetadataService metadataService;
+    private int next;
+    private Model batch;
+
+    @Setup(Level.Iteration)
+    public void setupDataset() throws Exception {
+        var data = new SyntheticDataset(createTxnMem(), 10, 2, 2, 10);
+        data.transactions.executeWrite(model -> model.add(SyntheticDataset.taxonomies()));
+        var validator = new ComposedValidator(
+                new MachineOnlyClassesValidator(data.vocabulary),
+                new ProtectMachineOnlyPredicatesValidator(data.vocabulary),
+                new DeletionValidator(),
+                new UniqueLabelValidator(),
+                new ShaclValidator(data.vocabulary));
+        metadataService = new MetadataService(data.transactions, data.vocabulary, validator, data.permissions);
+        next = 0;
+    }
+
+    @Setup(Level.Invocation)
+    public void setupBatch() {
+        batch = SyntheticDataset.metadata(next, subjects, List.of(), SEED + next);
+        next += subjects;
+    }
+
+    @Benchmark
+    public void put() {
+        metadataService.put(batch, false);
+    }
+}
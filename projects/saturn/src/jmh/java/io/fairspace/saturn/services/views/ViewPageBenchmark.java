@@ -0,0 +1,107 @@
+package io.fairspace.saturn.services.views;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jena.sparql.core.DatasetGraphFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import io.fairspace.saturn.SyntheticDataset;
+import io.fairspace.saturn.config.Config;
+import io.fairspace.saturn.config.ConfigLoader;
+import io.fairspace.saturn.rdf.transactions.TxnIndexDatasetGraph;
+import io.fairspace.saturn.services.metadata.MetadataService;
+import io.fairspace.saturn.services.metadata.validation.ComposedValidator;
+
+import static io.fairspace.saturn.TestUtils.loadViewsConfig;
+
+import static org.apache.jena.query.DatasetFactory.wrap;
+
+/**
+ * Retrieves the first page of a view from the view database, with and without a filter,
+ * as a user who has access to some of the collections.
+ * The view database is a PostgreSQL container, so running the benchmark requires Docker.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ViewPageBenchmark {
+    private static final long SEED = 42;
+    private static final String SAMPLE_NATURE_BLOOD = "http://ncicb.nci.nih.gov/xml/owl/EVS/Thesaurus.owl#C12434";
+
+    @Param({"Subject", "Sample"})
+    private String view;
+
+    @Param({"1000"})
+    private int subjects;
+
+    private final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15-alpine");
+    private QueryService queryService;
+
+    @Setup
+    public void setup() throws Exception {
+        postgres.start();
+        var viewDatabase = new Config.ViewDatabase();
+        viewDatabase.url = postgres.getJdbcUrl();
+        viewDatabase.username = postgres.getUsername();
+        viewDatabase.password = postgres.getPassword();
+        viewDatabase.maxPoolSize = 5;
+        var viewsConfig = loadViewsConfig(SyntheticDataset.VIEWS_CONFIG);
+        var viewStoreClientFactory = new ViewStoreClientFactory(viewsConfig, viewDatabase, new Config.Search());
+
+        var dataset = wrap(new TxnIndexDatasetGraph(DatasetGraphFactory.createTxnMem(), viewStoreClientFactory));
+        var data = new SyntheticDataset(dataset, 100, 10, 20, 50);
+        var metadataService =
+                new MetadataService(data.transactions, data.vocabulary, new ComposedValidator(), data.permissions);
+        metadataService.put(SyntheticDataset.taxonomies(), true);
+        metadataService.put(SyntheticDataset.metadata(0, subjects, data.files, SEED), true);
+
+        queryService = new JdbcQueryService(
+                ConfigLoader.CONFIG.search, viewStoreClientFactory, data.transactions, data.davFactory.root);
+        data.selectUser(data.regularUser());
+    }
+
+    @TearDown
+    public void tearDown() {
+        postgres.stop();
+    }
+
+    private ViewRequest request() {
+        var request = new ViewRequest();
+        request.setView(view);
+        request.setPage(1);
+        request.setSize(10);
+        return request;
+    }
+
+    @Benchmark
+    public ViewPageDTO page() {
+        return queryService.retrieveViewPage(request());
+    }
+
+    @Benchmark
+    public ViewPageDTO filteredPage() {
+        var request = request();
+        request.setIncludeCounts(true);
+        request.setFilters(List.of(ViewFilter.builder()
+                .field("Sample_nature")
+                .values(List.of(SAMPLE_NATURE_BLOOD))
+                .build()));
+        return queryService.retrieveViewPage(request);
+    }
+}
@@ -0,0 +1,85 @@
+package io.fairspace.saturn.webdav;
+
+import java.util.concurrent.TimeUnit;
+
+import io.milton.resource.CollectionResource;
+import io.milton.resource.GetableResource;
+import io.milton.resource.MultiNamespaceCustomPropertyResource;
+import io.milton.resource.PropFindableResource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.fairspace.saturn.SyntheticDataset;
+
+import static io.fairspace.saturn.SyntheticDataset.BASE_PATH;
+import static io.fairspace.saturn.SyntheticDataset.DIRECTORY;
+
+import static org.apache.jena.query.DatasetFactory.createTxnMem;
+
+/**
+ * Lists a directory with its properties, as PROPFIND with depth 1 does, and checks the access of a user
+ * to all collections, as listing the collections does. Both run as a workspace manager who is not an administrator.
+ * The state is thread scoped, as the current request is bound to the thread.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DavFactoryBenchmark {
+    @Param({"100", "1000"})
+    private int filesPerDirectory;
+
+    @Param({"50"})
+    private int collections;
+
+    private SyntheticDataset data;
+    private String directoryPath;
+
+    @Setup
+    public void setup() throws Exception {
+        data = new SyntheticDataset(createTxnMem(), 100, 10, collections, filesPerDirectory);
+        data.selectUser(data.regularUser());
+        // The regular user manages the workspace of the second collection
+        directoryPath = BASE_PATH + "/coll1/" + DIRECTORY;
+    }
+
+    @Benchmark
+    public void propfindDepth1(Blackhole blackhole) throws Exception {
+        data.transactions.executeRead(model -> {
+            var directory = (CollectionResource) data.davFactory.getResource(null, directoryPath);
+            for (var child : directory.getChildren()) {
+                blackhole.consume(child.getUniqueId());
+                blackhole.consume(child.getName());
+                blackhole.consume(child.getModifiedDate());
+                blackhole.consume(((PropFindableResource) child).getCreateDate());
+                blackhole.consume(((GetableResource) child).getContentLength());
+                blackhole.consume(((GetableResource) child).getContentType(null));
+                var properties = (MultiNamespaceCustomPropertyResource) child;
+                for (var name : properties.getAllPropertyNames()) {
+                    blackhole.consume(properties.getProperty(name));
+                }
+            }
+        });
+    }
+
+    @Benchmark
+    public void accessChecks(Blackhole blackhole) {
+        data.transactions.executeRead(model -> {
+            for (var collection : data.collections) {
+                blackhole.consume(data.davFactory.getAccess(collection));
+            }
+        });
+    }
+}
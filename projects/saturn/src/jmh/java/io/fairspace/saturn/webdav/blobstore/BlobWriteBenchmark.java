@@ -0,0 +1,74 @@
+package io.fairspace.saturn.webdav.blobstore;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.fairspace.saturn.config.Config;
+
+/**
+ * Uploads blobs of a given size with a given buffer size and durability,
+ * including the computation of their checksums, as a PUT request does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BlobWriteBenchmark {
+    @Param({"1024", "16777216"})
+    private int size;
+
+    @Param({"8192", "1048576"})
+    private int bufferSize;
+
+    @Param({"NONE", "FSYNC", "BATCHED"})
+    private Config.BlobWrite.Durability durability;
+
+    @Param({"false", "true"})
+    private boolean crc32c;
+
+    private File dir;
+    private LocalBlobStore store;
+    private byte[] content;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("blobs").toFile();
+        var config = new Config.BlobWrite();
+        config.bufferSize = bufferSize;
+        config.durability = durability;
+        config.crc32c = crc32c;
+        store = new LocalBlobStore(dir, config);
+        content = new byte[size];
+        ThreadLocalRandom.current().nextBytes(content);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    @Benchmark
+    public BlobInfo store() throws IOException {
+        return store.store(new ByteArrayInputStream(content), size);
+    }
+}
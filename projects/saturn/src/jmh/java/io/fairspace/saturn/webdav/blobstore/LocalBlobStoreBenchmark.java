@@ -0,0 +1,88 @@
+package io.fairspace.saturn.webdav.blobstore;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static java.util.UUID.randomUUID;
+
+/**
+ * Writes and reads small blobs in a store that already holds many blobs, either in shard directories
+ * or in the flat layout of earlier versions (as found before the migration).
+ * The default size keeps a run short; for the measurement at 10M blobs, run the benchmark jar
+ * with <code>-p blobs=10000000</code>, which needs a few GB of inodes and takes a while to set up.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LocalBlobStoreBenchmark {
+    private static final byte[] CONTENT = new byte[1024];
+    private static final int SAMPLE_SIZE = 100_000;
+
+    @Param({"100000"})
+    private int blobs;
+
+    @Param({"sharded", "flat"})
+    private String layout;
+
+    private File dir;
+    private LocalBlobStore store;
+    private List<String> sample;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("blobs").toFile();
+        store = new LocalBlobStore(dir);
+        sample = new ArrayList<>();
+        for (var i = 0; i < blobs; i++) {
+            var id = randomUUID().toString();
+            var file = layout.equals("flat") ? new File(dir, id) : new File(dir, LocalBlobStore.shardPath(id));
+            if (layout.equals("sharded")) {
+                file.getParentFile().mkdirs();
+            }
+            Files.write(file.toPath(), CONTENT);
+            if (sample.size() < SAMPLE_SIZE) {
+                sample.add(id);
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    @Benchmark
+    public String write() throws IOException {
+        return store.write(new ByteArrayInputStream(CONTENT));
+    }
+
+    @Benchmark
+    public void read() throws IOException {
+        var id = sample.get(ThreadLocalRandom.current().nextInt(sample.size()));
+        store.read(id, NullOutputStream.INSTANCE, 0, null);
+    }
+}
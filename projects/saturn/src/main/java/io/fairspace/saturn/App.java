@@ -1,5 +1,6 @@
 package io.fairspace.saturn;
 
+import java.io.IOException;
 import java.sql.*;
 
 import lombok.extern.log4j.*;
@@ -8,10 +9,12 @@ import org.apache.jena.fuseki.server.*;
 import org.apache.jena.riot.*;
 import org.eclipse.jetty.server.session.SessionHandler;
 
+import io.fairspace.saturn.audit.Audit;
 import io.fairspace.saturn.auth.*;
 import io.fairspace.saturn.config.*;
 import io.fairspace.saturn.rdf.SaturnDatasetFactory;
 import io.fairspace.saturn.services.views.*;
+import io.fairspace.saturn.tracing.*;
 
 import static io.fairspace.saturn.config.ConfigLoader.CONFIG;
 import static io.fairspace.saturn.config.ConfigLoader.VIEWS_CONFIG;
@@ -21,8 +24,9 @@ import static io.fairspace.saturn.config.SparkFilterFactory.createSparkFilter;
 public class App {
     public static final String API_PREFIX = "/api";
 
-    public static FusekiServer startFusekiServer() {
+    public static FusekiServer startFusekiServer() throws IOException {
         log.info("Saturn is starting");
+        Tracer.start(CONFIG.tracing);
         ViewStoreClientFactory viewStoreClientFactory = null;
         if (CONFIG.viewDatabase.enabled) {
             try {
@@ -32,6 +36,11 @@ public class App {
                 throw new RuntimeException("Error connecting to the view database", e); // Terminates Saturn
             }
         }
+        try {
+            Audit.start(CONFIG.audit, viewStoreClientFactory == null ? null : viewStoreClientFactory.dataSource);
+        } catch (SQLException e) {
+            throw new RuntimeException("Error creating the audit table", e); // Terminates Saturn
+        }
         var ds = SaturnDatasetFactory.connect(CONFIG.jena, viewStoreClientFactory);
 
         var svc = new Services(CONFIG, VIEWS_CONFIG, ds, viewStoreClientFactory);
@@ -53,6 +62,10 @@ public class App {
 
         var server = serverBuilder.build();
         server.getJettyServer().insertHandler(new SessionHandler());
+        if (Tracer.isEnabled()) {
+            // Inserted last, so that the span of a request includes authentication
+            server.getJettyServer().insertHandler(new TracingHandler());
+        }
         server.start();
         log.info("Saturn has started");
         return server;
@@ -1,37 +1,112 @@
 package io.fairspace.saturn.audit;
 
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Objects;
+import javax.sql.DataSource;
 
-import org.apache.logging.log4j.*;
-import org.apache.logging.log4j.Logger;
+import lombok.extern.log4j.*;
+
+import io.fairspace.saturn.config.Config;
 
 import static io.fairspace.saturn.auth.RequestContext.getAccessToken;
 
+/**
+ * The audit log. Events are written by a background {@link AuditWriter} once started,
+ * and to the audit logger on the calling thread otherwise.
+ */
+@Log4j2
 public class Audit {
-    private static final Logger log = LogManager.getLogger("audit");
+    private static final LogAuditSink SYNCHRONOUS_SINK = new LogAuditSink();
 
-    public static void audit(String event, Object... params) {
-        ThreadContext.put("event", event);
+    private static volatile AuditWriter writer;
+
+    public static void start(Config.Audit config, DataSource dataSource) throws IOException, SQLException {
+        if (!config.async) {
+            return;
+        }
+        AuditSink sink =
+                switch (config.sink) {
+                    case "log" -> new LogAuditSink();
+                    case "file" -> new FileAuditSink(config.file);
+                    case "database" -> {
+                        if (dataSource == null) {
+                            throw new IllegalArgumentException("The database audit sink requires the view database");
+                        }
+                        yield new DatabaseAuditSink(dataSource);
+                    }
+                    default -> throw new IllegalArgumentException("Unknown audit sink: " + config.sink);
+                };
+        start(sink, config);
+        Runtime.getRuntime().addShutdownHook(new Thread(Audit::stop, "Audit shutdown"));
+        log.info("Writing audit events to the {} sink, overflow policy {}", config.sink, config.overflow);
+    }
+
+    static synchronized void start(AuditSink sink, Config.Audit config) {
+        stop();
+        writer = new AuditWriter(sink, config);
+    }
+
+    /**
+     * Writes the pending events and switches to synchronous logging.
+     */
+    public static synchronized void stop() {
+        var current = writer;
+        writer = null;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (Exception e) {
+                log.error("Error stopping the audit writer", e);
+            }
+        }
+    }
 
+    public static void audit(String event, Object... params) {
+        var fields = new LinkedHashMap<String, Object>();
         for (var i = 0; i < params.length / 2; i++) {
             if (params[2 * i + 1] != null) {
-                ThreadContext.put((String) params[2 * i], Objects.toString(params[2 * i + 1]));
+                fields.put((String) params[2 * i], Objects.toString(params[2 * i + 1]));
             }
         }
+        submit(event, fields);
+    }
 
-        var token = getAccessToken();
+    /**
+     * Records a single event for an operation on many resources, e.g. a metadata update of a transaction,
+     * with the number of resources and their IRIs.
+     */
+    public static void auditBulk(String event, Collection<String> iris) {
+        var fields = new LinkedHashMap<String, Object>();
+        fields.put("count", Integer.toString(iris.size()));
+        fields.put("iris", List.copyOf(iris));
+        submit(event, fields);
+    }
 
-        if (token.getPreferredUsername() != null) {
-            ThreadContext.put("user_name", token.getPreferredUsername());
+    private static void submit(String event, LinkedHashMap<String, Object> fields) {
+        var token = getAccessToken();
+        if (token != null) {
+            if (token.getPreferredUsername() != null) {
+                fields.put("user_name", token.getPreferredUsername());
+            }
+            if (token.getEmail() != null) {
+                fields.put("user_email", token.getEmail());
+            }
+            if (token.getSubject() != null) {
+                fields.put("user_id", token.getSubject());
+            }
         }
 
-        if (token.getEmail() != null) {
-            ThreadContext.put("user_email", token.getEmail());
+        var auditEvent = new AuditEvent(Instant.now(), event, fields);
+        var current = writer;
+        if (current != null) {
+            current.submit(auditEvent);
+        } else {
+            SYNCHRONOUS_SINK.write(List.of(auditEvent));
         }
-        ThreadContext.put("user_id", token.getSubject());
-
-        log.trace(event);
-
-        ThreadContext.clearAll();
     }
 }
@@ -0,0 +1,13 @@
+package io.fairspace.saturn.audit;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * An audit event, with the fields of the user who caused it captured on the request thread.
+ *
+ * @param time   the time of the event.
+ * @param event  the type of the event, e.g. <code>FS_READ</code>.
+ * @param fields the parameters of the event, strings or, for bulk events, lists of strings.
+ */
+record AuditEvent(Instant time, String event, Map<String, Object> fields) {}
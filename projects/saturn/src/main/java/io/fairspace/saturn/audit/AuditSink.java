@@ -0,0 +1,13 @@
+package io.fairspace.saturn.audit;
+
+import java.util.List;
+
+/**
+ * Writes batches of audit events. Batches are written by one thread at a time.
+ */
+interface AuditSink extends AutoCloseable {
+    void write(List<AuditEvent> events) throws Exception;
+
+    @Override
+    default void close() throws Exception {}
+}
@@ -0,0 +1,167 @@
+package io.fairspace.saturn.audit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+import io.micrometer.core.instrument.Counter;
+import lombok.extern.log4j.*;
+
+import io.fairspace.saturn.config.Config;
+
+import static io.fairspace.saturn.metrics.SaturnMetrics.counter;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Collects audit events in a lock-free ring buffer and writes them in batches to a sink on a background thread,
+ * so that requests do not wait for the audit log.
+ * <p>
+ * When the buffer is full, the overflow policy decides: BLOCK waits for room up to a timeout and then drops
+ * the event, DROP drops it immediately, and SYNCHRONOUS writes it on the calling thread.
+ * Dropped events are counted in the <code>saturn.audit.events.dropped</code> metric and logged.
+ * <p>
+ * The writer thread parks while the buffer is empty and is unparked by the next submitted event.
+ * Events submitted while the writer is closed are logged to the <code>audit</code> logger instead.
+ */
+@Log4j2
+class AuditWriter implements AutoCloseable {
+    private static final long BLOCKED_NANOS = 100_000;
+    private static final Counter WRITTEN = counter("saturn.audit.events.written", "Audit events written", "events");
+    private static final Counter DROPPED = counter(
+            "saturn.audit.events.dropped", "Audit events lost because the buffer was full or writing failed", "events");
+    private static final Counter SYNCHRONOUS =
+            counter("saturn.audit.events.synchronous", "Audit events written on the request thread", "events");
+    private static final LogAuditSink LATE_SINK = new LogAuditSink();
+
+    private final RingBuffer<AuditEvent> buffer;
+    private final AuditSink sink;
+    private final Config.Audit.Overflow overflow;
+    private final long blockTimeoutNanos;
+    private final int batchSize;
+    private final Thread worker;
+    private volatile boolean stopped;
+    private volatile boolean idle;
+    // Guarded by the sink
+    private boolean closed;
+
+    AuditWriter(AuditSink sink, Config.Audit config) {
+        this.sink = sink;
+        this.buffer = new RingBuffer<>(config.bufferSize);
+        this.overflow = config.overflow;
+        this.blockTimeoutNanos = MILLISECONDS.toNanos(config.blockTimeout);
+        this.batchSize = config.batchSize;
+        worker = new Thread(this::run, "Audit writer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    void submit(AuditEvent event) {
+        if (!buffer.offer(event) && !overflow(event)) {
+            return;
+        }
+        if (stopped) {
+            // The writer was closed meanwhile, and may have drained the buffer before the event was added
+            writeLate();
+        } else if (idle) {
+            LockSupport.unpark(worker);
+        }
+    }
+
+    /**
+     * Applies the overflow policy to an event that did not fit in the buffer.
+     *
+     * @return true if the event was added to the buffer after all
+     */
+    private boolean overflow(AuditEvent event) {
+        switch (overflow) {
+            case BLOCK -> {
+                var deadline = System.nanoTime() + blockTimeoutNanos;
+                while (!buffer.offer(event)) {
+                    if (stopped || System.nanoTime() - deadline > 0) {
+                        drop(event);
+                        return false;
+                    }
+                    LockSupport.parkNanos(BLOCKED_NANOS);
+                }
+                return true;
+            }
+            case DROP -> drop(event);
+            case SYNCHRONOUS -> {
+                SYNCHRONOUS.increment();
+                write(List.of(event));
+            }
+        }
+        return false;
+    }
+
+    private void drop(AuditEvent event) {
+        DROPPED.increment();
+        log.warn("Audit buffer is full, dropped event {}", event.event());
+    }
+
+    private void run() {
+        var batch = new ArrayList<AuditEvent>(batchSize);
+        while (!stopped) {
+            if (buffer.drainTo(batch, batchSize) == 0) {
+                idle = true;
+                // An event submitted before idle was set is seen by this check, a later one unparks the thread
+                if (buffer.isEmpty() && !stopped) {
+                    LockSupport.park(this);
+                }
+                idle = false;
+            } else {
+                write(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Writes the events left in the buffer after the final drain of {@link #close()}.
+     */
+    private void writeLate() {
+        synchronized (sink) {
+            if (!closed) {
+                // close() has not drained the buffer yet
+                return;
+            }
+            var batch = new ArrayList<AuditEvent>(batchSize);
+            while (buffer.drainTo(batch, batchSize) > 0) {
+                LATE_SINK.write(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<AuditEvent> batch) {
+        try {
+            synchronized (sink) {
+                sink.write(batch);
+            }
+            WRITTEN.increment(batch.size());
+        } catch (Exception e) {
+            DROPPED.increment(batch.size());
+            log.error("Error writing {} audit events", batch.size(), e);
+        }
+    }
+
+    /**
+     * Writes the pending events and closes the sink.
+     */
+    @Override
+    public void close() throws Exception {
+        stopped = true;
+        LockSupport.unpark(worker);
+        worker.join();
+        synchronized (sink) {
+            var batch = new ArrayList<AuditEvent>(batchSize);
+            while (buffer.drainTo(batch, batchSize) > 0) {
+                write(batch);
+                batch.clear();
+            }
+            closed = true;
+            sink.close();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package io.fairspace.saturn.audit;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.List;
+import javax.sql.DataSource;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Inserts the events into the <code>audit_event</code> table of the view database, one transaction per batch.
+ * The user and the type of the event have columns of their own, the other fields are stored as JSON.
+ */
+class DatabaseAuditSink implements AuditSink {
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private static final String CREATE_TABLE =
+            """
+            create table if not exists audit_event (
+              id bigserial primary key,
+              time timestamp with time zone not null,
+              event text not null,
+              user_id text,
+              user_name text,
+              fields jsonb not null
+            )""";
+    private static final String INSERT =
+            "insert into audit_event (time, event, user_id, user_name, fields) values (?, ?, ?, ?, ?::jsonb)";
+
+    private final DataSource dataSource;
+
+    DatabaseAuditSink(DataSource dataSource) throws SQLException {
+        this.dataSource = dataSource;
+        try (var connection = dataSource.getConnection();
+                var statement = connection.createStatement()) {
+            statement.execute(CREATE_TABLE);
+            statement.execute("create index if not exists audit_event_time_idx on audit_event (time)");
+            if (!connection.getAutoCommit()) {
+                connection.commit();
+            }
+        }
+    }
+
+    @Override
+    public void write(List<AuditEvent> events) throws SQLException, JsonProcessingException {
+        try (var connection = dataSource.getConnection()) {
+            var autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (var statement = connection.prepareStatement(INSERT)) {
+                for (var event : events) {
+                    var fields = new HashMap<>(event.fields());
+                    statement.setTimestamp(1, Timestamp.from(event.time()));
+                    statement.setString(2, event.event());
+                    statement.setString(3, (String) fields.remove("user_id"));
+                    statement.setString(4, (String) fields.remove("user_name"));
+                    statement.setString(5, mapper.writeValueAsString(fields));
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                connection.commit();
+            } catch (SQLException | JsonProcessingException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package io.fairspace.saturn.audit;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+
+/**
+ * Appends the events to a file as JSON lines, flushing once per batch.
+ */
+class FileAuditSink implements AuditSink {
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private final BufferedWriter writer;
+
+    FileAuditSink(File file) throws IOException {
+        if (file.getParentFile() != null) {
+            Files.createDirectories(file.getParentFile().toPath());
+        }
+        writer = Files.newBufferedWriter(file.toPath(), UTF_8, CREATE, APPEND);
+    }
+
+    @Override
+    public void write(List<AuditEvent> events) throws IOException {
+        for (var event : events) {
+            var json = new LinkedHashMap<String, Object>();
+            json.put("time", event.time().toString());
+            json.put("event", event.event());
+            json.putAll(event.fields());
+            writer.write(mapper.writeValueAsString(json));
+            writer.newLine();
+        }
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,36 @@
+package io.fairspace.saturn.audit;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+
+import org.apache.logging.log4j.CloseableThreadContext;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Writes the events to the <code>audit</code> logger, with the fields in the thread context,
+ * as configured in log4j2.properties. The values of list fields are separated by spaces.
+ */
+class LogAuditSink implements AuditSink {
+    private static final Logger log = LogManager.getLogger("audit");
+
+    @Override
+    public void write(List<AuditEvent> events) {
+        for (var event : events) {
+            var context = new HashMap<String, String>();
+            context.put("event", event.event());
+            context.put("event_time", event.time().toString());
+            event.fields().forEach((key, value) -> context.put(key, toString(value)));
+            try (var ignored = CloseableThreadContext.putAll(context)) {
+                log.trace(event.event());
+            }
+        }
+    }
+
+    private static String toString(Object value) {
+        return value instanceof Collection<?> values
+                ? String.join(" ", values.stream().map(String::valueOf).toList())
+                : String.valueOf(value);
+    }
+}
@@ -0,0 +1,104 @@
+package io.fairspace.saturn.audit;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock-free queue on a ring buffer, see D. Vyukov's bounded MPMC queue.
+ * <p>
+ * Every slot has a sequence number, which tells producers whether the slot is free for the current lap
+ * and consumers whether it holds an element. Producers and consumers claim slots with a CAS
+ * on the tail and the head respectively, so offering to a full buffer fails instead of blocking.
+ */
+final class RingBuffer<E> {
+    private final int mask;
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * @param capacity the minimum capacity, rounded up to a power of two.
+     */
+    RingBuffer(int capacity) {
+        var size = capacity <= 2 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+        mask = size - 1;
+        elements = new AtomicReferenceArray<>(size);
+        sequences = new AtomicLongArray(size);
+        for (var i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * @return false if the buffer is full.
+     */
+    boolean offer(E element) {
+        var position = tail.get();
+        while (true) {
+            var index = (int) position & mask;
+            var available = sequences.get(index) - position;
+            if (available == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements.set(index, element);
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (available < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * @return the oldest element, or null if the buffer is empty.
+     */
+    E poll() {
+        var position = head.get();
+        while (true) {
+            var index = (int) position & mask;
+            var filled = sequences.get(index) - (position + 1);
+            if (filled == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    var element = elements.get(index);
+                    elements.set(index, null);
+                    sequences.set(index, position + mask + 1);
+                    return element;
+                }
+                position = head.get();
+            } else if (filled < 0) {
+                return null;
+            } else {
+                position = head.get();
+            }
+        }
+    }
+
+    /**
+     * Moves at most <code>max</code> elements to the target.
+     *
+     * @return the number of elements moved.
+     */
+    int drainTo(Collection<? super E> target, int max) {
+        var count = 0;
+        E element;
+        while (count < max && (element = poll()) != null) {
+            target.add(element);
+            count++;
+        }
+        return count;
+    }
+
+    boolean isEmpty() {
+        return head.get() == tail.get();
+    }
+}
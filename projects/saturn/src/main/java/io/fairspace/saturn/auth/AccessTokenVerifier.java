@@ -0,0 +1,92 @@
+package io.fairspace.saturn.auth;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.keycloak.TokenVerifier;
+import org.keycloak.common.VerificationException;
+import org.keycloak.representations.AccessToken;
+import org.keycloak.util.TokenUtil;
+
+import io.fairspace.saturn.config.Config;
+
+import static java.util.concurrent.TimeUnit.MINUTES;
+
+/**
+ * Verifies bearer access tokens locally, against the signing keys of the realm (see {@link JwksKeyCache}).
+ * Verified tokens are cached by the SHA-256 hash of the token string, so that clients sending many requests
+ * with the same token, such as WebDAV synchronisation tools, are not verified on every request.
+ * A cached token is used only while it is active: expired tokens are evicted on lookup and verified again,
+ * which fails.
+ */
+public class AccessTokenVerifier {
+    private static final int MAX_CACHED_TOKENS = 10_000;
+    private static final int MAX_CACHE_MINUTES = 15;
+
+    private final String realmUrl;
+    private final JwksKeyCache keys;
+    private final Cache<String, AccessToken> tokens = CacheBuilder.newBuilder()
+            .maximumSize(MAX_CACHED_TOKENS)
+            .expireAfterWrite(MAX_CACHE_MINUTES, MINUTES)
+            .build();
+
+    public AccessTokenVerifier(Config.Auth config) {
+        this(realmUrl(config));
+    }
+
+    AccessTokenVerifier(String realmUrl) {
+        this(realmUrl, new JwksKeyCache(URI.create(realmUrl + "/protocol/openid-connect/certs")));
+    }
+
+    AccessTokenVerifier(String realmUrl, JwksKeyCache keys) {
+        this.realmUrl = realmUrl;
+        this.keys = keys;
+    }
+
+    private static String realmUrl(Config.Auth config) {
+        return config.authServerUrl.replaceAll("/+$", "") + "/realms/" + config.realm;
+    }
+
+    /**
+     * @return the verified token.
+     * @throws VerificationException if the token is invalid, expired, or not issued by the realm.
+     */
+    public AccessToken verify(String tokenString) throws VerificationException {
+        var hash = hash(tokenString);
+        var token = tokens.getIfPresent(hash);
+        if (token != null) {
+            if (token.isActive()) {
+                return token;
+            }
+            tokens.invalidate(hash);
+        }
+
+        // The default checks, with the issuer checked against the realm
+        var verifier = TokenVerifier.create(tokenString, AccessToken.class)
+                .withChecks(
+                        new TokenVerifier.RealmUrlCheck(realmUrl),
+                        TokenVerifier.SUBJECT_EXISTS_CHECK,
+                        new TokenVerifier.TokenTypeCheck(List.of(TokenUtil.TOKEN_TYPE_BEARER)),
+                        TokenVerifier.IS_ACTIVE);
+        token = verifier.publicKey(keys.getKey(verifier.getHeader().getKeyId()))
+                .verify()
+                .getToken();
+        tokens.put(hash, token);
+        return token;
+    }
+
+    private static String hash(String tokenString) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256").digest(tokenString.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
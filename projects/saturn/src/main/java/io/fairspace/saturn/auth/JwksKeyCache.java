@@ -0,0 +1,139 @@
+package io.fairspace.saturn.auth;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.security.PublicKey;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import lombok.extern.log4j.Log4j2;
+import org.keycloak.common.VerificationException;
+import org.keycloak.jose.jwk.JSONWebKeySet;
+import org.keycloak.jose.jwk.JWK;
+import org.keycloak.jose.jwk.JWKParser;
+import org.keycloak.util.JsonSerialization;
+
+/**
+ * Keeps the public keys with which the realm signs its tokens, as published at its JWKS endpoint.
+ * The keys are fetched again when a token is signed with an unknown key, e.g. after the realm rotated its keys,
+ * at most once per {@link #MIN_REFRESH_INTERVAL_MS}, and when they are older than {@link #MAX_AGE_MS}.
+ * Only the requests with an unknown key wait for the keys; old keys are returned while they are fetched
+ * again in the background, once at a time.
+ */
+@Log4j2
+public class JwksKeyCache {
+    private static final long MIN_REFRESH_INTERVAL_MS = 10_000;
+    private static final long MAX_AGE_MS = 3_600_000;
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private final URI jwksUri;
+    private final long minRefreshInterval;
+    private final long maxAge;
+    private final HttpClient client =
+            HttpClient.newBuilder().connectTimeout(TIMEOUT).build();
+    private volatile Map<String, PublicKey> keys = Map.of();
+    private volatile long fetched;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private final ExecutorService refresher = Executors.newSingleThreadExecutor(runnable -> {
+        var thread = new Thread(runnable, "jwks-refresher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public JwksKeyCache(URI jwksUri) {
+        this(jwksUri, MIN_REFRESH_INTERVAL_MS);
+    }
+
+    JwksKeyCache(URI jwksUri, long minRefreshInterval) {
+        this(jwksUri, minRefreshInterval, MAX_AGE_MS);
+    }
+
+    JwksKeyCache(URI jwksUri, long minRefreshInterval, long maxAge) {
+        this.jwksUri = jwksUri;
+        this.minRefreshInterval = minRefreshInterval;
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * @return the public key with the key id.
+     * @throws VerificationException if the realm has no such key.
+     */
+    public PublicKey getKey(String kid) throws VerificationException {
+        var key = keys.get(kid);
+        if (key != null) {
+            if (age() > maxAge && refreshing.compareAndSet(false, true)) {
+                refresher.execute(() -> {
+                    try {
+                        fetch();
+                    } finally {
+                        refreshing.set(false);
+                    }
+                });
+            }
+            return key;
+        }
+        synchronized (this) {
+            key = keys.get(kid);
+            if (key == null && age() >= minRefreshInterval) {
+                fetch();
+                key = keys.get(kid);
+            }
+        }
+        if (key == null) {
+            throw new VerificationException("Unknown signing key: " + kid);
+        }
+        return key;
+    }
+
+    /**
+     * Waits for the background refresh started so far, for tests.
+     */
+    void awaitRefresh() throws Exception {
+        refresher.submit(() -> {}).get();
+    }
+
+    private long age() {
+        return System.currentTimeMillis() - fetched;
+    }
+
+    private void fetch() {
+        try {
+            var request = HttpRequest.newBuilder(jwksUri).timeout(TIMEOUT).GET().build();
+            var response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            try (var body = response.body()) {
+                if (response.statusCode() != 200) {
+                    throw new IOException("Unexpected response status " + response.statusCode());
+                }
+                var jwks = JsonSerialization.readValue(body, JSONWebKeySet.class);
+                var fetchedKeys = new HashMap<String, PublicKey>();
+                if (jwks.getKeys() != null) {
+                    for (var jwk : jwks.getKeys()) {
+                        var parser = JWKParser.create(jwk);
+                        if (jwk.getKeyId() != null
+                                && (jwk.getPublicKeyUse() == null
+                                        || JWK.Use.SIG.asString().equals(jwk.getPublicKeyUse()))
+                                && parser.isKeyTypeSupported(jwk.getKeyType())) {
+                            fetchedKeys.put(jwk.getKeyId(), parser.toPublicKey());
+                        }
+                    }
+                }
+                keys = Map.copyOf(fetchedKeys);
+                log.debug("Fetched {} signing keys from {}", fetchedKeys.size(), jwksUri);
+            }
+        } catch (IOException | RuntimeException e) {
+            // The keys fetched before are kept
+            log.error("Error fetching the signing keys from {}", jwksUri, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            fetched = System.currentTimeMillis();
+        }
+    }
+}
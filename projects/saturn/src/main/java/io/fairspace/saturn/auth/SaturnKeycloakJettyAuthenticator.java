@@ -9,13 +9,16 @@ import org.eclipse.jetty.http.*;
 import org.eclipse.jetty.server.Request;
 import org.keycloak.KeycloakPrincipal;
 import org.keycloak.adapters.AdapterTokenStore;
+import org.keycloak.adapters.BearerTokenRequestAuthenticator;
 import org.keycloak.adapters.KeycloakDeployment;
+import org.keycloak.adapters.OIDCAuthenticationError;
 import org.keycloak.adapters.RefreshableKeycloakSecurityContext;
 import org.keycloak.adapters.jetty.Jetty94RequestAuthenticator;
 import org.keycloak.adapters.jetty.KeycloakJettyAuthenticator;
 import org.keycloak.adapters.jetty.core.JettyRequestAuthenticator;
 import org.keycloak.adapters.jetty.spi.JettyHttpFacade;
 import org.keycloak.adapters.spi.*;
+import org.keycloak.common.VerificationException;
 import org.keycloak.common.util.*;
 import org.keycloak.representations.adapters.config.AdapterConfig;
 
@@ -133,7 +136,10 @@ class SaturnKeycloakJettyAuthenticator extends KeycloakJettyAuthenticator {
         }
     }
 
-    SaturnKeycloakJettyAuthenticator(AdapterConfig config) {
+    private final AccessTokenVerifier tokenVerifier;
+
+    SaturnKeycloakJettyAuthenticator(AdapterConfig config, AccessTokenVerifier tokenVerifier) {
+        this.tokenVerifier = tokenVerifier;
         setAdapterConfig(config);
     }
 
@@ -170,6 +176,11 @@ class SaturnKeycloakJettyAuthenticator extends KeycloakJettyAuthenticator {
                 return super.getChallenge();
             }
 
+            @Override
+            protected BearerTokenRequestAuthenticator createBearerTokenAuthenticator() {
+                return new CachingBearerTokenRequestAuthenticator(deployment);
+            }
+
             @Override
             protected void completeBearerAuthentication(
                     KeycloakPrincipal<RefreshableKeycloakSecurityContext> principal, String method) {
@@ -179,6 +190,35 @@ class SaturnKeycloakJettyAuthenticator extends KeycloakJettyAuthenticator {
         };
     }
 
+    /**
+     * Verifies bearer tokens with {@link AccessTokenVerifier}, which caches the verified tokens,
+     * instead of verifying every token with the adapter.
+     */
+    private class CachingBearerTokenRequestAuthenticator extends BearerTokenRequestAuthenticator {
+        CachingBearerTokenRequestAuthenticator(KeycloakDeployment deployment) {
+            super(deployment);
+        }
+
+        @Override
+        protected AuthOutcome authenticateToken(HttpFacade exchange, String tokenString) {
+            try {
+                token = tokenVerifier.verify(tokenString);
+            } catch (VerificationException e) {
+                challenge = challengeResponse(
+                        exchange, OIDCAuthenticationError.Reason.INVALID_TOKEN, "invalid_token", e.getMessage());
+                return AuthOutcome.FAILED;
+            }
+            if (token.getIat() != null && token.getIat() < deployment.getNotBefore()) {
+                challenge = challengeResponse(
+                        exchange, OIDCAuthenticationError.Reason.STALE_TOKEN, "invalid_token", "Stale token");
+                return AuthOutcome.FAILED;
+            }
+            this.tokenString = tokenString;
+            surrogate = null;
+            return AuthOutcome.AUTHENTICATED;
+        }
+    }
+
     @Override
     public void logout(ServletRequest request) {
         logoutCurrent((Request) request);
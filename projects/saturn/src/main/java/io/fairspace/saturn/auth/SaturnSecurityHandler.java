@@ -19,7 +19,7 @@ import static java.lang.System.getenv;
 @Log4j2
 public class SaturnSecurityHandler extends ConstraintSecurityHandler {
     public SaturnSecurityHandler(Config.Auth config) {
-        setAuthenticator(new SaturnKeycloakJettyAuthenticator(adapterConfig(config)));
+        setAuthenticator(new SaturnKeycloakJettyAuthenticator(adapterConfig(config), new AccessTokenVerifier(config)));
         addConstraintMapping(constraintMapping("/*", true));
         addConstraintMapping(constraintMapping("/api/health/", false));
         addConstraintMapping(constraintMapping("/favicon.ico", false));
@@ -59,6 +59,10 @@ public class Config {
 
     public Search search = new Search();
 
+    public Tracing tracing = new Tracing();
+
+    public Audit audit = new Audit();
+
     public static class Jena {
         public String metadataBaseIRI = "http://localhost/iri/";
 
@@ -69,6 +73,12 @@ public class Config {
         public File transactionLogPath = new File("data/log");
 
         public boolean bulkTransactions = true;
+
+        /** metadataImportChunkSize is the number of triples committed per transaction by the bulk metadata import */
+        public int metadataImportChunkSize = 10_000;
+
+        /** metadataImportWorkPath is the directory for the temporary files of the bulk metadata imports */
+        public File metadataImportWorkPath = new File("data/import");
     }
 
     public static class Auth {
@@ -84,6 +94,51 @@ public class Config {
 
     public static class WebDAV {
         public String blobStorePath = "data/blobs";
+        /** migrateBlobsToShards moves the blobs stored directly in the blob store directories to shard directories, in the background */
+        public boolean migrateBlobsToShards = true;
+        /** blobGc configures the deletion of blobs that no file version refers to */
+        public BlobGc blobGc = new BlobGc();
+        /** blobWrite configures how uploaded blobs are written to disk */
+        public BlobWrite blobWrite = new BlobWrite();
+    }
+
+    public static class BlobWrite {
+        public enum Durability {
+            /** the operating system writes the blobs to disk when it sees fit */
+            NONE,
+            /** every blob is synced to disk before the upload completes */
+            FSYNC,
+            /** the blobs are synced to disk in the background, every syncInterval */
+            BATCHED
+        }
+
+        /** bufferSize is the size (in bytes) of the direct buffers through which blobs are written */
+        public int bufferSize = 1024 * 1024;
+        /** durability decides when blobs are synced to disk */
+        public Durability durability = Durability.NONE;
+        /** syncInterval is the time (in milliseconds) between two syncs with BATCHED durability */
+        public long syncInterval = 1000;
+        /** checkFreeSpace rejects uploads of a known size for which the disk has no room, before writing them */
+        public boolean checkFreeSpace = true;
+        /** crc32c computes a CRC-32C checksum of every blob, next to its MD5 */
+        public boolean crc32c = false;
+    }
+
+    public static class BlobGc {
+        /** enabled turns on the periodic mark-and-sweep of the blob stores */
+        public boolean enabled = false;
+        /** interval is the time (in minutes) between two runs of the mark-and-sweep */
+        public long interval = 24 * 60;
+        /** dryRun makes the periodic runs only report the orphan blobs, without deleting them */
+        public boolean dryRun = true;
+        /** gracePeriod is the age (in minutes) from which orphan blobs are deleted, to spare uploads in progress */
+        public long gracePeriod = 24 * 60;
+        /** maxDeletionsPerSecond limits the rate at which the mark-and-sweep deletes blobs */
+        public int maxDeletionsPerSecond = 100;
+        /** reaperThreads is the number of threads that delete the blobs of purged files */
+        public int reaperThreads = 4;
+        /** pendingDeletionsPath is the directory of the queue of blobs of purged files that are to be deleted */
+        public String pendingDeletionsPath = "data/pending-blob-deletions";
     }
 
     @Builder
@@ -105,6 +160,63 @@ public class Config {
         public long countRequestTimeout = 100_1000;
         /** maxJoinItems is used to limit number of joined entries (from the join view) to decrease the response size */
         public int maxJoinItems = 50;
+        /** facetHistogramBuckets is the number of value ranges in the facet counts of number and date columns */
+        public int facetHistogramBuckets = 10;
+        /** pageHydrationThreads is the number of threads that fetch the rows of a view page in parallel (without view database) */
+        public int pageHydrationThreads = 4;
+        /** labelDictionarySize is the maximum number of ontology terms of which the labels are kept in memory */
+        public long labelDictionarySize = 100_000;
+        /** slowQueryThreshold is the duration (in milliseconds) from which SPARQL and SQL queries of views are slow */
+        public long slowQueryThreshold = 1_000;
+        /**
+         * explainSlowQueries adds the plan to the slow queries: EXPLAIN (ANALYZE, BUFFERS) for SQL,
+         * which executes the query once more, and the optimised algebra for SPARQL
+         */
+        public boolean explainSlowQueries = false;
+        /**
+         * explainTimeout is the time (in seconds) that EXPLAIN ANALYZE of a slow SQL query may take;
+         * queries slower than that are explained without executing them
+         */
+        public int explainTimeout = 5;
+        /** slowQueryShapes is the number of distinct slow query shapes kept for the maintenance endpoint */
+        public int slowQueryShapes = 100;
+    }
+
+    public static class Tracing {
+        /** enabled turns on the recording of the spans of requests */
+        public boolean enabled = false;
+        /** sampleRatio is the fraction of the requests without a trace context of the caller that are traced */
+        public double sampleRatio = 1.0;
+        /** exporter is where spans are sent: "otlp" (OTLP/HTTP) or "logging" (OTLP JSON lines in the log, for local testing) */
+        public String exporter = "otlp";
+        /** otlpEndpoint is the URL of the OTLP/HTTP traces endpoint of the collector */
+        public String otlpEndpoint = "http://localhost:4318/v1/traces";
+    }
+
+    public static class Audit {
+        public enum Overflow {
+            /** wait for room in the buffer, up to blockTimeout, then drop the event */
+            BLOCK,
+            /** drop the event */
+            DROP,
+            /** write the event on the calling thread */
+            SYNCHRONOUS
+        }
+
+        /** async writes the audit events in batches on a background thread, instead of on the request thread */
+        public boolean async = true;
+        /** bufferSize is the number of events that can be pending, rounded up to a power of two */
+        public int bufferSize = 8192;
+        /** batchSize is the maximum number of events written at once */
+        public int batchSize = 512;
+        /** overflow is what happens to an event when the buffer is full */
+        public Overflow overflow = Overflow.BLOCK;
+        /** blockTimeout is the time (in milliseconds) the BLOCK policy waits for room in the buffer */
+        public long blockTimeout = 1_000;
+        /** sink is where events are written: "log" (the audit logger), "file" (JSON lines) or "database" (view database) */
+        public String sink = "log";
+        /** file is the file to which the "file" sink appends the events */
+        public File file = new File("data/audit/audit-events.jsonl");
     }
 
     public static class ViewDatabase {
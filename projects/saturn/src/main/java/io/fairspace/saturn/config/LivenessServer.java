@@ -1,11 +1,15 @@
 package io.fairspace.saturn.config;
 
+import java.io.IOException;
 import javax.servlet.http.*;
 
+import io.prometheus.client.exporter.common.TextFormat;
 import lombok.extern.log4j.*;
 import org.eclipse.jetty.server.*;
 import org.eclipse.jetty.servlet.*;
 
+import static io.fairspace.saturn.metrics.SaturnMetrics.REGISTRY;
+
 @Log4j2
 public class LivenessServer implements AutoCloseable {
     public static class LivenessServlet extends HttpServlet {
@@ -15,11 +19,21 @@ public class LivenessServer implements AutoCloseable {
         }
     }
 
+    public static class MetricsServlet extends HttpServlet {
+        @Override
+        protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+            resp.setStatus(HttpServletResponse.SC_OK);
+            resp.setContentType(TextFormat.CONTENT_TYPE_004);
+            REGISTRY.scrape(resp.getWriter());
+        }
+    }
+
     private final Server server;
 
     /**
      * Starts a Jetty server at port 8091 with endpoint <code>/liveness</code> that
-     * always returns <code>OK</code>.
+     * always returns <code>OK</code>, and endpoint <code>/metrics</code> that returns
+     * the metrics of Saturn in the Prometheus format.
      */
     public LivenessServer() {
         log.info("Start liveness endpoint");
@@ -27,6 +41,7 @@ public class LivenessServer implements AutoCloseable {
         server = new Server(ConfigLoader.CONFIG.livenessPort);
         var context = new ServletContextHandler();
         context.addServlet(LivenessServer.LivenessServlet.class, "/liveness");
+        context.addServlet(LivenessServer.MetricsServlet.class, "/metrics");
         server.setHandler(context);
         try {
             server.start();
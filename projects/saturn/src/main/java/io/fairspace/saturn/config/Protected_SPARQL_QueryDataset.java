@@ -5,6 +5,7 @@ import lombok.extern.slf4j.*;
 import org.apache.jena.fuseki.servlets.*;
 
 import io.fairspace.saturn.services.users.*;
+import io.fairspace.saturn.tracing.*;
 
 import static org.apache.jena.fuseki.servlets.ServletOps.errorForbidden;
 
@@ -29,4 +30,11 @@ public class Protected_SPARQL_QueryDataset extends SPARQL_QueryDataset {
             super.validateRequest(action);
         }
     }
+
+    @Override
+    protected void execute(String queryString, HttpAction action) {
+        try (var ignored = Tracer.span("sparql.query")) {
+            super.execute(queryString, action);
+        }
+    }
 }
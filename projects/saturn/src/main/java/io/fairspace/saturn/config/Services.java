@@ -1,6 +1,7 @@
 package io.fairspace.saturn.config;
 
 import java.io.File;
+import java.util.LinkedHashMap;
 import javax.servlet.http.HttpServlet;
 
 import io.milton.resource.Resource;
@@ -18,6 +19,8 @@ import io.fairspace.saturn.rdf.transactions.SimpleTransactions;
 import io.fairspace.saturn.rdf.transactions.Transactions;
 import io.fairspace.saturn.services.health.HealthService;
 import io.fairspace.saturn.services.maintenance.MaintenanceService;
+import io.fairspace.saturn.services.metadata.LabelIndex;
+import io.fairspace.saturn.services.metadata.MetadataImportService;
 import io.fairspace.saturn.services.metadata.MetadataPermissions;
 import io.fairspace.saturn.services.metadata.MetadataService;
 import io.fairspace.saturn.services.metadata.validation.*;
@@ -26,11 +29,14 @@ import io.fairspace.saturn.services.users.UserService;
 import io.fairspace.saturn.services.views.*;
 import io.fairspace.saturn.services.workspaces.WorkspaceService;
 import io.fairspace.saturn.webdav.*;
-import io.fairspace.saturn.webdav.blobstore.BlobStore;
+import io.fairspace.saturn.webdav.blobstore.BlobGarbageCollector;
+import io.fairspace.saturn.webdav.blobstore.BlobReaper;
 import io.fairspace.saturn.webdav.blobstore.DeletableLocalBlobStore;
 import io.fairspace.saturn.webdav.blobstore.LocalBlobStore;
 
 import static io.fairspace.saturn.config.ConfigLoader.CONFIG;
+import static io.fairspace.saturn.services.metadata.LabelIndex.LABEL_INDEX;
+import static io.fairspace.saturn.services.views.TermLabelDictionary.LABEL_DICTIONARY;
 import static io.fairspace.saturn.vocabulary.Vocabularies.VOCABULARY;
 
 @Log4j2
@@ -45,19 +51,21 @@ public class Services {
     private final UserService userService;
     private final MetadataPermissions metadataPermissions;
     private final MetadataService metadataService;
+    private final MetadataImportService metadataImportService;
     private final ViewService viewService;
     private final QueryService queryService;
     private final SearchService searchService;
-    private final BlobStore blobStore;
+    private final LocalBlobStore blobStore;
     private final DavFactory davFactory;
     private final HttpServlet davServlet;
 
-    private final BlobStore extraBlobStore;
+    private final LocalBlobStore extraBlobStore;
     private final DavFactory extraDavFactory;
     private final HttpServlet extraDavServlet;
     private final DatasetGraph filteredDatasetGraph;
     private final HealthService healthService;
     private final MaintenanceService maintenanceService;
+    private final BlobGarbageCollector blobGarbageCollector;
 
     public Services(
             @NonNull Config config,
@@ -68,9 +76,11 @@ public class Services {
         this.transactions =
                 config.jena.bulkTransactions ? new BulkTransactions(dataset) : new SimpleTransactions(dataset);
 
+        FileVersionsMigration.migrate(transactions);
+
         userService = new UserService(config.auth, transactions);
 
-        blobStore = new LocalBlobStore(new File(config.webDAV.blobStorePath));
+        blobStore = new LocalBlobStore(new File(config.webDAV.blobStorePath), config.webDAV.blobWrite);
         davFactory = new DavFactory(
                 dataset.getDefaultModel().createResource(config.publicUrl + "/api/webdav"),
                 blobStore,
@@ -79,10 +89,16 @@ public class Services {
         davServlet = new WebDAVServlet(davFactory, transactions, blobStore);
 
         if (CONFIG.features.contains(Feature.ExtraStorage)) {
-            extraBlobStore = new DeletableLocalBlobStore(new File(config.extraStorage.blobStorePath));
+            extraBlobStore =
+                    new DeletableLocalBlobStore(new File(config.extraStorage.blobStorePath), config.webDAV.blobWrite);
+            var reaper = new BlobReaper(
+                    extraBlobStore,
+                    new File(config.webDAV.blobGc.pendingDeletionsPath),
+                    config.webDAV.blobGc.reaperThreads);
             extraDavFactory = new DavFactory(
                     dataset.getDefaultModel().createResource(config.publicUrl + "/api/extra-storage"),
                     extraBlobStore,
+                    reaper,
                     userService,
                     dataset.getContext());
             extraDavServlet = new WebDAVServlet(extraDavFactory, transactions, extraBlobStore);
@@ -93,31 +109,62 @@ public class Services {
             extraDavServlet = null;
         }
 
+        var blobStores = new LinkedHashMap<String, LocalBlobStore>();
+        blobStores.put("webdav", blobStore);
+        if (extraBlobStore != null) {
+            blobStores.put("extra-storage", extraBlobStore);
+        }
+        if (config.webDAV.migrateBlobsToShards) {
+            blobStores.values().forEach(LocalBlobStore::startShardMigration);
+        }
+        blobGarbageCollector = new BlobGarbageCollector(config.webDAV.blobGc, transactions, blobStores);
+        blobGarbageCollector.start();
+
         workspaceService = new WorkspaceService(transactions, userService);
 
         metadataPermissions = new MetadataPermissions(workspaceService, davFactory, userService);
 
+        LabelIndex labelIndex = dataset.getContext().get(LABEL_INDEX);
+        if (labelIndex != null) {
+            labelIndex.load(dataset);
+        }
+
         var metadataValidator = new ComposedValidator(
                 new MachineOnlyClassesValidator(VOCABULARY),
                 new ProtectMachineOnlyPredicatesValidator(VOCABULARY),
                 new URIPrefixValidator(((Resource) davFactory.root).getUniqueId()),
                 new DeletionValidator(),
-                new UniqueLabelValidator(),
+                new UniqueLabelValidator(labelIndex),
                 new ShaclValidator(VOCABULARY));
 
         metadataService = new MetadataService(transactions, VOCABULARY, metadataValidator, metadataPermissions);
         dataset.getContext().set(METADATA_SERVICE, metadataService);
+        metadataImportService = new MetadataImportService(
+                metadataService,
+                dataset,
+                viewStoreClientFactory,
+                config.jena.metadataImportChunkSize,
+                config.jena.metadataImportWorkPath);
 
         filteredDatasetGraph = new FilteredDatasetGraph(dataset.asDatasetGraph(), metadataPermissions);
         var filteredDataset = DatasetImpl.wrap(filteredDatasetGraph);
 
+        var labelDictionary =
+                dataset.getContext().get(LABEL_DICTIONARY, new TermLabelDictionary(config.search.labelDictionarySize));
+        if (viewStoreClientFactory == null) {
+            labelDictionary.load(dataset, viewsConfig);
+        }
+        var slowQueryLog =
+                viewStoreClientFactory == null ? new SlowQueryLog(config.search) : viewStoreClientFactory.slowQueryLog;
         queryService = viewStoreClientFactory == null
-                ? new SparqlQueryService(config.search, viewsConfig, filteredDataset)
+                ? new SparqlQueryService(
+                        config.search, viewsConfig, filteredDataset, transactions, labelDictionary, slowQueryLog)
                 : new JdbcQueryService(config.search, viewStoreClientFactory, transactions, davFactory.root);
         viewService =
                 new ViewService(config, viewsConfig, filteredDataset, viewStoreClientFactory, metadataPermissions);
 
-        maintenanceService = new MaintenanceService(userService, dataset, viewStoreClientFactory, viewService);
+        maintenanceService = new MaintenanceService(
+                userService, dataset, viewStoreClientFactory, viewService, slowQueryLog, blobGarbageCollector);
 
         searchService = new SearchService(filteredDataset);
 
@@ -17,7 +17,7 @@ public class SparkFilterFactory {
     public static Filter createSparkFilter(String apiPathPrefix, Services svc, Config config) {
         return new SaturnSparkFilter(
                 new WorkspaceApp(apiPathPrefix + "/workspaces", svc.getWorkspaceService()),
-                new MetadataApp(apiPathPrefix + "/metadata", svc.getMetadataService()),
+                new MetadataApp(apiPathPrefix + "/metadata", svc.getMetadataService(), svc.getMetadataImportService()),
                 new ViewApp(apiPathPrefix + "/views", svc.getViewService(), svc.getQueryService()),
                 new SearchApp(apiPathPrefix + "/search", svc.getSearchService(), svc.getQueryService()),
                 new AiSearchApp(apiPathPrefix + "/aisearch"),
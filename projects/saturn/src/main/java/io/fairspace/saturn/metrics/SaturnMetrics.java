@@ -0,0 +1,53 @@
+package io.fairspace.saturn.metrics;
+
+import java.time.Duration;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.JvmGcMetrics;
+import io.micrometer.core.instrument.binder.jvm.JvmMemoryMetrics;
+import io.micrometer.core.instrument.binder.jvm.JvmThreadMetrics;
+import io.micrometer.core.instrument.binder.system.ProcessorMetrics;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+
+/**
+ * The metrics of Saturn, exposed in the Prometheus format by the liveness server.
+ * <p>
+ * Meters are created once, when the instrumented class is initialised, and hot paths record primitive values,
+ * e.g. durations measured with {@link System#nanoTime()}, so that recording a sample does not allocate.
+ * Timers publish a histogram with fixed buckets, from which Prometheus can compute percentiles.
+ */
+public class SaturnMetrics {
+    public static final PrometheusMeterRegistry REGISTRY = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+
+    static {
+        new JvmMemoryMetrics().bindTo(REGISTRY);
+        new JvmGcMetrics().bindTo(REGISTRY);
+        new JvmThreadMetrics().bindTo(REGISTRY);
+        new ProcessorMetrics().bindTo(REGISTRY);
+    }
+
+    public static Timer timer(String name, String description) {
+        return Timer.builder(name)
+                .description(description)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofMinutes(1))
+                .register(REGISTRY);
+    }
+
+    public static DistributionSummary summary(String name, String description, String baseUnit) {
+        return DistributionSummary.builder(name)
+                .description(description)
+                .baseUnit(baseUnit)
+                .publishPercentileHistogram()
+                .maximumExpectedValue(1_000_000.0)
+                .register(REGISTRY);
+    }
+
+    public static Counter counter(String name, String description, String baseUnit) {
+        return Counter.builder(name).description(description).baseUnit(baseUnit).register(REGISTRY);
+    }
+}
@@ -10,10 +10,14 @@ import org.apache.jena.query.DatasetFactory;
 
 import io.fairspace.saturn.config.*;
 import io.fairspace.saturn.rdf.transactions.*;
+import io.fairspace.saturn.services.metadata.LabelIndex;
 import io.fairspace.saturn.services.views.*;
 
+import static io.fairspace.saturn.config.ConfigLoader.CONFIG;
 import static io.fairspace.saturn.rdf.MarkdownDataType.MARKDOWN_DATA_TYPE;
 import static io.fairspace.saturn.rdf.transactions.Restore.restore;
+import static io.fairspace.saturn.services.metadata.LabelIndex.LABEL_INDEX;
+import static io.fairspace.saturn.services.views.TermLabelDictionary.LABEL_DICTIONARY;
 
 import static org.apache.jena.tdb2.sys.DatabaseConnection.connectCreate;
 
@@ -24,7 +28,10 @@ public class SaturnDatasetFactory {
      * We're playing Russian dolls here.
      * The original TDB2 dataset graph, which in fact consists of a number of wrappers itself (Jena uses wrappers everywhere),
      * is wrapped with a number of wrapper classes, each adding a new feature.
-     * Currently it adds transaction logging and applies default vocabulary if needed.
+     * Currently it adds transaction logging, keeps the term label dictionary and the label index current
+     * and applies default vocabulary if needed.
+     * The term label dictionary and the label index are available in the dataset context
+     * as {@link TermLabelDictionary#LABEL_DICTIONARY} and {@link LabelIndex#LABEL_INDEX}.
      */
     public static Dataset connect(Config.Jena config, ViewStoreClientFactory viewStoreClientFactory) {
         var restoreNeeded = isRestoreNeeded(config.datasetPath);
@@ -39,6 +46,12 @@ public class SaturnDatasetFactory {
             dsg = new TxnIndexDatasetGraph(dsg, viewStoreClientFactory);
         }
 
+        var labelDictionary = viewStoreClientFactory != null
+                ? viewStoreClientFactory.labelDictionary
+                : new TermLabelDictionary(CONFIG.search.labelDictionarySize);
+        var labelIndex = new LabelIndex();
+        dsg = new TxnLabelDatasetGraph(dsg, labelDictionary, labelIndex);
+
         if (restoreNeeded) {
             restore(dsg, txnLog);
         }
@@ -48,7 +61,10 @@ public class SaturnDatasetFactory {
 
         TypeMapper.getInstance().registerDatatype(MARKDOWN_DATA_TYPE);
 
-        return DatasetFactory.wrap(dsg);
+        var ds = DatasetFactory.wrap(dsg);
+        ds.getContext().set(LABEL_DICTIONARY, labelDictionary);
+        ds.getContext().set(LABEL_INDEX, labelIndex);
+        return ds;
     }
 
     protected static boolean isRestoreNeeded(File datasetPath) {
@@ -0,0 +1,318 @@
+package io.fairspace.saturn.rdf.dao;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import lombok.RequiredArgsConstructor;
+import org.apache.jena.datatypes.xsd.XSDDateTime;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.rdf.model.Literal;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.vocabulary.RDF;
+
+import static com.fasterxml.jackson.databind.type.TypeFactory.rawClass;
+import static java.lang.String.format;
+import static java.time.Instant.ofEpochMilli;
+import static org.apache.jena.graph.NodeFactory.createURI;
+import static org.apache.jena.rdf.model.ResourceFactory.createStringLiteral;
+import static org.apache.jena.rdf.model.ResourceFactory.createTypedLiteral;
+
+/**
+ * Maps the persistent fields of an entity class to RDF and back.
+ * The fields of a class, their accessors and their value converters are looked up once,
+ * when the class is first used, so that no reflection is needed to read or write an entity.
+ * The accessors are method handles, which the JIT compiles like direct field access.
+ */
+class EntityMapper<T extends PersistentEntity> {
+    private static final String NO_VALUE_ERROR = "No value for required field %s in entity %s";
+    private static final String UNINITIALIZED_COLLECTION_ERROR = "An uninitialized collection field %s in class %s";
+    private static final String NO_RDF_TYPE_ERROR = "No RDF type specified for %s";
+    private static final String CASTING_ERROR = "Cannot cast %s to %s";
+    private static final String TOO_MANY_VALUES_ERROR = "More than one value for scalar field %s in resource %s";
+    private static final String WRONG_ENTITY_TYPE_ERROR = "Entity %s is not of type %s";
+    private static final String NO_CONSTRUCTOR_ERROR = "No zero-arguments constructor in class %s";
+    private static final String DUPLICATE_PROPERTY_ERROR = "More than one field for property %s in class %s";
+
+    private static final Node TYPE = RDF.type.asNode();
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private static final ClassValue<EntityMapper<?>> MAPPERS = new ClassValue<>() {
+        @Override
+        protected EntityMapper<?> computeValue(Class<?> type) {
+            return new EntityMapper<>(type.asSubclass(PersistentEntity.class));
+        }
+    };
+
+    @RequiredArgsConstructor
+    private static class FieldMapping {
+        private final String name;
+        private final Node property;
+        private final boolean required;
+        private final boolean collection;
+        private final int index;
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+        private final Function<RDFNode, Object> converter;
+
+        Object get(Object entity) {
+            try {
+                return getter.invokeExact(entity);
+            } catch (Throwable e) {
+                throw new DAOException(e);
+            }
+        }
+
+        void set(Object entity, Object value) {
+            try {
+                setter.invokeExact(entity, value);
+            } catch (Throwable e) {
+                throw new DAOException(e);
+            }
+        }
+    }
+
+    private final Class<T> type;
+    private final Node rdfType;
+    private final MethodHandle constructor;
+
+    private final List<FieldMapping> fields = new ArrayList<>();
+
+    private final Map<Node, FieldMapping> fieldsByProperty = new HashMap<>();
+
+    @SuppressWarnings("unchecked")
+    static <T extends PersistentEntity> EntityMapper<T> of(Class<T> type) {
+        return (EntityMapper<T>) MAPPERS.get(type);
+    }
+
+    private EntityMapper(Class<T> type) {
+        this.type = type;
+        var annotation = type.getAnnotation(RDFType.class);
+        this.rdfType = annotation == null ? null : createURI(annotation.value());
+        try {
+            var lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+            this.constructor = findConstructor(lookup, type);
+            for (Class<?> c = type; c != Object.class; c = c.getSuperclass()) {
+                var classLookup = MethodHandles.privateLookupIn(c, MethodHandles.lookup());
+                for (var field : c.getDeclaredFields()) {
+                    var property = field.getAnnotation(RDFProperty.class);
+                    if (property != null) {
+                        addField(classLookup, field, property);
+                    }
+                }
+            }
+        } catch (ReflectiveOperationException e) {
+            throw new DAOException(e);
+        }
+    }
+
+    /**
+     * @return the zero-arguments constructor, or null if the class has none. It is only needed to read entities.
+     */
+    private static MethodHandle findConstructor(MethodHandles.Lookup lookup, Class<?> type)
+            throws IllegalAccessException {
+        if (Modifier.isAbstract(type.getModifiers())) {
+            return null;
+        }
+        try {
+            return lookup.findConstructor(type, MethodType.methodType(void.class))
+                    .asType(MethodType.methodType(Object.class));
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private void addField(MethodHandles.Lookup lookup, Field field, RDFProperty annotation)
+            throws IllegalAccessException {
+        var collection = Collection.class.isAssignableFrom(field.getType());
+        var valueType = collection
+                ? rawClass(((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0])
+                : field.getType();
+        var mapping = new FieldMapping(
+                field.getName(),
+                createURI(annotation.value()),
+                annotation.required(),
+                collection,
+                fields.size(),
+                lookup.unreflectGetter(field).asType(GETTER_TYPE),
+                collection ? null : lookup.unreflectSetter(field).asType(SETTER_TYPE),
+                converterFor(valueType));
+        if (fieldsByProperty.putIfAbsent(mapping.property, mapping) != null) {
+            throw new DAOException(format(DUPLICATE_PROPERTY_ERROR, annotation.value(), type.getName()));
+        }
+        fields.add(mapping);
+    }
+
+    Node getRdfType() {
+        if (rdfType == null) {
+            throw new DAOException(format(NO_RDF_TYPE_ERROR, type.getName()));
+        }
+        return rdfType;
+    }
+
+    /**
+     * Writes the persistent fields of an entity, replacing their previous values.
+     */
+    void write(T entity, Graph graph) {
+        var iri = entity.getIri();
+        graph.add(Triple.create(iri, TYPE, getRdfType()));
+
+        for (var field : fields) {
+            var value = field.get(entity);
+
+            if (value == null && field.required) {
+                throw new DAOException(format(NO_VALUE_ERROR, field.name, iri));
+            }
+
+            graph.remove(iri, field.property, null);
+
+            if (value instanceof Iterable<?> items) {
+                for (var item : items) {
+                    graph.add(Triple.create(iri, field.property, valueToNode(item)));
+                }
+            } else if (value != null) {
+                graph.add(Triple.create(iri, field.property, valueToNode(value)));
+            }
+        }
+    }
+
+    /**
+     * Reads an entity in a single pass over the statements of its resource.
+     */
+    @SuppressWarnings("unchecked")
+    T read(Resource resource) {
+        var iri = resource.asNode();
+        var model = resource.getModel();
+        var graph = model.getGraph();
+        if (!graph.contains(iri, TYPE, getRdfType())) {
+            throw new DAOException(format(WRONG_ENTITY_TYPE_ERROR, resource.getURI(), rdfType.getURI()));
+        }
+
+        var entity = newInstance();
+        entity.setIri(iri);
+
+        var collections = new Collection<?>[fields.size()];
+        for (var field : fields) {
+            if (field.collection) {
+                collections[field.index] = (Collection<?>) field.get(entity);
+                if (collections[field.index] == null) {
+                    throw new DAOException(format(UNINITIALIZED_COLLECTION_ERROR, field.name, type.getName()));
+                }
+            }
+        }
+
+        var counts = new int[fields.size()];
+        var statements = graph.find(iri, Node.ANY, Node.ANY);
+        try {
+            while (statements.hasNext()) {
+                var triple = statements.next();
+                var field = fieldsByProperty.get(triple.getPredicate());
+                if (field == null) {
+                    continue;
+                }
+                var value = field.converter.apply(model.asRDFNode(triple.getObject()));
+                if (field.collection) {
+                    ((Collection<Object>) collections[field.index]).add(value);
+                } else if (++counts[field.index] > 1) {
+                    throw new DAOException(format(TOO_MANY_VALUES_ERROR, field.name, resource.getURI()));
+                } else {
+                    field.set(entity, value);
+                }
+            }
+        } finally {
+            statements.close();
+        }
+
+        for (var field : fields) {
+            if (field.required && !field.collection && counts[field.index] == 0) {
+                throw new DAOException(format(NO_VALUE_ERROR, field.name, resource.getURI()));
+            }
+        }
+        return entity;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T newInstance() {
+        if (constructor == null) {
+            throw new DAOException(format(NO_CONSTRUCTOR_ERROR, type.getName()));
+        }
+        try {
+            return (T) (Object) constructor.invokeExact();
+        } catch (Throwable e) {
+            throw new DAOException(e);
+        }
+    }
+
+    private static Node valueToNode(Object value) {
+        if (value instanceof Node node) {
+            return node;
+        }
+        if (value instanceof String || value instanceof Enum) {
+            return createStringLiteral(value.toString()).asNode();
+        }
+        if (value instanceof Instant instant) {
+            var zdt = ZonedDateTime.ofInstant(instant, ZoneId.systemDefault());
+            var call = GregorianCalendar.from(zdt);
+            return createTypedLiteral(call).asNode();
+        }
+        return createTypedLiteral(value).asNode();
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Function<RDFNode, Object> converterFor(Class<?> type) {
+        if (type == Node.class) {
+            return RDFNode::asNode;
+        }
+
+        Function<Literal, Object> fromLiteral = null;
+        if (type == String.class) {
+            fromLiteral = Literal::getString;
+        } else if (type == Double.class || type == double.class) {
+            fromLiteral = Literal::getDouble;
+        } else if (type == Float.class || type == float.class) {
+            fromLiteral = Literal::getFloat;
+        } else if (type == Long.class || type == long.class) {
+            fromLiteral = Literal::getLong;
+        } else if (type == Integer.class || type == int.class) {
+            fromLiteral = Literal::getInt;
+        } else if (type == Short.class || type == short.class) {
+            fromLiteral = Literal::getShort;
+        } else if (type == Character.class || type == char.class) {
+            fromLiteral = Literal::getChar;
+        } else if (type == Byte.class || type == byte.class) {
+            fromLiteral = Literal::getByte;
+        } else if (type == Boolean.class || type == boolean.class) {
+            fromLiteral = Literal::getBoolean;
+        } else if (type == Instant.class) {
+            fromLiteral = literal ->
+                    ofEpochMilli(((XSDDateTime) literal.getValue()).asCalendar().getTimeInMillis());
+        } else if (Enum.class.isAssignableFrom(type)) {
+            fromLiteral = literal -> Enum.valueOf((Class<Enum>) type, literal.getString());
+        }
+
+        var converter = fromLiteral;
+        return node -> {
+            if (converter == null || !node.isLiteral()) {
+                throw new DAOException(format(CASTING_ERROR, node, type.getName()));
+            }
+            return converter.apply(node.asLiteral());
+        };
+    }
+}
@@ -1,5 +1,7 @@
 package io.fairspace.saturn.rdf.transactions;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 import com.pivovarit.function.ThrowingConsumer;
 import com.pivovarit.function.ThrowingFunction;
 import com.pivovarit.function.ThrowingRunnable;
@@ -9,9 +11,13 @@ import org.apache.jena.rdf.model.Model;
 import org.apache.jena.sparql.util.Symbol;
 import org.apache.jena.system.Txn;
 
+import io.fairspace.saturn.tracing.Tracer;
+
 public abstract class BaseTransactions implements Transactions {
 
     protected final Dataset ds;
+    private final AtomicLong dataVersion = new AtomicLong();
+    private final AtomicLong startedWrites = new AtomicLong();
 
     protected BaseTransactions(Dataset ds) {
         this.ds = ds;
@@ -19,12 +25,42 @@ public abstract class BaseTransactions implements Transactions {
 
     @Override
     public <E extends Exception> void executeRead(ThrowingConsumer<? super Model, E> job) throws E {
-        Txn.executeRead(ds, ThrowingRunnable.sneaky(() -> job.accept(ds.getDefaultModel())));
+        try (var ignored = Tracer.span("transaction.read")) {
+            Txn.executeRead(ds, ThrowingRunnable.sneaky(() -> job.accept(ds.getDefaultModel())));
+        }
     }
 
     @Override
     public <R, E extends Exception> R calculateRead(ThrowingFunction<? super Model, R, E> job) throws E {
-        return Txn.calculateRead(ds, ThrowingSupplier.sneaky(() -> job.apply(ds.getDefaultModel())));
+        try (var ignored = Tracer.span("transaction.read")) {
+            return Txn.calculateRead(ds, ThrowingSupplier.sneaky(() -> job.apply(ds.getDefaultModel())));
+        }
+    }
+
+    @Override
+    public long getDataVersion() {
+        return dataVersion.get();
+    }
+
+    @Override
+    public long getStableDataVersion() {
+        // Read in the opposite order of the updates, so that a write that starts meanwhile is noticed
+        var version = dataVersion.get();
+        return startedWrites.get() == version ? version : -1;
+    }
+
+    /**
+     * Must be called before a write transaction is started.
+     */
+    protected void writing() {
+        startedWrites.incrementAndGet();
+    }
+
+    /**
+     * Must be called after a write transaction has ended, whether it was committed or not.
+     */
+    protected void committed() {
+        dataVersion.incrementAndGet();
     }
 
     @Override
@@ -7,6 +7,9 @@ import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import com.pivovarit.function.ThrowingFunction;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Timer;
 import org.apache.jena.query.Dataset;
 import org.apache.jena.query.ReadWrite;
 import org.apache.jena.rdf.model.Model;
@@ -14,14 +17,26 @@ import org.apache.jena.sparql.JenaTransactionException;
 import org.apache.jena.system.Txn;
 import org.eclipse.jetty.server.Request;
 
+import io.fairspace.saturn.tracing.Span;
+import io.fairspace.saturn.tracing.Tracer;
+
 import static io.fairspace.saturn.auth.RequestContext.getCurrentRequest;
 import static io.fairspace.saturn.auth.RequestContext.getCurrentUserStringUri;
 import static io.fairspace.saturn.auth.RequestContext.setCurrentRequest;
 import static io.fairspace.saturn.auth.RequestContext.setCurrentUserStringUri;
+import static io.fairspace.saturn.metrics.SaturnMetrics.REGISTRY;
+import static io.fairspace.saturn.metrics.SaturnMetrics.summary;
+import static io.fairspace.saturn.metrics.SaturnMetrics.timer;
 
 import static java.lang.Thread.currentThread;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
 public class BulkTransactions extends BaseTransactions {
+    private static final Timer BATCH_TIMER =
+            timer("saturn.transactions.batch", "Time to execute and commit a batch of write transactions");
+    private static final DistributionSummary BATCH_SIZE =
+            summary("saturn.transactions.batch.size", "Write transactions per batch", "transactions");
+
     private final LinkedBlockingQueue<Task<?, ?>> queue = new LinkedBlockingQueue<>();
     private static final AtomicInteger threadCounter = new AtomicInteger();
     private final Thread worker = new Thread(
@@ -34,9 +49,17 @@ public class BulkTransactions extends BaseTransactions {
                         return;
                     }
                     queue.drainTo(tasks);
-
-                    while (!tryExecute(tasks))
-                        ;
+                    BATCH_SIZE.record(tasks.size());
+
+                    var start = System.nanoTime();
+                    writing();
+                    try (var ignored = startBatchSpan(tasks)) {
+                        while (!tryExecute(tasks))
+                            ;
+                    } finally {
+                        committed();
+                    }
+                    BATCH_TIMER.record(System.nanoTime() - start, NANOSECONDS);
 
                     tasks.forEach(Task::completed); // mark all tasks as committed
                 }
@@ -46,6 +69,9 @@ public class BulkTransactions extends BaseTransactions {
     public BulkTransactions(Dataset ds) {
         super(ds);
 
+        Gauge.builder("saturn.transactions.queue", queue, LinkedBlockingQueue::size)
+                .description("Write transactions waiting to be executed")
+                .register(REGISTRY);
         worker.start();
     }
 
@@ -58,16 +84,38 @@ public class BulkTransactions extends BaseTransactions {
                 }
                 throw new JenaTransactionException("Can't promote to a write transaction");
             }
-            var currentUser = getCurrentUserStringUri().orElse(null);
-            var task = new Task<>(getCurrentRequest(), currentUser, job);
+            try (var span = Tracer.span("transaction.write")) {
+                var currentUser = getCurrentUserStringUri().orElse(null);
+                var task = new Task<>(getCurrentRequest(), currentUser, job, span);
 
-            queue.offer(task);
-            return task.get();
+                queue.offer(task);
+                return task.get();
+            }
         } catch (Throwable t) {
             return sneakyThrow(t);
         }
     }
 
+    /**
+     * Records the time the tasks waited in the queue, and starts the span of the batch, in which the tasks are
+     * executed and committed. The batch span belongs to the trace of the first traced task,
+     * the spans of the other traced tasks refer to it by an attribute.
+     */
+    private static Span startBatchSpan(List<Task<?, ?>> tasks) {
+        Span batch = null;
+        for (var task : tasks) {
+            if (task.span.isRecording()) {
+                Tracer.record("transaction.queue", task.span, task.enqueuedAt);
+                if (batch == null) {
+                    batch = Tracer.span("transaction.batch", task.span).attribute("transactions", tasks.size());
+                } else {
+                    task.span.attribute("transaction.batch", batch.getTraceId() + "/" + batch.getSpanId());
+                }
+            }
+        }
+        return batch != null ? batch : Tracer.current();
+    }
+
     private boolean tryExecute(List<Task<?, ?>> tasks) {
         if (tasks.isEmpty()) {
             return true;
@@ -108,16 +156,20 @@ public class BulkTransactions extends BaseTransactions {
         private final Request request;
         private final String userUri;
         private final ThrowingFunction<? super Model, R, E> job;
+        private final Span span;
+        private final long enqueuedAt = System.nanoTime();
         private R result;
         private Throwable error;
 
-        Task(Request request, String userUri, ThrowingFunction<? super Model, R, E> job) {
+        Task(Request request, String userUri, ThrowingFunction<? super Model, R, E> job, Span span) {
             this.request = request;
             this.userUri = userUri;
             this.job = job;
+            this.span = span;
         }
 
         boolean perform(Model model) {
+            var executeSpan = Tracer.span("transaction.execute", span);
             try {
                 setCurrentRequest(request);
                 setCurrentUserStringUri(userUri); // setting for the worker's thread
@@ -126,11 +178,13 @@ public class BulkTransactions extends BaseTransactions {
                 error = null;
                 return true;
             } catch (Exception e) {
+                executeSpan.error(e);
                 result = null;
                 error = e;
                 return false;
             } finally {
                 setCurrentRequest(null);
+                executeSpan.close();
             }
         }
 
@@ -5,6 +5,8 @@ import org.apache.jena.query.Dataset;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.system.Txn;
 
+import io.fairspace.saturn.tracing.Tracer;
+
 public class SimpleTransactions extends BaseTransactions {
 
     public SimpleTransactions(Dataset ds) {
@@ -13,6 +15,16 @@ public class SimpleTransactions extends BaseTransactions {
 
     @Override
     public <R, E extends Exception> R calculateWrite(ThrowingFunction<? super Model, R, E> job) throws E {
-        return Txn.calculateWrite(ds, () -> ThrowingFunction.sneaky(job).apply(ds.getDefaultModel()));
+        try (var ignored = Tracer.span("transaction.write")) {
+            if (ds.isInTransaction()) {
+                return Txn.calculateWrite(ds, () -> ThrowingFunction.sneaky(job).apply(ds.getDefaultModel()));
+            }
+            writing();
+            try {
+                return Txn.calculateWrite(ds, () -> ThrowingFunction.sneaky(job).apply(ds.getDefaultModel()));
+            } finally {
+                committed();
+            }
+        }
     }
 }
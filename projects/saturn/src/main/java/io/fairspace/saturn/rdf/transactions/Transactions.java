@@ -26,4 +26,18 @@ public interface Transactions extends AutoCloseable {
     }
 
     void setContextValue(Symbol symbol, Object object);
+
+    /**
+     * @return a number that changes after every committed write transaction.
+     * It can be used to cache data derived from the dataset: if it is read before a read transaction is started,
+     * the data read in that transaction is at least as recent as that version.
+     */
+    long getDataVersion();
+
+    /**
+     * @return the data version if no write transaction is in progress, or -1 otherwise.
+     * If the same version (not -1) is returned before a number of read transactions are started and again after
+     * they have been started, no write transaction was committed in between: these transactions read the same data.
+     */
+    long getStableDataVersion();
 }
@@ -1,9 +1,10 @@
 package io.fairspace.saturn.rdf.transactions;
 
-import java.util.Date;
 import java.util.HashSet;
 import java.util.Set;
 
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.jena.graph.Node;
@@ -15,12 +16,22 @@ import org.apache.jena.sparql.core.QuadAction;
 import io.fairspace.saturn.rdf.AbstractChangesAwareDatasetGraph;
 import io.fairspace.saturn.services.views.ViewStoreClientFactory;
 import io.fairspace.saturn.services.views.ViewUpdater;
+import io.fairspace.saturn.tracing.Tracer;
 
 import static io.fairspace.saturn.config.ConfigLoader.CONFIG;
+import static io.fairspace.saturn.metrics.SaturnMetrics.summary;
+import static io.fairspace.saturn.metrics.SaturnMetrics.timer;
 import static io.fairspace.saturn.services.users.UserService.currentUserAsSymbol;
 
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
 @Slf4j
 public class TxnIndexDatasetGraph extends AbstractChangesAwareDatasetGraph {
+    private static final Timer UPDATE_TIMER =
+            timer("saturn.views.update", "Time to update the view database with the subjects of a transaction");
+    private static final DistributionSummary UPDATED_SUBJECTS = summary(
+            "saturn.views.update.subjects", "Subjects updated in the view database per transaction", "subjects");
+
     private final DatasetGraph dsg;
     private final ViewStoreClientFactory viewStoreClientFactory;
     // One set of updated subjects if write transactions are handled sequentially.
@@ -68,18 +79,24 @@ public class TxnIndexDatasetGraph extends AbstractChangesAwareDatasetGraph {
                         .get(sessionKey, Boolean.FALSE); // false by default, should be set explicitly to switch it off
                 if (doViewsUpdate) {
                     log.info("Commit {} updated subjects", updatedSubjects.size());
-                    var start = new Date().getTime();
-                    try (var viewStoreClient = viewStoreClientFactory.build();
+                    UPDATED_SUBJECTS.record(updatedSubjects.size());
+                    var start = System.nanoTime();
+                    try (var ignored = Tracer.span("views.update").attribute("subjects", updatedSubjects.size());
+                            var viewStoreClient = viewStoreClientFactory.build();
                             var viewUpdater = new ViewUpdater(viewStoreClient, dsg)) {
                         updatedSubjects.forEach(viewUpdater::updateSubject);
                         viewUpdater.commit();
+                        var duration = System.nanoTime() - start;
+                        UPDATE_TIMER.record(duration, NANOSECONDS);
                         log.debug(
-                                "Updating {} subjects took {}ms", updatedSubjects.size(), new Date().getTime() - start);
+                                "Updating {} subjects took {}ms",
+                                updatedSubjects.size(),
+                                NANOSECONDS.toMillis(duration));
                     } catch (Exception e) {
                         log.error(
                                 "Updating {} subjects failed after {}ms",
                                 updatedSubjects.size(),
-                                new Date().getTime() - start,
+                                NANOSECONDS.toMillis(System.nanoTime() - start),
                                 e);
                         throw e;
                     } finally {
@@ -0,0 +1,95 @@
+package io.fairspace.saturn.rdf.transactions;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.query.ReadWrite;
+import org.apache.jena.query.TxnType;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.sparql.core.QuadAction;
+import org.apache.jena.vocabulary.RDF;
+import org.apache.jena.vocabulary.RDFS;
+
+import io.fairspace.saturn.rdf.AbstractChangesAwareDatasetGraph;
+import io.fairspace.saturn.services.metadata.LabelIndex;
+import io.fairspace.saturn.services.views.TermLabelDictionary;
+
+/**
+ * Keeps the label caches current.
+ * Terms are removed from the term label dictionary when their label changes,
+ * so that the next lookup reads the new label.
+ * The terms are removed as soon as their label changes, so that lookups within the write transaction
+ * see the new label, and again at the end of the transaction, as concurrent read transactions may have
+ * added the old label in the meantime.
+ * Changes of types and labels in the default graph are passed on to the label index.
+ */
+public class TxnLabelDatasetGraph extends AbstractChangesAwareDatasetGraph {
+    private final TermLabelDictionary labelDictionary;
+    private final LabelIndex labelIndex;
+    // One set of relabeled terms, as write transactions are handled sequentially.
+    private final Set<String> relabeledTerms = new HashSet<>();
+
+    public TxnLabelDatasetGraph(DatasetGraph dsg, TermLabelDictionary labelDictionary, LabelIndex labelIndex) {
+        super(dsg);
+        this.labelDictionary = labelDictionary;
+        this.labelIndex = labelIndex;
+    }
+
+    @Override
+    protected void onChange(QuadAction action, Node graph, Node subject, Node predicate, Node object) {
+        if (action != QuadAction.ADD && action != QuadAction.DELETE) {
+            return;
+        }
+        if (subject.isURI() && predicate.equals(RDFS.label.asNode())) {
+            relabeledTerms.add(subject.getURI());
+            labelDictionary.invalidate(subject.getURI());
+        }
+        if (Quad.isDefaultGraph(graph)
+                && (predicate.equals(RDFS.label.asNode()) || predicate.equals(RDF.type.asNode()))) {
+            labelIndex.onChange(getWrapped().getDefaultGraph(), subject);
+        }
+    }
+
+    @Override
+    public void begin(TxnType type) {
+        begin(TxnType.convert(type));
+    }
+
+    @Override
+    public void begin(ReadWrite readWrite) {
+        super.begin(readWrite);
+        if (readWrite == ReadWrite.WRITE) {
+            labelIndex.begin();
+        }
+    }
+
+    @Override
+    public void commit() {
+        var write = transactionMode() == ReadWrite.WRITE;
+        if (write) {
+            labelIndex.prepareCommit();
+        }
+        super.commit();
+        if (write) {
+            labelIndex.commit();
+            invalidateRelabeledTerms();
+        }
+    }
+
+    @Override
+    public void abort() {
+        var write = transactionMode() == ReadWrite.WRITE;
+        super.abort();
+        if (write) {
+            labelIndex.abort();
+            invalidateRelabeledTerms();
+        }
+    }
+
+    private void invalidateRelabeledTerms() {
+        relabeledTerms.forEach(labelDictionary::invalidate);
+        relabeledTerms.clear();
+    }
+}
@@ -1,6 +1,7 @@
 package io.fairspace.saturn.rdf.transactions;
 
 import com.pivovarit.function.ThrowingRunnable;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.log4j.*;
 import org.apache.jena.graph.Node;
 import org.apache.jena.query.ReadWrite;
@@ -10,15 +11,20 @@ import org.apache.jena.sparql.core.QuadAction;
 import org.keycloak.representations.AccessToken;
 
 import io.fairspace.saturn.rdf.AbstractChangesAwareDatasetGraph;
+import io.fairspace.saturn.tracing.Tracer;
 
 import static io.fairspace.saturn.auth.RequestContext.getAccessToken;
+import static io.fairspace.saturn.metrics.SaturnMetrics.timer;
 
 import static java.lang.System.currentTimeMillis;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
 @Log4j2
 public class TxnLogDatasetGraph extends AbstractChangesAwareDatasetGraph {
     private static final String ERROR_MSG =
             "Catastrophic failure. Shutting down. The system requires admin's intervention.";
+    private static final Timer COMMIT_TIMER =
+            timer("saturn.transactions.commit", "Time to write a transaction to the transaction log and commit it");
 
     private final TransactionLog transactionLog;
     private volatile AccessToken user;
@@ -67,10 +73,14 @@ public class TxnLogDatasetGraph extends AbstractChangesAwareDatasetGraph {
     @Override
     public void commit() {
         if (isInWriteTransaction()) {
-            critical(() -> {
-                transactionLog.onCommit();
-                super.commit();
-            });
+            var start = System.nanoTime();
+            try (var ignored = Tracer.span("transaction.commit")) {
+                critical(() -> {
+                    transactionLog.onCommit();
+                    super.commit();
+                });
+            }
+            COMMIT_TIMER.record(System.nanoTime() - start, NANOSECONDS);
         } else {
             super.commit();
         }
@@ -2,10 +2,16 @@ package io.fairspace.saturn.services.maintenance;
 
 import io.fairspace.saturn.services.BaseApp;
 
+import static io.fairspace.saturn.util.ValidationUtils.parsePositiveInt;
+
 import static javax.servlet.http.HttpServletResponse.*;
+import static org.eclipse.jetty.http.MimeTypes.Type.APPLICATION_JSON;
+import static spark.Spark.get;
 import static spark.Spark.post;
 
 public class MaintenanceApp extends BaseApp {
+    private static final int DEFAULT_SLOW_QUERIES = 20;
+
     private final MaintenanceService maintenanceService;
 
     public MaintenanceApp(String basePath, MaintenanceService maintenanceService) {
@@ -21,5 +27,26 @@ public class MaintenanceApp extends BaseApp {
             res.status(SC_NO_CONTENT);
             return "";
         });
+        get("/slow-queries", (req, res) -> {
+            var limit =
+                    parsePositiveInt(req.queryParamOrDefault("limit", String.valueOf(DEFAULT_SLOW_QUERIES)), "limit");
+            res.type(APPLICATION_JSON.asString());
+            return mapper.writeValueAsString(maintenanceService.slowQueries(limit));
+        });
+        post("/blob-gc", (req, res) -> {
+            var dryRun = Boolean.parseBoolean(req.queryParamOrDefault("dryRun", "true"));
+            maintenanceService.collectOrphanBlobs(dryRun);
+            res.status(SC_ACCEPTED);
+            return "";
+        });
+        get("/blob-gc", (req, res) -> {
+            var report = maintenanceService.lastOrphanBlobCollection();
+            if (report == null) {
+                res.status(SC_NO_CONTENT);
+                return "";
+            }
+            res.type(APPLICATION_JSON.asString());
+            return mapper.writeValueAsString(report);
+        });
     }
 }
@@ -2,6 +2,7 @@ package io.fairspace.saturn.services.maintenance;
 
 import java.sql.SQLException;
 import java.util.Date;
+import java.util.List;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -15,9 +16,13 @@ import io.fairspace.saturn.services.AccessDeniedException;
 import io.fairspace.saturn.services.ConflictException;
 import io.fairspace.saturn.services.NotAvailableException;
 import io.fairspace.saturn.services.users.UserService;
+import io.fairspace.saturn.services.views.SlowQueryDTO;
+import io.fairspace.saturn.services.views.SlowQueryLog;
 import io.fairspace.saturn.services.views.ViewService;
 import io.fairspace.saturn.services.views.ViewStoreClientFactory;
 import io.fairspace.saturn.services.views.ViewUpdater;
+import io.fairspace.saturn.webdav.blobstore.BlobGarbageCollector;
+import io.fairspace.saturn.webdav.blobstore.BlobGcReport;
 
 @Log4j2
 public class MaintenanceService {
@@ -31,16 +36,22 @@ public class MaintenanceService {
     private final Dataset dataset;
     private final ViewStoreClientFactory viewStoreClientFactory;
     private final ViewService viewService;
+    private final SlowQueryLog slowQueryLog;
+    private final BlobGarbageCollector blobGarbageCollector;
 
     public MaintenanceService(
             @NonNull UserService userService,
             @NonNull Dataset dataset,
             ViewStoreClientFactory viewStoreClientFactory,
-            ViewService viewService) {
+            ViewService viewService,
+            @NonNull SlowQueryLog slowQueryLog,
+            @NonNull BlobGarbageCollector blobGarbageCollector) {
         this.userService = userService;
         this.dataset = dataset;
         this.viewStoreClientFactory = viewStoreClientFactory;
         this.viewService = viewService;
+        this.slowQueryLog = slowQueryLog;
+        this.blobGarbageCollector = blobGarbageCollector;
     }
 
     public boolean disabled() {
@@ -70,6 +81,37 @@ public class MaintenanceService {
         });
     }
 
+    /**
+     * @return the query shapes that were slow most often, by their total duration.
+     */
+    public List<SlowQueryDTO> slowQueries(int limit) {
+        if (!userService.currentUser().isAdmin()) {
+            throw new AccessDeniedException();
+        }
+        return slowQueryLog.top(limit);
+    }
+
+    /**
+     * Starts collecting the orphan blobs in the background. A dry run only reports them.
+     * The report is available with {@link #lastOrphanBlobCollection()} when the run has finished.
+     */
+    public void collectOrphanBlobs(boolean dryRun) {
+        if (!userService.currentUser().isAdmin()) {
+            throw new AccessDeniedException();
+        }
+        blobGarbageCollector.submit(dryRun);
+    }
+
+    /**
+     * @return the report of the latest collection of orphan blobs, or null
+     */
+    public BlobGcReport lastOrphanBlobCollection() {
+        if (!userService.currentUser().isAdmin()) {
+            throw new AccessDeniedException();
+        }
+        return blobGarbageCollector.getLastReport();
+    }
+
     public void recreateIndex() {
         try (var viewStoreClient = viewStoreClientFactory.build();
                 var viewUpdater = new ViewUpdater(viewStoreClient, dataset.asDatasetGraph())) {
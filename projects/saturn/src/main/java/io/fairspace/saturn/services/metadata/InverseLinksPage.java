@@ -0,0 +1,15 @@
+package io.fairspace.saturn.services.metadata;
+
+import lombok.Value;
+import org.apache.jena.rdf.model.Model;
+
+/**
+ * A page of the resources that link to a subject with a property.
+ * The links are ordered by the IRI of the linking resource.
+ * <code>continuationToken</code> is used to request the next page, and is null on the last page.
+ */
+@Value
+public class InverseLinksPage {
+    Model model;
+    String continuationToken;
+}
@@ -0,0 +1,189 @@
+package io.fairspace.saturn.services.metadata;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.sparql.util.Symbol;
+import org.apache.jena.vocabulary.RDF;
+import org.apache.jena.vocabulary.RDFS;
+
+import io.fairspace.saturn.vocabulary.FS;
+
+import static org.apache.jena.system.Txn.executeRead;
+
+/**
+ * Index of the resources of the default graph by type and normalised label (trimmed and lower case).
+ * Lookups return candidates: callers check the exact label on the model they work with.
+ * <p>
+ * The index is kept current by {@link io.fairspace.saturn.rdf.transactions.TxnLabelDatasetGraph}.
+ * Changes of a write transaction are kept apart until the transaction is committed:
+ * they are visible to lookups from the thread of the write transaction only, and discarded on abort.
+ * Files and directories are not indexed, as there are many of them and their labels are not unique.
+ */
+@Slf4j
+public class LabelIndex {
+    public static final Symbol LABEL_INDEX = Symbol.create("label_index");
+
+    private static final Node TYPE = RDF.type.asNode();
+    private static final Node LABEL = RDFS.label.asNode();
+    private static final Set<Node> UNINDEXED_TYPES = Set.of(FS.File.asNode(), FS.Directory.asNode());
+
+    @Value
+    private static class Key {
+        Node type;
+        String label;
+    }
+
+    // Committed state
+    private final Map<Key, Set<Node>> subjectsByKey = new ConcurrentHashMap<>();
+    private final Map<Node, Set<Key>> keysBySubject = new ConcurrentHashMap<>();
+
+    // State of the active write transaction.
+    // One write transaction is active at a time, so it is only accessed by the thread of that transaction.
+    private volatile Thread writer;
+    private Graph graph;
+    private final Set<Node> changedSubjects = new HashSet<>();
+    private final Map<Node, Set<Key>> pendingKeysBySubject = new HashMap<>();
+
+    public static boolean isIndexed(Node type) {
+        return type != null && !UNINDEXED_TYPES.contains(type);
+    }
+
+    /**
+     * @return the resources of the type with the label, ignoring case and surrounding whitespace.
+     */
+    public Set<Node> find(Node type, String label) {
+        var key = new Key(type, normalize(label));
+        var subjects = new LinkedHashSet<>(subjectsByKey.getOrDefault(key, Set.of()));
+        if (writer == Thread.currentThread()) {
+            reindexChangedSubjects();
+            pendingKeysBySubject.forEach((subject, keys) -> {
+                if (keys.contains(key)) {
+                    subjects.add(subject);
+                } else {
+                    subjects.remove(subject);
+                }
+            });
+        }
+        return subjects;
+    }
+
+    /**
+     * Discards the changes left by a write transaction that ended without a commit or an abort.
+     * Must be called when a write transaction begins.
+     */
+    public void begin() {
+        reset();
+    }
+
+    /**
+     * Registers a change of the type or label of a subject in the active write transaction.
+     *
+     * @param graph the default graph of the write transaction.
+     */
+    public void onChange(Graph graph, Node subject) {
+        writer = Thread.currentThread();
+        this.graph = graph;
+        changedSubjects.add(subject);
+    }
+
+    /**
+     * Reads the types and labels of the changed subjects. Must be called before the write transaction is committed.
+     */
+    public void prepareCommit() {
+        if (writer == Thread.currentThread()) {
+            reindexChangedSubjects();
+        }
+    }
+
+    /**
+     * Applies the changes of the write transaction. Must be called after the transaction has been committed.
+     */
+    public void commit() {
+        if (writer == Thread.currentThread()) {
+            pendingKeysBySubject.forEach(this::put);
+            reset();
+        }
+    }
+
+    public void abort() {
+        if (writer == Thread.currentThread()) {
+            reset();
+        }
+    }
+
+    /**
+     * Indexes the labels of the resources in the dataset.
+     */
+    public void load(Dataset ds) {
+        var start = System.currentTimeMillis();
+        executeRead(ds, () -> {
+            var defaultGraph = ds.asDatasetGraph().getDefaultGraph();
+            var subjects = new HashSet<Node>();
+            defaultGraph.find(Node.ANY, LABEL, Node.ANY).forEachRemaining(t -> subjects.add(t.getSubject()));
+            subjects.forEach(subject -> put(subject, keysOf(defaultGraph, subject)));
+        });
+        log.info(
+                "Indexed the labels of {} resources in {}ms", keysBySubject.size(), System.currentTimeMillis() - start);
+    }
+
+    private void reindexChangedSubjects() {
+        changedSubjects.forEach(subject -> pendingKeysBySubject.put(subject, keysOf(graph, subject)));
+        changedSubjects.clear();
+    }
+
+    private void put(Node subject, Set<Key> keys) {
+        var oldKeys = keys.isEmpty() ? keysBySubject.remove(subject) : keysBySubject.put(subject, keys);
+        if (oldKeys != null) {
+            oldKeys.stream()
+                    .filter(key -> !keys.contains(key))
+                    .forEach(key -> subjectsByKey.computeIfPresent(key, (k, subjects) -> {
+                        var updated = new HashSet<>(subjects);
+                        updated.remove(subject);
+                        return updated.isEmpty() ? null : Set.copyOf(updated);
+                    }));
+        }
+        keys.forEach(key -> subjectsByKey.compute(key, (k, subjects) -> {
+            var updated = subjects == null ? new HashSet<Node>() : new HashSet<>(subjects);
+            updated.add(subject);
+            return Set.copyOf(updated);
+        }));
+    }
+
+    private void reset() {
+        changedSubjects.clear();
+        pendingKeysBySubject.clear();
+        graph = null;
+        writer = null;
+    }
+
+    private static Set<Key> keysOf(Graph graph, Node subject) {
+        var types = new HashSet<Node>();
+        graph.find(subject, TYPE, Node.ANY).forEachRemaining(t -> types.add(t.getObject()));
+        if (types.isEmpty() || types.stream().anyMatch(type -> !isIndexed(type))) {
+            return Set.of();
+        }
+        var keys = new HashSet<Key>();
+        graph.find(subject, LABEL, Node.ANY).forEachRemaining(t -> {
+            if (t.getObject().isLiteral()) {
+                var label = normalize(t.getObject().getLiteralLexicalForm());
+                types.forEach(type -> keys.add(new Key(type, label)));
+            }
+        });
+        return Set.copyOf(keys);
+    }
+
+    private static String normalize(String label) {
+        return label.trim().toLowerCase(Locale.ROOT);
+    }
+}
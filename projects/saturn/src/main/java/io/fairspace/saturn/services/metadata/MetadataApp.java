@@ -1,23 +1,25 @@
 package io.fairspace.saturn.services.metadata;
 
 import lombok.extern.log4j.Log4j2;
-import org.apache.jena.rdf.model.Model;
-import spark.Request;
+import org.apache.jena.riot.Lang;
 
 import io.fairspace.saturn.services.AccessDeniedException;
 import io.fairspace.saturn.services.BaseApp;
 import io.fairspace.saturn.services.PayloadParsingException;
 import io.fairspace.saturn.services.metadata.validation.ValidationException;
+import io.fairspace.saturn.util.UnsupportedMediaTypeException;
 
 import static io.fairspace.saturn.services.errors.ErrorHelper.errorBody;
 import static io.fairspace.saturn.services.errors.ErrorHelper.exceptionHandler;
 import static io.fairspace.saturn.services.metadata.Serialization.deserialize;
 import static io.fairspace.saturn.services.metadata.Serialization.getFormat;
 import static io.fairspace.saturn.services.metadata.Serialization.serialize;
+import static io.fairspace.saturn.util.ValidationUtils.parsePositiveInt;
 import static io.fairspace.saturn.util.ValidationUtils.validate;
 import static io.fairspace.saturn.util.ValidationUtils.validateIRI;
 
 import static java.lang.Boolean.FALSE;
+import static javax.servlet.http.HttpServletResponse.SC_ACCEPTED;
 import static javax.servlet.http.HttpServletResponse.SC_BAD_REQUEST;
 import static javax.servlet.http.HttpServletResponse.SC_FORBIDDEN;
 import static javax.servlet.http.HttpServletResponse.SC_NO_CONTENT;
@@ -26,27 +28,87 @@ import static org.eclipse.jetty.http.MimeTypes.Type.APPLICATION_JSON;
 import static spark.Spark.delete;
 import static spark.Spark.get;
 import static spark.Spark.patch;
+import static spark.Spark.post;
 import static spark.Spark.put;
 
 @Log4j2
 public class MetadataApp extends BaseApp {
 
     private static final String DO_VIEWS_UPDATE = "doViewsUpdate";
+    public static final String IMPORT_JOB_HEADER = "X-Import-Job";
+
+    private static final String IMPORT_JOB = "job";
+
+    public static final String CONTINUATION_TOKEN_HEADER = "X-Continuation-Token";
+    private static final int DEFAULT_LINKS_PAGE_SIZE = 100;
+    private static final int MAX_LINKS_PAGE_SIZE = 1000;
 
     protected final MetadataService api;
+    protected final MetadataImportService importService;
 
-    public MetadataApp(String basePath, MetadataService api) {
+    public MetadataApp(String basePath, MetadataService api, MetadataImportService importService) {
         super(basePath);
         this.api = api;
+        this.importService = importService;
     }
 
     @Override
     protected void initApp() {
         get("/", (req, res) -> {
-            var model = getMetadata(req);
+            var subject = req.queryParams("subject");
+            var withValueProperties = req.queryParams().contains("withValueProperties");
             var format = getFormat(req.headers("Accept"));
             res.type(format.getLang().getHeaderString());
-            return serialize(model, format);
+            serialize(
+                    output -> api.get(subject, withValueProperties, output),
+                    format,
+                    res.raw().getOutputStream());
+            return "";
+        });
+        get("/links", (req, res) -> {
+            var subject = req.queryParams("subject");
+            var predicate = req.queryParams("predicate");
+            validate(subject != null, "Parameter \"subject\" is required");
+            validate(predicate != null, "Parameter \"predicate\" is required");
+            validateIRI(subject);
+            validateIRI(predicate);
+            var limit = parsePositiveInt(
+                    req.queryParamOrDefault("limit", String.valueOf(DEFAULT_LINKS_PAGE_SIZE)), "limit");
+            validate(limit <= MAX_LINKS_PAGE_SIZE, "The limit must not exceed " + MAX_LINKS_PAGE_SIZE);
+
+            var page = api.getInverseLinks(
+                    subject,
+                    predicate,
+                    req.queryParams("continuationToken"),
+                    limit,
+                    req.queryParams().contains("withValueProperties"));
+
+            if (page.getContinuationToken() != null) {
+                res.header(CONTINUATION_TOKEN_HEADER, page.getContinuationToken());
+            }
+            var format = getFormat(req.headers("Accept"));
+            res.type(format.getLang().getHeaderString());
+            return serialize(page.getModel(), format);
+        });
+        get("/export", (req, res) -> {
+            var type = req.queryParams("type");
+            var collection = req.queryParams("collection");
+            if (type != null) {
+                validateIRI(type);
+            }
+            if (collection != null) {
+                validateIRI(collection);
+            }
+            var format = getFormat(req.headers("Accept"));
+            res.type(format.getLang().getHeaderString());
+            serialize(
+                    output -> api.export(
+                            type == null ? null : createResource(type),
+                            collection == null ? null : createResource(collection),
+                            output),
+                    format,
+                    res.raw().getOutputStream());
+            return "";
         });
 
         put("/", (req, res) -> {
@@ -84,6 +146,29 @@ public class MetadataApp extends BaseApp {
             res.status(SC_NO_CONTENT);
             return "";
         });
+        post("/import", (req, res) -> {
+            var lang = getImportLang(req.contentType());
+            var doViewsUpdate = req.queryParamOrDefault(DO_VIEWS_UPDATE, FALSE.toString());
+            var job = importService.startJob(req.queryParams(IMPORT_JOB));
+            // The job id is needed to resume a failed import, so it is sent before the import starts.
+            // The status can no longer change afterwards: the outcome is reported by the job.
+            res.status(SC_ACCEPTED);
+            res.header(IMPORT_JOB_HEADER, job.getId());
+            res.raw().flushBuffer();
+
+            importService.importMetadata(job, req.raw().getInputStream(), lang, Boolean.valueOf(doViewsUpdate));
+
+            res.type(APPLICATION_JSON.asString());
+            return mapper.writeValueAsString(job);
+        });
+        get("/import/:job", (req, res) -> {
+            var job = importService.getJob(req.params(IMPORT_JOB));
+            if (job == null) {
+                return null;
+            }
+            res.type(APPLICATION_JSON.asString());
+            return mapper.writeValueAsString(job);
+        });
         exception(PayloadParsingException.class, exceptionHandler(SC_BAD_REQUEST, "Malformed request body"));
         exception(ValidationException.class, (e, req, res) -> {
             log.error("400 Error handling request {} {}", req.requestMethod(), req.uri());
@@ -102,7 +187,13 @@ public class MetadataApp extends BaseApp {
         });
     }
 
-    private Model getMetadata(Request req) {
-        return api.get(req.queryParams("subject"), req.queryParams().contains("withValueProperties"));
+    private static Lang getImportLang(String contentType) {
+        var type = contentType == null ? "" : contentType.split(";")[0].trim();
+        return MetadataImportService.SUPPORTED_LANGS.stream()
+                .filter(lang -> lang.getContentType().getContentTypeStr().equals(type))
+                .findFirst()
+                .orElseThrow(() -> new UnsupportedMediaTypeException(MetadataImportService.SUPPORTED_LANGS.stream()
+                        .map(lang -> lang.getContentType().getContentTypeStr())
+                        .toList()));
     }
 }
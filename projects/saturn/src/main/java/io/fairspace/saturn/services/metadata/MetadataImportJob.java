@@ -0,0 +1,40 @@
+package io.fairspace.saturn.services.metadata;
+
+import java.nio.file.Path;
+import java.time.Instant;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+
+/**
+ * Progress of a bulk metadata import.
+ * The triples of the input are committed in chunks; <code>triples</code> is the number of triples
+ * of the input that have been committed, so an import can be resumed after a failure by sending
+ * the same input again with the same job id.
+ */
+@Data
+public class MetadataImportJob {
+    public enum Status {
+        RUNNING,
+        FAILED,
+        COMPLETED
+    }
+
+    private final String id;
+    /**
+     * The IRI of the user who started the job; only this user can see or resume it.
+     */
+    private final String owner;
+
+    private final Instant started = Instant.now();
+    private Status status = Status.RUNNING;
+    private long triples;
+    private long chunks;
+    private String error;
+
+    /**
+     * The IRIs of the imported subjects, one per line, to update the views with at the end of the import.
+     */
+    @JsonIgnore
+    private Path subjects;
+}
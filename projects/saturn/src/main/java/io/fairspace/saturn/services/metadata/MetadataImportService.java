@@ -0,0 +1,277 @@
+package io.fairspace.saturn.services.metadata;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+import lombok.extern.log4j.Log4j2;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFParser;
+import org.apache.jena.riot.RiotException;
+import org.apache.jena.riot.system.StreamRDFBase;
+import org.apache.jena.sparql.core.Quad;
+
+import io.fairspace.saturn.services.AccessDeniedException;
+import io.fairspace.saturn.services.ConflictException;
+import io.fairspace.saturn.services.PayloadParsingException;
+import io.fairspace.saturn.services.views.ViewStoreClientFactory;
+import io.fairspace.saturn.services.views.ViewUpdater;
+
+import static io.fairspace.saturn.auth.RequestContext.getUserURI;
+
+import static org.apache.jena.graph.NodeFactory.createURI;
+import static org.apache.jena.rdf.model.ModelFactory.createDefaultModel;
+import static org.apache.jena.system.Txn.executeRead;
+
+/**
+ * Imports large amounts of metadata without loading them in memory.
+ * The input is parsed as a stream and split into chunks of about <code>chunkSize</code> triples.
+ * The triples of a subject are kept in one chunk if they are consecutive in the input,
+ * so inputs should be grouped by subject, e.g. sorted N-Triples.
+ * Every chunk is validated against the current state of the database and committed in its own transaction,
+ * like a metadata PUT. The views are updated once, at the end of the import.
+ * <p>
+ * The progress is tracked per job. If an import fails, the committed chunks are kept:
+ * sending the same input with the same job id resumes the import after the last committed chunk.
+ * Only the user who started a job can see or resume it. The subjects of a job are recorded in a file
+ * in the work directory, which is deleted when the job completes or is evicted.
+ */
+@Log4j2
+public class MetadataImportService {
+    public static final List<Lang> SUPPORTED_LANGS = List.of(Lang.NTRIPLES, Lang.NQUADS, Lang.TURTLE);
+
+    private static final int JOB_RETENTION_HOURS = 24;
+    private static final int VIEW_UPDATE_BATCH_SIZE = 1000;
+    private static final String SUBJECTS_FILE_PREFIX = "metadata-import-";
+
+    private final MetadataService metadataService;
+    private final Dataset dataset;
+    private final ViewStoreClientFactory viewStoreClientFactory;
+    private final int chunkSize;
+    private final Path workDir;
+    private final Cache<String, MetadataImportJob> jobs = CacheBuilder.newBuilder()
+            .expireAfterAccess(JOB_RETENTION_HOURS, TimeUnit.HOURS)
+            .removalListener(MetadataImportService::onRemoval)
+            .build();
+
+    public MetadataImportService(
+            MetadataService metadataService,
+            Dataset dataset,
+            ViewStoreClientFactory viewStoreClientFactory,
+            int chunkSize,
+            File workDir) {
+        this.metadataService = metadataService;
+        this.dataset = dataset;
+        this.viewStoreClientFactory = viewStoreClientFactory;
+        this.chunkSize = chunkSize;
+        this.workDir = workDir.toPath();
+        deleteStaleSubjectFiles();
+    }
+
+    /**
+     * Returns the job with the given id, or null if it is unknown.
+     */
+    public MetadataImportJob getJob(String id) {
+        var job = jobs.getIfPresent(id);
+        if (job != null) {
+            checkOwner(job);
+        }
+        return job;
+    }
+
+    /**
+     * Returns the job with the given id, to resume, or a new job if the id is null.
+     * A job that is running or has been completed cannot be resumed.
+     */
+    public synchronized MetadataImportJob startJob(String id) {
+        // Expired jobs are evicted, and their files deleted, on access only
+        jobs.cleanUp();
+        if (id == null) {
+            var user = getUserURI();
+            var job = new MetadataImportJob(UUID.randomUUID().toString(), user == null ? null : user.getURI());
+            jobs.put(job.getId(), job);
+            return job;
+        }
+        var job = jobs.getIfPresent(id);
+        if (job == null) {
+            throw new IllegalArgumentException("Unknown import job: " + id);
+        }
+        checkOwner(job);
+        if (job.getStatus() != MetadataImportJob.Status.FAILED) {
+            throw new ConflictException("Import job " + id + " is " + job.getStatus());
+        }
+        job.setStatus(MetadataImportJob.Status.RUNNING);
+        job.setError(null);
+        return job;
+    }
+
+    /**
+     * Imports the metadata, skipping the triples that have been committed by the job before.
+     */
+    public void importMetadata(MetadataImportJob job, InputStream input, Lang lang, boolean doViewsUpdate) {
+        try {
+            if (job.getSubjects() == null) {
+                job.setSubjects(Files.createTempFile(workDir, SUBJECTS_FILE_PREFIX + job.getId(), ".txt"));
+            }
+            var stream = new ChunkingStream(job);
+            try {
+                RDFParser.source(input).lang(lang).parse(stream);
+            } catch (RiotException e) {
+                throw new PayloadParsingException("Error parsing metadata after " + stream.parsed + " triples", e);
+            }
+            stream.commitChunk();
+            if (doViewsUpdate && viewStoreClientFactory != null) {
+                updateViews(job);
+            }
+            job.setStatus(MetadataImportJob.Status.COMPLETED);
+            Files.deleteIfExists(job.getSubjects());
+            log.info("Import job {} imported {} triples in {} chunks", job.getId(), job.getTriples(), job.getChunks());
+        } catch (IOException e) {
+            fail(job, e);
+            throw new RuntimeException("Error importing metadata", e);
+        } catch (RuntimeException e) {
+            fail(job, e);
+            throw e;
+        }
+    }
+
+    private static void checkOwner(MetadataImportJob job) {
+        var user = getUserURI();
+        if (!Objects.equals(job.getOwner(), user == null ? null : user.getURI())) {
+            throw new AccessDeniedException("Import job " + job.getId() + " was started by another user");
+        }
+    }
+
+    private static void onRemoval(RemovalNotification<String, MetadataImportJob> notification) {
+        var subjects = notification.getValue().getSubjects();
+        if (subjects != null) {
+            try {
+                Files.deleteIfExists(subjects);
+            } catch (IOException e) {
+                log.error("Error deleting the subjects of import job {}", notification.getKey(), e);
+            }
+        }
+    }
+
+    /**
+     * Deletes the subject files of the jobs of a previous run, which cannot be resumed.
+     */
+    private void deleteStaleSubjectFiles() {
+        try {
+            Files.createDirectories(workDir);
+            try (var files = Files.newDirectoryStream(workDir, SUBJECTS_FILE_PREFIX + "*")) {
+                for (var file : files) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            log.error("Error cleaning up the metadata import directory {}", workDir, e);
+        }
+    }
+
+    private static void fail(MetadataImportJob job, Exception e) {
+        log.error("Import job {} failed after {} triples", job.getId(), job.getTriples(), e);
+        job.setStatus(MetadataImportJob.Status.FAILED);
+        job.setError(e.getMessage());
+    }
+
+    private void updateViews(MetadataImportJob job) throws IOException {
+        try (var lines = Files.lines(job.getSubjects(), StandardCharsets.UTF_8)) {
+            executeRead(dataset, () -> {
+                try (var viewStoreClient = viewStoreClientFactory.build();
+                        var viewUpdater = new ViewUpdater(viewStoreClient, dataset.asDatasetGraph())) {
+                    // Subjects are deduplicated per batch, so that they are never all held in memory
+                    var batch = new LinkedHashSet<String>();
+                    for (var iterator = lines.iterator(); iterator.hasNext(); ) {
+                        batch.add(iterator.next());
+                        if (batch.size() == VIEW_UPDATE_BATCH_SIZE || !iterator.hasNext()) {
+                            for (var subject : batch) {
+                                viewUpdater.updateSubject(createURI(subject));
+                            }
+                            viewUpdater.commit();
+                            batch.clear();
+                        }
+                    }
+                } catch (Exception e) {
+                    throw new RuntimeException("Error updating the views", e);
+                }
+            });
+        }
+    }
+
+    private class ChunkingStream extends StreamRDFBase {
+        private final MetadataImportJob job;
+        private final long committed;
+        private Model chunk = createDefaultModel();
+        private long chunkTriples;
+        private long parsed;
+        private Node lastSubject;
+
+        ChunkingStream(MetadataImportJob job) {
+            this.job = job;
+            this.committed = job.getTriples();
+        }
+
+        @Override
+        public void triple(Triple triple) {
+            if (++parsed <= committed) {
+                return;
+            }
+            if (chunkTriples >= chunkSize && !triple.getSubject().equals(lastSubject)) {
+                commitChunk();
+            }
+            chunk.getGraph().add(triple);
+            chunkTriples++;
+            lastSubject = triple.getSubject();
+        }
+
+        @Override
+        public void quad(Quad quad) {
+            if (!quad.isDefaultGraph()) {
+                throw new PayloadParsingException("Metadata can only be imported into the default graph");
+            }
+            triple(quad.asTriple());
+        }
+
+        void commitChunk() {
+            if (chunkTriples == 0) {
+                return;
+            }
+            var subjects =
+                    chunk.listSubjects().filterKeep(s -> s.isURIResource()).toList();
+            metadataService.put(chunk, Boolean.FALSE);
+            try (BufferedWriter writer =
+                    Files.newBufferedWriter(job.getSubjects(), StandardCharsets.UTF_8, StandardOpenOption.APPEND)) {
+                for (var subject : subjects) {
+                    writer.write(subject.getURI());
+                    writer.newLine();
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("Error recording the imported subjects", e);
+            }
+            job.setTriples(job.getTriples() + chunkTriples);
+            job.setChunks(job.getChunks() + 1);
+            // Keeps a running job from being evicted, with its subjects
+            jobs.getIfPresent(job.getId());
+            chunk = createDefaultModel();
+            chunkTriples = 0;
+        }
+    }
+}
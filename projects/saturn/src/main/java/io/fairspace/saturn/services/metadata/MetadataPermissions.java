@@ -7,7 +7,12 @@ import io.fairspace.saturn.services.users.UserService;
 import io.fairspace.saturn.services.workspaces.WorkspaceService;
 import io.fairspace.saturn.vocabulary.FS;
 import io.fairspace.saturn.webdav.DavFactory;
+import io.fairspace.saturn.webdav.resources.FileVersions;
 
+/**
+ * The access to metadata. Files, directories and collections, and the versions of files,
+ * are accessible as their collections are; workspaces to their members; other metadata to users with a role.
+ */
 public class MetadataPermissions {
     private final WorkspaceService workspaceService;
     private final DavFactory davFactory;
@@ -23,6 +28,10 @@ public class MetadataPermissions {
         if (userService.currentUser().isAdmin()) {
             return true;
         }
+        var file = FileVersions.file(resource);
+        if (file != null) {
+            return davFactory.getAccess(file).canList();
+        }
         if (davFactory.isFileSystemResource(resource)) {
             return davFactory.getAccess(resource).canList();
         }
@@ -44,6 +53,10 @@ public class MetadataPermissions {
         if (userService.currentUser().isAdmin()) {
             return true;
         }
+        var file = FileVersions.file(resource);
+        if (file != null) {
+            return davFactory.getAccess(file).canWrite();
+        }
         if (davFactory.isFileSystemResource(resource)) {
             return davFactory.getAccess(resource).canWrite();
         }
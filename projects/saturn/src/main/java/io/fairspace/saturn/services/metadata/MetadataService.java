@@ -1,16 +1,36 @@
 package io.fairspace.saturn.services.metadata;
 
 import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
+import lombok.Value;
 import org.apache.commons.lang3.tuple.Pair;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryExecutionFactory;
+import org.apache.jena.query.QueryFactory;
+import org.apache.jena.query.QuerySolutionMap;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.Property;
 import org.apache.jena.rdf.model.RDFNode;
 import org.apache.jena.rdf.model.Resource;
 import org.apache.jena.rdf.model.Statement;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFLib;
 import org.apache.jena.shacl.vocabulary.SHACLM;
 import org.apache.jena.util.iterator.ExtendedIterator;
 import org.apache.jena.vocabulary.RDF;
@@ -20,19 +40,24 @@ import io.fairspace.saturn.services.AccessDeniedException;
 import io.fairspace.saturn.services.metadata.validation.MetadataRequestValidator;
 import io.fairspace.saturn.services.metadata.validation.ValidationException;
 import io.fairspace.saturn.services.metadata.validation.Violation;
+import io.fairspace.saturn.tracing.Tracer;
 import io.fairspace.saturn.vocabulary.FS;
 
 import static io.fairspace.saturn.audit.Audit.audit;
+import static io.fairspace.saturn.audit.Audit.auditBulk;
 import static io.fairspace.saturn.auth.RequestContext.getUserURI;
 import static io.fairspace.saturn.rdf.ModelUtils.EMPTY_MODEL;
 import static io.fairspace.saturn.rdf.ModelUtils.trimLabels;
 import static io.fairspace.saturn.rdf.ModelUtils.updatedView;
 import static io.fairspace.saturn.rdf.SparqlUtils.toXSDDateTimeLiteral;
 import static io.fairspace.saturn.services.users.UserService.currentUserAsSymbol;
-import static io.fairspace.saturn.vocabulary.ShapeUtils.getPropertyShapesForResource;
+import static io.fairspace.saturn.vocabulary.ShapeUtils.getClassShapeForClass;
 import static io.fairspace.saturn.vocabulary.Vocabularies.SYSTEM_VOCABULARY;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.apache.jena.rdf.model.ModelFactory.createDefaultModel;
+import static org.apache.jena.rdf.model.ResourceFactory.createProperty;
+import static org.apache.jena.rdf.model.ResourceFactory.createStringLiteral;
 
 public class MetadataService {
     private final Transactions transactions;
@@ -44,6 +69,29 @@ public class MetadataService {
     // If you change this, also change it in 'constants.js'
     private final int MAX_LIST_LENGTH = 100;
 
+    private static final Query INVERSE_LINKS_QUERY = QueryFactory.create(
+            """
+            SELECT ?s
+            WHERE {
+               ?s ?predicate ?object .
+               FILTER (isIRI(?s) && STR(?s) > ?after)
+            } ORDER BY STR(?s)
+            """);
+
+    /**
+     * The shape information of a class that is needed to expand the metadata of its instances.
+     */
+    @Value
+    private static class ClassShape {
+        List<Property> inverseProperties;
+        List<Property> importantProperties;
+    }
+
+    private static final ClassShape NO_SHAPE = new ClassShape(List.of(), List.of());
+
+    // The vocabulary does not change, so the shape information is read once per class
+    private final Map<Node, ClassShape> classShapes = new ConcurrentHashMap<>();
+
     public MetadataService(
             Transactions transactions,
             Model vocabulary,
@@ -68,6 +116,32 @@ public class MetadataService {
      */
     public Model get(String subject, boolean withValueProperties) {
         var returnValues = createDefaultModel();
+        get(subject, withValueProperties, StreamRDFLib.graph(returnValues.getGraph()));
+        return returnValues;
+    }
+
+    /**
+     * Writes the statements returned by {@link #get(String, boolean)} to a stream, while the read transaction is open.
+     * Statements are written once. The properties of the subject are distinct, and the important properties
+     * of a resource are written once, so only the statements that link back to the subject are remembered.
+     */
+    public void get(String subject, boolean withValueProperties, StreamRDF output) {
+        var subjectNode = subject == null ? null : NodeFactory.createURI(subject);
+        var backLinks = new HashSet<Triple>();
+        Consumer<Statement> returnValues = stmt -> {
+            var triple = stmt.asTriple();
+            if (!triple.getObject().equals(subjectNode) || backLinks.add(triple)) {
+                output.triple(triple);
+            }
+        };
+        // All properties of the subject are written anyway
+        var expanded = new HashSet<Node>();
+        expanded.add(subjectNode);
+        Consumer<Resource> addValueProperties = resource -> {
+            if (withValueProperties && expanded.add(resource.asNode())) {
+                addImportantProperties(resource, returnValues);
+            }
+        };
 
         transactions.executeRead(fairspaceData -> {
             var resource = fairspaceData.createResource(subject);
@@ -76,28 +150,163 @@ public class MetadataService {
             }
 
             resource.listProperties().forEachRemaining(stmt -> {
-                returnValues.add(stmt);
-                if (withValueProperties && stmt.getObject().isURIResource()) {
-                    addImportantProperties(stmt.getResource(), returnValues);
+                returnValues.accept(stmt);
+                if (stmt.getObject().isURIResource()) {
+                    addValueProperties.accept(stmt.getResource());
                 }
             });
 
-            getPropertyShapesForResource(resource, vocabulary).stream()
-                    .map(ps -> ps.getProperty(SHACLM.path).getResource().getPropertyResourceValue(SHACLM.inversePath))
-                    .filter(Objects::nonNull)
-                    .map(p -> p.as(Property.class))
+            getClassShape(resource)
+                    .getInverseProperties()
                     .forEach(property ->
-                            addStatements(fairspaceData, returnValues, property, resource, withValueProperties));
+                            addStatements(fairspaceData, returnValues, property, resource, addValueProperties));
         });
-        return returnValues;
+    }
+
+    /**
+     * Returns a page of the readable, not deleted resources that link to a subject with a property
+     * that is an inverse path of the shape of the subject.
+     * Unlike {@link #get(String, boolean)}, which returns the first 100 links only,
+     * all links can be read page by page. The links are ordered by IRI, so that a page continues after
+     * the last link of the previous page, and each page only reads the links after that one;
+     * the permissions of the links are only checked for the page.
+     *
+     * @param continuationToken   the token of the previous page, or null for the first page.
+     * @param withValueProperties If set to true, the page will also include the values of the important properties
+     *                            of the linking resources
+     */
+    public InverseLinksPage getInverseLinks(
+            String subject, String predicate, String continuationToken, int limit, boolean withValueProperties) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("The limit must be positive");
+        }
+        var after = continuationToken == null ? null : decodeContinuationToken(continuationToken);
+
+        return transactions.calculateRead(fairspaceData -> {
+            var resource = fairspaceData.createResource(subject);
+            if (!permissions.canReadMetadata(resource)) {
+                throw new AccessDeniedException(subject);
+            }
+            var property = fairspaceData.createProperty(predicate);
+            if (!getClassShape(resource).getInverseProperties().contains(property)) {
+                throw new IllegalArgumentException("Not an inverse property of " + subject + ": " + predicate);
+            }
+
+            var page = createDefaultModel();
+            String last = null;
+            var count = 0;
+            // Links that are deleted or not readable are skipped, so more than a page may have to be read
+            var batch = after == null ? "" : after;
+            while (batch != null) {
+                var links = inverseLinksAfter(fairspaceData, property, resource, batch, limit + 1);
+                batch = links.size() > limit ? links.get(links.size() - 1) : null;
+                for (var iri : links) {
+                    var link = fairspaceData.createResource(iri);
+                    if (link.hasProperty(FS.dateDeleted) || !permissions.canReadMetadata(link)) {
+                        continue;
+                    }
+                    if (count == limit) {
+                        return new InverseLinksPage(page, encodeContinuationToken(last));
+                    }
+                    page.add(link, property, resource);
+                    if (withValueProperties) {
+                        addImportantProperties(link, page::add);
+                    }
+                    last = iri;
+                    count++;
+                }
+            }
+            return new InverseLinksPage(page, null);
+        });
+    }
+
+    /**
+     * @return the first IRIs, in order, of the resources that link to an object with a property, after a given IRI.
+     * The query keeps only the first IRIs while it scans the links, instead of sorting all of them.
+     */
+    private static List<String> inverseLinksAfter(
+            Model model, Property property, Resource object, String after, int limit) {
+        var query = INVERSE_LINKS_QUERY.cloneQuery();
+        query.setLimit(limit);
+        var binding = new QuerySolutionMap();
+        binding.add("predicate", property);
+        binding.add("object", object);
+        binding.add("after", createStringLiteral(after));
+        var links = new ArrayList<String>(limit);
+        try (var execution = QueryExecutionFactory.create(query, model, binding)) {
+            execution
+                    .execSelect()
+                    .forEachRemaining(row -> links.add(row.getResource("s").getURI()));
+        }
+        return links;
+    }
+
+    private static String encodeContinuationToken(String lastIri) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(lastIri.getBytes(UTF_8));
+    }
+
+    private static String decodeContinuationToken(String token) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(token), UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid continuation token: " + token);
+        }
+    }
+
+    /**
+     * Writes the statements of all readable, not deleted entities of a type, or in a collection, to a stream.
+     * If both are given, the entities of the type in the collection are written.
+     *
+     * @param type       the type of the entities to export, or null.
+     * @param collection the collection of which to export the directories and files, or null.
+     */
+    public void export(Resource type, Resource collection, StreamRDF output) {
+        if (type == null && collection == null) {
+            throw new IllegalArgumentException("A type or a collection is required");
+        }
+        transactions.executeRead(fairspaceData -> {
+            Iterator<Resource> subjects = collection != null
+                    ? new CollectionIterator(collection.inModel(fairspaceData))
+                    : fairspaceData.listSubjectsWithProperty(RDF.type, type);
+            subjects.forEachRemaining(subject -> {
+                if ((type == null || subject.hasProperty(RDF.type, type))
+                        && !subject.hasProperty(FS.dateDeleted)
+                        && permissions.canReadMetadata(subject)) {
+                    subject.listProperties().forEachRemaining(stmt -> output.triple(stmt.asTriple()));
+                }
+            });
+        });
+    }
+
+    /**
+     * Iterates over a collection and the directories and files it contains, breadth first.
+     */
+    private static class CollectionIterator implements Iterator<Resource> {
+        private final Deque<Resource> pending = new ArrayDeque<>();
+
+        CollectionIterator(Resource collection) {
+            pending.add(collection);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !pending.isEmpty();
+        }
+
+        @Override
+        public Resource next() {
+            var next = pending.remove();
+            next.getModel().listSubjectsWithProperty(FS.belongsTo, next).forEachRemaining(pending::add);
+            return next;
+        }
     }
 
     private void addStatements(
             Model fairspaceData,
-            Model returnValues,
+            Consumer<Statement> returnValues,
             Property property,
             Resource resource,
-            boolean withValueProperties) {
+            Consumer<Resource> addValueProperties) {
         ExtendedIterator<Statement> statements = fairspaceData
                 .listStatements(null, property, resource)
                 .filterKeep(stmt -> permissions.canReadMetadata(stmt.getSubject()))
@@ -108,10 +317,8 @@ public class MetadataService {
         while (statements.hasNext()) {
             Statement stmt = (Statement) statements.next();
 
-            returnValues.add(stmt);
-            if (withValueProperties) {
-                addImportantProperties(stmt.getSubject(), returnValues);
-            }
+            returnValues.accept(stmt);
+            addValueProperties.accept(stmt.getSubject());
 
             if (numberOfStatementsAdded++ == MAX_LIST_LENGTH) {
                 break;
@@ -119,13 +326,34 @@ public class MetadataService {
         }
     }
 
-    private void addImportantProperties(Resource s, Model dest) {
-        getPropertyShapesForResource(s, vocabulary).forEach(shape -> {
-            if (shape.hasLiteral(FS.importantProperty, true)) {
-                var property = shape.getPropertyResourceValue(SHACLM.path).as(Property.class);
-                s.listProperties(property).forEachRemaining(dest::add);
-            }
-        });
+    private void addImportantProperties(Resource s, Consumer<Statement> dest) {
+        getClassShape(s).getImportantProperties().forEach(property -> s.listProperties(property)
+                .forEachRemaining(dest));
+    }
+
+    private ClassShape getClassShape(Resource resource) {
+        var type = resource.getPropertyResourceValue(RDF.type);
+        return type == null ? NO_SHAPE : classShapes.computeIfAbsent(type.asNode(), t -> readClassShape(type));
+    }
+
+    private ClassShape readClassShape(Resource type) {
+        var propertyShapes = getClassShapeForClass(type, vocabulary)
+                .map(classShape -> classShape
+                        .listProperties(SHACLM.property)
+                        .mapWith(stmt -> stmt.getObject().asResource())
+                        .toList())
+                .orElse(List.of());
+        var inverseProperties = propertyShapes.stream()
+                .map(ps -> ps.getProperty(SHACLM.path).getResource().getPropertyResourceValue(SHACLM.inversePath))
+                .filter(Objects::nonNull)
+                .map(p -> createProperty(p.getURI()))
+                .toList();
+        var importantProperties = propertyShapes.stream()
+                .filter(ps -> ps.hasLiteral(FS.importantProperty, true))
+                .map(ps ->
+                        createProperty(ps.getPropertyResourceValue(SHACLM.path).getURI()))
+                .toList();
+        return new ClassShape(inverseProperties, importantProperties);
     }
 
     /**
@@ -235,36 +463,53 @@ public class MetadataService {
     }
 
     private void logDeleted(Set<Resource> updatedResources) {
-        updatedResources.forEach(resource -> audit("METADATA_DELETED", "iri", resource.getURI()));
+        log("METADATA_DELETED", "METADATA_BULK_DELETED", updatedResources);
     }
 
     private void logUpdates(Set<Resource> updatedResources) {
-        updatedResources.forEach(resource -> audit("METADATA_UPDATED", "iri", resource.getURI()));
+        log("METADATA_UPDATED", "METADATA_BULK_UPDATED", updatedResources);
+    }
+
+    /**
+     * Audits the update of a single resource as before, and the resources of a bulk update with a single event.
+     */
+    private static void log(String event, String bulkEvent, Set<Resource> updatedResources) {
+        var iris = updatedResources.stream()
+                .filter(Resource::isURIResource)
+                .map(Resource::getURI)
+                .toList();
+        if (iris.size() == 1) {
+            audit(event, "iri", iris.get(0));
+        } else if (iris.size() > 1) {
+            auditBulk(bulkEvent, iris);
+        }
     }
 
     private void validate(Model before, Model after, Model modelToRemove, Model modelToAdd) {
-        modelToAdd
-                .listSubjects()
-                .andThen(modelToRemove.listSubjects())
-                .filterDrop(s -> permissions.canWriteMetadata(s.inModel(before)))
-                .forEachRemaining(s -> {
-                    throw new AccessDeniedException(s.getURI());
-                });
-
-        var violations = new LinkedHashSet<Violation>();
-        validator.validate(
-                before,
-                after,
-                modelToRemove,
-                modelToAdd,
-                (message, subject, predicate, object) -> violations.add(new Violation(
-                        message,
-                        subject.toString(),
-                        Objects.toString(predicate, null),
-                        Objects.toString(object, null))));
-
-        if (!violations.isEmpty()) {
-            throw new ValidationException(violations);
+        try (var ignored = Tracer.span("metadata.validate")) {
+            modelToAdd
+                    .listSubjects()
+                    .andThen(modelToRemove.listSubjects())
+                    .filterDrop(s -> permissions.canWriteMetadata(s.inModel(before)))
+                    .forEachRemaining(s -> {
+                        throw new AccessDeniedException(s.getURI());
+                    });
+
+            var violations = new LinkedHashSet<Violation>();
+            validator.validate(
+                    before,
+                    after,
+                    modelToRemove,
+                    modelToAdd,
+                    (message, subject, predicate, object) -> violations.add(new Violation(
+                            message,
+                            subject.toString(),
+                            Objects.toString(predicate, null),
+                            Objects.toString(object, null))));
+
+            if (!violations.isEmpty()) {
+                throw new ValidationException(violations);
+            }
         }
     }
 
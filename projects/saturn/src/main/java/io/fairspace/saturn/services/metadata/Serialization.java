@@ -1,13 +1,18 @@
 package io.fairspace.saturn.services.metadata;
 
+import java.io.OutputStream;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.riot.RDFDataMgr;
 import org.apache.jena.riot.RDFFormat;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFLib;
+import org.apache.jena.riot.system.StreamRDFWriter;
 
 import io.fairspace.saturn.util.UnsupportedMediaTypeException;
 
@@ -17,6 +22,9 @@ public class Serialization {
     private static final List<RDFFormat> SUPPORTED_FORMATS =
             List.of(RDFFormat.JSONLD, RDFFormat.TURTLE, RDFFormat.NTRIPLES);
 
+    private static final Map<RDFFormat, RDFFormat> STREAMING_FORMATS =
+            Map.of(RDFFormat.TURTLE, RDFFormat.TURTLE_BLOCKS, RDFFormat.NTRIPLES, RDFFormat.NTRIPLES);
+
     private static final List<String> SUPPORTED_MIMETYPES =
             SUPPORTED_FORMATS.stream().map(f -> f.getLang().getHeaderString()).collect(Collectors.toList());
 
@@ -33,6 +41,27 @@ public class Serialization {
         return writer.toString();
     }
 
+    /**
+     * Writes the statements of a source to an output stream as they are produced.
+     * Turtle is written in blocks per subject. JSON-LD cannot be written as a stream,
+     * so the statements are collected in a model first.
+     *
+     * @param source writes the statements to the stream it is given.
+     */
+    public static void serialize(Consumer<StreamRDF> source, RDFFormat format, OutputStream out) {
+        var streamingFormat = STREAMING_FORMATS.get(format);
+        if (streamingFormat == null) {
+            var model = createDefaultModel();
+            source.accept(StreamRDFLib.graph(model.getGraph()));
+            RDFDataMgr.write(out, model, format);
+            return;
+        }
+        var stream = StreamRDFWriter.getWriterStream(out, streamingFormat);
+        stream.start();
+        source.accept(stream);
+        stream.finish();
+    }
+
     public static RDFFormat getFormat(String contentType) {
         if (contentType == null || contentType.isEmpty()) {
             return RDFFormat.TURTLE;
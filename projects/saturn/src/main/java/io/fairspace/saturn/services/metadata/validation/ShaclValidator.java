@@ -1,46 +1,85 @@
 package io.fairspace.saturn.services.metadata.validation;
 
-import org.apache.jena.graph.FrontsNode;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.jena.graph.Graph;
 import org.apache.jena.graph.Node;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.shacl.Shapes;
+import org.apache.jena.shacl.validation.ReportEntry;
 import org.apache.jena.shacl.vocabulary.SHACL;
+import org.apache.jena.sparql.path.P_Inverse;
 import org.apache.jena.sparql.path.P_Link;
 import org.apache.jena.sparql.path.Path;
 
-import static org.apache.jena.shacl.validation.ValidationProc.plainValidationNode;
-
+/**
+ * Validates the subjects of a change against the SHACL shapes of the vocabulary.
+ * The shapes are compiled into plans per class once (see {@link ShapePlans}), and a subject is only
+ * validated against the property shapes of the paths that changed, unless its type changed.
+ * Large changes are validated in parallel against an in-memory copy of the relevant data,
+ * as the data graph of a transaction can only be read by the thread of the transaction.
+ */
 public class ShaclValidator extends VocabularyAwareValidator {
-    private final Shapes shapes;
+    static final int PARALLEL_THRESHOLD = 256;
+
+    private final ShapePlans plans;
 
     public ShaclValidator(Model vocabulary) {
         super(vocabulary);
 
-        shapes = Shapes.parse(vocabulary);
-        ;
+        plans = new ShapePlans(Shapes.parse(vocabulary));
     }
 
     @Override
     public void validate(Model before, Model after, Model removed, Model added, ViolationHandler violationHandler) {
-        var affected = removed.listSubjects()
-                .filterKeep(s -> after.contains(s, null))
-                .andThen(added.listSubjects())
-                .mapWith(FrontsNode::asNode)
-                .toSet();
+        var changedPaths = new HashMap<Node, Set<Path>>();
+        removed.listStatements()
+                .filterKeep(s -> after.contains(s.getSubject(), null))
+                .andThen(added.listStatements())
+                .forEachRemaining(s -> changedPaths
+                        .computeIfAbsent(s.getSubject().asNode(), key -> new HashSet<>())
+                        .add(new P_Link(s.getPredicate().asNode())));
 
-        if (affected.isEmpty()) {
+        if (changedPaths.isEmpty()) {
             return;
         }
 
+        removed.listStatements().andThen(added.listStatements()).forEachRemaining(s -> {
+            var paths = changedPaths.get(s.getObject().asNode());
+            if (paths != null) {
+                paths.add(new P_Inverse(new P_Link(s.getPredicate().asNode())));
+            }
+        });
+
         var data = after.getGraph();
+        var nodes = List.copyOf(changedPaths.keySet());
+        List<ReportEntry> entries;
+        if (nodes.size() >= PARALLEL_THRESHOLD && plans.isLocal()) {
+            var snapshot = plans.snapshot(data, nodes);
+            entries = nodes.parallelStream()
+                    .flatMap(node -> validate(snapshot, node, changedPaths.get(node)).stream())
+                    .toList();
+        } else {
+            entries = nodes.stream()
+                    .flatMap(node -> validate(data, node, changedPaths.get(node)).stream())
+                    .toList();
+        }
+
+        entries.forEach(entry -> {
+            if (entry.severity().level() == SHACL.Violation) {
+                violationHandler.onViolation(
+                        entry.message(), entry.focusNode(), pathToNode(entry.resultPath()), entry.value());
+            }
+        });
+    }
 
-        affected.forEach(
-                node -> plainValidationNode(shapes, data, node).getEntries().forEach(entry -> {
-                    if (entry.severity().level() == SHACL.Violation) {
-                        violationHandler.onViolation(
-                                entry.message(), entry.focusNode(), pathToNode(entry.resultPath()), entry.value());
-                    }
-                }));
+    private List<ReportEntry> validate(Graph data, Node node, Set<Path> changedPaths) {
+        var context = plans.createContext(data);
+        plans.validate(context, data, node, changedPaths);
+        return List.copyOf(context.generateReport().getEntries());
     }
 
     private static Node pathToNode(Path path) {
@@ -0,0 +1,235 @@
+package io.fairspace.saturn.services.metadata.validation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import lombok.RequiredArgsConstructor;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.shacl.Shapes;
+import org.apache.jena.shacl.engine.TargetType;
+import org.apache.jena.shacl.engine.ValidationContext;
+import org.apache.jena.shacl.engine.constraint.CardinalityConstraint;
+import org.apache.jena.shacl.engine.constraint.ClosedConstraint;
+import org.apache.jena.shacl.engine.constraint.ConstraintDataTerm;
+import org.apache.jena.shacl.engine.constraint.ConstraintTerm;
+import org.apache.jena.shacl.engine.constraint.HasValueConstraint;
+import org.apache.jena.shacl.engine.constraint.InConstraint;
+import org.apache.jena.shacl.engine.constraint.UniqueLangConstraint;
+import org.apache.jena.shacl.parser.Constraint;
+import org.apache.jena.shacl.parser.PropertyShape;
+import org.apache.jena.shacl.parser.Shape;
+import org.apache.jena.shacl.validation.VLib;
+import org.apache.jena.sparql.graph.GraphFactory;
+import org.apache.jena.sparql.path.P_Inverse;
+import org.apache.jena.sparql.path.P_Link;
+import org.apache.jena.sparql.path.Path;
+import org.apache.jena.vocabulary.RDF;
+import org.apache.jena.vocabulary.RDFS;
+
+/**
+ * The shapes of a vocabulary, compiled once into validation plans per target class.
+ * A plan lists the node-level constraints of a shape and its property shapes by path,
+ * so that a focus node can be validated against the property shapes of the changed paths only.
+ * Property shapes with paths other than a predicate or an inverse predicate are always validated.
+ */
+class ShapePlans {
+    private static final Node TYPE = RDF.type.asNode();
+    private static final Node SUBCLASS = RDFS.subClassOf.asNode();
+
+    @RequiredArgsConstructor
+    private static class Plan {
+        final Shape shape;
+        final List<Constraint> constraints;
+        final Map<Path, List<PropertyShape>> propertyShapes;
+        final List<PropertyShape> otherPropertyShapes;
+    }
+
+    private final Shapes shapes;
+    private final Map<Node, List<Plan>> plansByClass = new HashMap<>();
+    private final List<Plan> otherPlans = new ArrayList<>();
+    private final Set<Node> inversePredicates = new HashSet<>();
+    private final boolean local;
+
+    ShapePlans(Shapes shapes) {
+        this.shapes = shapes;
+        var local = true;
+        for (var shape : shapes.getTargetShapes()) {
+            var plan = compile(shape);
+            local &= isLocal(shape);
+            var classTargets = shape.getTargets().stream()
+                    .filter(target -> target.getTargetType() == TargetType.targetClass
+                            || target.getTargetType() == TargetType.implicitClass)
+                    .toList();
+            if (classTargets.size() < shape.getTargets().size()) {
+                otherPlans.add(plan);
+            } else {
+                classTargets.forEach(target -> plansByClass
+                        .computeIfAbsent(target.getObject(), key -> new ArrayList<>())
+                        .add(plan));
+            }
+        }
+        this.local = local;
+    }
+
+    private Plan compile(Shape shape) {
+        var propertyShapes = new HashMap<Path, List<PropertyShape>>();
+        var otherPropertyShapes = new ArrayList<PropertyShape>();
+        for (var propertyShape : shape.getPropertyShapes()) {
+            var path = propertyShape.getPath();
+            if (path instanceof P_Link || path instanceof P_Inverse inverse && inverse.getSubPath() instanceof P_Link) {
+                propertyShapes.computeIfAbsent(path, key -> new ArrayList<>()).add(propertyShape);
+                if (path instanceof P_Inverse inverse) {
+                    inversePredicates.add(((P_Link) inverse.getSubPath()).getNode());
+                }
+            } else {
+                otherPropertyShapes.add(propertyShape);
+            }
+        }
+        return new Plan(shape, List.copyOf(shape.getConstraints()), propertyShapes, otherPropertyShapes);
+    }
+
+    /**
+     * A shape is local if its constraints only depend on the triples of the focus node,
+     * the triples with the focus node as object and the types of the value nodes.
+     */
+    private static boolean isLocal(Shape shape) {
+        return shape.getConstraints().stream().allMatch(ShapePlans::isLocal)
+                && shape.getPropertyShapes().stream()
+                        .allMatch(propertyShape ->
+                                propertyShape.getPropertyShapes().isEmpty()
+                                        && propertyShape.getConstraints().stream()
+                                                .allMatch(ShapePlans::isLocal)
+                                        && isLocal(propertyShape.getPath()));
+    }
+
+    private static boolean isLocal(Constraint constraint) {
+        return constraint instanceof ConstraintTerm
+                || constraint instanceof ConstraintDataTerm
+                || constraint instanceof CardinalityConstraint
+                || constraint instanceof ClosedConstraint
+                || constraint instanceof HasValueConstraint
+                || constraint instanceof InConstraint
+                || constraint instanceof UniqueLangConstraint;
+    }
+
+    private static boolean isLocal(Path path) {
+        return path instanceof P_Link || path instanceof P_Inverse inverse && inverse.getSubPath() instanceof P_Link;
+    }
+
+    /**
+     * @return true if all shapes can be validated against a {@link #snapshot(Graph, Collection)} of the data.
+     */
+    boolean isLocal() {
+        return local;
+    }
+
+    ValidationContext createContext(Graph data) {
+        return ValidationContext.create(shapes, data);
+    }
+
+    /**
+     * Validates a focus node against the shapes of its types.
+     *
+     * @param changedPaths the paths of the focus node that changed. If the type of the node changed,
+     *                     the node is validated against all property shapes.
+     */
+    void validate(ValidationContext context, Graph data, Node node, Set<Path> changedPaths) {
+        var complete = changedPaths.contains(new P_Link(TYPE));
+        for (var plan : plansFor(data, node)) {
+            var shape = plan.shape;
+            if (complete) {
+                VLib.validateShape(context, data, shape, node);
+                continue;
+            }
+            if (shape.deactivated()) {
+                continue;
+            }
+            var focus = Set.of(node);
+            plan.constraints.forEach(
+                    constraint -> VLib.evalConstraint(context, data, shape, node, null, focus, constraint));
+            plan.otherPropertyShapes.forEach(propertyShape -> VLib.validateShape(context, data, propertyShape, node));
+            changedPaths.forEach(path -> plan.propertyShapes
+                    .getOrDefault(path, List.of())
+                    .forEach(propertyShape -> VLib.validateShape(context, data, propertyShape, node)));
+        }
+    }
+
+    private Collection<Plan> plansFor(Graph data, Node node) {
+        var plans = new LinkedHashSet<Plan>();
+        for (var type : typesOf(data, node)) {
+            plans.addAll(plansByClass.getOrDefault(type, List.of()));
+        }
+        for (var plan : otherPlans) {
+            if (VLib.isFocusNode(plan.shape, node, data)) {
+                plans.add(plan);
+            }
+        }
+        return plans;
+    }
+
+    /**
+     * @return the types of a node, including their superclasses.
+     */
+    private static Set<Node> typesOf(Graph data, Node node) {
+        var types = new LinkedHashSet<Node>();
+        var pending = new ArrayList<Node>();
+        data.find(node, TYPE, Node.ANY).forEachRemaining(t -> pending.add(t.getObject()));
+        while (!pending.isEmpty()) {
+            var type = pending.remove(pending.size() - 1);
+            if (types.add(type)) {
+                data.find(type, SUBCLASS, Node.ANY).forEachRemaining(t -> pending.add(t.getObject()));
+            }
+        }
+        return types;
+    }
+
+    /**
+     * Copies the part of the data that is needed to validate the focus nodes against local shapes
+     * to an in-memory graph: the triples of the focus nodes, the triples with the focus nodes as object
+     * for inverse paths, and the types of the value nodes with their superclasses.
+     * The copy can be read concurrently, unlike the graph of a transaction.
+     */
+    Graph snapshot(Graph data, Collection<Node> nodes) {
+        var snapshot = GraphFactory.createGraphMem();
+        var valueNodes = new HashSet<Node>(nodes);
+        for (var node : nodes) {
+            data.find(node, Node.ANY, Node.ANY).forEachRemaining(triple -> {
+                snapshot.add(triple);
+                valueNodes.add(triple.getObject());
+            });
+            for (var predicate : inversePredicates) {
+                data.find(Node.ANY, predicate, node).forEachRemaining(triple -> {
+                    snapshot.add(triple);
+                    valueNodes.add(triple.getSubject());
+                });
+            }
+        }
+        var types = new HashSet<Node>();
+        var pending = new ArrayList<Node>();
+        for (var valueNode : valueNodes) {
+            if (!valueNode.isLiteral()) {
+                data.find(valueNode, TYPE, Node.ANY).forEachRemaining(triple -> {
+                    snapshot.add(triple);
+                    pending.add(triple.getObject());
+                });
+            }
+        }
+        while (!pending.isEmpty()) {
+            var type = pending.remove(pending.size() - 1);
+            if (types.add(type)) {
+                data.find(type, SUBCLASS, Node.ANY).forEachRemaining(triple -> {
+                    snapshot.add(triple);
+                    pending.add(triple.getObject());
+                });
+            }
+        }
+        return snapshot;
+    }
+}
@@ -1,20 +1,38 @@
 package io.fairspace.saturn.services.metadata.validation;
 
 import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.util.iterator.ExtendedIterator;
+import org.apache.jena.util.iterator.WrappedIterator;
 import org.apache.jena.vocabulary.RDF;
 import org.apache.jena.vocabulary.RDFS;
 
+import io.fairspace.saturn.services.metadata.LabelIndex;
 import io.fairspace.saturn.vocabulary.FS;
 
 public class UniqueLabelValidator implements MetadataRequestValidator {
+    private final LabelIndex labelIndex;
+
+    public UniqueLabelValidator() {
+        this(null);
+    }
+
+    /**
+     * @param labelIndex the index to look up resources with the same type and label in, or null to scan the model.
+     */
+    public UniqueLabelValidator(LabelIndex labelIndex) {
+        this.labelIndex = labelIndex;
+    }
+
     @Override
     public void validate(Model before, Model after, Model removed, Model added, ViolationHandler violationHandler) {
         added.listSubjectsWithProperty(RDFS.label).forEachRemaining(subject -> {
             var resource = subject.inModel(after);
             var type = resource.getPropertyResourceValue(RDF.type);
             var label = resource.getProperty(RDFS.label).getString();
-            var conflictingResourceExists = after.listSubjectsWithProperty(RDFS.label, label)
+            var conflictingResourceExists = candidates(after, added, type, label)
                     .filterDrop(subject::equals)
+                    .filterKeep(res -> res.hasProperty(RDFS.label, label))
                     .filterKeep(res -> res.hasProperty(RDF.type, type))
                     .filterDrop(res -> res.hasProperty(FS.dateDeleted))
                     .hasNext();
@@ -23,4 +41,17 @@ public class UniqueLabelValidator implements MetadataRequestValidator {
             }
         });
     }
+
+    /**
+     * The resources that may have the label: the indexed resources with the type and label,
+     * and the resources the label is added to.
+     */
+    private ExtendedIterator<Resource> candidates(Model after, Model added, Resource type, String label) {
+        if (labelIndex == null || type == null || !LabelIndex.isIndexed(type.asNode())) {
+            return after.listSubjectsWithProperty(RDFS.label, label);
+        }
+        return WrappedIterator.create(labelIndex.find(type.asNode(), label).iterator())
+                .mapWith(node -> (Resource) after.asRDFNode(node))
+                .andThen(added.listSubjectsWithProperty(RDFS.label, label).mapWith(res -> res.inModel(after)));
+    }
 }
@@ -2,12 +2,13 @@ package io.fairspace.saturn.services.users;
 
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.*;
 import javax.servlet.ServletException;
 
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Timer;
 import jakarta.ws.rs.NotFoundException;
 import lombok.extern.log4j.*;
 import org.apache.commons.lang3.*;
@@ -16,6 +17,7 @@ import org.apache.jena.sparql.util.Symbol;
 import org.keycloak.OAuth2Constants;
 import org.keycloak.admin.client.KeycloakBuilder;
 import org.keycloak.admin.client.resource.UsersResource;
+import org.keycloak.representations.idm.UserRepresentation;
 
 import io.fairspace.saturn.auth.RequestContext;
 import io.fairspace.saturn.config.Config;
@@ -27,31 +29,96 @@ import io.fairspace.saturn.services.AccessDeniedException;
 import static io.fairspace.saturn.audit.Audit.audit;
 import static io.fairspace.saturn.auth.RequestContext.getCurrentRequest;
 import static io.fairspace.saturn.auth.RequestContext.getUserURI;
+import static io.fairspace.saturn.metrics.SaturnMetrics.REGISTRY;
+import static io.fairspace.saturn.metrics.SaturnMetrics.counter;
+import static io.fairspace.saturn.metrics.SaturnMetrics.timer;
 import static io.fairspace.saturn.rdf.SparqlUtils.generateMetadataIri;
 
 import static java.lang.System.getenv;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static java.util.stream.Collectors.toMap;
+import static java.util.stream.Collectors.toUnmodifiableMap;
 
+/**
+ * Provides the users known to Keycloak.
+ * The users are kept in memory, indexed by IRI and by username, and synchronised with Keycloak in the background:
+ * when they are older than {@link #REFRESH_INTERVAL_MS} or invalidated, the next lookup returns them as they are
+ * and starts a synchronisation. Only the first lookup waits for the users to be loaded.
+ * Keycloak is read page by page. Only the users whose Keycloak representation changed are read from the database,
+ * except that all users are read again every {@link #RELOAD_INTERVAL_MS}, so that changes made to the database
+ * otherwise, e.g. by another instance, are not overwritten by the users in memory.
+ * The users of which Keycloak has new details are updated in the database asynchronously;
+ * if that fails, they are written again after the next synchronisation.
+ */
 @Log4j2
 public class UserService {
-    private final LoadingCache<Boolean, Map<Node, User>> usersCache;
+    private static final long REFRESH_INTERVAL_MS = 30_000;
+    private static final long RELOAD_INTERVAL_MS = 300_000;
+    private static final int PAGE_SIZE = 500;
+    private static final Timer SYNCHRONISATION_TIMER =
+            timer("saturn.users.synchronisation", "Time to synchronise the users with Keycloak");
+    private static final Counter CHANGED_USERS =
+            counter("saturn.users.changed", "Users read from the database because they changed in Keycloak", "users");
+
+    /**
+     * An immutable snapshot of the users, replaced as a whole.
+     */
+    private static class UserIndex {
+        final Map<Node, User> byIri;
+        final Map<String, User> byUsername;
+        // The details of the Keycloak representations, by Keycloak id
+        final Map<String, KeycloakDetails> details;
+        final long created = System.currentTimeMillis();
+        // When all users were last read from the database
+        final long reloaded;
+
+        UserIndex(Map<Node, User> byIri, Map<String, KeycloakDetails> details, long reloaded) {
+            this.byIri = Collections.unmodifiableMap(byIri);
+            this.byUsername = byIri.values().stream()
+                    .filter(u -> u.getUsername() != null)
+                    .collect(toUnmodifiableMap(User::getUsername, u -> u, (u1, u2) -> u1));
+            this.details = details;
+            this.reloaded = reloaded;
+        }
+
+        UserIndex with(User user) {
+            var users = new HashMap<>(byIri);
+            users.replace(user.getIri(), user);
+            return new UserIndex(users, details, reloaded);
+        }
+    }
+
     private final Transactions transactions;
     private final Config.Auth config;
     private final UsersResource usersResource;
+    private final long reloadInterval;
     private final ExecutorService threadpool = Executors.newSingleThreadExecutor();
+    private final AtomicBoolean synchronising = new AtomicBoolean();
+    // The users that have not been written to the database yet, by IRI
+    private final Map<Node, User> unsaved = new ConcurrentHashMap<>();
+    private volatile UserIndex index;
+    private volatile boolean invalidated;
 
     public UserService(Config.Auth config, Transactions transactions, UsersResource usersResource) {
+        this(config, transactions, usersResource, RELOAD_INTERVAL_MS);
+    }
+
+    UserService(Config.Auth config, Transactions transactions, UsersResource usersResource, long reloadInterval) {
         this.config = config;
         this.transactions = transactions;
         this.usersResource = usersResource;
-        usersCache = CacheBuilder.newBuilder()
-                .refreshAfterWrite(30, TimeUnit.SECONDS)
-                .build(new CacheLoader<>() {
-                    @Override
-                    public Map<Node, User> load(Boolean key) {
-                        return fetchUsers();
-                    }
-                });
+        this.reloadInterval = reloadInterval;
+
+        Gauge.builder("saturn.users", this, s -> s.index == null ? 0 : s.index.byIri.size())
+                .description("Users known to Keycloak")
+                .register(REGISTRY);
+        Gauge.builder(
+                        "saturn.users.age",
+                        this,
+                        s -> s.index == null ? 0 : (System.currentTimeMillis() - s.index.created) / 1000.0)
+                .description("Time since the users were synchronised with Keycloak")
+                .baseUnit("seconds")
+                .register(REGISTRY);
     }
 
     public UserService(Config.Auth config, Transactions transactions) {
@@ -79,11 +146,97 @@ public class UserService {
         return getUsersMap().get(getUserURI());
     }
 
+    /**
+     * @return the user with the username, or null if there is no such user.
+     */
+    public User findUserByUsername(String username) {
+        return getIndex().byUsername.get(username);
+    }
+
     public Map<Node, User> getUsersMap() {
+        return getIndex().byIri;
+    }
+
+    private UserIndex getIndex() {
+        var current = index;
+        if (current == null) {
+            synchronized (this) {
+                if (index == null) {
+                    index = synchronise(null);
+                    // The lookup may be part of a read transaction
+                    threadpool.submit(this::saveUnsaved);
+                }
+                return index;
+            }
+        }
+        if (invalidated || System.currentTimeMillis() - current.created > REFRESH_INTERVAL_MS) {
+            synchroniseInBackground();
+        }
+        return current;
+    }
+
+    private void synchroniseInBackground() {
+        if (synchronising.compareAndSet(false, true)) {
+            invalidated = false;
+            threadpool.submit(() -> {
+                try {
+                    var base = index;
+                    var synchronised = synchronise(base);
+                    synchronized (this) {
+                        index = mergeChangesSince(base, synchronised);
+                    }
+                    saveUnsaved();
+                } catch (Exception e) {
+                    log.error("Error synchronising users with Keycloak", e);
+                } finally {
+                    synchronising.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * Keeps the users that were updated in the current index while the synchronisation was running.
+     */
+    private UserIndex mergeChangesSince(UserIndex base, UserIndex synchronised) {
+        var current = index;
+        if (current == base) {
+            return synchronised;
+        }
+        var result = synchronised;
+        for (var user : current.byIri.values()) {
+            if (user != base.byIri.get(user.getIri()) && synchronised.byIri.containsKey(user.getIri())) {
+                result = result.with(user);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Waits for the synchronisations and writes started so far, for tests.
+     */
+    void awaitBackgroundTasks() throws Exception {
+        threadpool.submit(() -> {}).get();
+    }
+
+    /**
+     * Writes the new and changed users to the database. Users that cannot be written are kept, to be retried.
+     */
+    private void saveUnsaved() {
+        if (unsaved.isEmpty()) {
+            return;
+        }
+        var users = List.copyOf(unsaved.values());
         try {
-            return usersCache.get(Boolean.FALSE);
-        } catch (ExecutionException e) {
-            throw new RuntimeException(e);
+            log.info("Updating {} users", users.size());
+            transactions.executeWrite(model -> {
+                var dao = new DAO(model);
+                users.forEach(dao::write);
+            });
+            // Users changed again in the meantime are written the next time
+            users.forEach(user -> unsaved.remove(user.getIri(), user));
+        } catch (Exception e) {
+            log.error("Error updating users, retrying after the next synchronisation", e);
         }
     }
 
@@ -92,73 +245,157 @@ public class UserService {
         return Symbol.create(uri);
     }
 
-    private Map<Node, User> fetchUsers() {
-        var userCount = usersResource.count();
-        var keycloakUsers = usersResource.list(0, userCount);
-        var updated = new HashSet<User>();
-        var users = transactions.calculateRead(model -> {
-            var dao = new DAO(model);
-            return keycloakUsers.stream()
-                    .map(ku -> {
-                        var iri = generateMetadataIri(ku.getId());
-                        var user = dao.read(User.class, iri);
-                        if (user == null) {
-                            user = new User();
-                            user.setIri(iri);
-                            user.setId(ku.getId());
-
-                            if (config.superAdminUser.equalsIgnoreCase(ku.getUsername())) {
-                                user.setSuperadmin(true);
-                                user.setAdmin(true);
-                                user.setCanViewPublicMetadata(true);
-                                user.setCanViewPublicData(true);
-                            }
-
-                            for (var role : config.defaultUserRoles) {
-                                switch (role) {
-                                    case "admin" -> user.setAdmin(true);
-                                    case "canViewPublicMetadata" -> user.setCanViewPublicMetadata(true);
-                                    case "canViewPublicData" -> user.setCanViewPublicData(true);
-                                    case "canAddSharedMetadata" -> user.setCanAddSharedMetadata(true);
-                                    case "canQueryMetadata" -> user.setCanQueryMetadata(true);
-                                }
-                            }
-
-                            updated.add(user);
-                        }
-
-                        var name = Stream.of(ku.getFirstName(), ku.getLastName())
-                                .filter(StringUtils::isNotEmpty)
-                                .map(String::trim)
-                                .collect(Collectors.joining(" "));
-                        if (name.isEmpty()) {
-                            name = ku.getUsername();
-                        }
-
-                        if (!Objects.equals(user.getName(), name)
-                                || !Objects.equals(user.getEmail(), ku.getEmail())
-                                || !Objects.equals(user.getUsername(), ku.getUsername())) {
-                            user.setEmail(ku.getEmail());
-                            user.setName(name);
-                            user.setUsername(ku.getUsername());
-                            updated.add(user);
-                        }
-
-                        return user;
-                    })
-                    .collect(toMap(PersistentEntity::getIri, u -> u));
-        });
+    private List<UserRepresentation> fetchKeycloakUsers() {
+        var keycloakUsers = new ArrayList<UserRepresentation>();
+        for (var first = 0; ; first += PAGE_SIZE) {
+            var page = usersResource.list(first, PAGE_SIZE);
+            keycloakUsers.addAll(page);
+            if (page.size() < PAGE_SIZE) {
+                return keycloakUsers;
+            }
+        }
+    }
 
-        if (!updated.isEmpty()) {
-            threadpool.submit(() -> {
-                log.info("Updating users asynchronously");
-                transactions.executeWrite(model -> {
-                    var dao = new DAO(model);
-                    updated.forEach(dao::write);
-                });
+    /**
+     * The details of a Keycloak representation that a user is made of.
+     */
+    private record KeycloakDetails(String id, String username, String firstName, String lastName, String email) {
+        static KeycloakDetails of(UserRepresentation ku) {
+            return new KeycloakDetails(
+                    ku.getId(), ku.getUsername(), ku.getFirstName(), ku.getLastName(), ku.getEmail());
+        }
+    }
+
+    /**
+     * Reads the users from Keycloak, and reads the users that changed since the previous index from the database,
+     * or all users if they were last read longer than the reload interval ago.
+     * The users to be written to the database are added to the unsaved users.
+     *
+     * @param previous the previous index, or null.
+     */
+    private UserIndex synchronise(UserIndex previous) {
+        var start = System.nanoTime();
+        var reload = previous == null || System.currentTimeMillis() - previous.reloaded >= reloadInterval;
+        var keycloakUsers = fetchKeycloakUsers();
+        var details = new HashMap<String, KeycloakDetails>();
+        var users = new HashMap<Node, User>();
+        var changed = new ArrayList<UserRepresentation>();
+        var changedInKeycloak = 0;
+        for (var ku : keycloakUsers) {
+            var kd = KeycloakDetails.of(ku);
+            details.put(ku.getId(), kd);
+            var iri = generateMetadataIri(ku.getId());
+            var user = previous == null ? null : previous.byIri.get(iri);
+            var unchanged = user != null && kd.equals(previous.details.get(ku.getId()));
+            if (!unchanged) {
+                changedInKeycloak++;
+            }
+            if (unchanged && !reload) {
+                users.put(iri, user);
+            } else {
+                changed.add(ku);
+            }
+        }
+
+        var updated = new HashSet<User>();
+        if (!changed.isEmpty()) {
+            transactions.executeRead(model -> {
+                var existingUsers = new DAO(model)
+                                .readAll(
+                                        User.class,
+                                        changed.stream()
+                                                .map(ku -> generateMetadataIri(ku.getId()))
+                                                .toList())
+                                .stream()
+                                .collect(toMap(PersistentEntity::getIri, u -> u));
+                for (var ku : changed) {
+                    var iri = generateMetadataIri(ku.getId());
+                    // A user that has not been written yet is not in the database
+                    var existing = existingUsers.getOrDefault(iri, unsaved.get(iri));
+                    var user = toUser(ku, existing, updated);
+                    users.put(user.getIri(), user);
+                }
             });
         }
-        return users;
+        updated.forEach(user -> unsaved.put(user.getIri(), user));
+
+        var duration = System.nanoTime() - start;
+        SYNCHRONISATION_TIMER.record(duration, NANOSECONDS);
+        CHANGED_USERS.increment(changedInKeycloak);
+        log.debug(
+                "Synchronised {} users with Keycloak, {} changed, {} read from the database, in {}ms",
+                keycloakUsers.size(),
+                changedInKeycloak,
+                changed.size(),
+                NANOSECONDS.toMillis(duration));
+        return new UserIndex(users, details, reload ? System.currentTimeMillis() : previous.reloaded);
+    }
+
+    private User toUser(UserRepresentation ku, User user, Set<User> updated) {
+        var created = user == null;
+        if (created) {
+            user = new User();
+            user.setIri(generateMetadataIri(ku.getId()));
+            user.setId(ku.getId());
+
+            if (config.superAdminUser.equalsIgnoreCase(ku.getUsername())) {
+                user.setSuperadmin(true);
+                user.setAdmin(true);
+                user.setCanViewPublicMetadata(true);
+                user.setCanViewPublicData(true);
+            }
+
+            for (var role : config.defaultUserRoles) {
+                switch (role) {
+                    case "admin" -> user.setAdmin(true);
+                    case "canViewPublicMetadata" -> user.setCanViewPublicMetadata(true);
+                    case "canViewPublicData" -> user.setCanViewPublicData(true);
+                    case "canAddSharedMetadata" -> user.setCanAddSharedMetadata(true);
+                    case "canQueryMetadata" -> user.setCanQueryMetadata(true);
+                }
+            }
+
+            updated.add(user);
+        }
+
+        var name = Stream.of(ku.getFirstName(), ku.getLastName())
+                .filter(StringUtils::isNotEmpty)
+                .map(String::trim)
+                .collect(Collectors.joining(" "));
+        if (name.isEmpty()) {
+            name = ku.getUsername();
+        }
+
+        if (!Objects.equals(user.getName(), name)
+                || !Objects.equals(user.getEmail(), ku.getEmail())
+                || !Objects.equals(user.getUsername(), ku.getUsername())) {
+            if (!created) {
+                // The user may be in the current index, which is only ever replaced
+                user = copy(user);
+            }
+            user.setEmail(ku.getEmail());
+            user.setName(name);
+            user.setUsername(ku.getUsername());
+            updated.add(user);
+        }
+
+        return user;
+    }
+
+    private static User copy(User user) {
+        var copy = new User();
+        copy.setIri(user.getIri());
+        copy.setId(user.getId());
+        copy.setName(user.getName());
+        copy.setEmail(user.getEmail());
+        copy.setUsername(user.getUsername());
+        copy.setSuperadmin(user.isSuperadmin());
+        copy.setAdmin(user.isAdmin());
+        copy.setCanViewPublicMetadata(user.isCanViewPublicMetadata());
+        copy.setCanViewPublicData(user.isCanViewPublicData());
+        copy.setCanAddSharedMetadata(user.isCanAddSharedMetadata());
+        copy.setCanQueryMetadata(user.isCanQueryMetadata());
+        return copy;
     }
 
     public void logoutCurrent() {
@@ -174,7 +411,7 @@ public class UserService {
             throw new AccessDeniedException();
         }
         final String[] username = new String[1];
-        transactions.executeWrite(model -> {
+        var updatedUser = transactions.calculateWrite(model -> {
             var dao = new DAO(model);
             var user = dao.read(User.class, generateMetadataIri(roles.getId()));
             if (user == null) {
@@ -220,9 +457,14 @@ public class UserService {
                 throw new IllegalArgumentException("Inconsistent organisation-level roles");
             }
 
-            dao.write(user);
+            return dao.write(user);
         });
         audit("USER_UPDATE", "affected_user", username[0]);
-        usersCache.invalidateAll();
+        synchronized (this) {
+            if (index != null) {
+                index = index.with(updatedUser);
+            }
+        }
+        invalidated = true;
     }
 }
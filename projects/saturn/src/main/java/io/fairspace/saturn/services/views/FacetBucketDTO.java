@@ -0,0 +1,10 @@
+package io.fairspace.saturn.services.views;
+
+import lombok.Value;
+
+@Value
+public class FacetBucketDTO {
+    Object start;
+    Object end;
+    long count;
+}
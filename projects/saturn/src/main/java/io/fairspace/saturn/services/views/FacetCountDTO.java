@@ -0,0 +1,29 @@
+package io.fairspace.saturn.services.views;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.*;
+import lombok.Value;
+
+import io.fairspace.saturn.config.*;
+
+import static com.fasterxml.jackson.annotation.JsonInclude.Include.*;
+
+@Value
+@JsonInclude(NON_NULL)
+public class FacetCountDTO {
+    /**
+     * Field name of the shape `${view}_${column}`.
+     */
+    String name;
+
+    ViewsConfig.ColumnType type;
+    /**
+     * Number of matching rows per value, for Term and TermSet columns.
+     */
+    List<FacetValueCountDTO> values;
+    /**
+     * Number of matching rows per value range, for Number and Date columns.
+     */
+    List<FacetBucketDTO> buckets;
+}
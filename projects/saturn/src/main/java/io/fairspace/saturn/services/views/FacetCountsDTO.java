@@ -0,0 +1,11 @@
+package io.fairspace.saturn.services.views;
+
+import java.util.List;
+
+import lombok.Value;
+
+@Value
+public class FacetCountsDTO {
+    List<FacetCountDTO> facets;
+    boolean timeout;
+}
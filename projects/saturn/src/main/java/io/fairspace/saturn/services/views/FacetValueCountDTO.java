@@ -0,0 +1,10 @@
+package io.fairspace.saturn.services.views;
+
+import lombok.Value;
+
+@Value
+public class FacetValueCountDTO {
+    String label;
+    Object value;
+    long count;
+}
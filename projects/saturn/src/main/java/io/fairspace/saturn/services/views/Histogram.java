@@ -0,0 +1,81 @@
+package io.fairspace.saturn.services.views;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.function.DoubleFunction;
+
+/**
+ * Equal-width histogram over a fixed value range, used for the facet counts
+ * of Number and Date columns. Dates are represented by their epoch seconds.
+ * Buckets are numbered from 1, like the result of the PostgreSQL <code>width_bucket</code> function.
+ */
+class Histogram {
+    private final double min;
+    private final double max;
+    private final int size;
+
+    Histogram(double min, double max, int size) {
+        this.min = min;
+        this.max = max;
+        this.size = max > min ? size : 1;
+    }
+
+    static double toDouble(Object value) {
+        if (value instanceof Number number) {
+            return number.doubleValue();
+        }
+        if (value instanceof Instant instant) {
+            return instant.toEpochMilli() / 1000.0;
+        }
+        if (value instanceof Date date) {
+            return date.getTime() / 1000.0;
+        }
+        throw new IllegalArgumentException("Unsupported histogram value: " + value);
+    }
+
+    int size() {
+        return size;
+    }
+
+    int bucketOf(double value) {
+        if (size == 1) {
+            return 1;
+        }
+        return clamp((int) Math.floor((value - min) / (max - min) * size) + 1);
+    }
+
+    /**
+     * SQL expression for the bucket of a value. Values equal to the maximum are placed
+     * in a separate bucket by <code>width_bucket</code>, so the caller clamps the result with {@link #clamp(int)}.
+     */
+    String toSql(String expression) {
+        var upper = max > min ? max : min + 1;
+        return "width_bucket(%s, %s, %s, %d)"
+                .formatted(
+                        expression,
+                        BigDecimal.valueOf(min).toPlainString(),
+                        BigDecimal.valueOf(upper).toPlainString(),
+                        size);
+    }
+
+    int clamp(int bucket) {
+        return Math.max(1, Math.min(bucket, size));
+    }
+
+    /**
+     * @param counts    the number of values per bucket, indexed by bucket number minus one.
+     * @param converter converts a bucket bound to the value type of the column.
+     */
+    List<FacetBucketDTO> toBuckets(long[] counts, DoubleFunction<Object> converter) {
+        var width = (max - min) / size;
+        var buckets = new ArrayList<FacetBucketDTO>(size);
+        for (var i = 0; i < size; i++) {
+            var end = i == size - 1 ? max : min + (i + 1) * width;
+            buckets.add(new FacetBucketDTO(converter.apply(min + i * width), converter.apply(end), counts[i]));
+        }
+        return buckets;
+    }
+}
@@ -128,6 +128,19 @@ public class JdbcQueryService implements QueryService {
         }
     }
 
+    @SneakyThrows
+    public FacetCountsDTO countFacetValues(CountRequest request) {
+        var filters = new ArrayList<ViewFilter>();
+        if (request.getFilters() != null) {
+            filters.addAll(request.getFilters());
+        }
+        applyCollectionsFilterIfRequired(request.getView(), filters);
+        try (var viewStoreReader = getViewStoreReader()) {
+            return viewStoreReader.countFacetValues(
+                    request.getView(), filters, searchConfig.facetHistogramBuckets, searchConfig.pageRequestTimeout);
+        }
+    }
+
     @SneakyThrows
     public List<SearchResultDTO> searchFiles(FileSearchRequest request) {
         var collectionsForUser = transactions.calculateRead(m -> rootSubject.getChildren().stream()
@@ -23,5 +23,7 @@ public interface QueryService {
 
     CountDTO count(CountRequest request);
 
+    FacetCountsDTO countFacetValues(CountRequest request);
+
     List<SearchResultDTO> searchFiles(FileSearchRequest request);
 }
@@ -0,0 +1,95 @@
+package io.fairspace.saturn.services.views;
+
+import java.util.EnumSet;
+import java.util.function.Function;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import org.apache.jena.graph.Node;
+import org.apache.jena.query.Dataset;
+
+import io.fairspace.saturn.config.ViewsConfig.ColumnType;
+
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static org.apache.jena.graph.NodeFactory.createURI;
+import static org.apache.jena.system.Txn.calculateRead;
+
+/**
+ * Estimates the number of entities that match a view filter, so that the most selective
+ * filters can be evaluated first. The TDB2 statistics file (<code>stats.opt</code>) is only
+ * created by an offline tool and is missing in most deployments, so the estimates are based on
+ * samples of the dataset indexes instead: the number of triples with the property of the filtered column
+ * and, for filters on terms, the number of triples with the selected values.
+ * Counting stops at {@link #SAMPLE_LIMIT}, as only the order of the estimates matters.
+ * Property counts are cached, as they change slowly.
+ */
+class SelectivityEstimator {
+    static final long SAMPLE_LIMIT = 10_000;
+    private static final int PROPERTY_CACHE_MINUTES = 10;
+
+    private final Dataset ds;
+    private final LoadingCache<Node, Long> propertyCounts;
+
+    SelectivityEstimator(Dataset ds) {
+        this.ds = ds;
+        this.propertyCounts = CacheBuilder.newBuilder()
+                .expireAfterWrite(PROPERTY_CACHE_MINUTES, MINUTES)
+                .build(CacheLoader.from(property -> count(property, Node.ANY)));
+    }
+
+    /**
+     * @param property the property of the filtered column.
+     * @param filter   the filter on the column.
+     * @param type     the type of the column.
+     * @param toNode   converts a filter value to an RDF term.
+     * @return the estimated number of matching entities.
+     */
+    long estimate(String property, ViewFilter filter, ColumnType type, Function<Object, Node> toNode) {
+        var propertyNode = createURI(property);
+        if (filter.getValues() != null && !filter.getValues().isEmpty()) {
+            if (!EnumSet.of(ColumnType.Term, ColumnType.TermSet, ColumnType.Identifier, ColumnType.Text, ColumnType.Set)
+                    .contains(type)) {
+                return propertyCounts.getUnchecked(propertyNode);
+            }
+            var total = 0L;
+            for (var value : filter.getValues()) {
+                total += count(propertyNode, toNode.apply(value));
+                if (total >= SAMPLE_LIMIT) {
+                    return SAMPLE_LIMIT;
+                }
+            }
+            return total;
+        }
+        var count = propertyCounts.getUnchecked(propertyNode);
+        if (filter.getMin() != null && filter.getMax() != null) {
+            return count / 4;
+        }
+        if (filter.getMin() != null || filter.getMax() != null) {
+            return count / 3;
+        }
+        if (filter.getPrefix() != null && !filter.getPrefix().isBlank()) {
+            return count / 10;
+        }
+        if (filter.getBooleanValue() != null) {
+            return count / 2;
+        }
+        return count;
+    }
+
+    private long count(Node property, Node object) {
+        return calculateRead(ds, () -> {
+            var it = ds.asDatasetGraph().getDefaultGraph().find(Node.ANY, property, object);
+            try {
+                var count = 0L;
+                while (count < SAMPLE_LIMIT && it.hasNext()) {
+                    it.next();
+                    count++;
+                }
+                return count;
+            } finally {
+                it.close();
+            }
+        });
+    }
+}
@@ -0,0 +1,28 @@
+package io.fairspace.saturn.services.views;
+
+import java.time.Instant;
+import java.util.List;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * The statistics of a slow query shape, with the details of its latest execution.
+ */
+@Value
+@Builder(toBuilder = true)
+public class SlowQueryDTO {
+    SlowQueryLog.Language language;
+    String operation;
+    String shape;
+    long count;
+    long timeouts;
+    long totalMillis;
+    long maxMillis;
+    Instant lastSeen;
+    long lastMillis;
+    long lastRows;
+    String lastUser;
+    List<String> lastParameters;
+    String lastPlan;
+}
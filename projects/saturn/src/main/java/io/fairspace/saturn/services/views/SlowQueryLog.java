@@ -0,0 +1,283 @@
+package io.fairspace.saturn.services.views;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.query.Query;
+import org.apache.jena.sparql.algebra.Algebra;
+import org.apache.logging.log4j.CloseableThreadContext;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import io.fairspace.saturn.config.Config;
+
+import static io.fairspace.saturn.auth.RequestContext.getUserURI;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Records the SQL and SPARQL queries of views that take longer than the configured threshold, or time out.
+ * <p>
+ * Every slow query is written to the <code>slow-queries</code> logger, with the fields in the thread context,
+ * and is aggregated by its shape: the query text with the literal values replaced by <code>?</code>.
+ * Parameter values are logged for numbers, dates and IRIs only, other strings are redacted, as they may be search
+ * terms or labels. If enabled, the plan of the query is captured as well, with its string literals redacted.
+ */
+public class SlowQueryLog {
+    private static final Logger log = LogManager.getLogger("slow-queries");
+
+    private static final int MAX_PARAMETERS = 20;
+
+    private static final Pattern SQL_STRING = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER = Pattern.compile("(?<![\\w?$:.])\\d+(?:\\.\\d+)?(?:[eE][-+]?\\d+)?(?![\\w])");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern PLACEHOLDER_LIST = Pattern.compile("(?<![\\w])\\?(?:(?:\\s*,\\s*|\\s+)\\?(?![\\w]))+");
+    private static final Pattern SPARQL_VALUE_LIST =
+            Pattern.compile("(?i)(\\bVALUES\\s*(?:\\?\\w+|\\([^)]*\\))\\s*\\{)([^}]*)(})|(\\bIN\\s*\\()([^)]*)(\\))");
+    private static final Pattern SPARQL_TERM = Pattern.compile("(<[^<>\\s]*>)"
+            + "|(\"(?:[^\"\\\\]|\\\\.)*\"|'(?:[^'\\\\]|\\\\.)*')(\\^\\^(?:<[^>]*>|[\\w-]*:[\\w-]*)|@[a-zA-Z][\\w-]*)?"
+            + "|(" + NUMBER.pattern() + ")");
+    private static final Pattern SPARQL_STRING = Pattern.compile("\"(?:[^\"\\\\]|\\\\.)*\"");
+    private static final Pattern NON_TEXT_DATATYPE =
+            Pattern.compile("(?i).*(integer|int|long|decimal|double|float|date|datetime|boolean)>?$");
+
+    public enum Language {
+        SQL,
+        SPARQL
+    }
+
+    private final long thresholdNanos;
+    private final boolean explain;
+    private final int explainTimeout;
+    private final int maxShapes;
+    private final Map<String, SlowQueryDTO> shapes = new HashMap<>();
+
+    public SlowQueryLog(Config.Search config) {
+        this.thresholdNanos = MILLISECONDS.toNanos(config.slowQueryThreshold);
+        this.explain = config.explainSlowQueries;
+        this.explainTimeout = config.explainTimeout;
+        this.maxShapes = config.slowQueryShapes;
+    }
+
+    /**
+     * @return true if a query should be recorded, because it took longer than the threshold or timed out.
+     */
+    public boolean isSlow(long elapsedNanos, boolean timedOut) {
+        return timedOut || elapsedNanos >= thresholdNanos;
+    }
+
+    public boolean isExplainEnabled() {
+        return explain;
+    }
+
+    /**
+     * @return the time (in seconds) that executing a slow SQL query again to explain it may take.
+     */
+    public int getExplainTimeout() {
+        return explainTimeout;
+    }
+
+    void recordSql(
+            String operation,
+            ViewQueryCompiler.SqlQuery query,
+            long elapsedNanos,
+            long rows,
+            boolean timedOut,
+            String plan) {
+        var parameters = new ArrayList<String>();
+        for (var value : query.getValues()) {
+            if (value instanceof ViewQueryCompiler.SqlArray array) {
+                var elements = new ArrayList<String>();
+                for (var element : array.getElements()) {
+                    elements.add(redact(element));
+                }
+                parameters.add(limit(elements).toString());
+            } else {
+                parameters.add(redact(value));
+            }
+        }
+        record(
+                Language.SQL,
+                operation,
+                sqlShape(query.getSql()),
+                limit(parameters),
+                elapsedNanos,
+                rows,
+                timedOut,
+                plan == null ? null : SQL_STRING.matcher(plan).replaceAll("'?'"));
+    }
+
+    void recordSparql(String operation, Query query, long elapsedNanos, long rows, boolean timedOut) {
+        var parameters = new ArrayList<String>();
+        var shape = sparqlShape(query.toString(), parameters);
+        String plan = null;
+        if (explain) {
+            var algebra = Algebra.optimize(Algebra.compile(query)).toString();
+            plan = SPARQL_STRING.matcher(algebra).replaceAll("\"?\"");
+        }
+        record(Language.SPARQL, operation, shape, limit(parameters), elapsedNanos, rows, timedOut, plan);
+    }
+
+    private void record(
+            Language language,
+            String operation,
+            String shape,
+            List<String> parameters,
+            long elapsedNanos,
+            long rows,
+            boolean timedOut,
+            String plan) {
+        var millis = NANOSECONDS.toMillis(elapsedNanos);
+        var user = Optional.ofNullable(getUserURI()).map(Node::getURI).orElse(null);
+        try (var ignored = CloseableThreadContext.put("query_language", language.name())
+                .put("query_operation", operation)
+                .put("query_shape", shape)
+                .put("query_parameters", String.join(", ", parameters))
+                .put("query_user", Optional.ofNullable(user).orElse(""))
+                .put("query_elapsed_ms", Long.toString(millis))
+                .put("query_rows", Long.toString(rows))
+                .put("query_timed_out", Boolean.toString(timedOut))
+                .put("query_plan", Optional.ofNullable(plan).orElse(""))) {
+            log.warn(
+                    "Slow {} query {}: {}ms, {} rows{}",
+                    language,
+                    operation,
+                    millis,
+                    rows,
+                    timedOut ? ", timed out" : "");
+        }
+
+        var key = language + " " + shape;
+        synchronized (shapes) {
+            var previous = shapes.get(key);
+            if (previous == null && shapes.size() >= maxShapes) {
+                // Make room by forgetting the shape with the least time spent
+                shapes.values().stream()
+                        .min(Comparator.comparingLong(SlowQueryDTO::getTotalMillis))
+                        .ifPresent(least -> shapes.remove(least.getLanguage() + " " + least.getShape()));
+            }
+            var builder = previous != null
+                    ? previous.toBuilder()
+                    : SlowQueryDTO.builder().language(language).shape(shape);
+            shapes.put(
+                    key,
+                    builder.operation(operation)
+                            .count(previous == null ? 1 : previous.getCount() + 1)
+                            .timeouts((previous == null ? 0 : previous.getTimeouts()) + (timedOut ? 1 : 0))
+                            .totalMillis((previous == null ? 0 : previous.getTotalMillis()) + millis)
+                            .maxMillis(Math.max(previous == null ? 0 : previous.getMaxMillis(), millis))
+                            .lastSeen(Instant.now())
+                            .lastMillis(millis)
+                            .lastRows(rows)
+                            .lastUser(user)
+                            .lastParameters(parameters)
+                            .lastPlan(plan)
+                            .build());
+        }
+    }
+
+    /**
+     * @return the slow query shapes with the most time spent, at most <code>limit</code>.
+     */
+    public List<SlowQueryDTO> top(int limit) {
+        synchronized (shapes) {
+            return shapes.values().stream()
+                    .sorted(Comparator.comparingLong(SlowQueryDTO::getTotalMillis)
+                            .reversed())
+                    .limit(limit)
+                    .toList();
+        }
+    }
+
+    /**
+     * Replaces the literals of an SQL query by placeholders, and lists of placeholders by a single one.
+     * Prepared statements have placeholders for their parameters already.
+     */
+    static String sqlShape(String sql) {
+        var shape = SQL_STRING.matcher(sql).replaceAll("?");
+        shape = NUMBER.matcher(shape).replaceAll("?");
+        shape = WHITESPACE.matcher(shape).replaceAll(" ").trim();
+        return PLACEHOLDER_LIST.matcher(shape).replaceAll("?");
+    }
+
+    /**
+     * Replaces the literals of a SPARQL query, and the values in VALUES blocks and IN lists, by placeholders,
+     * adding the (redacted) values to the parameters. Other IRIs are part of the shape of the query.
+     */
+    static String sparqlShape(String query, List<String> parameters) {
+        var lists = SPARQL_VALUE_LIST.matcher(query);
+        var shape = new StringBuilder();
+        while (lists.find()) {
+            var values = lists.group(2) != null ? lists.group(2) : lists.group(5);
+            var terms = SPARQL_TERM.matcher(values);
+            while (terms.find()) {
+                parameters.add(redactSparqlTerm(terms));
+            }
+            var replacement = lists.group(1) != null
+                    ? lists.group(1) + " ? " + lists.group(3)
+                    : lists.group(4) + "?" + lists.group(6);
+            lists.appendReplacement(shape, Matcher.quoteReplacement(replacement));
+        }
+        lists.appendTail(shape);
+
+        var terms = SPARQL_TERM.matcher(shape.toString());
+        var result = new StringBuilder();
+        while (terms.find()) {
+            if (terms.group(1) != null) { // IRIs are kept
+                terms.appendReplacement(result, Matcher.quoteReplacement(terms.group()));
+            } else {
+                parameters.add(redactSparqlTerm(terms));
+                terms.appendReplacement(result, "?");
+            }
+        }
+        terms.appendTail(result);
+        var normalised = WHITESPACE.matcher(result).replaceAll(" ").trim();
+        return PLACEHOLDER_LIST.matcher(normalised).replaceAll("?");
+    }
+
+    private static String redactSparqlTerm(Matcher term) {
+        if (term.group(1) != null || term.group(4) != null) { // an IRI or a number
+            return term.group();
+        }
+        var datatype = term.group(3);
+        if (datatype != null
+                && datatype.startsWith("^^")
+                && NON_TEXT_DATATYPE.matcher(datatype).matches()) {
+            return term.group();
+        }
+        return redacted(term.group(2).length() - 2);
+    }
+
+    static String redact(Object value) {
+        if (value == null || value instanceof Number || value instanceof Boolean || value instanceof Instant) {
+            return String.valueOf(value);
+        }
+        var s = value.toString();
+        if (s.startsWith("http://") || s.startsWith("https://")) {
+            return s;
+        }
+        return redacted(s.length());
+    }
+
+    private static String redacted(int length) {
+        return "<redacted, " + length + " characters>";
+    }
+
+    private static List<String> limit(List<String> values) {
+        if (values.size() <= MAX_PARAMETERS) {
+            return values;
+        }
+        var limited = new ArrayList<>(values.subList(0, MAX_PARAMETERS));
+        limited.add("... " + (values.size() - MAX_PARAMETERS) + " more");
+        return limited;
+    }
+}
@@ -2,15 +2,29 @@ package io.fairspace.saturn.services.views;
 
 import java.time.*;
 import java.util.*;
-
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.opentelemetry.context.Context;
 import lombok.extern.log4j.*;
 import org.apache.jena.datatypes.xsd.XSDDateTime;
+import org.apache.jena.graph.Node;
 import org.apache.jena.query.*;
 import org.apache.jena.rdf.model.RDFNode;
 import org.apache.jena.rdf.model.Resource;
 import org.apache.jena.rdf.model.Statement;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.binding.BindingFactory;
 import org.apache.jena.sparql.expr.*;
+import org.apache.jena.sparql.syntax.Element;
+import org.apache.jena.sparql.syntax.ElementData;
 import org.apache.jena.sparql.syntax.ElementFilter;
+import org.apache.jena.sparql.syntax.ElementGroup;
 import org.apache.jena.vocabulary.RDFS;
 
 import io.fairspace.saturn.config.Config;
@@ -18,22 +32,26 @@ import io.fairspace.saturn.config.ViewsConfig;
 import io.fairspace.saturn.config.ViewsConfig.ColumnType;
 import io.fairspace.saturn.config.ViewsConfig.View;
 import io.fairspace.saturn.rdf.SparqlUtils;
+import io.fairspace.saturn.rdf.transactions.Transactions;
 import io.fairspace.saturn.services.search.FileSearchRequest;
 import io.fairspace.saturn.services.search.SearchResultDTO;
+import io.fairspace.saturn.tracing.Tracer;
 import io.fairspace.saturn.vocabulary.FS;
 
-import static io.fairspace.saturn.rdf.ModelUtils.getResourceProperties;
+import static io.fairspace.saturn.auth.RequestContext.getCurrentRequest;
+import static io.fairspace.saturn.auth.RequestContext.setCurrentRequest;
+import static io.fairspace.saturn.auth.RequestContext.setCurrentUserStringUri;
 import static io.fairspace.saturn.util.ValidationUtils.validateIRI;
 
 import static java.time.Instant.ofEpochMilli;
 import static java.util.Comparator.comparing;
 import static java.util.stream.Collectors.*;
 import static org.apache.jena.graph.NodeFactory.createURI;
-import static org.apache.jena.rdf.model.ResourceFactory.createProperty;
 import static org.apache.jena.rdf.model.ResourceFactory.createStringLiteral;
 import static org.apache.jena.sparql.expr.NodeValue.*;
 import static org.apache.jena.sparql.expr.NodeValue.makeString;
 import static org.apache.jena.system.Txn.calculateRead;
+import static org.apache.jena.system.Txn.executeRead;
 
 @Log4j2
 public class SparqlQueryService implements QueryService {
@@ -41,11 +59,45 @@ public class SparqlQueryService implements QueryService {
     private final Config.Search config;
     private final ViewsConfig searchConfig;
     private final Dataset ds;
+    private final Transactions transactions;
+    private final SelectivityEstimator selectivity;
+    private final ExecutorService hydrationExecutor;
+    private final TermLabelDictionary labelDictionary;
+    private final SlowQueryLog slowQueryLog;
+
+    public SparqlQueryService(Config.Search config, ViewsConfig viewsConfig, Dataset ds, Transactions transactions) {
+        this(
+                config,
+                viewsConfig,
+                ds,
+                transactions,
+                new TermLabelDictionary(config.labelDictionarySize),
+                new SlowQueryLog(config));
+    }
 
-    public SparqlQueryService(Config.Search config, ViewsConfig viewsConfig, Dataset ds) {
+    public SparqlQueryService(
+            Config.Search config,
+            ViewsConfig viewsConfig,
+            Dataset ds,
+            Transactions transactions,
+            TermLabelDictionary labelDictionary,
+            SlowQueryLog slowQueryLog) {
         this.config = config;
         this.searchConfig = viewsConfig;
         this.ds = ds;
+        this.transactions = transactions;
+        this.labelDictionary = labelDictionary;
+        this.slowQueryLog = slowQueryLog;
+        this.selectivity = new SelectivityEstimator(ds);
+        // The tasks continue the trace of the request that submitted them
+        this.hydrationExecutor = config.pageHydrationThreads > 1
+                ? Context.taskWrapping(Executors.newFixedThreadPool(
+                        config.pageHydrationThreads,
+                        new ThreadFactoryBuilder()
+                                .setNameFormat("view-page-hydration-%d")
+                                .setDaemon(true)
+                                .build()))
+                : null;
     }
 
     public ViewPageDTO retrieveViewPage(ViewRequest request) {
@@ -60,16 +112,18 @@ public class SparqlQueryService implements QueryService {
 
         log.debug("Query with filters and pagination applied: \n{}", query);
 
-        var selectExecution = QueryExecutionFactory.create(query, ds);
-        selectExecution.setTimeout(config.pageRequestTimeout);
-
+        // The version is read before the transaction is started, see Transactions.getStableDataVersion
+        var version = transactions.getStableDataVersion();
         return calculateRead(ds, () -> {
             var iris = new ArrayList<Resource>();
             var timeout = false;
             var hasNext = false;
-            try (selectExecution) {
-                var rs = selectExecution.execSelect();
-                rs.forEachRemaining(row -> iris.add(row.getResource(request.getView())));
+            try {
+                select(
+                        "sparql.page",
+                        query,
+                        config.pageRequestTimeout,
+                        row -> iris.add(row.getResource(request.getView())));
             } catch (QueryCancelledException e) {
                 timeout = true;
             }
@@ -78,9 +132,10 @@ public class SparqlQueryService implements QueryService {
                 hasNext = true;
             }
 
-            var rows = iris.stream()
-                    .map(resource -> fetch(resource, request.getView()))
-                    .collect(toList());
+            List<Map<String, Set<ValueDTO>>> rows;
+            try (var ignored = Tracer.span("sparql.page.rows").attribute("rows", iris.size())) {
+                rows = fetch(iris, request.getView(), version);
+            }
 
             return ViewPageDTO.builder()
                     .rows(rows)
@@ -90,45 +145,204 @@ public class SparqlQueryService implements QueryService {
         });
     }
 
-    private Map<String, Set<ValueDTO>> fetch(Resource resource, String viewName) {
+    /**
+     * Fetches the rows for a page of entities, in the read transaction of the page.
+     * The page is split into chunks that are fetched in parallel, each with a single query in its own read
+     * transaction. These transactions must read the same data as the transaction of the page: if a write
+     * transaction was in progress when the page was selected or was committed before the chunks were read,
+     * the rows are fetched again in the transaction of the page.
+     * The same terms are usually referenced from many rows, so their labels are looked up once per page.
+     *
+     * @param version the stable data version read before the transaction of the page was started.
+     */
+    private List<Map<String, Set<ValueDTO>>> fetch(List<Resource> resources, String viewName, long version) {
         var view = getView(viewName);
+        var labels = new ConcurrentHashMap<Node, ValueDTO>();
+        var rows = emptyRows(resources, view, labels);
+        if (rows.isEmpty()) {
+            return new ArrayList<>();
+        }
 
-        var result = new HashMap<String, Set<ValueDTO>>();
-        result.put(view.name, Set.of(toValueDTO(resource)));
+        var chunkSize = hydrationExecutor == null
+                ? rows.size()
+                : (rows.size() + config.pageHydrationThreads - 1) / config.pageHydrationThreads;
+        var chunks = Lists.partition(new ArrayList<>(rows.keySet()), chunkSize);
+        if (chunks.size() == 1 || version < 0) {
+            fetchValues(view, new ArrayList<>(rows.keySet()), rows, labels);
+        } else {
+            fetchInParallel(view, chunks, rows, labels);
+            if (transactions.getStableDataVersion() != version) {
+                log.debug("The data changed while the rows of a page were fetched, fetching them again");
+                labels = new ConcurrentHashMap<>();
+                rows = emptyRows(resources, view, labels);
+                fetchValues(view, new ArrayList<>(rows.keySet()), rows, labels);
+            }
+        }
+        return resources.stream().map(rows::get).collect(toList());
+    }
+
+    private void fetchInParallel(
+            View view,
+            List<List<Resource>> chunks,
+            Map<Resource, Map<String, Set<ValueDTO>>> rows,
+            Map<Node, ValueDTO> labels) {
+        // The workers check metadata permissions for the user of the current request
+        var request = getCurrentRequest();
+        var futures = chunks.stream()
+                .map(chunk -> hydrationExecutor.submit(() -> {
+                    setCurrentRequest(request);
+                    setCurrentUserStringUri(null);
+                    try {
+                        executeRead(ds, () -> fetchValues(view, chunk, rows, labels));
+                    } finally {
+                        setCurrentRequest(null);
+                        setCurrentUserStringUri(null);
+                    }
+                }))
+                .toList();
+        for (var future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new QueryCancelledException();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw new IllegalStateException("Error fetching rows", e.getCause());
+            }
+        }
+    }
+
+    private Map<Resource, Map<String, Set<ValueDTO>>> emptyRows(
+            List<Resource> resources, View view, Map<Node, ValueDTO> labels) {
+        var rows = new LinkedHashMap<Resource, Map<String, Set<ValueDTO>>>();
+        for (var resource : resources) {
+            rows.computeIfAbsent(resource, r -> emptyRow(r, view, labels));
+        }
+        return rows;
+    }
+
+    /**
+     * Fetches the values of a chunk of rows with a single query,
+     * with the entities bound to the <code>?row</code> variable.
+     */
+    private void fetchValues(
+            View view,
+            List<Resource> chunk,
+            Map<Resource, Map<String, Set<ValueDTO>>> rows,
+            Map<Node, ValueDTO> labels) {
+        var query = getRowsQuery(view);
+        var pattern = (ElementGroup) query.getQueryPattern();
+        var row = Var.alloc("row");
+        pattern.getElements()
+                .add(
+                        0,
+                        new ElementData(
+                                List.of(row),
+                                chunk.stream()
+                                        .map(resource -> BindingFactory.binding(row, resource.asNode()))
+                                        .collect(toList())));
+
+        log.debug("Fetching rows:\n{}", query);
+
+        var termTypes = getTermTypes(view);
+        select("sparql.rows", query, 0, solution -> {
+            var field = solution.getLiteral("field").getString();
+            rows.get(solution.getResource("row"))
+                    .get(field)
+                    .add(toValueDTO(solution.get("value"), termTypes.get(field), labels));
+        });
+    }
+
+    /**
+     * Executes a select query and passes its solutions to a consumer, in a span.
+     * Queries that are slow or time out are recorded in the slow-query log.
+     *
+     * @param timeout the timeout in milliseconds, or 0 for none.
+     * @return the number of solutions.
+     */
+    private long select(String operation, Query query, long timeout, Consumer<QuerySolution> consumer) {
+        var start = System.nanoTime();
+        long rows = 0;
+        var timedOut = false;
+        try (var ignored = Tracer.span(operation);
+                var execution = QueryExecutionFactory.create(query, ds)) {
+            if (timeout > 0) {
+                execution.setTimeout(timeout);
+            }
+            for (var solutions = execution.execSelect(); solutions.hasNext(); rows++) {
+                consumer.accept(solutions.next());
+            }
+            return rows;
+        } catch (QueryCancelledException e) {
+            timedOut = true;
+            throw e;
+        } finally {
+            var elapsed = System.nanoTime() - start;
+            if (slowQueryLog.isSlow(elapsed, timedOut)) {
+                slowQueryLog.recordSparql(operation, query, elapsed, rows, timedOut);
+            }
+        }
+    }
 
+    private Map<String, Set<ValueDTO>> emptyRow(Resource resource, View view, Map<Node, ValueDTO> labels) {
+        var result = new HashMap<String, Set<ValueDTO>>();
+        result.put(view.name, Set.of(toValueDTO(resource, null, labels)));
         for (var c : view.columns) {
-            result.put(viewName + "_" + c.name, getValues(resource, c));
+            result.put(view.name + "_" + c.name, new TreeSet<>());
         }
         for (var j : view.join) {
             var joinView = getView(j.view);
-
-            var prop = createProperty(j.on);
-            var refs = j.reverse
-                    ? resource.getModel()
-                            .listResourcesWithProperty(prop, resource)
-                            .toList()
-                    : getResourceProperties(resource, prop);
-
             for (var colName : j.include) {
-                if (colName.equals("id")) {
-                    result.put(
-                            joinView.name, refs.stream().map(this::toValueDTO).collect(toSet()));
-                } else {
-                    var col = joinView.columns.stream()
-                            .filter(c -> c.name.equals(colName))
-                            .findFirst()
-                            .orElseThrow(() -> new RuntimeException("Unknown column: " + colName));
-
-                    var values = refs.stream()
-                            .flatMap(ref -> getValues(ref, col).stream())
-                            .collect(toCollection(TreeSet::new));
+                result.put(
+                        colName.equals("id") ? joinView.name : joinView.name + "_" + colName,
+                        colName.equals("id") ? new HashSet<>() : new TreeSet<>());
+            }
+        }
+        return result;
+    }
 
-                    result.put(joinView.name + "_" + colName, values);
-                }
+    /**
+     * Selects the values of the columns of a view and of the included columns of joined views,
+     * as (row, field, value) triples.
+     */
+    private Query getRowsQuery(View view) {
+        var branches = new ArrayList<String>();
+        if (!view.columns.isEmpty()) {
+            branches.add(columnValues(
+                    "?row", view, view.columns.stream().map(c -> c.name).toList()));
+        }
+        for (var j : view.join) {
+            var joinView = getView(j.view);
+            var link = j.reverse ? "?ref <" + j.on + "> ?row .\n" : "?row <" + j.on + "> ?ref .\n";
+            if (j.include.contains("id")) {
+                branches.add(link + "FILTER (!isLiteral(?ref))\nBIND (?ref AS ?value)\nBIND (\"" + joinView.name
+                        + "\" AS ?field)");
             }
+            var columns = j.include.stream().filter(c -> !c.equals("id")).toList();
+            if (!columns.isEmpty()) {
+                branches.add(link + columnValues("?ref", joinView, columns));
+            }
+        }
+        if (branches.isEmpty()) {
+            branches.add("FILTER (false)");
         }
+        return QueryFactory.create(branches.stream()
+                .collect(joining("\n}\nUNION\n{\n", "SELECT ?row ?field ?value\nWHERE {\n{\n", "\n}\n}")));
+    }
 
-        return result;
+    private String columnValues(String subject, View view, List<String> columnNames) {
+        return columnNames.stream()
+                .map(name -> {
+                    var column = view.columns.stream()
+                            .filter(c -> c.name.equals(name))
+                            .findFirst()
+                            .orElseThrow(() -> new RuntimeException("Unknown column: " + name));
+                    return "(\"" + view.name + "_" + name + "\" <" + column.source + ">)";
+                })
+                .collect(joining(" ", "VALUES (?field ?property) { ", " }\n" + subject + " ?property ?value ."));
     }
 
     public List<SearchResultDTO> searchFiles(FileSearchRequest request) {
@@ -138,13 +352,6 @@ public class SparqlQueryService implements QueryService {
         return SparqlUtils.getByQuery(query, binding, ds);
     }
 
-    private Set<ValueDTO> getValues(Resource resource, View.Column column) {
-        return new TreeSet<>(resource.listProperties(createProperty(column.source))
-                .mapWith(Statement::getObject)
-                .mapWith(this::toValueDTO)
-                .toSet());
-    }
-
     private View getView(String viewName) {
         return searchConfig.views.stream()
                 .filter(v -> v.name.equals(viewName))
@@ -152,6 +359,51 @@ public class SparqlQueryService implements QueryService {
                 .orElseThrow(() -> new IllegalArgumentException("Unknown view: " + viewName));
     }
 
+    /**
+     * The RDF types of the Term and TermSet columns of a view and of the included columns of joined views, by field.
+     */
+    private Map<String, String> getTermTypes(View view) {
+        var types = new HashMap<String, String>();
+        for (var column : view.columns) {
+            if (column.type == ColumnType.Term || column.type == ColumnType.TermSet) {
+                types.put(view.name + "_" + column.name, column.rdfType);
+            }
+        }
+        for (var j : view.join) {
+            var joinView = getView(j.view);
+            for (var column : joinView.columns) {
+                if (j.include.contains(column.name)
+                        && (column.type == ColumnType.Term || column.type == ColumnType.TermSet)) {
+                    types.put(joinView.name + "_" + column.name, column.rdfType);
+                }
+            }
+        }
+        return types;
+    }
+
+    /**
+     * Converts a node to a value, looking up the labels of resources once per page.
+     * The labels of ontology terms, with a term type, are looked up in the label dictionary.
+     */
+    private ValueDTO toValueDTO(RDFNode node, String termType, Map<Node, ValueDTO> labels) {
+        if (node.isLiteral()) {
+            return toValueDTO(node);
+        }
+        return labels.computeIfAbsent(node.asNode(), n -> {
+            if (termType == null || !node.isURIResource()) {
+                return toValueDTO(node);
+            }
+            var iri = node.asResource().getURI();
+            var label = labelDictionary.getLabel(iri);
+            if (label != null) {
+                return new ValueDTO(label, iri);
+            }
+            var value = toValueDTO(node);
+            labelDictionary.put(iri, termType, value.getLabel());
+            return value;
+        });
+    }
+
     private ValueDTO toValueDTO(RDFNode node) {
         if (node.isLiteral()) {
             var value = node.asLiteral().getValue();
@@ -214,67 +466,67 @@ public class SparqlQueryService implements QueryService {
                 }
             });
 
-            filters.stream()
-                    .map(f -> f.field)
-                    .sorted(comparing(field -> field.contains("_") ? getColumn(field).priority : 0))
-                    .map(field -> field.split("_")[0])
-                    .distinct()
-                    .forEach(entity -> {
-                        if (!entity.equals(view.name)) {
-                            builder.append("FILTER EXISTS {\n");
-
-                            var join = view.join.stream()
-                                    .filter(j -> j.view.equals(entity))
-                                    .findFirst()
-                                    .orElseThrow(() -> new RuntimeException("Unknown view: " + entity));
-
-                            builder.append("?")
-                                    .append(view.name)
-                                    .append(join.reverse ? " ^<" : " <")
-                                    .append(join.on)
-                                    .append("> ?")
-                                    .append(join.view)
-                                    .append(" .\n");
-                        }
-
-                        request.getFilters().stream()
-                                .filter(f -> f.getField().startsWith(entity))
-                                .sorted(comparing(f -> f.field.contains("_") ? getColumn(f.field).priority : 0))
-                                .forEach(f -> {
-                                    String condition, property, field;
-                                    if (f.getField().equals(entity)) {
-                                        field = f.field + "_id";
-                                        property = RDFS.label.toString();
-                                        condition = toFilterString(f, ColumnType.Identifier, field);
-                                    } else {
-                                        field = f.field;
-                                        property = getColumn(f.field).source;
-                                        condition = toFilterString(f, getColumn(f.field).type, f.field);
-                                    }
-                                    if (condition != null) {
-                                        builder.append("?")
-                                                .append(entity)
-                                                .append(" <")
-                                                .append(property)
-                                                .append("> ?")
-                                                .append(field)
-                                                .append(" .\n")
-                                                .append(condition)
-                                                .append(" \n");
-                                    }
-                                });
-                        if (!entity.equals(view.name)) {
-                            builder.append("}");
-                        }
-                        builder.append("\n");
-                    });
+            // Evaluate the most selective filters first, so that non-matching entities are rejected early.
+            // The filters of an entity are as selective as the most selective one of them.
+            var estimates = new IdentityHashMap<ViewFilter, Long>();
+            filters.forEach(f -> estimates.put(f, estimate(f)));
+            var filtersByEntity = filters.stream()
+                    .sorted(Comparator.<ViewFilter, Long>comparing(estimates::get)
+                            .thenComparingInt(f -> f.field.contains("_") ? getColumn(f.field).priority : 0))
+                    .collect(groupingBy(f -> f.field.split("_")[0], LinkedHashMap::new, toList()));
+
+            filtersByEntity.forEach((entity, entityFilters) -> {
+                if (!entity.equals(view.name)) {
+                    builder.append("FILTER EXISTS {\n");
+
+                    var join = view.join.stream()
+                            .filter(j -> j.view.equals(entity))
+                            .findFirst()
+                            .orElseThrow(() -> new RuntimeException("Unknown view: " + entity));
+
+                    builder.append("?")
+                            .append(view.name)
+                            .append(join.reverse ? " ^<" : " <")
+                            .append(join.on)
+                            .append("> ?")
+                            .append(join.view)
+                            .append(" .\n");
+                }
+
+                entityFilters.forEach(f -> {
+                    String condition, property, field;
+                    if (f.getField().equals(entity)) {
+                        field = f.field + "_id";
+                        property = RDFS.label.toString();
+                        condition = toFilterString(f, ColumnType.Identifier, field);
+                    } else {
+                        field = f.field;
+                        property = getColumn(f.field).source;
+                        condition = toFilterString(f, getColumn(f.field).type, f.field);
+                    }
+                    if (condition != null) {
+                        builder.append(condition)
+                                .append("\n?")
+                                .append(entity)
+                                .append(" <")
+                                .append(property)
+                                .append("> ?")
+                                .append(field)
+                                .append(" .\n");
+                    }
+                });
+                if (!entity.equals(view.name)) {
+                    builder.append("}");
+                }
+                builder.append("\n");
+            });
         }
 
-        builder.append("?")
+        builder.append("VALUES ?type { ")
+                .append(view.types.stream().map(t -> "<" + t + ">").collect(joining(" ")))
+                .append(" }\n?")
                 .append(view.name)
-                .append(" a ?type .\nFILTER (?type IN (")
-                .append(view.types.stream().map(t -> "<" + t + ">").collect(joining(", ")))
-                .append("))\nFILTER NOT EXISTS { ?")
+                .append(" a ?type .\nFILTER NOT EXISTS { ?")
                 .append(view.name)
                 .append(" fs:dateDeleted ?any }\n}");
 
@@ -293,6 +545,16 @@ public class SparqlQueryService implements QueryService {
             expr = new E_GreaterThanOrEqual(variable, toNodeValue(filter.min, type));
         } else if (filter.max != null) {
             expr = new E_LessThanOrEqual(variable, toNodeValue(filter.max, type));
+        } else if (filter.values != null && !filter.values.isEmpty() && isTermType(type)) {
+            // Bind the terms instead of filtering on them, so that they can be looked up in the indexes
+            return new ElementData(
+                            List.of(variable.asVar()),
+                            filter.values.stream()
+                                    .map(o -> BindingFactory.binding(
+                                            variable.asVar(),
+                                            toNodeValue(o, type).asNode()))
+                                    .collect(toList()))
+                    .toString();
         } else if (filter.values != null && !filter.values.isEmpty()) {
             List<Expr> values =
                     filter.values.stream().map(o -> toNodeValue(o, type)).collect(toList());
@@ -310,6 +572,20 @@ public class SparqlQueryService implements QueryService {
         return new ElementFilter(expr).toString();
     }
 
+    private static boolean isTermType(ColumnType type) {
+        return type == ColumnType.Identifier || type == ColumnType.Term || type == ColumnType.TermSet;
+    }
+
+    private long estimate(ViewFilter filter) {
+        if (!filter.field.contains("_")) {
+            // Filters on the entity itself select on the label or identifier of a few entities
+            return filter.values != null ? filter.values.size() : 1;
+        }
+        var column = getColumn(filter.field);
+        return selectivity.estimate(column.source, filter, column.type, o -> toNodeValue(o, column.type)
+                .asNode());
+    }
+
     private View.Column getColumn(String name) {
         var fieldNameParts = name.split("_");
         if (fieldNameParts.length != 2) {
@@ -380,19 +656,119 @@ public class SparqlQueryService implements QueryService {
 
         log.debug("Querying the total number of matches: \n{}", query);
 
-        var execution = QueryExecutionFactory.create(query, ds);
-        execution.setTimeout(config.countRequestTimeout);
+        return calculateRead(ds, () -> {
+            var count = new long[1];
+            try {
+                select("sparql.count", query, config.countRequestTimeout, row -> count[0]++);
+                return new CountDTO(count[0], false);
+            } catch (QueryCancelledException e) {
+                return new CountDTO(count[0], true);
+            }
+        });
+    }
+
+    public FacetCountsDTO countFacetValues(CountRequest request) {
+        var view = getView(request.getView());
+        var deadline = System.currentTimeMillis() + config.pageRequestTimeout;
 
         return calculateRead(ds, () -> {
-            long count = 0;
-            try (execution) {
-                for (var it = execution.execSelect(); it.hasNext(); it.next()) {
-                    count++;
+            var facets = new ArrayList<FacetCountDTO>();
+            try (var ignored = Tracer.span("sparql.facets")) {
+                for (var column : view.columns) {
+                    var field = view.name + "_" + column.name;
+                    if (!EnumSet.of(ColumnType.Term, ColumnType.TermSet, ColumnType.Number, ColumnType.Date)
+                            .contains(column.type)) {
+                        continue;
+                    }
+                    var remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        return new FacetCountsDTO(facets, true);
+                    }
+                    // Leave out the filters on the column itself, to count all alternative values
+                    var columnRequest = new CountRequest();
+                    columnRequest.setView(view.name);
+                    if (request.getFilters() != null) {
+                        columnRequest.setFilters(request.getFilters().stream()
+                                .filter(f -> !f.getField().equalsIgnoreCase(field))
+                                .collect(toList()));
+                    }
+                    var pattern = getQuery(columnRequest).getQueryPattern();
+                    if (column.type == ColumnType.Term || column.type == ColumnType.TermSet) {
+                        facets.add(new FacetCountDTO(
+                                field, column.type, countValues(view, column, pattern, remaining), null));
+                    } else {
+                        facets.add(new FacetCountDTO(
+                                field, column.type, null, countBuckets(view, column, pattern, remaining)));
+                    }
                 }
-                return new CountDTO(count, false);
+                return new FacetCountsDTO(facets, false);
             } catch (QueryCancelledException e) {
-                return new CountDTO(count, true);
+                return new FacetCountsDTO(facets, true);
             }
         });
     }
+
+    /**
+     * Counts the view entities matching the filter pattern per value of the column.
+     */
+    private static Query getValueCountQuery(View view, View.Column column, Element pattern) {
+        return QueryFactory.create(
+                """
+                SELECT ?value (COUNT(DISTINCT ?%1$s) AS ?count)
+                WHERE {
+                   %2$s
+                   ?%1$s <%3$s> ?value .
+                }
+                GROUP BY ?value
+                """
+                        .formatted(view.name, pattern, column.source));
+    }
+
+    private List<FacetValueCountDTO> countValues(View view, View.Column column, Element pattern, long timeout) {
+        var query = getValueCountQuery(view, column, pattern);
+        var counts = new ArrayList<FacetValueCountDTO>();
+        var labels = new HashMap<Node, ValueDTO>();
+        select("sparql.facet.values", query, timeout, row -> {
+            var value = toValueDTO(row.get("value"), column.rdfType, labels);
+            counts.add(new FacetValueCountDTO(
+                    value.getLabel(), value.getValue(), row.getLiteral("count").getLong()));
+        });
+        counts.sort(comparing(FacetValueCountDTO::getLabel));
+        return counts;
+    }
+
+    private List<FacetBucketDTO> countBuckets(View view, View.Column column, Element pattern, long timeout) {
+        var boundsQuery = QueryFactory.create(
+                """
+                PREFIX fs: <%s>
+                SELECT (MIN(?value) AS ?min) (MAX(?value) AS ?max)
+                WHERE {
+                   ?subject <%s> ?value
+                   FILTER NOT EXISTS { ?subject fs:dateDeleted ?anyDateDeleted }
+                }
+                """
+                        .formatted(FS.NS, column.source));
+        var bounds = new ArrayList<QuerySolution>(1);
+        select("sparql.facet.range", boundsQuery, timeout, bounds::add);
+        var row = bounds.get(0);
+        if (row.get("min") == null || row.get("max") == null) {
+            return Collections.emptyList();
+        }
+        var histogram = new Histogram(
+                Histogram.toDouble(toValueDTO(row.get("min")).getValue()),
+                Histogram.toDouble(toValueDTO(row.get("max")).getValue()),
+                config.facetHistogramBuckets);
+
+        var query = getValueCountQuery(view, column, pattern);
+        var counts = new long[histogram.size()];
+        select("sparql.facet.buckets", query, timeout, solution -> {
+            var value = Histogram.toDouble(toValueDTO(solution.get("value")).getValue());
+            counts[histogram.bucketOf(value) - 1] +=
+                    solution.getLiteral("count").getLong();
+        });
+        if (column.type == ColumnType.Date) {
+            return histogram.toBuckets(counts, seconds -> ofEpochMilli((long) (seconds * 1000)));
+        }
+        return histogram.toBuckets(counts, value -> value);
+    }
 }
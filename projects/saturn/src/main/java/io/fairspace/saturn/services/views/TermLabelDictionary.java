@@ -0,0 +1,141 @@
+package io.fairspace.saturn.services.views;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.jena.graph.Node;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.QueryExecutionFactory;
+import org.apache.jena.query.QueryFactory;
+import org.apache.jena.sparql.util.Symbol;
+
+import io.fairspace.saturn.config.ViewsConfig;
+import io.fairspace.saturn.config.ViewsConfig.ColumnType;
+
+import static org.apache.jena.system.Txn.executeRead;
+
+/**
+ * Bidirectional dictionary of the labels of ontology terms, the values of Term and TermSet columns.
+ * Terms are looked up by IRI, or by type and label. The dictionary is bounded:
+ * the least recently used terms are evicted when it is full. Its entries are removed when the
+ * label of a term changes (see {@link io.fairspace.saturn.rdf.transactions.TxnLabelDatasetGraph}),
+ * so that the next lookup reads the new label.
+ * With a view database, the dictionary mirrors the <code>label</code> table: terms are only added
+ * when they are read from or stored in that table.
+ */
+@Slf4j
+public class TermLabelDictionary {
+    public static final Symbol LABEL_DICTIONARY = Symbol.create("label_dictionary");
+
+    @Value
+    private static class Term {
+        String type;
+        String label;
+    }
+
+    private final Map<Term, String> iris = new ConcurrentHashMap<>();
+    private final Cache<String, Term> terms;
+
+    public TermLabelDictionary(long maxSize) {
+        terms = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .removalListener((RemovalNotification<String, Term> notification) ->
+                        iris.remove(notification.getValue(), notification.getKey()))
+                .build();
+    }
+
+    /**
+     * @return the label of the term, or null if the term is not in the dictionary.
+     */
+    public String getLabel(String iri) {
+        var term = iri == null ? null : terms.getIfPresent(iri);
+        return term == null ? null : term.label;
+    }
+
+    /**
+     * @return the IRI of the term of the type with the label, or null if the term is not in the dictionary.
+     */
+    public String getIri(String type, String label) {
+        return label == null ? null : iris.get(new Term(type, label));
+    }
+
+    /**
+     * @return the labels of the terms that are in the dictionary, by IRI.
+     */
+    public Map<String, String> getLabels(Collection<String> iris) {
+        var labels = new HashMap<String, String>();
+        for (var iri : iris) {
+            var label = getLabel(iri);
+            if (label != null) {
+                labels.put(iri, label);
+            }
+        }
+        return labels;
+    }
+
+    public boolean contains(String iri, String type, String label) {
+        return label != null && new Term(type, label).equals(terms.getIfPresent(iri));
+    }
+
+    public void put(String iri, String type, String label) {
+        if (iri == null || label == null) {
+            return;
+        }
+        var term = new Term(type, label);
+        terms.put(iri, term);
+        iris.put(term, iri);
+    }
+
+    public void invalidate(String iri) {
+        terms.invalidate(iri);
+    }
+
+    public long size() {
+        return terms.size();
+    }
+
+    /**
+     * Loads the labels of the terms of the types of all Term and TermSet columns from the dataset.
+     */
+    public void load(Dataset ds, ViewsConfig viewsConfig) {
+        var start = System.currentTimeMillis();
+        var types = viewsConfig.views.stream()
+                .flatMap(view -> view.columns.stream())
+                .filter(column ->
+                        (column.type == ColumnType.Term || column.type == ColumnType.TermSet) && column.rdfType != null)
+                .map(column -> column.rdfType)
+                .distinct()
+                .toList();
+        executeRead(ds, () -> {
+            for (var type : types) {
+                var query = QueryFactory.create(
+                        """
+                        PREFIX rdfs: <http://www.w3.org/2000/01/rdf-schema#>
+                        SELECT ?iri ?label
+                        WHERE { ?iri a <%s> ; rdfs:label ?label . }
+                        """
+                                .formatted(type));
+                try (var execution = QueryExecutionFactory.create(query, ds)) {
+                    execution.execSelect().forEachRemaining(row -> {
+                        var iri = row.get("iri").asNode();
+                        if (iri.isURI() && getLabel(iri.getURI()) == null) {
+                            put(iri.getURI(), type, labelOf(row.get("label").asNode()));
+                        }
+                    });
+                }
+            }
+        });
+        log.info("Loaded {} term labels in {}ms", size(), System.currentTimeMillis() - start);
+    }
+
+    static String labelOf(Node node) {
+        return node.isLiteral() ? node.getLiteralLexicalForm() : node.toString();
+    }
+}
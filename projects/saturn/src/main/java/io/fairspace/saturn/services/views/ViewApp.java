@@ -39,6 +39,12 @@ public class ViewApp extends BaseApp {
             return mapper.writeValueAsString(new FacetsDTO(viewService.getFacets()));
         });
 
+        post("/facets/counts", (req, res) -> {
+            var result = queryService.countFacetValues(mapper.readValue(req.body(), CountRequest.class));
+            res.type(APPLICATION_JSON.asString());
+            return mapper.writeValueAsString(result);
+        });
+
         post("/count", (req, res) -> {
             var result = queryService.count(mapper.readValue(req.body(), CountRequest.class));
             res.type(APPLICATION_JSON.asString());
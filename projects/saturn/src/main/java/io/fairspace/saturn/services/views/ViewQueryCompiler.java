@@ -0,0 +1,332 @@
+package io.fairspace.saturn.services.views;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import lombok.Value;
+
+import io.fairspace.saturn.config.ViewsConfig.ColumnType;
+import io.fairspace.saturn.config.ViewsConfig.View;
+
+import static io.fairspace.saturn.services.views.Table.idColumn;
+
+/**
+ * Compiles select queries on view tables for a list of filters.
+ * The filters are first normalised to a canonical {@link Shape}: the filtered fields in a fixed order,
+ * with the kinds of constraints on each field, but without the filter values.
+ * Multiple values of a filter are bound as a single array parameter (<code>= any(?)</code>),
+ * so the SQL text only depends on the shape. The SQL is generated once per shape and cached,
+ * which allows the PostgreSQL driver to reuse server-side prepared statements across requests.
+ * The compiler is shared by all readers of a {@link ViewStoreClientFactory}.
+ */
+class ViewQueryCompiler {
+    private static final int MAX_SHAPES = 1000;
+
+    private final ViewStoreClient.ViewStoreConfiguration configuration;
+    private final Map<String, Map<String, View.Column>> columnsByView = new HashMap<>();
+    private final Cache<Shape, Template> templates =
+            CacheBuilder.newBuilder().maximumSize(MAX_SHAPES).build();
+
+    ViewQueryCompiler(ViewStoreClient.ViewStoreConfiguration configuration) {
+        this.configuration = configuration;
+        configuration.viewConfig.forEach((name, view) -> {
+            var columns = new HashMap<String, View.Column>();
+            view.columns.forEach(column -> columns.putIfAbsent(column.name.toLowerCase(), column));
+            columnsByView.put(name, columns);
+        });
+    }
+
+    /**
+     * A compiled query: the SQL text and the values to bind to its parameters.
+     * Values of type {@link SqlArray} are bound as SQL arrays.
+     */
+    @Value
+    static class SqlQuery {
+        String sql;
+        List<Object> values;
+    }
+
+    /**
+     * The elements of an array parameter with their SQL type.
+     */
+    @Value
+    static class SqlArray {
+        String type;
+        Object[] elements;
+    }
+
+    /**
+     * The part of a filter that determines the SQL text.
+     */
+    @Value
+    static class FilterShape {
+        String field;
+        boolean values;
+        boolean min;
+        boolean max;
+        boolean numeric;
+        boolean prefix;
+        boolean prefixes;
+        Boolean booleanValue;
+
+        static FilterShape of(ViewFilter filter) {
+            return new FilterShape(
+                    filter.getField(),
+                    filter.getValues() != null && !filter.getValues().isEmpty(),
+                    filter.getMin() != null,
+                    filter.getMax() != null,
+                    filter.getNumericValue() != null && filter.getNumericValue(),
+                    filter.getPrefix() != null && !filter.getPrefix().isBlank(),
+                    filter.getPrefixes() != null && !filter.getPrefixes().isEmpty(),
+                    filter.getBooleanValue());
+        }
+    }
+
+    @Value
+    static class Shape {
+        String view;
+        String projection;
+        String scope;
+        List<FilterShape> filters;
+    }
+
+    private enum ParameterKind {
+        VALUES,
+        MIN,
+        MAX,
+        PREFIX,
+        PREFIXES
+    }
+
+    /**
+     * A query parameter, taken from the filter at the given position in canonical order.
+     */
+    @Value
+    private static class Parameter {
+        int filter;
+        ParameterKind kind;
+        String arrayType;
+    }
+
+    @Value
+    private static class Template {
+        String sql;
+        List<Parameter> parameters;
+    }
+
+    /**
+     * Compiles the select query on a view table for filters that have already been prepared
+     * using {@link ViewStoreReader#prepareFilters(List)}.
+     *
+     * @param view       the view name.
+     * @param projection the select expression.
+     * @param filters    the filters to apply.
+     * @param scope      an optional clause to append to the query, e.g., for ordering or grouping.
+     */
+    SqlQuery compile(String view, String projection, List<ViewFilter> filters, String scope) {
+        var sorted = filters.stream()
+                .sorted(Comparator.comparing(ViewFilter::getField))
+                .toList();
+        var shape = new Shape(
+                view, projection, scope, sorted.stream().map(FilterShape::of).toList());
+        Template template;
+        try {
+            template = templates.get(shape, () -> generate(shape));
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Error compiling query for view " + view, e.getCause());
+        }
+        var values = new ArrayList<>(template.parameters.size());
+        for (var parameter : template.parameters) {
+            values.add(valueOf(parameter, sorted.get(parameter.filter)));
+        }
+        return new SqlQuery(template.sql, values);
+    }
+
+    long size() {
+        return templates.size();
+    }
+
+    private Template generate(Shape shape) {
+        var parameters = new ArrayList<Parameter>();
+        var constraints = new StringJoiner(" and ");
+        var filtersByView = new TreeMap<String, List<Integer>>();
+        for (var i = 0; i < shape.filters.size(); i++) {
+            var field = shape.filters.get(i).field;
+            filtersByView
+                    .computeIfAbsent(field.split("_")[0], key -> new ArrayList<>())
+                    .add(i);
+        }
+        var ownFilters = filtersByView.remove(shape.view);
+        if (ownFilters != null) {
+            appendFilters(constraints, "v", configuration.viewConfig.get(shape.view), ownFilters, shape, parameters);
+        }
+        var joinTables = configuration.joinTables.get(shape.view);
+        for (var entry : filtersByView.entrySet()) {
+            var subView = entry.getKey();
+            if (joinTables == null || !joinTables.containsKey(subView)) {
+                constraints.add("false"); // to return no rows
+                continue;
+            }
+            var subConstraints = new StringJoiner(" and ");
+            appendFilters(
+                    subConstraints, "jv", configuration.viewConfig.get(subView), entry.getValue(), shape, parameters);
+            var subquery = new StringBuilder("exists (select * from ")
+                    .append(joinTables.get(subView).name)
+                    .append(" jt join ")
+                    .append(configuration.viewTables.get(subView).name)
+                    .append(" jv on jv.id = jt.")
+                    .append(idColumn(subView).name)
+                    .append(" where jt.")
+                    .append(idColumn(shape.view).name)
+                    .append(" = v.id");
+            if (subConstraints.length() > 0) {
+                subquery.append(" and ").append(subConstraints);
+            }
+            constraints.add(subquery.append(")"));
+        }
+
+        var sql = new StringBuilder("select ")
+                .append(shape.projection)
+                .append(" from ")
+                .append(configuration.viewTables.get(shape.view).name)
+                .append(" v");
+        if (constraints.length() > 0) {
+            sql.append(" where ").append(constraints);
+        }
+        if (shape.scope != null) {
+            sql.append(' ').append(shape.scope);
+        }
+        return new Template(sql.toString(), List.copyOf(parameters));
+    }
+
+    private void appendFilters(
+            StringJoiner constraints,
+            String alias,
+            View view,
+            List<Integer> filterIndexes,
+            Shape shape,
+            List<Parameter> parameters) {
+        for (var index : filterIndexes) {
+            var filter = shape.filters.get(index);
+            var field = filter.field.equalsIgnoreCase(view.name) ? "id" : filter.field.split("_")[1].toLowerCase();
+            var column = columnsByView.get(view.name).get(field);
+            var arrayType = column == null ? "text" : arrayType(column.type);
+            if (column != null && column.type.isSet()) {
+                var propertyTable = configuration.propertyTables.get(view.name).get(column.name);
+                var constraint = new StringBuilder("exists (select * from ")
+                        .append(propertyTable.name)
+                        .append(" pt where pt.")
+                        .append(idColumn(view.name).name)
+                        .append(" = ")
+                        .append(alias)
+                        .append(".id");
+                var subConstraint = constraint("pt." + field, index, filter, arrayType, parameters);
+                if (subConstraint != null) {
+                    constraint.append(" and ").append(subConstraint);
+                }
+                constraints.add(constraint.append(")"));
+            } else {
+                var constraint = constraint(alias + "." + field, index, filter, arrayType, parameters);
+                if (constraint != null) {
+                    constraints.add(constraint);
+                }
+            }
+        }
+    }
+
+    private static String constraint(
+            String fieldName, int index, FilterShape filter, String arrayType, List<Parameter> parameters) {
+        if (filter.values) {
+            parameters.add(new Parameter(index, ParameterKind.VALUES, arrayType));
+            return fieldName + " = any(?::" + arrayType + "[])";
+        }
+        var constraints = new StringJoiner(" and ");
+        // NOTE: for NUMERIC filter, turned out, PreparedStatement may cast them as real or double,
+        // what causes a dramatic slow down for the query execution (up to x100).
+        // As a workaround, we force PrepareStatement to send the request with numeric type (the same as it is defined
+        // in the database schema)
+        if (filter.min) {
+            parameters.add(new Parameter(index, ParameterKind.MIN, null));
+            constraints.add(fieldName + (filter.numeric ? " >= ?::numeric" : " >= ?"));
+        }
+        if (filter.max) {
+            parameters.add(new Parameter(index, ParameterKind.MAX, null));
+            constraints.add(fieldName + (filter.numeric ? " <= ?::numeric" : " <= ?"));
+        }
+        if (filter.prefix) {
+            // Use view label instead of id for prefix filters
+            var prefixFieldName = fieldName.endsWith(".id") ? fieldName.replaceAll("\\.id$", ".label") : fieldName;
+            parameters.add(new Parameter(index, ParameterKind.PREFIX, null));
+            constraints.add(prefixFieldName + " ilike ? escape '\\'");
+        }
+        if (filter.prefixes) {
+            // The backslash is the default escape character of like
+            parameters.add(new Parameter(index, ParameterKind.PREFIXES, "text"));
+            constraints.add(fieldName + " like any(?::text[])");
+        }
+        if (filter.booleanValue != null) {
+            if (filter.booleanValue) {
+                constraints.add("(" + fieldName + "=true)");
+            } else {
+                constraints.add("(" + fieldName + "=false OR " + fieldName + " IS NULL)");
+            }
+        }
+        return constraints.length() == 0 ? null : constraints.toString();
+    }
+
+    private static String arrayType(ColumnType type) {
+        return switch (type) {
+            case Number -> "numeric";
+            case Date -> "timestamp";
+            case Boolean -> "boolean";
+            default -> "text";
+        };
+    }
+
+    private static Object valueOf(Parameter parameter, ViewFilter filter) {
+        return switch (parameter.kind) {
+            case VALUES -> new SqlArray(
+                    parameter.arrayType,
+                    filter.getValues().stream()
+                            .map(value -> toArrayElement(parameter.arrayType, value))
+                            .toArray());
+            case MIN -> filter.getMin();
+            case MAX -> filter.getMax();
+            case PREFIX -> escapeLikeString("%" + filter.getPrefix().trim().toLowerCase()) + "%";
+            case PREFIXES -> new SqlArray(
+                    parameter.arrayType,
+                    filter.getPrefixes().stream()
+                            .map(prefix -> escapeLikeString(prefix) + "%")
+                            .toArray());
+        };
+    }
+
+    private static Object toArrayElement(String type, Object value) {
+        return switch (type) {
+            case "numeric" -> value instanceof BigDecimal ? value : new BigDecimal(value.toString());
+            case "timestamp" -> Timestamp.from(
+                    value instanceof Instant ? (Instant) value : Instant.parse(value.toString()));
+            case "boolean" -> value instanceof Boolean ? value : Boolean.valueOf(value.toString());
+            default -> value.toString();
+        };
+    }
+
+    static String escapeLikeString(String value) {
+        return value.replaceAll("\\[", "\\[")
+                .replaceAll("]", "\\]")
+                .replaceAll("_", "\\_")
+                .replaceAll("%", "\\%")
+                .replaceAll("\\\\", "\\\\");
+    }
+}
@@ -10,6 +10,7 @@ import java.util.function.Supplier;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
 import lombok.SneakyThrows;
 import lombok.extern.log4j.Log4j2;
 import org.apache.jena.datatypes.xsd.XSDDateTime;
@@ -30,6 +31,7 @@ import io.fairspace.saturn.vocabulary.FS;
 
 import static io.fairspace.saturn.config.ViewsConfig.ColumnType;
 import static io.fairspace.saturn.config.ViewsConfig.View;
+import static io.fairspace.saturn.metrics.SaturnMetrics.REGISTRY;
 
 import static java.time.Instant.ofEpochMilli;
 import static java.util.Optional.ofNullable;
@@ -292,11 +294,11 @@ public class ViewService {
 
     private <T> LoadingCache<Boolean, List<T>> buildCache(
             Supplier<List<T>> fetchSupplier, Config.CacheConfig cacheConfig) {
-        var cacheBuilder = CacheBuilder.newBuilder();
+        var cacheBuilder = CacheBuilder.newBuilder().recordStats();
         if (cacheConfig.autoRefreshEnabled) {
             cacheBuilder.refreshAfterWrite(cacheConfig.refreshFrequencyInHours, TimeUnit.HOURS);
         }
-        return cacheBuilder.build(new CacheLoader<>() {
+        LoadingCache<Boolean, List<T>> cache = cacheBuilder.build(new CacheLoader<>() {
             @Override
             public List<T> load(Boolean key) {
                 var cachedObjects = fetchSupplier.get();
@@ -308,5 +310,7 @@ public class ViewService {
                 return cachedObjects;
             }
         });
+        GuavaCacheMetrics.monitor(REGISTRY, cache, cacheConfig.name);
+        return cache;
     }
 }
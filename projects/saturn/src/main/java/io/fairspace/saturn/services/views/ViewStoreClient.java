@@ -58,13 +58,19 @@ public class ViewStoreClient implements AutoCloseable {
 
     private final MaterializedViewService materializedViewService;
 
+    private final TermLabelDictionary labelDictionary;
+    // The labels stored in the current transaction, added to the label dictionary when it is committed
+    private final Map<String, Pair<String, String>> storedLabels = new HashMap<>();
+
     public ViewStoreClient(
             Connection connection,
             ViewStoreConfiguration configuration,
-            MaterializedViewService materializedViewService) {
+            MaterializedViewService materializedViewService,
+            TermLabelDictionary labelDictionary) {
         this.connection = connection;
         this.configuration = configuration;
         this.materializedViewService = materializedViewService;
+        this.labelDictionary = labelDictionary;
     }
 
     @Override
@@ -74,6 +80,8 @@ public class ViewStoreClient implements AutoCloseable {
 
     public void commit() throws SQLException {
         this.connection.commit();
+        storedLabels.forEach((id, label) -> labelDictionary.put(id, label.getLeft(), label.getRight()));
+        storedLabels.clear();
         materializedViewService.createOrUpdateAllMaterializedViews();
     }
 
@@ -188,16 +196,25 @@ public class ViewStoreClient implements AutoCloseable {
         }
     }
 
+    /**
+     * Stores the label of a term, unless the label dictionary shows it is stored already.
+     * The label of a term that is stored already is updated, as it may have changed.
+     * The label dictionary is updated when the transaction is committed.
+     */
     public void addLabel(String id, String type, String label) throws SQLException {
-        if (!rowExists("label", id)) {
-            try (var insert = connection.prepareStatement("insert into label (id, type, label) values (?, ?, ?)")) {
-                insert.setString(1, id);
-                insert.setString(2, type);
-                insert.setString(3, label);
-                insert.executeUpdate();
-                log.debug("Inserted label '{}' for {} (type {})", label, id, type);
-            }
+        var stored = Pair.of(type, label);
+        if (stored.equals(storedLabels.get(id)) || labelDictionary.contains(id, type, label)) {
+            return;
+        }
+        try (var upsert = connection.prepareStatement("insert into label (id, type, label) values (?, ?, ?)"
+                + " on conflict (id) do update set type = excluded.type, label = excluded.label")) {
+            upsert.setString(1, id);
+            upsert.setString(2, type);
+            upsert.setString(3, label);
+            upsert.executeUpdate();
+            log.debug("Stored label '{}' for {} (type {})", label, id, type);
         }
+        storedLabels.put(id, stored);
     }
 
     public int updateRows(String view, List<Map<String, Object>> rows, boolean bulkInsert) throws SQLException {
@@ -27,6 +27,7 @@ import io.fairspace.saturn.config.ViewsConfig.ColumnType;
 import io.fairspace.saturn.config.ViewsConfig.View;
 import io.fairspace.saturn.vocabulary.FS;
 
+import static io.fairspace.saturn.metrics.SaturnMetrics.REGISTRY;
 import static io.fairspace.saturn.services.views.Table.idColumn;
 import static io.fairspace.saturn.services.views.Table.valueColumn;
 
@@ -37,7 +38,7 @@ public class ViewStoreClientFactory {
     private final MaterializedViewService materializedViewService;
 
     public ViewStoreClient build() throws SQLException {
-        return new ViewStoreClient(getConnection(), configuration, materializedViewService);
+        return new ViewStoreClient(getConnection(), configuration, materializedViewService, labelDictionary);
     }
 
     public String databaseTypeForColumnType(ColumnType type) {
@@ -54,7 +55,10 @@ public class ViewStoreClientFactory {
     public static final Set<String> protectedResources = Set.of(FS.COLLECTION_URI, FS.DIRECTORY_URI, FS.FILE_URI);
 
     final ViewStoreClient.ViewStoreConfiguration configuration;
+    final ViewQueryCompiler queryCompiler;
+    public final TermLabelDictionary labelDictionary;
     public final DataSource dataSource;
+    public final SlowQueryLog slowQueryLog;
 
     public ViewStoreClientFactory(ViewsConfig viewsConfig, Config.ViewDatabase viewDatabase, Config.Search search)
             throws SQLException {
@@ -66,6 +70,8 @@ public class ViewStoreClientFactory {
         databaseConfig.setAutoCommit(viewDatabase.autoCommit);
         databaseConfig.setConnectionTimeout(viewDatabase.connectionTimeout);
         databaseConfig.setMaximumPoolSize(viewDatabase.maxPoolSize);
+        // Publishes the usage of the pool: active, idle and pending connections, and the time to acquire one
+        databaseConfig.setMetricRegistry(REGISTRY);
 
         dataSource = new HikariDataSource(databaseConfig);
 
@@ -77,10 +83,15 @@ public class ViewStoreClientFactory {
                 "label",
                 List.of(idColumn(), valueColumn("type", ColumnType.Text), valueColumn("label", ColumnType.Text))));
 
+        labelDictionary = new TermLabelDictionary(search.labelDictionarySize);
+        slowQueryLog = new SlowQueryLog(search);
+        loadLabels();
+
         configuration = new ViewStoreClient.ViewStoreConfiguration(viewsConfig);
         for (View view : viewsConfig.views) {
             createOrUpdateView(view);
         }
+        queryCompiler = new ViewQueryCompiler(configuration);
         materializedViewService = new MaterializedViewService(dataSource, configuration, search.maxJoinItems);
         materializedViewService.createOrUpdateAllMaterializedViews();
     }
@@ -89,6 +100,17 @@ public class ViewStoreClientFactory {
         return dataSource.getConnection();
     }
 
+    private void loadLabels() throws SQLException {
+        try (var connection = getConnection();
+                var query = connection.prepareStatement("select id, type, label from label")) {
+            var result = query.executeQuery();
+            while (result.next()) {
+                labelDictionary.put(result.getString("id"), result.getString("type"), result.getString("label"));
+            }
+        }
+        log.debug("Loaded {} labels", labelDictionary.size());
+    }
+
     Map<String, ColumnMetadata> getColumnMetadata(Connection connection, String table) throws SQLException {
         log.debug("Fetching metadata for {} ...", table);
         var resultSet = connection.getMetaData().getColumns(null, null, table, null);
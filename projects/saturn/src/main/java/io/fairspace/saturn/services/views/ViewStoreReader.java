@@ -1,6 +1,6 @@
 package io.fairspace.saturn.services.views;
 
-import java.sql.Array;
+import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -8,21 +8,23 @@ import java.sql.SQLException;
 import java.sql.SQLTimeoutException;
 import java.sql.Timestamp;
 import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import com.google.common.collect.Sets;
-import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 
@@ -31,11 +33,15 @@ import io.fairspace.saturn.config.ViewsConfig.ColumnType;
 import io.fairspace.saturn.config.ViewsConfig.View;
 import io.fairspace.saturn.services.search.FileSearchRequest;
 import io.fairspace.saturn.services.search.SearchResultDTO;
+import io.fairspace.saturn.tracing.Span;
+import io.fairspace.saturn.tracing.Tracer;
 import io.fairspace.saturn.vocabulary.FS;
 
 import static io.fairspace.saturn.config.ViewsConfig.ColumnType.Date;
 import static io.fairspace.saturn.services.views.Table.idColumn;
 
+import static java.util.concurrent.TimeUnit.SECONDS;
+
 /**
  * Executes SQL queries via JDBC on the view database
  * to obtain row data or aggregate data for a specified view
@@ -48,40 +54,57 @@ import static io.fairspace.saturn.services.views.Table.idColumn;
 public class ViewStoreReader implements AutoCloseable {
     final Config.Search searchConfig;
     final ViewStoreClient.ViewStoreConfiguration configuration;
+    final ViewQueryCompiler queryCompiler;
+    final TermLabelDictionary labelDictionary;
     final Connection connection;
+    private final SlowQueryLog slowQueryLog;
+    private final Set<ViewFilter> preparedFilters = Collections.newSetFromMap(new IdentityHashMap<>());
 
-    // TODO: in whole class, use StringBuilder instead of String concats
     public ViewStoreReader(Config.Search searchConfig, ViewStoreClientFactory viewStoreClientFactory)
             throws SQLException {
         this.searchConfig = searchConfig;
         this.configuration = viewStoreClientFactory.configuration;
+        this.queryCompiler = viewStoreClientFactory.queryCompiler;
+        this.labelDictionary = viewStoreClientFactory.labelDictionary;
+        this.slowQueryLog = viewStoreClientFactory.slowQueryLog;
         this.connection = viewStoreClientFactory.getConnection();
     }
 
     List<Object> getLabelsByIds(List<String> ids) throws SQLException {
-        String query = "select label from label where id = ANY(?::text[])";
-        try (var preparedStatement = connection.prepareStatement(query)) {
-            var array = preparedStatement.getConnection().createArrayOf("text", ids.toArray());
-            preparedStatement.setArray(1, array);
-            var result = preparedStatement.executeQuery();
-            var labels = new ArrayList<>();
-            while (result.next()) {
-                labels.add(result.getObject("label"));
-            }
+        var known = labelDictionary.getLabels(ids);
+        var labels = new ArrayList<Object>(known.values());
+        var missing = ids.stream().filter(id -> !known.containsKey(id)).toArray();
+        if (missing.length == 0) {
             return labels;
         }
+        var query = new ViewQueryCompiler.SqlQuery(
+                "select id, type, label from label where id = ANY(?::text[])",
+                List.of(new ViewQueryCompiler.SqlArray("text", missing)));
+        forEachRow("sql.labels", query, 0, result -> {
+            var label = result.getString("label");
+            labelDictionary.put(result.getString("id"), result.getString("type"), label);
+            labels.add(label);
+        });
+        return labels;
     }
 
     String iriForLabel(String type, String label) throws SQLException {
-        try (var query = connection.prepareStatement("select id from label where type = ? and label = ?")) {
-            query.setString(1, type);
-            query.setString(2, label);
-            var result = query.executeQuery();
-            if (result.next()) {
-                return result.getString("id");
-            }
+        var iri = labelDictionary.getIri(type, label);
+        if (iri != null) {
+            return iri;
+        }
+        if (type == null || label == null) { // would not match any row
+            return null;
         }
-        return null;
+        var query = new ViewQueryCompiler.SqlQuery(
+                "select id from label where type = ? and label = ?", List.of(type, label));
+        var iris = new ArrayList<String>();
+        forEachRow("sql.label.iri", query, 0, result -> iris.add(result.getString("id")));
+        if (iris.isEmpty()) {
+            return null;
+        }
+        labelDictionary.put(iris.get(0), type, label);
+        return iris.get(0);
     }
 
     Map<String, Set<ValueDTO>> transformRow(View viewConfig, ResultSet result) throws SQLException {
@@ -158,8 +181,16 @@ public class ViewStoreReader implements AutoCloseable {
         return viewColumn;
     }
 
+    /**
+     * Converts the filters to the representation used in the view tables.
+     * Filters that have already been prepared by this reader are skipped,
+     * so the same filters can be used for several queries.
+     */
     void prepareFilters(List<ViewFilter> filters) throws SQLException {
         for (var filter : filters) {
+            if (!preparedFilters.add(filter)) {
+                continue;
+            }
             if (filter.getField().equalsIgnoreCase("location")) {
                 filter.setField("Resource");
                 filter.setPrefixes(filter.values.stream().map(Object::toString).collect(Collectors.toList()));
@@ -183,155 +214,25 @@ public class ViewStoreReader implements AutoCloseable {
         }
     }
 
-    String escapeLikeString(String value) {
-        return value.replaceAll("\\[", "\\[")
-                .replaceAll("]", "\\]")
-                .replaceAll("_", "\\_")
-                .replaceAll("%", "\\%")
-                .replaceAll("\\\\", "\\\\");
-    }
-
-    String sqlConstraint(String fieldName, ViewFilter filter, List<Object> values) {
-        if (fieldName.isBlank()) {
-            fieldName = "id";
-        }
-        if (filter.getValues() != null && !filter.getValues().isEmpty()) {
-            if (filter.getValues().size() == 1) {
-                values.add(filter.getValues().get(0));
-                return String.format("%s = ?", fieldName);
-            }
-            return String.format(
-                    "%s in ( %s )",
-                    fieldName,
-                    filter.getValues().stream()
-                            .map(value -> {
-                                values.add(value);
-                                return "?";
-                            })
-                            .collect(Collectors.joining(", ")));
-        }
-        var constraints = new ArrayList<String>();
-        // NOTE: for NUMERIC filter, turned out, PreparedStatement may cast them as real or double,
-        // what causes a dramatic slow down for the query execution (up to x100).
-        // As a workaround, we force PrepareStatement to send the request with numeric type (the same as it is defined
-        // in the database schema)
-        var isNumericFilter = filter.numericValue != null && filter.numericValue;
-        if (filter.getMin() != null) {
-            values.add(filter.getMin());
-            var constraint = isNumericFilter ? " >= ?::numeric" : " >= ?";
-            constraints.add(fieldName + constraint);
-        }
-        if (filter.getMax() != null) {
-            values.add(filter.getMax());
-            var constraint = isNumericFilter ? " <= ?::numeric" : " <= ?";
-            constraints.add(fieldName + constraint);
-        }
-        if (filter.getPrefix() != null && !filter.getPrefix().isBlank()) {
-            // Use view label instead of id for prefix filters
-            String prefixFieldName = fieldName;
-            if (prefixFieldName.endsWith(".id")) {
-                prefixFieldName = prefixFieldName.replaceAll("\\.id$", ".label");
-            }
-            values.add(escapeLikeString("%" + filter.getPrefix().trim().toLowerCase()) + "%");
-            constraints.add(prefixFieldName + " ilike ? escape '\\'");
-        }
-        if (filter.getPrefixes() != null && !filter.getPrefixes().isEmpty()) {
-            String finalFieldName = fieldName;
-            var prefixes = filter.getPrefixes().stream()
-                    .map(prefix -> {
-                        values.add(escapeLikeString(prefix) + "%");
-                        return finalFieldName + " like ? escape '\\'";
-                    })
-                    .collect(Collectors.joining(" or "));
-            constraints.add("(" + prefixes + ")");
-        }
-        if (filter.booleanValue != null) {
-            if (filter.booleanValue) {
-                constraints.add("(" + fieldName + "=true)");
-            } else {
-                constraints.add("(" + fieldName + "=false OR " + fieldName + " IS NULL)");
-            }
-        }
-        if (!constraints.isEmpty()) {
-            return String.join(" and ", constraints);
-        }
-        return null;
-    }
-
-    String sqlFilter(String alias, View view, List<ViewFilter> filters, List<Object> values) {
-        if (filters == null || filters.isEmpty()) {
-            return "";
-        }
-        return filters.stream()
-                .map(filter -> {
-                    var field = filter.getField().equalsIgnoreCase(view.name)
-                            ? "id"
-                            : filter.getField().split("_")[1].toLowerCase();
-                    var column = view.columns.stream()
-                            .filter(c -> c.name.equalsIgnoreCase(field))
-                            .findFirst()
-                            .orElse(null);
-                    if (column != null && column.type.isSet()) {
-                        var propertyTable =
-                                configuration.propertyTables.get(view.name).get(column.name);
-                        var subConstraint = sqlConstraint("pt." + field, filter, values);
-                        return "exists (select *"
-                                + " from " + propertyTable.name + " pt "
-                                + " where pt." + idColumn(view.name).name + " = " + alias + ".id"
-                                + (subConstraint == null || subConstraint.isBlank() ? "" : " and " + subConstraint)
-                                + ")";
-                    }
-                    return sqlConstraint(alias + "." + field, filter, values);
-                })
-                .filter(Objects::nonNull)
-                .collect(Collectors.joining(" and "));
-    }
-
-    PreparedStatement query(String view, String projection, List<ViewFilter> filters, String scope)
+    ViewQueryCompiler.SqlQuery query(String view, String projection, List<ViewFilter> filters, String scope)
             throws SQLException {
         if (filters == null) {
             filters = Collections.emptyList();
         }
         prepareFilters(filters);
-        var filtersByView = filters.stream()
-                .collect(Collectors.groupingBy(filter -> filter.getField().split("_")[0]));
-        var values = new ArrayList<>();
-        var constraints = sqlFilter("v", configuration.viewConfig.get(view), filtersByView.get(view), values);
-        var subqueries = filtersByView.entrySet().stream()
-                .filter(entry -> !entry.getKey().equals(view))
-                .map(entry -> {
-                    String resultCondition;
-                    var subView = entry.getKey();
-                    if (configuration.joinTables.get(view) == null
-                            || !configuration.joinTables.get(view).containsKey(subView)) {
-                        resultCondition = "false"; // to return no rows
-                    } else {
-                        var subConstraints =
-                                sqlFilter("jv", configuration.viewConfig.get(subView), entry.getValue(), values);
-                        var subViewTable = configuration.viewTables.get(subView);
-                        var joinTable = configuration.joinTables.get(view).get(subView);
-                        resultCondition = "exists (select *" + " from "
-                                + joinTable.name + " jt " + " join "
-                                + subViewTable.name + " jv " + " on jv.id = jt."
-                                + idColumn(subView).name + " where jt."
-                                + idColumn(view).name + " = v.id"
-                                + (subConstraints.isBlank() ? "" : " and " + subConstraints)
-                                + ")";
-                    }
-                    return resultCondition;
-                })
-                .toList();
-        constraints = Stream.concat(Stream.of(constraints), subqueries.stream())
-                .filter(constraint -> constraint != null && !constraint.isBlank())
-                .collect(Collectors.joining(" and "));
-
-        var viewTable = configuration.viewTables.get(view);
-        var query = connection.prepareStatement("select " + projection + " from "
-                + viewTable.name + " v " + (constraints.isBlank() ? "" : " where " + constraints)
-                + (scope == null ? "" : (" " + scope)));
+        return queryCompiler.compile(view, projection, filters, scope);
+    }
+
+    PreparedStatement prepareQuery(ViewQueryCompiler.SqlQuery sqlQuery) throws SQLException {
+        var query = connection.prepareStatement(sqlQuery.getSql());
+        var values = sqlQuery.getValues();
         for (var i = 0; i < values.size(); i++) {
             var value = values.get(i);
-            if (value instanceof Number) {
+            if (value instanceof ViewQueryCompiler.SqlArray array) {
+                query.setArray(i + 1, connection.createArrayOf(array.getType(), array.getElements()));
+            } else if (value instanceof Long) {
+                query.setLong(i + 1, (Long) value);
+            } else if (value instanceof Number) {
                 query.setFloat(i + 1, ((Number) value).floatValue());
             } else if (value instanceof Instant) {
                 query.setTimestamp(i + 1, Timestamp.from((Instant) value));
@@ -374,44 +275,37 @@ public class ViewStoreReader implements AutoCloseable {
 
     private Map<String, ViewRow> getViewRowsForNonSetType(View view, List<ViewFilter> filters, int offset, int limit)
             throws SQLException {
-        try (var query = query(
-                view.name,
-                "*",
-                filters,
-                String.format(
-                        "order by id %s limit %d", offset > 0 ? String.format("offset %d", offset) : "", limit))) {
-            query.setQueryTimeout((int) searchConfig.pageRequestTimeout);
-            var result = query.executeQuery();
-            Map<String, ViewRow> rowsById = new HashMap<>();
-            while (result.next()) {
-                var row = transformRow(view, result);
-                rowsById.put(result.getString("id"), new ViewRow(row));
-            }
-            return rowsById;
-        }
+        var rows = query(view.name, "*", filters, "order by id offset ? limit ?");
+        // The page is bound as parameters, so that all pages of a filter shape share their SQL
+        var values = new ArrayList<>(rows.getValues());
+        values.add((long) offset);
+        values.add((long) limit);
+        var query = new ViewQueryCompiler.SqlQuery(rows.getSql(), values);
+        Map<String, ViewRow> rowsById = new HashMap<>();
+        forEachRow("sql.view.rows", query, (int) searchConfig.pageRequestTimeout, result -> {
+            var row = transformRow(view, result);
+            rowsById.put(result.getString("id"), new ViewRow(row));
+        });
+        return rowsById;
     }
 
     private Map<String, ViewRow> getViewRowsForSetType(String view, List<String> valueSetProperties, String[] viewIds)
             throws SQLException {
 
         var columns = String.join(", ", valueSetProperties);
-        var query = "select %sid, %s from mv_%s where %sid = ANY(?::text[])".formatted(view, columns, view, view);
-
-        try (PreparedStatement ps = connection.prepareStatement(query)) {
-            Array array = ps.getConnection().createArrayOf("text", viewIds);
-            ps.setArray(1, array);
-            ResultSet resultSet = ps.executeQuery();
-
-            Map<String, ViewRow> viewRowsForSetTypeById = new HashMap<>();
-
-            while (resultSet.next()) {
-                var id = resultSet.getString(view + "id");
-                var newViewRow = ViewRow.viewSetOf(resultSet, valueSetProperties, view);
-                viewRowsForSetTypeById.compute(
-                        id, (studyId, viewRow) -> viewRow == null ? newViewRow : viewRow.merge(newViewRow));
-            }
-            return viewRowsForSetTypeById;
-        }
+        var query = new ViewQueryCompiler.SqlQuery(
+                "select %sid, %s from mv_%s where %sid = ANY(?::text[])".formatted(view, columns, view, view),
+                List.of(new ViewQueryCompiler.SqlArray("text", viewIds)));
+
+        Map<String, ViewRow> viewRowsForSetTypeById = new HashMap<>();
+
+        forEachRow("sql.view.set.rows", query, 0, resultSet -> {
+            var id = resultSet.getString(view + "id");
+            var newViewRow = ViewRow.viewSetOf(resultSet, valueSetProperties, view);
+            viewRowsForSetTypeById.compute(
+                    id, (studyId, viewRow) -> viewRow == null ? newViewRow : viewRow.merge(newViewRow));
+        });
+        return viewRowsForSetTypeById;
     }
 
     private ViewRowCollection retrieveJoinTableRows(String view, View.JoinView joinView, Collection<String> ids)
@@ -428,14 +322,11 @@ public class ViewStoreReader implements AutoCloseable {
         var rows = new ViewRowCollection(searchConfig.maxJoinItems);
 
         if (!ids.isEmpty()) {
-            try (var query = getJoinQuery(view, joinedTable, ids);
-                    var result = query.executeQuery()) {
-                while (result.next()) {
-                    var id = result.getString(viewIdColumn);
-                    var row = buildJoinRows(joinView, joinIdColumn, projectionColumns, result);
-                    rows.add(id, row);
-                }
-            }
+            forEachRow("sql.view.join.rows", getJoinQuery(view, joinedTable, ids), 0, result -> {
+                var id = result.getString(viewIdColumn);
+                var row = buildJoinRows(joinView, joinIdColumn, projectionColumns, result);
+                rows.add(id, row);
+            });
         }
 
         return rows;
@@ -486,15 +377,12 @@ public class ViewStoreReader implements AutoCloseable {
         }
     }
 
-    private PreparedStatement getJoinQuery(String view, Table joinedTable, Collection<String> ids) throws SQLException {
+    private ViewQueryCompiler.SqlQuery getJoinQuery(String view, Table joinedTable, Collection<String> ids) {
 
         var query = "select * from mv_%s_join_%s where %s = ANY(?::text[])"
                 .formatted(view, joinedTable.name, idColumn(view).name);
 
-        var ps = connection.prepareStatement(query);
-        var array = ps.getConnection().createArrayOf("text", ids.toArray());
-        ps.setArray(1, array);
-        return ps;
+        return new ViewQueryCompiler.SqlQuery(query, List.of(new ViewQueryCompiler.SqlArray("text", ids.toArray())));
     }
 
     /**
@@ -511,22 +399,20 @@ public class ViewStoreReader implements AutoCloseable {
         }
         var table = configuration.viewTables.get(view);
         var columnDefinition = table.getColumn(column.toLowerCase());
-        try (PreparedStatement query = connection.prepareStatement("select min(" + columnDefinition.name
-                + ") as min, max(" + columnDefinition.name + ") as max" + " from " + table.name)) {
-            var result = query.executeQuery();
-            if (!result.next()) {
-                return null;
-            }
-            Object min;
-            Object max;
-            if (columnDefinition.type == Date) {
-                min = result.getTimestamp("min");
-                max = result.getTimestamp("max");
-            } else {
-                min = result.getBigDecimal("min");
-                max = result.getBigDecimal("max");
-            }
-            return new Range(min, max);
+        var query = new ViewQueryCompiler.SqlQuery(
+                "select min(%s) as min, max(%s) as max from %s"
+                        .formatted(columnDefinition.name, columnDefinition.name, table.name),
+                List.of());
+        try {
+            var ranges = new ArrayList<Range>();
+            forEachRow("sql.aggregate", query, 0, result -> {
+                if (columnDefinition.type == Date) {
+                    ranges.add(new Range(result.getTimestamp("min"), result.getTimestamp("max")));
+                } else {
+                    ranges.add(new Range(result.getBigDecimal("min"), result.getBigDecimal("max")));
+                }
+            });
+            return ranges.isEmpty() ? null : ranges.get(0);
         } catch (SQLException e) {
             throw new QueryException("Error aggregating column values", e);
         }
@@ -572,11 +458,14 @@ public class ViewStoreReader implements AutoCloseable {
     }
 
     public long countRows(String view, List<ViewFilter> filters) throws SQLTimeoutException {
-        try (var q = query(view, "count(*) as rowCount", filters, null)) {
-            q.setQueryTimeout((int) searchConfig.countRequestTimeout);
-            var result = q.executeQuery();
-            result.next();
-            return result.getLong("rowCount");
+        try {
+            var count = new long[1];
+            forEachRow(
+                    "sql.count",
+                    query(view, "count(*) as rowCount", filters, null),
+                    (int) searchConfig.countRequestTimeout,
+                    result -> count[0] = result.getLong("rowCount"));
+            return count[0];
         } catch (SQLTimeoutException e) {
             throw e;
         } catch (SQLException e) {
@@ -584,66 +473,314 @@ public class ViewStoreReader implements AutoCloseable {
         }
     }
 
-    public List<SearchResultDTO> searchFiles(FileSearchRequest request, List<String> userCollections) {
-        if (userCollections == null || userCollections.isEmpty()) {
+    /**
+     * Counts the rows of a view per value of its Term and TermSet columns and per value range
+     * of its Number and Date columns, after applying the specified filters.
+     * The filters on a column are left out when counting the values of that column,
+     * so that the counts show how many rows each alternative value would select.
+     *
+     * @param view    the name of the view.
+     * @param filters the filters to apply.
+     * @param buckets the number of value ranges for Number and Date columns.
+     * @param timeout the time budget (in milliseconds) for all count queries together.
+     * @return the counts per column, marked as timed out if the budget was exceeded.
+     */
+    public FacetCountsDTO countFacetValues(String view, List<ViewFilter> filters, int buckets, long timeout) {
+        var viewConfig = configuration.viewConfig.get(view);
+        if (viewConfig == null) {
+            throw new IllegalArgumentException("View not supported: " + view);
+        }
+        var deadline = System.currentTimeMillis() + timeout;
+        var facets = new ArrayList<FacetCountDTO>();
+        try {
+            prepareFilters(filters);
+            for (var column : viewConfig.columns) {
+                var field = view + "_" + column.name;
+                var columnFilters = filters.stream()
+                        .filter(filter -> !filter.getField().equalsIgnoreCase(field))
+                        .toList();
+                var remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return new FacetCountsDTO(facets, true);
+                }
+                switch (column.type) {
+                    case Term, TermSet -> facets.add(new FacetCountDTO(
+                            field, column.type, countValues(viewConfig, column, columnFilters, remaining), null));
+                    case Number, Date -> facets.add(new FacetCountDTO(
+                            field,
+                            column.type,
+                            null,
+                            countBuckets(viewConfig, column, columnFilters, buckets, remaining)));
+                    default -> {}
+                }
+            }
+            return new FacetCountsDTO(facets, false);
+        } catch (SQLTimeoutException e) {
+            return new FacetCountsDTO(facets, true);
+        } catch (SQLException e) {
+            throw new QueryException("Error counting facet values", e);
+        }
+    }
+
+    private List<FacetValueCountDTO> countValues(View view, View.Column column, List<ViewFilter> filters, long timeout)
+            throws SQLException {
+        var columnName = column.name.toLowerCase();
+        ViewQueryCompiler.SqlQuery sqlQuery;
+        if (column.type.isSet()) {
+            var propertyTable = configuration.propertyTables.get(view.name).get(column.name);
+            var idColumnName = idColumn(view.name).name;
+            var rows = queryCompiler.compile(view.name, "v.id", filters, null);
+            var sql = new StringBuilder("select pt.")
+                    .append(columnName)
+                    .append(" as value, count(distinct pt.")
+                    .append(idColumnName)
+                    .append(") as count from ")
+                    .append(propertyTable.name)
+                    .append(" pt where pt.")
+                    .append(idColumnName)
+                    .append(" in (")
+                    .append(rows.getSql())
+                    .append(") group by pt.")
+                    .append(columnName);
+            sqlQuery = new ViewQueryCompiler.SqlQuery(sql.toString(), rows.getValues());
+        } else {
+            sqlQuery = queryCompiler.compile(
+                    view.name, "v." + columnName + " as value, count(*) as count", filters, "group by v." + columnName);
+        }
+        var counts = new ArrayList<FacetValueCountDTO>();
+        forEachRow("sql.count.values", sqlQuery, toSeconds(timeout), result -> {
+            var label = result.getString("value");
+            if (label != null) {
+                var iri = iriForLabel(column.rdfType, label);
+                counts.add(new FacetValueCountDTO(label, iri == null ? label : iri, result.getLong("count")));
+            }
+        });
+        counts.sort(Comparator.comparing(FacetValueCountDTO::getLabel));
+        return counts;
+    }
+
+    private List<FacetBucketDTO> countBuckets(
+            View view, View.Column column, List<ViewFilter> filters, int buckets, long timeout) throws SQLException {
+        var table = configuration.viewTables.get(view.name);
+        var columnName = table.getColumn(column.name).name;
+        // Dates are bucketed on their epoch seconds, computed from the timestamp as stored in the database
+        var expression = column.type == Date ? "extract(epoch from v." + columnName + ")" : "v." + columnName;
+        var bounds = new ArrayList<BigDecimal>();
+        forEachRow(
+                "sql.count.range",
+                new ViewQueryCompiler.SqlQuery(
+                        "select min(%s) as min, max(%s) as max from %s v".formatted(expression, expression, table.name),
+                        List.of()),
+                toSeconds(timeout),
+                result -> {
+                    bounds.add(result.getBigDecimal("min"));
+                    bounds.add(result.getBigDecimal("max"));
+                });
+        if (bounds.isEmpty() || bounds.get(0) == null) {
             return Collections.emptyList();
         }
+        var histogram = new Histogram(bounds.get(0).doubleValue(), bounds.get(1).doubleValue(), buckets);
+        var sqlQuery = queryCompiler.compile(
+                view.name, histogram.toSql(expression) + " as bucket, count(*) as count", filters, "group by 1");
+        var counts = new long[histogram.size()];
+        forEachRow("sql.count.buckets", sqlQuery, toSeconds(timeout), result -> {
+            var bucket = result.getInt("bucket");
+            if (!result.wasNull()) {
+                counts[histogram.clamp(bucket) - 1] += result.getLong("count");
+            }
+        });
+        if (column.type == Date) {
+            return histogram.toBuckets(
+                    counts, seconds -> Timestamp.valueOf(LocalDateTime.ofEpochSecond((long) seconds, 0, ZoneOffset.UTC))
+                            .toInstant());
+        }
+        return histogram.toBuckets(counts, value -> value);
+    }
 
-        var searchString = "%" + escapeLikeString(request.getQuery().toLowerCase()) + "%";
+    @FunctionalInterface
+    private interface RowHandler {
+        void accept(ResultSet row) throws SQLException;
+    }
 
-        var values = new ArrayList<String>();
-        values.add(searchString);
-        values.add(searchString);
-        values.addAll(userCollections);
+    /**
+     * Executes a query and passes its rows to a handler, in a client span, so that traces show the time spent
+     * in the view database. Queries that are slow or time out are recorded in the slow-query log.
+     *
+     * @param timeout the query timeout in seconds, or 0 for none.
+     * @return the number of rows.
+     */
+    private long forEachRow(String operation, ViewQueryCompiler.SqlQuery sqlQuery, int timeout, RowHandler handler)
+            throws SQLException {
+        try (var span = Tracer.span(operation, Span.Kind.CLIENT).attribute("db.system", "postgresql");
+                var statement = prepareQuery(sqlQuery)) {
+            if (timeout > 0) {
+                statement.setQueryTimeout(timeout);
+            }
+            // The driver fetches all rows at once, so the time to execute the query is the time spent in the database
+            var start = System.nanoTime();
+            ResultSet result;
+            try {
+                result = statement.executeQuery();
+            } catch (SQLException e) {
+                span.error(e);
+                rollbackAfter(e);
+                var timedOut = isTimeout(e);
+                if (slowQueryLog.isSlow(System.nanoTime() - start, timedOut)) {
+                    recordSlowQuery(operation, sqlQuery, System.nanoTime() - start, 0, timedOut);
+                }
+                throw e;
+            }
+            var elapsed = System.nanoTime() - start;
+            long rows = 0;
+            try (result) {
+                while (result.next()) {
+                    handler.accept(result);
+                    rows++;
+                }
+            }
+            if (span.isRecording()) {
+                span.attribute("db.rows", rows);
+            }
+            if (slowQueryLog.isSlow(elapsed, false)) {
+                recordSlowQuery(operation, sqlQuery, elapsed, rows, false);
+            }
+            return rows;
+        }
+    }
 
-        var collectionPlaceholders = userCollections.stream().map(uc -> "?").collect(Collectors.toList());
-        var collectionConstraint = "and collection in (" + String.join(", ", collectionPlaceholders) + ") ";
+    /**
+     * A failed statement aborts the transaction of the connection, if any, so that no other statement can be executed.
+     * The reader only reads, so the transaction is rolled back, to explain the query and to execute the next ones.
+     */
+    private void rollbackAfter(SQLException e) {
+        try {
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+            }
+        } catch (SQLException rollbackError) {
+            e.addSuppressed(rollbackError);
+        }
+    }
 
-        var idConstraint = StringUtils.isBlank(request.getParentIRI())
-                ? ""
-                : "and id like '" + escapeLikeString(request.getParentIRI()) + "%' ";
+    private String explainOrError(ViewQueryCompiler.SqlQuery sqlQuery, int timeout) {
+        try {
+            return explain(sqlQuery, false, timeout);
+        } catch (SQLException e) {
+            return "Error explaining the query: " + e.getMessage();
+        }
+    }
 
-        var queryString = new StringBuilder()
-                .append("select id, label, description, type FROM resource ")
-                .append("where (label ilike ? OR description ilike ?) ")
-                .append(collectionConstraint)
-                .append(idConstraint)
-                .append("order by id asc limit 1000");
+    /**
+     * Explains the query within a savepoint, if the connection has a transaction,
+     * so that a failure to explain it, e.g. a timeout, does not abort the transaction.
+     *
+     * @param analyze whether to execute the query, to include the actual times and buffers in the plan.
+     */
+    private String explain(ViewQueryCompiler.SqlQuery sqlQuery, boolean analyze, int timeout) throws SQLException {
+        var explain = analyze ? "explain (analyze, buffers) " : "explain ";
+        var lines = new ArrayList<String>();
+        var savepoint = connection.getAutoCommit() ? null : connection.setSavepoint();
+        try (var statement =
+                prepareQuery(new ViewQueryCompiler.SqlQuery(explain + sqlQuery.getSql(), sqlQuery.getValues()))) {
+            statement.setQueryTimeout(timeout);
+            try (var result = statement.executeQuery()) {
+                while (result.next()) {
+                    lines.add(result.getString(1));
+                }
+            }
+        } catch (SQLException e) {
+            if (savepoint != null) {
+                connection.rollback(savepoint);
+            }
+            throw e;
+        }
+        if (savepoint != null) {
+            connection.releaseSavepoint(savepoint);
+        }
+        return String.join("\n", lines);
+    }
 
-        try (var statement = connection.prepareStatement(queryString.toString())) {
-            for (int i = 0; i < values.size(); i++) {
-                statement.setString(i + 1, values.get(i));
+    private void recordSlowQuery(
+            String operation, ViewQueryCompiler.SqlQuery sqlQuery, long elapsed, long rows, boolean timedOut) {
+        String plan = null;
+        if (slowQueryLog.isExplainEnabled()) {
+            // The query is executed again, on the request thread, only if that is known to take little time
+            var timeout = slowQueryLog.getExplainTimeout();
+            var analyze = !timedOut && elapsed < SECONDS.toNanos(timeout);
+            try {
+                plan = explain(sqlQuery, analyze, timeout);
+            } catch (SQLException e) {
+                if (analyze && isTimeout(e)) {
+                    plan = explainOrError(sqlQuery, timeout);
+                } else {
+                    plan = "Error explaining the query: " + e.getMessage();
+                }
             }
+        }
+        slowQueryLog.recordSql(operation, sqlQuery, elapsed, rows, timedOut, plan);
+    }
 
-            statement.setQueryTimeout((int) searchConfig.pageRequestTimeout);
+    private static boolean isTimeout(SQLException e) {
+        // PostgreSQL reports a statement timeout as query_canceled
+        return e instanceof SQLTimeoutException || "57014".equals(e.getSQLState());
+    }
 
-            var result = statement.executeQuery();
-            return convertResult(result);
+    private static int toSeconds(long millis) {
+        return (int) Math.max(1, (millis + 999) / 1000);
+    }
 
-        } catch (SQLException e) {
-            log.error("Error searching files.", e);
-            throw new RuntimeException("Error searching files.", e); // Terminates Saturn
+    public List<SearchResultDTO> searchFiles(FileSearchRequest request, List<String> userCollections) {
+        if (userCollections == null || userCollections.isEmpty()) {
+            return Collections.emptyList();
         }
-    }
 
-    @SneakyThrows
-    private List<SearchResultDTO> convertResult(ResultSet resultSet) {
-        var rows = new ArrayList<SearchResultDTO>();
-        while (resultSet.next()) {
-            var row = SearchResultDTO.builder()
-                    .id(resultSet.getString("id"))
-                    .label(resultSet.getString("label"))
-                    .type(FS.NS + resultSet.getString("type"))
-                    .comment(resultSet.getString("description"))
-                    .build();
+        var searchString =
+                "%" + ViewQueryCompiler.escapeLikeString(request.getQuery().toLowerCase()) + "%";
+        var hasParent = StringUtils.isNotBlank(request.getParentIRI());
 
-            rows.add(row);
+        var queryString = new StringBuilder()
+                .append("select id, label, description, type FROM resource ")
+                .append("where (label ilike ? OR description ilike ?) ")
+                .append("and collection = any(?::text[]) ");
+        var values = new ArrayList<Object>(
+                List.of(searchString, searchString, new ViewQueryCompiler.SqlArray("text", userCollections.toArray())));
+        if (hasParent) {
+            queryString.append("and id like ? ");
+            values.add(ViewQueryCompiler.escapeLikeString(request.getParentIRI()) + "%");
+        }
+        queryString.append("order by id asc limit 1000");
+
+        try {
+            var rows = new ArrayList<SearchResultDTO>();
+            forEachRow(
+                    "sql.search.files",
+                    new ViewQueryCompiler.SqlQuery(queryString.toString(), values),
+                    (int) searchConfig.pageRequestTimeout,
+                    resultSet -> rows.add(SearchResultDTO.builder()
+                            .id(resultSet.getString("id"))
+                            .label(resultSet.getString("label"))
+                            .type(FS.NS + resultSet.getString("type"))
+                            .comment(resultSet.getString("description"))
+                            .build()));
+            return rows;
+        } catch (SQLException e) {
+            log.error("Error searching files.", e);
+            throw new RuntimeException("Error searching files.", e); // Terminates Saturn
         }
-        return rows;
     }
 
+    /**
+     * Ends the transaction of the connection, if any, before returning it to the pool.
+     * The pool does not roll a transaction back once a savepoint of it is rolled back, e.g. after a failed explanation.
+     */
     @Override
     public void close() throws Exception {
-        connection.close();
+        try {
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+            }
+        } finally {
+            connection.close();
+        }
     }
 }
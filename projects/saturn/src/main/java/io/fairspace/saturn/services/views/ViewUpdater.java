@@ -104,6 +104,7 @@ public class ViewUpdater implements AutoCloseable {
                 }
             }
             case Term, TermSet -> {
+                // The graph of the write transaction is authoritative, the label dictionary may be outdated
                 var label = getLabel(graph, node);
                 viewStoreClient.addLabel(node.getURI(), column.rdfType, label);
                 yield label;
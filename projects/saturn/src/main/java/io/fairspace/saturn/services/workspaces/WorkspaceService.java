@@ -1,13 +1,18 @@
 package io.fairspace.saturn.services.workspaces;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 
+import lombok.Value;
 import lombok.extern.log4j.*;
 import org.apache.jena.graph.Node;
 import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.RDFNode;
 import org.apache.jena.rdf.model.Resource;
 import org.apache.jena.vocabulary.RDF;
 import org.apache.jena.vocabulary.RDFS;
@@ -25,11 +30,26 @@ import static io.fairspace.saturn.util.ValidationUtils.validate;
 
 import static com.google.common.base.Strings.isNullOrEmpty;
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
 
 @Log4j2
 public class WorkspaceService {
+    private static final WorkspaceSummary EMPTY_SUMMARY = new WorkspaceSummary(0, 0, 0);
+
+    /**
+     * The summaries and managers of all workspaces, for a data version.
+     * They are the same for all users, so they are shared and must not be modified.
+     */
+    @Value
+    private static class WorkspaceSummaries {
+        long version;
+        Map<Node, WorkspaceSummary> summaries;
+        Map<Node, List<User>> managers;
+    }
+
     private final Transactions tx;
     private final UserService userService;
+    private volatile WorkspaceSummaries summaries;
 
     public WorkspaceService(Transactions tx, UserService userService) {
         this.tx = tx;
@@ -37,7 +57,10 @@ public class WorkspaceService {
     }
 
     public List<Workspace> listWorkspaces() {
+        // The version is read before the transaction is started, see Transactions.getDataVersion
+        var version = tx.getDataVersion();
         return tx.calculateRead(m -> {
+            var summaries = getSummaries(m, version);
             var user = m.wrapAsResource(getUserURI());
             return new DAO(m)
                     .list(Workspace.class).stream()
@@ -46,28 +69,8 @@ public class WorkspaceService {
                                 ws.setCanManage(
                                         userService.currentUser().isAdmin() || user.hasProperty(FS.isManagerOf, res));
                                 ws.setCanCollaborate(ws.isCanManage() || user.hasProperty(FS.isMemberOf, res));
-                                var workspaceCollections = m.listSubjectsWithProperty(FS.ownedBy, res)
-                                        .filterKeep(r -> r.hasProperty(RDF.type, FS.Collection))
-                                        .toList();
-                                var totalCollectionCount = workspaceCollections.size();
-                                var nonDeletedCollectionCount = (int) workspaceCollections.stream()
-                                        .filter(collection -> !collection.hasProperty(FS.dateDeleted))
-                                        .count();
-                                var memberCount = m.listSubjectsWithProperty(RDF.type, FS.User)
-                                        .filterKeep(u -> u.hasProperty(FS.isMemberOf, res))
-                                        .toList()
-                                        .size();
-                                var managers = new DAO(m)
-                                        .list(User.class).stream()
-                                                .filter(u -> m.wrapAsResource(u.getIri())
-                                                        .hasProperty(FS.isManagerOf, res))
-                                                .collect(toList());
-                                ws.setSummary(WorkspaceSummary.builder()
-                                        .totalCollectionCount(totalCollectionCount)
-                                        .nonDeletedCollectionCount(nonDeletedCollectionCount)
-                                        .memberCount(memberCount + managers.size())
-                                        .build());
-                                ws.setManagers(managers);
+                                ws.setSummary(summaries.getSummaries().getOrDefault(ws.getIri(), EMPTY_SUMMARY));
+                                ws.setManagers(summaries.getManagers().getOrDefault(ws.getIri(), List.of()));
                             })
                             .filter(ws -> userService.currentUser().isCanViewPublicMetadata()
                                     || ws.isCanManage()
@@ -76,6 +79,75 @@ public class WorkspaceService {
         });
     }
 
+    private WorkspaceSummaries getSummaries(Model m, long version) {
+        var cached = summaries;
+        if (cached == null || cached.getVersion() != version) {
+            cached = summarize(m, version);
+            summaries = cached;
+        }
+        return cached;
+    }
+
+    /**
+     * Counts the collections and members and reads the managers of all workspaces in one pass.
+     */
+    private static WorkspaceSummaries summarize(Model m, long version) {
+        var totalCollectionCounts = new HashMap<Node, Integer>();
+        var nonDeletedCollectionCounts = new HashMap<Node, Integer>();
+        m.listSubjectsWithProperty(RDF.type, FS.Collection).forEachRemaining(collection -> {
+            var deleted = collection.hasProperty(FS.dateDeleted);
+            collection.listProperties(FS.ownedBy).forEachRemaining(stmt -> {
+                var ws = stmt.getObject().asNode();
+                totalCollectionCounts.merge(ws, 1, Integer::sum);
+                if (!deleted) {
+                    nonDeletedCollectionCounts.merge(ws, 1, Integer::sum);
+                }
+            });
+        });
+
+        var memberCounts = new HashMap<Node, Integer>();
+        m.listStatements(null, FS.isMemberOf, (RDFNode) null)
+                .filterKeep(stmt -> stmt.getSubject().hasProperty(RDF.type, FS.User))
+                .forEachRemaining(stmt -> memberCounts.merge(stmt.getObject().asNode(), 1, Integer::sum));
+
+        var managerIris = new HashMap<Node, List<Node>>();
+        m.listStatements(null, FS.isManagerOf, (RDFNode) null)
+                .filterKeep(stmt -> stmt.getSubject().hasProperty(RDF.type, FS.User))
+                .forEachRemaining(stmt -> managerIris
+                        .computeIfAbsent(stmt.getObject().asNode(), ws -> new ArrayList<>())
+                        .add(stmt.getSubject().asNode()));
+        // Each manager is read once, also if they manage several workspaces
+        var users = new DAO(m)
+                        .readAll(
+                                User.class,
+                                managerIris.values().stream()
+                                        .flatMap(List::stream)
+                                        .distinct()
+                                        .toList())
+                        .stream()
+                        .collect(toMap(User::getIri, u -> u));
+        var managers = new HashMap<Node, List<User>>();
+        managerIris.forEach((ws, iris) -> managers.put(
+                ws, iris.stream().map(users::get).filter(Objects::nonNull).toList()));
+
+        var workspaces = new HashSet<Node>();
+        workspaces.addAll(totalCollectionCounts.keySet());
+        workspaces.addAll(memberCounts.keySet());
+        workspaces.addAll(managers.keySet());
+        var summaries = new HashMap<Node, WorkspaceSummary>();
+        for (var ws : workspaces) {
+            summaries.put(
+                    ws,
+                    WorkspaceSummary.builder()
+                            .totalCollectionCount(totalCollectionCounts.getOrDefault(ws, 0))
+                            .nonDeletedCollectionCount(nonDeletedCollectionCounts.getOrDefault(ws, 0))
+                            .memberCount(memberCounts.getOrDefault(ws, 0)
+                                    + managers.getOrDefault(ws, List.of()).size())
+                            .build());
+        }
+        return new WorkspaceSummaries(version, summaries, managers);
+    }
+
     public Workspace getWorkspace(Node iri) {
         return tx.calculateRead(model -> {
             var ws = new DAO(model).read(Workspace.class, iri);
@@ -0,0 +1,122 @@
+package io.fairspace.saturn.tracing;
+
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+
+/**
+ * A timed operation within a trace, created by the {@link Tracer}, which wraps an OpenTelemetry span.
+ * A span is current on the thread that started it until it is closed, so that spans started meanwhile become its
+ * children. Spans of requests that are not traced are represented by a single no-op span, which records nothing.
+ */
+public class Span implements AutoCloseable {
+    public enum Kind {
+        INTERNAL(SpanKind.INTERNAL),
+        SERVER(SpanKind.SERVER),
+        CLIENT(SpanKind.CLIENT);
+
+        final SpanKind spanKind;
+
+        Kind(SpanKind spanKind) {
+            this.spanKind = spanKind;
+        }
+    }
+
+    static final Span NOOP = new Span(io.opentelemetry.api.trace.Span.getInvalid(), null, false);
+
+    private final io.opentelemetry.api.trace.Span span;
+    private final Scope scope;
+    private final boolean owned;
+
+    private Span(io.opentelemetry.api.trace.Span span, Scope scope, boolean owned) {
+        this.span = span;
+        this.scope = scope;
+        this.owned = owned;
+    }
+
+    /**
+     * Makes a started span current, until it is closed.
+     */
+    static Span current(io.opentelemetry.api.trace.Span span) {
+        return new Span(span, span.makeCurrent(), true);
+    }
+
+    /**
+     * Wraps a span that is ended by its owner.
+     */
+    static Span borrowed(io.opentelemetry.api.trace.Span span) {
+        return new Span(span, null, false);
+    }
+
+    /**
+     * @return true if the span is recorded, false for the no-op span.
+     */
+    public boolean isRecording() {
+        return span.isRecording();
+    }
+
+    public String getTraceId() {
+        return span.getSpanContext().getTraceId();
+    }
+
+    public String getSpanId() {
+        return span.getSpanContext().getSpanId();
+    }
+
+    /**
+     * Adds an attribute, e.g. the number of rows returned by a query.
+     * Values should be strings, numbers or booleans.
+     */
+    public Span attribute(String key, Object value) {
+        if (isRecording() && value != null) {
+            switch (value) {
+                case Long l -> span.setAttribute(key, l);
+                case Integer i -> span.setAttribute(key, i.longValue());
+                case Double d -> span.setAttribute(key, d);
+                case Float f -> span.setAttribute(key, f.doubleValue());
+                case Boolean b -> span.setAttribute(key, b);
+                default -> span.setAttribute(key, value.toString());
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Marks the operation as failed.
+     */
+    public Span error(Throwable error) {
+        if (isRecording()) {
+            span.recordException(error);
+            span.setStatus(
+                    StatusCode.ERROR,
+                    error.getClass().getName() + (error.getMessage() == null ? "" : ": " + error.getMessage()));
+        }
+        return this;
+    }
+
+    /**
+     * @return the context to start the children of this span with on another thread.
+     */
+    Context context() {
+        return Context.root().with(span);
+    }
+
+    /**
+     * Ends the span and makes its parent current again.
+     */
+    @Override
+    public void close() {
+        if (scope != null) {
+            scope.close();
+        }
+        if (owned) {
+            span.end();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return isRecording() ? span.toString() : "noop";
+    }
+}
@@ -0,0 +1,193 @@
+package io.fairspace.saturn.tracing;
+
+import java.util.List;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.TracerProvider;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.propagation.TextMapGetter;
+import io.opentelemetry.exporter.logging.otlp.OtlpJsonLoggingSpanExporter;
+import io.opentelemetry.exporter.otlp.http.trace.OtlpHttpSpanExporter;
+import io.opentelemetry.sdk.resources.Resource;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.export.BatchSpanProcessor;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import lombok.extern.log4j.*;
+
+import io.fairspace.saturn.config.Config;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Records the spans of the requests handled by Saturn with the OpenTelemetry SDK.
+ * <p>
+ * A request is traced if its caller, e.g. Pluto, sent a sampled W3C trace context, or otherwise with the configured
+ * sample ratio. The span of the request is current on the thread handling it, and spans started on that thread
+ * become its descendants. Executors wrapped with {@link Context#taskWrapping} pass the current span on to their
+ * tasks; other work handed over to another thread must pass the span on explicitly, see {@link #span(String, Span)}.
+ * <p>
+ * When tracing is disabled or a request is not traced, all spans are the shared no-op span,
+ * so instrumented code records nothing.
+ */
+@Log4j2
+public class Tracer {
+    public static final String TRACEPARENT = "traceparent";
+
+    private static final String INSTRUMENTATION_SCOPE = "io.fairspace.saturn";
+    private static final AttributeKey<String> SERVICE_NAME = AttributeKey.stringKey("service.name");
+    // Converts System.nanoTime(), which is monotonic, to the time since the epoch
+    private static final long EPOCH_OFFSET_NANOS = System.currentTimeMillis() * 1_000_000 - System.nanoTime();
+
+    private static final TextMapGetter<String> TRACEPARENT_GETTER = new TextMapGetter<>() {
+        @Override
+        public Iterable<String> keys(String traceparent) {
+            return List.of(TRACEPARENT);
+        }
+
+        @Override
+        public String get(String traceparent, String key) {
+            return TRACEPARENT.equals(key) ? traceparent : null;
+        }
+    };
+
+    private static volatile SdkTracerProvider provider;
+    private static volatile io.opentelemetry.api.trace.Tracer tracer =
+            TracerProvider.noop().get(INSTRUMENTATION_SCOPE);
+
+    private Tracer() {}
+
+    /**
+     * Starts tracing with the exporter selected in the configuration, if tracing is enabled.
+     */
+    public static void start(Config.Tracing config) {
+        if (!config.enabled) {
+            return;
+        }
+        var exporter =
+                switch (config.exporter) {
+                    case "otlp" -> OtlpHttpSpanExporter.builder()
+                            .setEndpoint(config.otlpEndpoint)
+                            .build();
+                    case "logging" -> OtlpJsonLoggingSpanExporter.create();
+                    default -> throw new IllegalArgumentException("Unknown span exporter: " + config.exporter);
+                };
+        start(exporter, config.sampleRatio);
+        Runtime.getRuntime().addShutdownHook(new Thread(Tracer::stop, "Tracer shutdown"));
+        log.info("Tracing requests with the {} exporter, sample ratio {}", config.exporter, config.sampleRatio);
+    }
+
+    public static synchronized void start(SpanExporter exporter, double sampleRatio) {
+        stop();
+        provider = SdkTracerProvider.builder()
+                .setResource(Resource.getDefault().merge(Resource.create(Attributes.of(SERVICE_NAME, "saturn"))))
+                // The decision of a caller is followed, requests without a trace context are sampled with the ratio
+                .setSampler(Sampler.parentBased(Sampler.traceIdRatioBased(sampleRatio)))
+                .addSpanProcessor(BatchSpanProcessor.builder(exporter).build())
+                .build();
+        tracer = provider.get(INSTRUMENTATION_SCOPE);
+    }
+
+    /**
+     * Stops tracing, exporting the spans that have not been exported yet.
+     */
+    public static synchronized void stop() {
+        var current = provider;
+        provider = null;
+        tracer = TracerProvider.noop().get(INSTRUMENTATION_SCOPE);
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    /**
+     * Exports the spans that have ended, and waits for the export to complete.
+     */
+    public static void flush() {
+        var current = provider;
+        if (current != null) {
+            current.forceFlush().join(10, SECONDS);
+        }
+    }
+
+    public static boolean isEnabled() {
+        return provider != null;
+    }
+
+    /**
+     * Starts the span of an incoming request and makes it current.
+     *
+     * @param name        the name of the span, e.g. the method and the route of the request.
+     * @param traceparent the W3C trace context of the caller, or null.
+     * @return the span, or the no-op span if the request is not traced.
+     */
+    public static Span startRequest(String name, String traceparent) {
+        if (provider == null) {
+            return Span.NOOP;
+        }
+        var caller = traceparent == null
+                ? Context.root()
+                : W3CTraceContextPropagator.getInstance().extract(Context.root(), traceparent, TRACEPARENT_GETTER);
+        var span = tracer.spanBuilder(name)
+                .setSpanKind(SpanKind.SERVER)
+                .setParent(caller)
+                .startSpan();
+        return span.isRecording() ? Span.current(span) : Span.NOOP;
+    }
+
+    /**
+     * Starts a child of the current span and makes it current.
+     *
+     * @return the span, or the no-op span if there is no current span.
+     */
+    public static Span span(String name) {
+        return span(name, Span.Kind.INTERNAL);
+    }
+
+    /**
+     * Starts a child of the current span of the given kind, e.g. {@link Span.Kind#CLIENT} for a database call,
+     * and makes it current.
+     */
+    public static Span span(String name, Span.Kind kind) {
+        if (!io.opentelemetry.api.trace.Span.current().isRecording()) {
+            return Span.NOOP;
+        }
+        return Span.current(tracer.spanBuilder(name).setSpanKind(kind.spanKind).startSpan());
+    }
+
+    /**
+     * Starts a child of a span that was started on another thread, and makes it current on this thread.
+     */
+    public static Span span(String name, Span parent) {
+        if (!parent.isRecording()) {
+            return Span.NOOP;
+        }
+        return Span.current(tracer.spanBuilder(name).setParent(parent.context()).startSpan());
+    }
+
+    /**
+     * Records a finished child of a span, which started at the given {@link System#nanoTime()} and ends now,
+     * e.g. the time a task waited in a queue. The span does not become current.
+     */
+    public static void record(String name, Span parent, long startNanos) {
+        if (parent.isRecording()) {
+            tracer.spanBuilder(name)
+                    .setParent(parent.context())
+                    .setStartTimestamp(startNanos + EPOCH_OFFSET_NANOS, NANOSECONDS)
+                    .startSpan()
+                    .end();
+        }
+    }
+
+    /**
+     * @return the current span of this thread, or the no-op span. Closing it does not end the span.
+     */
+    public static Span current() {
+        var current = io.opentelemetry.api.trace.Span.current();
+        return current.isRecording() ? Span.borrowed(current) : Span.NOOP;
+    }
+}
@@ -0,0 +1,51 @@
+package io.fairspace.saturn.tracing;
+
+import java.io.IOException;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+
+import static io.fairspace.saturn.tracing.Tracer.TRACEPARENT;
+
+/**
+ * Starts a span for every request, continuing the trace of the caller if the request has a W3C trace context.
+ * The span is named after the method and the route of the request, e.g. <code>GET /api/views</code>,
+ * and is current while the Spark apps, the WebDAV servlet and the SPARQL endpoint handle the request.
+ */
+public class TracingHandler extends HandlerWrapper {
+    @Override
+    public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response)
+            throws IOException, ServletException {
+        try (var span =
+                Tracer.startRequest(request.getMethod() + " " + route(target), request.getHeader(TRACEPARENT))) {
+            if (span.isRecording()) {
+                span.attribute("http.method", request.getMethod()).attribute("url.path", target);
+            }
+            try {
+                super.handle(target, baseRequest, request, response);
+            } catch (IOException | ServletException | RuntimeException e) {
+                span.error(e);
+                throw e;
+            } finally {
+                if (span.isRecording()) {
+                    span.attribute("http.status_code", response.getStatus());
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the first two segments of a path, e.g. <code>/api/webdav</code> for a path of a file,
+     * as the full path would make too many distinct span names.
+     */
+    static String route(String target) {
+        var end = target.indexOf('/', 1);
+        if (end > 0) {
+            end = target.indexOf('/', end + 1);
+        }
+        return end > 0 ? target.substring(0, end) : target;
+    }
+}
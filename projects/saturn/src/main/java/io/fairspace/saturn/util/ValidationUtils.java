@@ -12,4 +12,15 @@ public class ValidationUtils {
     public static void validateIRI(String iri) {
         validate(checkIRI(iri), "Invalid IRI: " + iri);
     }
+
+    public static int parsePositiveInt(String value, String name) {
+        int result;
+        try {
+            result = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Parameter \"" + name + "\" must be a number: " + value);
+        }
+        validate(result > 0, "Parameter \"" + name + "\" must be positive");
+        return result;
+    }
 }
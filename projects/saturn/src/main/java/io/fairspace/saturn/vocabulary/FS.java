@@ -27,6 +27,12 @@ public class FS {
     public static final String VERSIONS_URI = NS + "versions";
     public static final Property versions = createProperty(VERSIONS_URI);
 
+    public static final String VERSION_HISTORY_URI = NS + "versionHistory";
+    public static final Property versionHistory = createProperty(VERSION_HISTORY_URI);
+
+    public static final String VERSION_NUMBER_URI = NS + "versionNumber";
+    public static final Property versionNumber = createProperty(VERSION_NUMBER_URI);
+
     public static final String FILE_VERSION_URI = NS + "FileVersion";
     public static final Resource FileVersion = createResource(FILE_VERSION_URI);
 
@@ -94,6 +100,9 @@ public class FS {
     public static final String MD5_URI = NS + "md5";
     public static final Property md5 = createProperty(MD5_URI);
 
+    public static final String CRC32C_URI = NS + "crc32c";
+    public static final Property crc32c = createProperty(CRC32C_URI);
+
     public static final String CONNECTION_STRING_URI = NS + "connectionString";
     public static final Property connectionString = createProperty(CONNECTION_STRING_URI);
 
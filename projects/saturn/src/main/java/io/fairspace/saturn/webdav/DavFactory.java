@@ -11,6 +11,7 @@ import org.apache.jena.vocabulary.RDF;
 
 import io.fairspace.saturn.services.users.UserService;
 import io.fairspace.saturn.vocabulary.FS;
+import io.fairspace.saturn.webdav.blobstore.BlobReaper;
 import io.fairspace.saturn.webdav.blobstore.BlobStore;
 import io.fairspace.saturn.webdav.resources.*;
 
@@ -26,6 +27,7 @@ import static io.fairspace.saturn.webdav.WebDAVServlet.showDeleted;
 public class DavFactory implements ResourceFactory {
     public final org.apache.jena.rdf.model.Resource rootSubject;
     public final BlobStore store;
+    public final BlobReaper reaper;
     public final UserService userService;
     public final Context context;
     public final RootResource root;
@@ -34,8 +36,18 @@ public class DavFactory implements ResourceFactory {
 
     public DavFactory(
             org.apache.jena.rdf.model.Resource rootSubject, BlobStore store, UserService userService, Context context) {
+        this(rootSubject, store, new BlobReaper(store), userService, context);
+    }
+
+    public DavFactory(
+            org.apache.jena.rdf.model.Resource rootSubject,
+            BlobStore store,
+            BlobReaper reaper,
+            UserService userService,
+            Context context) {
         this.rootSubject = rootSubject;
         this.store = store;
+        this.reaper = reaper;
         this.userService = userService;
         this.context = context;
         var uri = URI.create(rootSubject.getURI());
@@ -65,18 +77,23 @@ public class DavFactory implements ResourceFactory {
     }
 
     public Resource getResource(org.apache.jena.rdf.model.Resource subject, Access access) {
+        return isVisible(subject) ? getResourceByType(subject, access) : null;
+    }
+
+    /**
+     * @return false for resources that are hidden from the current user: deleted resources, unless requested,
+     * moved resources, and files in the extra storage of other users.
+     */
+    public boolean isVisible(org.apache.jena.rdf.model.Resource subject) {
         if (isExtraStoreResource()
                 && subject.hasProperty(RDF.type, FS.File)
                 && !subject.hasProperty(FS.createdBy, currentUserResource())) {
-            return null;
+            return false;
         }
         if (subject.hasProperty(FS.dateDeleted) && !showDeleted()) {
-            return null;
-        }
-        if (subject.hasProperty(FS.movedTo)) {
-            return null;
+            return false;
         }
-        return getResourceByType(subject, access);
+        return !subject.hasProperty(FS.movedTo);
     }
 
     public Resource getResourceByType(org.apache.jena.rdf.model.Resource subject, Access access) {
@@ -0,0 +1,36 @@
+package io.fairspace.saturn.webdav;
+
+import com.google.common.collect.Lists;
+import lombok.extern.log4j.*;
+import org.apache.jena.rdf.model.Resource;
+
+import io.fairspace.saturn.rdf.transactions.Transactions;
+import io.fairspace.saturn.vocabulary.FS;
+import io.fairspace.saturn.webdav.resources.FileVersions;
+
+/**
+ * Converts the versions of files that are stored in an <code>rdf:List</code> to numbered version resources,
+ * see {@link FileVersions}. Runs at startup, in chunks of files per transaction, and does nothing once all files
+ * have been converted.
+ */
+@Log4j2
+public class FileVersionsMigration {
+    private static final int FILES_PER_TRANSACTION = 1_000;
+
+    private FileVersionsMigration() {}
+
+    public static void migrate(Transactions transactions) {
+        var files = transactions.calculateRead(model -> model.listSubjectsWithProperty(FS.versions)
+                .mapWith(Resource::getURI)
+                .toList());
+        if (files.isEmpty()) {
+            return;
+        }
+        log.info("Converting the versions of {} files to numbered versions", files.size());
+        var start = System.currentTimeMillis();
+        for (var chunk : Lists.partition(files, FILES_PER_TRANSACTION)) {
+            transactions.executeWrite(model -> chunk.forEach(iri -> FileVersions.migrate(model.createResource(iri))));
+        }
+        log.info("Converted the versions of {} files in {}ms", files.size(), System.currentTimeMillis() - start);
+    }
+}
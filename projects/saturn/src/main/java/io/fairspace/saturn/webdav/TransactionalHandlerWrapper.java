@@ -13,6 +13,9 @@ import lombok.SneakyThrows;
 
 import io.fairspace.saturn.rdf.transactions.Transactions;
 
+import static io.fairspace.saturn.webdav.WebDAVServlet.discardPostCommitActions;
+import static io.fairspace.saturn.webdav.WebDAVServlet.runPostCommitActions;
+
 class TransactionalHandlerWrapper implements Handler {
     private final Handler wrapped;
     private final Transactions txn;
@@ -31,11 +34,18 @@ class TransactionalHandlerWrapper implements Handler {
     @SneakyThrows
     public void process(HttpManager httpManager, Request request, Response response)
             throws ConflictException, NotAuthorizedException, BadRequestException, NotFoundException {
-        if (request.getMethod().isWrite) {
-            txn.executeWrite(ds -> wrapped.process(httpManager, request, response));
-        } else {
-            txn.executeRead(ds -> wrapped.process(httpManager, request, response));
+        try {
+            if (request.getMethod().isWrite) {
+                txn.executeWrite(ds -> wrapped.process(httpManager, request, response));
+            } else {
+                txn.executeRead(ds -> wrapped.process(httpManager, request, response));
+            }
+        } catch (Throwable e) {
+            // The transaction was aborted; Milton turns the exception into an error response
+            discardPostCommitActions();
+            throw e;
         }
+        runPostCommitActions();
     }
 
     @Override
@@ -20,6 +20,7 @@ import org.apache.jena.rdf.model.Literal;
 import io.fairspace.saturn.rdf.transactions.Transactions;
 import io.fairspace.saturn.webdav.blobstore.BlobInfo;
 import io.fairspace.saturn.webdav.blobstore.BlobStore;
+import io.fairspace.saturn.webdav.blobstore.InsufficientStorageException;
 
 import static io.fairspace.saturn.App.API_PREFIX;
 import static io.fairspace.saturn.auth.RequestContext.getCurrentRequest;
@@ -42,6 +43,7 @@ public class WebDAVServlet extends HttpServlet {
     private static final String TIMESTAMP_ATTRIBUTE = "TIMESTAMP";
     public static final String POST_COMMIT_ACTION_ATTRIBUTE = "POST_COMMIT";
     public static final String ERROR_MESSAGE = "ERROR_MESSAGE";
+    private static final int SC_INSUFFICIENT_STORAGE = 507;
 
     private final HttpManager httpManager;
     private final BlobStore store;
@@ -93,7 +95,14 @@ public class WebDAVServlet extends HttpServlet {
             setThreadlocals(req, res);
 
             switch (req.getMethod().toUpperCase()) {
-                case "PUT" -> req.setAttribute(BLOB_ATTRIBUTE, store.store(req.getInputStream()));
+                case "PUT" -> {
+                    try {
+                        req.setAttribute(BLOB_ATTRIBUTE, store.store(req.getInputStream(), req.getContentLengthLong()));
+                    } catch (InsufficientStorageException e) {
+                        res.setStatus(SC_INSUFFICIENT_STORAGE); // RFC4918:11.5
+                        return;
+                    }
+                }
                 case "MKCOL" -> {
                     try (var in = req.getInputStream()) {
                         if (in.read() >= 0) {
@@ -109,11 +118,6 @@ public class WebDAVServlet extends HttpServlet {
             } catch (RequestParseException e) {
                 throw new IOException(e);
             }
-
-            var postCommitAction = (Runnable) req.getAttribute(POST_COMMIT_ACTION_ATTRIBUTE);
-            if (postCommitAction != null) {
-                postCommitAction.run();
-            }
         } finally {
             clearThreadlocals();
             res.getOutputStream().flush();
@@ -158,6 +162,41 @@ public class WebDAVServlet extends HttpServlet {
         return (String) getCurrentRequest().getAttribute(ERROR_MESSAGE);
     }
 
+    /**
+     * Runs an action after the transaction of the current request is committed, after the actions added before.
+     */
+    public static void afterCommit(Runnable action) {
+        var r = getCurrentRequest();
+        var previous = (Runnable) r.getAttribute(POST_COMMIT_ACTION_ATTRIBUTE);
+        r.setAttribute(
+                POST_COMMIT_ACTION_ATTRIBUTE,
+                previous == null
+                        ? action
+                        : (Runnable) () -> {
+                            previous.run();
+                            action.run();
+                        });
+    }
+
+    /**
+     * Runs the actions added with {@link #afterCommit(Runnable)}, once the transaction is committed.
+     */
+    static void runPostCommitActions() {
+        var r = getCurrentRequest();
+        var action = (Runnable) r.getAttribute(POST_COMMIT_ACTION_ATTRIBUTE);
+        r.removeAttribute(POST_COMMIT_ACTION_ATTRIBUTE);
+        if (action != null) {
+            action.run();
+        }
+    }
+
+    /**
+     * Drops the actions added with {@link #afterCommit(Runnable)}, as the transaction was aborted.
+     */
+    static void discardPostCommitActions() {
+        getCurrentRequest().removeAttribute(POST_COMMIT_ACTION_ATTRIBUTE);
+    }
+
     public static Literal timestampLiteral() {
         var r = getCurrentRequest();
         var t = (Literal) r.getAttribute(TIMESTAMP_ATTRIBUTE);
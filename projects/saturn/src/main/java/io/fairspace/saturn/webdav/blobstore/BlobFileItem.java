@@ -16,7 +16,7 @@ public class BlobFileItem implements FileItem {
 
     public BlobFileItem(FileItem fileItem, BlobStore store) {
         try {
-            blob = store.store(fileItem.getInputStream());
+            blob = store.store(fileItem.getInputStream(), fileItem.getSize());
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -0,0 +1,183 @@
+package io.fairspace.saturn.webdav.blobstore;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.locks.LockSupport;
+
+import io.micrometer.core.instrument.Counter;
+import lombok.Getter;
+import lombok.extern.log4j.*;
+
+import io.fairspace.saturn.config.Config;
+import io.fairspace.saturn.rdf.transactions.Transactions;
+import io.fairspace.saturn.vocabulary.FS;
+
+import static io.fairspace.saturn.metrics.SaturnMetrics.counter;
+
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Deletes orphan blobs: blobs that no file version refers to, e.g. of uploads of which the transaction failed,
+ * or of purged files of which the deletion was lost.
+ * <p>
+ * A run marks the blob ids referred to by <code>fs:blobId</code> in the dataset and then sweeps the directories
+ * of the blob stores. Blobs younger than the grace period are kept, as their upload may not have been committed yet.
+ * Deletions are rate limited, and a dry run only reports the orphans.
+ */
+@Log4j2
+public class BlobGarbageCollector {
+    private static final int SAMPLE_SIZE = 100;
+    private static final Counter DELETED =
+            counter("saturn.blobs.gc.deleted", "Orphan blobs deleted by the garbage collector", "blobs");
+
+    private final Config.BlobGc config;
+    private final Transactions transactions;
+    private final Map<String, LocalBlobStore> stores;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+        var thread = new Thread(task, "Blob garbage collector");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * The report of the latest run, or null
+     */
+    @Getter
+    private volatile BlobGcReport lastReport;
+
+    public BlobGarbageCollector(Config.BlobGc config, Transactions transactions, Map<String, LocalBlobStore> stores) {
+        this.config = config;
+        this.transactions = transactions;
+        this.stores = stores;
+    }
+
+    /**
+     * Schedules the periodic runs, if enabled.
+     */
+    public void start() {
+        if (config.enabled) {
+            scheduler.scheduleWithFixedDelay(() -> run(config.dryRun), config.interval, config.interval, MINUTES);
+            log.info("Collecting orphan blobs every {} minutes, dry run: {}", config.interval, config.dryRun);
+        }
+    }
+
+    /**
+     * Starts a run in the background.
+     */
+    public void submit(boolean dryRun) {
+        scheduler.execute(() -> run(dryRun));
+    }
+
+    private void run(boolean dryRun) {
+        try {
+            collect(dryRun);
+        } catch (Exception e) {
+            log.error("Error collecting orphan blobs", e);
+        }
+    }
+
+    public synchronized BlobGcReport collect(boolean dryRun) throws IOException {
+        var started = Instant.now();
+        var cutoff = started.minusSeconds(MINUTES.toSeconds(config.gracePeriod));
+        Set<String> referenced = transactions.calculateRead(model -> model.listObjectsOfProperty(FS.blobId)
+                .mapWith(id -> id.asLiteral().getString())
+                .toSet());
+        var limiter = new RateLimiter(config.maxDeletionsPerSecond);
+
+        var reports = new ArrayList<BlobGcReport.StoreReport>();
+        for (var entry : stores.entrySet()) {
+            reports.add(sweep(entry.getKey(), entry.getValue(), referenced, cutoff, dryRun, limiter));
+        }
+
+        var report = BlobGcReport.builder()
+                .dryRun(dryRun)
+                .started(started)
+                .durationMillis(System.currentTimeMillis() - started.toEpochMilli())
+                .referenced(referenced.size())
+                .stores(reports)
+                .build();
+        for (var store : reports) {
+            log.info(
+                    "Blob store {}: {} blobs, {} orphans ({} bytes), {} deleted{}",
+                    store.getName(),
+                    store.getBlobs(),
+                    store.getOrphans(),
+                    store.getOrphanBytes(),
+                    store.getDeleted(),
+                    dryRun ? " (dry run)" : "");
+        }
+        lastReport = report;
+        return report;
+    }
+
+    private static BlobGcReport.StoreReport sweep(
+            String name,
+            LocalBlobStore store,
+            Set<String> referenced,
+            Instant cutoff,
+            boolean dryRun,
+            RateLimiter limiter)
+            throws IOException {
+        var orphans = new ArrayList<LocalBlobStore.StoredBlob>();
+        var blobs = new long[2];
+        store.forEachBlob(blob -> {
+            blobs[0]++;
+            blobs[1] += blob.size();
+            if (blob.lastModified().isBefore(cutoff) && !referenced.contains(blob.id())) {
+                orphans.add(blob);
+            }
+        });
+
+        var deleted = 0L;
+        if (!dryRun) {
+            for (var orphan : orphans) {
+                limiter.acquire();
+                if (store.deleteOrphan(orphan.id())) {
+                    deleted++;
+                    DELETED.increment();
+                }
+            }
+        }
+
+        return BlobGcReport.StoreReport.builder()
+                .name(name)
+                .blobs(blobs[0])
+                .bytes(blobs[1])
+                .orphans(orphans.size())
+                .orphanBytes(orphans.stream()
+                        .mapToLong(LocalBlobStore.StoredBlob::size)
+                        .sum())
+                .deleted(deleted)
+                .sample(orphans.stream()
+                        .limit(SAMPLE_SIZE)
+                        .map(LocalBlobStore.StoredBlob::id)
+                        .toList())
+                .build();
+    }
+
+    /**
+     * Spaces out the calls to {@link #acquire()} to a maximum rate.
+     */
+    private static class RateLimiter {
+        private final long interval;
+        private long next = System.nanoTime();
+
+        RateLimiter(int perSecond) {
+            interval = SECONDS.toNanos(1) / Math.max(1, perSecond);
+        }
+
+        void acquire() {
+            var wait = next - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            next = Math.max(next, System.nanoTime()) + interval;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package io.fairspace.saturn.webdav.blobstore;
+
+import java.time.Instant;
+import java.util.List;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * The outcome of a mark-and-sweep of the blob stores.
+ */
+@Value
+@Builder
+public class BlobGcReport {
+    boolean dryRun;
+    Instant started;
+    long durationMillis;
+    /** The number of distinct blobs referred to by file versions */
+    long referenced;
+
+    List<StoreReport> stores;
+
+    @Value
+    @Builder
+    public static class StoreReport {
+        String name;
+        long blobs;
+        long bytes;
+        /** The number of blobs older than the grace period that no file version refers to */
+        long orphans;
+
+        long orphanBytes;
+        long deleted;
+        /** The first orphans found, for inspection */
+        List<String> sample;
+    }
+}
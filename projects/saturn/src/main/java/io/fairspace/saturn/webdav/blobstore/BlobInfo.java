@@ -7,4 +7,10 @@ public class BlobInfo {
     public final String id;
     public final long size;
     public final String md5;
+    /** The CRC-32C checksum of the blob, or null if the store does not compute it */
+    public final String crc32c;
+
+    public BlobInfo(String id, long size, String md5) {
+        this(id, size, md5, null);
+    }
 }
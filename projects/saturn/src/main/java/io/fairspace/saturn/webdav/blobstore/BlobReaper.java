@@ -0,0 +1,112 @@
+package io.fairspace.saturn.webdav.blobstore;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import io.micrometer.core.instrument.Counter;
+import lombok.extern.log4j.*;
+
+import static io.fairspace.saturn.metrics.SaturnMetrics.counter;
+
+/**
+ * Deletes the blobs of purged files on background threads,
+ * so that purging a large directory tree does not keep its transaction open while files are deleted.
+ * Blobs are handed over after the transaction that released them is committed.
+ * <p>
+ * With a queue directory, every batch is recorded in a {@link PendingBlobDeletions} queue before it is deleted,
+ * and the batches that were pending at a restart are deleted when the reaper is created.
+ * Blobs that are lost nevertheless, e.g. when the process stops between the commit and the queueing,
+ * are removed by the {@link BlobGarbageCollector}.
+ */
+@Log4j2
+public class BlobReaper {
+    private static final Counter REAPED =
+            counter("saturn.blobs.reaped", "Blobs deleted after their files were purged", "blobs");
+
+    private final BlobStore store;
+    private final PendingBlobDeletions queue;
+    private final int threads;
+    private final ExecutorService executor;
+
+    public BlobReaper(BlobStore store) {
+        this(store, null, 1);
+    }
+
+    public BlobReaper(BlobStore store, File queueDir, int threads) {
+        this.store = store;
+        this.threads = threads;
+        this.executor = Executors.newFixedThreadPool(threads, task -> {
+            var thread = new Thread(task, "Blob reaper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.queue = queueDir != null ? new PendingBlobDeletions(queueDir) : null;
+        if (queue != null) {
+            resume();
+        }
+    }
+
+    public void reap(Collection<String> ids) {
+        Path batch = null;
+        if (queue != null) {
+            try {
+                batch = queue.add(ids);
+            } catch (IOException e) {
+                log.error("Error queueing {} blobs for deletion", ids.size(), e);
+            }
+        }
+        submit(batch, List.copyOf(ids));
+    }
+
+    private void resume() {
+        try {
+            for (var batch : queue.batches()) {
+                var ids = queue.read(batch);
+                log.info("Resuming the deletion of {} blobs", ids.size());
+                submit(batch, ids);
+            }
+        } catch (IOException e) {
+            log.error("Error reading the pending blob deletions", e);
+        }
+    }
+
+    /**
+     * Deletes the blobs of a batch, split between the threads, and then removes the batch from the queue.
+     */
+    private void submit(Path batch, List<String> ids) {
+        var size = Math.max(1, (ids.size() + threads - 1) / threads);
+        var tasks = new ArrayList<CompletableFuture<Void>>();
+        for (var i = 0; i < ids.size(); i += size) {
+            var part = ids.subList(i, Math.min(i + size, ids.size()));
+            tasks.add(CompletableFuture.runAsync(() -> part.forEach(this::delete), executor));
+        }
+        CompletableFuture.allOf(tasks.toArray(CompletableFuture[]::new)).thenRun(() -> {
+            if (batch != null) {
+                try {
+                    queue.remove(batch);
+                } catch (IOException e) {
+                    log.error("Error removing the deleted blobs from the queue", e);
+                }
+            }
+        });
+    }
+
+    private void delete(String id) {
+        try {
+            if (store.delete(id)) {
+                REAPED.increment();
+            } else {
+                log.warn("Blob {} was not found", id);
+            }
+        } catch (Exception e) {
+            log.error("Error deleting blob {}", id, e);
+        }
+    }
+}
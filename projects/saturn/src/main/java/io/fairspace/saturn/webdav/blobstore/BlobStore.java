@@ -33,6 +33,15 @@ public interface BlobStore {
         }
     }
 
+    /**
+     * Stores a blob of which the size is known in advance, e.g. from the Content-Length of a request.
+     *
+     * @param expectedSize the size of the blob, or -1 if unknown
+     */
+    default BlobInfo store(InputStream in, long expectedSize) throws IOException {
+        return store(in);
+    }
+
     default boolean delete(String id) throws IOException {
         throw new RuntimeException("Cannot delete blob from read-only blob store");
     }
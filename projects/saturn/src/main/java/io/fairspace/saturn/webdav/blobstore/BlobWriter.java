@@ -0,0 +1,224 @@
+package io.fairspace.saturn.webdav.blobstore;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32C;
+
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.log4j.*;
+
+import io.fairspace.saturn.config.Config;
+
+import static io.fairspace.saturn.metrics.SaturnMetrics.timer;
+
+import static java.lang.String.format;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.apache.commons.codec.binary.Hex.encodeHexString;
+
+/**
+ * Writes blobs to files through a {@link FileChannel} with large direct buffers,
+ * and syncs them to disk according to the configured durability.
+ * <p>
+ * Two buffers are used in turn. The checksums of a buffer are computed on a hashing thread
+ * while the buffer is written to disk and the next one is read from the stream,
+ * so hashing adds little to the time of an upload. Direct buffers are expensive to allocate and are pooled.
+ * <p>
+ * With FSYNC durability a blob and its directory are synced before the upload completes,
+ * so that the metadata committed afterwards never refers to a blob that a crash can lose.
+ * With BATCHED durability the blobs written in the last <code>syncInterval</code> are synced together
+ * on a background thread, which keeps the throughput of bulk loads at the risk of losing these blobs in a crash.
+ */
+@Log4j2
+class BlobWriter {
+    private static final int POOLED_BUFFERS = 16;
+    private static final Timer SYNC_TIMER = timer("saturn.blobs.sync.time", "Time to sync blobs to disk");
+
+    private final Config.BlobWrite config;
+    private final BlockingQueue<ByteBuffer> buffers = new ArrayBlockingQueue<>(POOLED_BUFFERS);
+    private final ExecutorService hashing;
+    private final Set<Path> unsynced = ConcurrentHashMap.newKeySet();
+
+    BlobWriter(Config.BlobWrite config) {
+        this.config = config;
+        this.hashing = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), task -> {
+            var thread = new Thread(task, "Blob hashing");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (config.durability == Config.BlobWrite.Durability.BATCHED) {
+            var syncer = Executors.newSingleThreadScheduledExecutor(task -> {
+                var thread = new Thread(task, "Blob sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            syncer.scheduleWithFixedDelay(this::syncPending, config.syncInterval, config.syncInterval, MILLISECONDS);
+        }
+    }
+
+    record Written(long size, String md5, String crc32c) {}
+
+    /**
+     * Fails if a blob of the given size does not fit on the disk of a directory.
+     * Java cannot preallocate the space of a file, as <code>fallocate</code> does,
+     * so an upload of a known size is rejected before anything is written instead.
+     */
+    void checkFreeSpace(Path dir, long size) throws IOException {
+        if (!config.checkFreeSpace || size <= 0) {
+            return;
+        }
+        var available = Files.getFileStore(dir).getUsableSpace();
+        if (available < size) {
+            throw new InsufficientStorageException(
+                    format("Cannot store a blob of %d bytes, only %d bytes are available", size, available));
+        }
+    }
+
+    /**
+     * Copies a stream to a file.
+     *
+     * @return the number of bytes written and their checksums
+     */
+    Written write(InputStream in, FileChannel out) throws IOException {
+        var md5 = md5();
+        var crc32c = config.crc32c ? new CRC32C() : null;
+        var source = Channels.newChannel(in);
+        var chunks = new ByteBuffer[] {take(), take()};
+        var hashed = new CompletableFuture<?>[] {
+            CompletableFuture.completedFuture(null), CompletableFuture.completedFuture(null)
+        };
+        CompletableFuture<?> last = hashed[0];
+        var size = 0L;
+        try {
+            for (var i = 0; ; i ^= 1) {
+                // The buffer can be reused once its checksums are computed
+                hashed[i].join();
+                var chunk = chunks[i].clear();
+                if (!fill(source, chunk)) {
+                    break;
+                }
+                chunk.flip();
+                size += chunk.remaining();
+                var view = chunk.duplicate();
+                // Checksums are updated in the order of the chunks
+                last = hashed[i] = last.thenRunAsync(
+                        () -> {
+                            md5.update(view.duplicate());
+                            if (crc32c != null) {
+                                crc32c.update(view);
+                            }
+                        },
+                        hashing);
+                while (chunk.hasRemaining()) {
+                    out.write(chunk);
+                }
+            }
+        } finally {
+            last.join();
+            release(chunks);
+        }
+        return new Written(
+                size, encodeHexString(md5.digest()), crc32c != null ? format("%08x", crc32c.getValue()) : null);
+    }
+
+    /**
+     * Syncs a written file to disk, or schedules it to be synced, as the durability requires.
+     */
+    void sync(Path file, FileChannel channel) throws IOException {
+        switch (config.durability) {
+            case NONE -> {}
+            case FSYNC -> {
+                var start = System.nanoTime();
+                channel.force(true);
+                syncDirectory(file.getParent());
+                SYNC_TIMER.record(System.nanoTime() - start, NANOSECONDS);
+            }
+            case BATCHED -> unsynced.add(file);
+        }
+    }
+
+    /**
+     * Syncs the files written since the last sync, and their directories.
+     */
+    private void syncPending() {
+        if (unsynced.isEmpty()) {
+            return;
+        }
+        var start = System.nanoTime();
+        var directories = new HashSet<Path>();
+        for (var it = unsynced.iterator(); it.hasNext(); ) {
+            var file = it.next();
+            it.remove();
+            try (var channel = FileChannel.open(file, READ)) {
+                channel.force(true);
+                directories.add(file.getParent());
+            } catch (NoSuchFileException e) {
+                // deleted in the meantime
+            } catch (Exception e) {
+                log.error("Error syncing blob {}", file, e);
+            }
+        }
+        directories.forEach(BlobWriter::syncDirectory);
+        SYNC_TIMER.record(System.nanoTime() - start, NANOSECONDS);
+    }
+
+    /**
+     * Syncs the entries of a directory, so that a new file in it survives a crash.
+     * Not every platform can open a directory; the file data is synced nevertheless.
+     */
+    private static void syncDirectory(Path dir) {
+        try (var channel = FileChannel.open(dir, READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            log.debug("Cannot sync directory {}", dir, e);
+        }
+    }
+
+    /**
+     * Reads from a channel until a buffer is full or the channel is exhausted.
+     *
+     * @return false if nothing was read
+     */
+    private static boolean fill(ReadableByteChannel source, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining() && source.read(buffer) >= 0) {}
+        return buffer.position() > 0;
+    }
+
+    private ByteBuffer take() {
+        var buffer = buffers.poll();
+        return buffer != null ? buffer : ByteBuffer.allocateDirect(config.bufferSize);
+    }
+
+    private void release(ByteBuffer[] chunks) {
+        for (var chunk : chunks) {
+            // Buffers beyond the size of the pool are left to the garbage collector
+            buffers.offer(chunk);
+        }
+    }
+
+    private static MessageDigest md5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -2,17 +2,19 @@ package io.fairspace.saturn.webdav.blobstore;
 
 import java.io.*;
 
-public class DeletableLocalBlobStore extends LocalBlobStore {
+import io.fairspace.saturn.config.Config;
 
-    private final File dir;
+public class DeletableLocalBlobStore extends LocalBlobStore {
 
     public DeletableLocalBlobStore(File dir) {
         super(dir);
-        this.dir = dir;
+    }
+
+    public DeletableLocalBlobStore(File dir, Config.BlobWrite config) {
+        super(dir, config);
     }
 
     public boolean delete(String id) throws IOException {
-        var dest = new File(dir, id);
-        return dest.delete();
+        return deleteFile(id);
     }
 }
@@ -0,0 +1,12 @@
+package io.fairspace.saturn.webdav.blobstore;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a blob does not fit on the disk of a blob store.
+ */
+public class InsufficientStorageException extends IOException {
+    public InsufficientStorageException(String message) {
+        super(message);
+    }
+}
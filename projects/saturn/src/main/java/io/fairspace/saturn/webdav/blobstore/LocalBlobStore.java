@@ -1,46 +1,280 @@
 package io.fairspace.saturn.webdav.blobstore;
 
 import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.util.function.Consumer;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
 import io.milton.common.RangeUtils;
 import io.milton.http.Range;
+import lombok.extern.log4j.*;
+import org.apache.commons.io.output.CountingOutputStream;
 
+import io.fairspace.saturn.config.Config;
+import io.fairspace.saturn.tracing.Tracer;
+
+import static io.fairspace.saturn.metrics.SaturnMetrics.counter;
+import static io.fairspace.saturn.metrics.SaturnMetrics.timer;
+
+import static java.lang.String.format;
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.WRITE;
 import static java.util.UUID.randomUUID;
-import static org.apache.commons.io.IOUtils.copyLarge;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
+/**
+ * Stores blobs as files in a directory, fanned out over two levels of 256 shard directories
+ * by a hash of the blob id: <code>&lt;dir&gt;/3f/a0/&lt;id&gt;</code>.
+ * This keeps directories small with millions of blobs, which matters for lookups, listings and backups.
+ * <p>
+ * Blobs written before were stored directly in the directory. They are still found,
+ * and {@link #migrateToShards()} moves them to their shards while the store is in use.
+ * Lookups check the shard, then the legacy path, and then the shard again, so that a blob being moved is found.
+ * <p>
+ * Blobs are written and synced to disk by a {@link BlobWriter}, which computes their checksums on the way.
+ */
+@Log4j2
 public class LocalBlobStore implements BlobStore {
+    private static final Timer WRITE_TIMER = timer("saturn.blobs.write.time", "Time to write a blob");
+    private static final Timer READ_TIMER = timer("saturn.blobs.read.time", "Time to read a blob");
+    private static final Counter BYTES_WRITTEN = counter("saturn.blobs.written", "Bytes written to blobs", "bytes");
+    private static final Counter BYTES_READ = counter("saturn.blobs.read", "Bytes read from blobs", "bytes");
+    private static final Counter MIGRATED =
+            counter("saturn.blobs.migrated", "Blobs moved from the flat layout to shard directories", "blobs");
+
     private final File dir;
+    private final BlobWriter writer;
 
     public LocalBlobStore(File dir) {
+        this(dir, new Config.BlobWrite());
+    }
+
+    public LocalBlobStore(File dir, Config.BlobWrite config) {
         this.dir = dir;
+        this.writer = new BlobWriter(config);
         if (!dir.exists() && !dir.mkdirs()) {
             throw new RuntimeException("Cannot initialize the local blob store");
         }
     }
 
+    /**
+     * @return the shard path of a blob, e.g. <code>3f/a0/&lt;id&gt;</code>.
+     */
+    static String shardPath(String id) {
+        var hash = id.hashCode();
+        hash ^= hash >>> 16;
+        return format("%02x/%02x/%s", (hash >>> 8) & 0xff, hash & 0xff, id);
+    }
+
+    private File shardFile(String id) {
+        return new File(dir, shardPath(id));
+    }
+
+    private File legacyFile(String id) {
+        return new File(dir, id);
+    }
+
+    /**
+     * @return the file of a blob, in its shard or at the legacy path, or in its shard if it does not exist.
+     */
+    private File find(String id) {
+        var file = shardFile(id);
+        if (file.exists()) {
+            return file;
+        }
+        var legacy = legacyFile(id);
+        if (legacy.exists()) {
+            return legacy;
+        }
+        // The blob may have been moved to its shard in the meantime
+        return file;
+    }
+
     @Override
     public String write(InputStream in) throws IOException {
-        var id = randomUUID().toString();
-        var dest = new File(dir, id);
-        while (dest.exists()) {
-            // The chance that this happens is zero, but we need to guarantee uniqueness.
-            id = randomUUID().toString();
-            dest = new File(dir, id);
-        }
-        try (var out = new BufferedOutputStream(new FileOutputStream(dest))) {
-            copyLarge(in, out);
-        } catch (IOException e) {
-            dest.delete();
-            throw e;
+        return store(in).id;
+    }
+
+    @Override
+    public BlobInfo store(InputStream in) throws IOException {
+        return store(in, -1);
+    }
+
+    @Override
+    public BlobInfo store(InputStream in, long expectedSize) throws IOException {
+        var startTime = System.nanoTime();
+        writer.checkFreeSpace(dir.toPath(), expectedSize);
+        while (true) {
+            var id = randomUUID().toString();
+            var dest = shardFile(id).toPath();
+            if (legacyFile(id).exists()) {
+                // The chance that this happens is zero, but we need to guarantee uniqueness.
+                continue;
+            }
+            Files.createDirectories(dest.getParent());
+            FileChannel channel;
+            try {
+                channel = FileChannel.open(dest, CREATE_NEW, WRITE);
+            } catch (FileAlreadyExistsException e) {
+                continue;
+            }
+            BlobWriter.Written written;
+            try (var span = Tracer.span("blob.write");
+                    channel) {
+                written = writer.write(in, channel);
+                writer.sync(dest, channel);
+                BYTES_WRITTEN.increment(written.size());
+                if (span.isRecording()) {
+                    span.attribute("blob.size", written.size());
+                }
+            } catch (IOException e) {
+                Files.deleteIfExists(dest);
+                throw e;
+            }
+            WRITE_TIMER.record(System.nanoTime() - startTime, NANOSECONDS);
+            return new BlobInfo(id, written.size(), written.md5(), written.crc32c());
         }
-        return id;
     }
 
     @Override
     public void read(String id, OutputStream out, long start, Long finish) throws IOException {
-        var src = new File(dir, id);
-        try (var in = new BufferedInputStream(new FileInputStream(src))) {
-            RangeUtils.writeRange(in, new Range(start, finish), out);
+        var startTime = System.nanoTime();
+        var counter = new CountingOutputStream(out);
+        try (var span = Tracer.span("blob.read");
+                var in = new BufferedInputStream(open(id))) {
+            RangeUtils.writeRange(in, new Range(start, finish), counter);
+            if (span.isRecording()) {
+                span.attribute("blob.size", counter.getByteCount());
+            }
+        } finally {
+            BYTES_READ.increment(counter.getByteCount());
         }
+        READ_TIMER.record(System.nanoTime() - startTime, NANOSECONDS);
     }
+
+    private InputStream open(String id) throws IOException {
+        try {
+            return new FileInputStream(find(id));
+        } catch (FileNotFoundException e) {
+            // Moved to its shard between the lookup and opening; an open file can be moved
+            return new FileInputStream(find(id));
+        }
+    }
+
+    /**
+     * Deletes the file of a blob, wherever it is.
+     */
+    protected boolean deleteFile(String id) {
+        return find(id).delete() || find(id).delete();
+    }
+
+    /**
+     * Calls an action for every blob in the store, in its shard or at the legacy path,
+     * without keeping the list of blobs in memory.
+     */
+    public void forEachBlob(Consumer<StoredBlob> action) throws IOException {
+        try (var entries = Files.newDirectoryStream(dir.toPath())) {
+            for (var entry : entries) {
+                if (isShard(entry)) {
+                    try (var subshards = Files.newDirectoryStream(entry, LocalBlobStore::isShard)) {
+                        for (var subshard : subshards) {
+                            try (var files = Files.newDirectoryStream(subshard)) {
+                                for (var file : files) {
+                                    accept(file, action);
+                                }
+                            }
+                        }
+                    }
+                } else {
+                    accept(entry, action);
+                }
+            }
+        }
+    }
+
+    private static boolean isShard(Path path) {
+        return path.getFileName().toString().length() == 2 && Files.isDirectory(path);
+    }
+
+    private static void accept(Path file, Consumer<StoredBlob> action) throws IOException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return; // deleted or moved in the meantime
+        }
+        if (attributes.isRegularFile()) {
+            action.accept(new StoredBlob(
+                    file.getFileName().toString(),
+                    attributes.size(),
+                    attributes.lastModifiedTime().toInstant()));
+        }
+    }
+
+    /**
+     * Deletes a blob that no file version refers to.
+     * Unlike {@link #delete(String)}, this is allowed in a store that keeps the blobs of its files,
+     * as nobody can read such a blob anymore.
+     */
+    public boolean deleteOrphan(String id) {
+        return deleteFile(id);
+    }
+
+    /**
+     * Moves the blobs at legacy paths to their shards. The store can be used meanwhile.
+     *
+     * @return the number of blobs moved
+     */
+    public long migrateToShards() throws IOException {
+        var moved = 0L;
+        try (var entries = Files.newDirectoryStream(dir.toPath(), Files::isRegularFile)) {
+            for (var entry : entries) {
+                var id = entry.getFileName().toString();
+                var dest = shardFile(id).toPath();
+                Files.createDirectories(dest.getParent());
+                try {
+                    // Unlike a rename, a link never replaces an existing blob in the shard.
+                    // Neither affects reads of the open file.
+                    Files.createLink(dest, entry);
+                    Files.delete(entry);
+                    moved++;
+                    MIGRATED.increment();
+                } catch (FileAlreadyExistsException e) {
+                    log.warn("Blob {} exists both in its shard and at the legacy path", id);
+                } catch (NoSuchFileException e) {
+                    // deleted in the meantime
+                }
+            }
+        }
+        return moved;
+    }
+
+    /**
+     * Runs {@link #migrateToShards()} on a background thread.
+     */
+    public void startShardMigration() {
+        var thread = new Thread(
+                () -> {
+                    try {
+                        var moved = migrateToShards();
+                        if (moved > 0) {
+                            log.info("Moved {} blobs in {} to shard directories", moved, dir);
+                        }
+                    } catch (Exception e) {
+                        log.error("Error moving the blobs in {} to shard directories", dir, e);
+                    }
+                },
+                "Blob shard migration");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public record StoredBlob(String id, long size, Instant lastModified) {}
 }
@@ -0,0 +1,77 @@
+package io.fairspace.saturn.webdav.blobstore;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.UUID.randomUUID;
+
+/**
+ * A durable queue of blobs to be deleted.
+ * Every batch of blob ids is written to a file of its own, which is synced to disk before the batch is deleted
+ * and removed when all its blobs are deleted, so that the blobs of a batch are still deleted after a restart.
+ */
+class PendingBlobDeletions {
+    private static final String EXTENSION = ".pending";
+
+    private final Path dir;
+
+    PendingBlobDeletions(File dir) {
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new RuntimeException("Cannot initialize the queue of pending blob deletions");
+        }
+        this.dir = dir.toPath();
+    }
+
+    Path add(Collection<String> ids) throws IOException {
+        var name = randomUUID().toString();
+        var temp = dir.resolve(name + ".tmp");
+        try (var channel = FileChannel.open(temp, CREATE_NEW, WRITE)) {
+            var buffer = ByteBuffer.wrap(String.join("\n", ids).getBytes(UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        // A batch is either complete or absent
+        var batch = dir.resolve(name + EXTENSION);
+        Files.move(temp, batch, ATOMIC_MOVE);
+        return batch;
+    }
+
+    /**
+     * @return the batches that were not completely deleted, removing incomplete batch files.
+     */
+    List<Path> batches() throws IOException {
+        try (var files = Files.list(dir)) {
+            var all = files.toList();
+            for (var file : all) {
+                if (!file.toString().endsWith(EXTENSION)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            return all.stream()
+                    .filter(file -> file.toString().endsWith(EXTENSION))
+                    .toList();
+        }
+    }
+
+    List<String> read(Path batch) throws IOException {
+        return Files.readAllLines(batch, UTF_8).stream()
+                .filter(id -> !id.isEmpty())
+                .toList();
+    }
+
+    void remove(Path batch) throws IOException {
+        Files.deleteIfExists(batch);
+    }
+}
@@ -109,9 +109,6 @@ public abstract class BaseResource
                 throw new NotAuthorizedException(
                         "Not authorized to purge the extra store root directory.", this, SC_FORBIDDEN);
             }
-            if (subject.hasProperty(RDF.type, FS.File)) {
-                ((FileResource) factory.getResource(subject)).deleteContent();
-            }
             purge = true;
         } else {
             purge = subject.hasProperty(FS.dateDeleted);
@@ -128,12 +125,15 @@ public abstract class BaseResource
         }
     }
 
+    /**
+     * Marks the resource and its visible descendants as deleted, or purges them.
+     * The blobs of files purged from the extra storage are deleted after the transaction is committed.
+     */
     protected void delete(boolean purge) throws ConflictException, BadRequestException {
-        if (purge) {
-            subject.getModel().removeAll(subject, null, null).removeAll(null, null, subject);
-        } else if (!subject.hasProperty(FS.dateDeleted)) {
-            subject.addProperty(FS.dateDeleted, timestampLiteral())
-                    .addProperty(FS.deletedBy, factory.currentUserResource());
+        var tree = TreeOperations.collect(subject, factory::isVisible);
+        var blobs = TreeOperations.delete(tree, purge, factory.currentUserResource(), timestampLiteral());
+        if (factory.isExtraStoreResource() && !blobs.isEmpty()) {
+            afterCommit(() -> factory.reaper.reap(blobs));
         }
     }
 
@@ -158,57 +158,11 @@ public abstract class BaseResource
             name = name.trim();
         }
         validateTarget(parent, name);
-        move(subject, (parent instanceof DirectoryResource) ? ((DirectoryResource) parent).subject : null, name, true);
-    }
-
-    private void move(Resource subject, Resource parent, String name, boolean isTop) {
-        var newSubject = childSubject(parent != null ? parent : factory.rootSubject, name);
-        newSubject.removeProperties().addProperty(RDFS.label, name);
-        if (parent != null) {
-            newSubject.addProperty(FS.belongsTo, parent);
-        }
-
-        subject.listProperties()
-                .filterDrop(stmt -> stmt.getPredicate().equals(RDFS.label))
-                .filterDrop(stmt -> stmt.getPredicate().equals(FS.belongsTo))
-                .filterDrop(stmt -> stmt.getPredicate().equals(FS.versions))
-                .toSet() // convert to set, to prevent updating a model while iterating over its elements
-                .forEach(stmt -> newSubject.addProperty(stmt.getPredicate(), stmt.getObject()));
-
-        var versions = getListProperty(subject, FS.versions);
-
-        if (versions != null) {
-            var newVersions = subject.getModel()
-                    .createList(versions.iterator().mapWith(RDFNode::asResource).mapWith(BaseResource::copyVersion));
-            newSubject.addProperty(FS.versions, newVersions);
-        }
-
-        subject.getModel()
-                .listSubjectsWithProperty(FS.belongsTo, subject)
-                .toSet() // convert to set, to prevent updating a model while iterating over its elements
-                .forEach(r -> move(r, newSubject, getStringProperty(r, RDFS.label), false));
-
-        subject.getModel()
-                .listStatements(null, null, subject)
-                .filterDrop(stmt -> stmt.getPredicate().equals(FS.belongsTo))
-                .toSet() // convert to set, to prevent updating a model while iterating over its elements
-                .forEach(stmt -> stmt.getSubject().addProperty(stmt.getPredicate(), newSubject));
-
-        subject.getModel().removeAll(subject, null, null).removeAll(null, null, subject);
-
-        subject.addProperty(FS.movedTo, newSubject);
-
-        if (isTop) {
-            updateParents(subject);
-            updateParents(newSubject);
-        }
-    }
-
-    private static Resource copyVersion(Resource ver) {
-        var newVer = ver.getModel().createResource();
-        copyProperties(
-                ver.asResource(), newVer, RDF.type, FS.dateModified, FS.deletedBy, FS.fileSize, FS.blobId, FS.md5);
-        return newVer;
+        var parentSubject = (parent instanceof DirectoryResource) ? ((DirectoryResource) parent).subject : null;
+        var target = childSubject(parentSubject != null ? parentSubject : factory.rootSubject, name);
+        updateParents(subject);
+        TreeOperations.move(subject, target, parentSubject, name);
+        updateParents(target);
     }
 
     @Override
@@ -220,43 +174,11 @@ public abstract class BaseResource
         if (name != null) {
             name = name.trim();
         }
-        copy(subject, ((DirectoryResource) parent).subject, name, factory.currentUserResource(), timestampLiteral());
-    }
-
-    private void copy(Resource subject, Resource parent, String name, Resource user, Literal date) {
-        var newSubject = childSubject(parent, name);
-        newSubject.removeProperties();
-        newSubject.addProperty(FS.belongsTo, parent);
-        newSubject
-                .addProperty(RDFS.label, name)
-                .addProperty(FS.dateCreated, date)
-                .addProperty(FS.createdBy, user);
-
-        copyProperties(subject, newSubject, RDF.type, FS.contentType);
-
-        if (subject.hasProperty(FS.versions)) {
-            var src = getListProperty(subject, FS.versions).getHead().asResource();
-
-            var ver = newSubject
-                    .getModel()
-                    .createResource()
-                    .addProperty(RDF.type, FS.FileVersion)
-                    .addProperty(FS.modifiedBy, user)
-                    .addProperty(FS.dateModified, date);
-
-            copyProperties(src, ver, FS.blobId, FS.fileSize, FS.md5);
-
-            newSubject
-                    .addLiteral(FS.currentVersion, 1)
-                    .addProperty(FS.versions, newSubject.getModel().createList(ver));
-        }
-        subject.getModel()
-                .listSubjectsWithProperty(FS.belongsTo, subject)
-                .toSet() // convert to set, to prevent updating a model while iterating over its elements
-                .forEach(r -> copy(r, newSubject, getStringProperty(r, RDFS.label), user, date));
-
+        var parentSubject = ((DirectoryResource) parent).subject;
+        var target = childSubject(parentSubject, name);
+        TreeOperations.copy(subject, target, parentSubject, name, factory.currentUserResource(), timestampLiteral());
         updateParents(subject);
-        updateParents(newSubject);
+        updateParents(target);
     }
 
     @Override
@@ -354,16 +276,20 @@ public abstract class BaseResource
         return subject.getURI().substring(factory.rootSubject.getURI().length());
     }
 
-    protected Resource newVersion(BlobInfo blob) {
+    /**
+     * Adds a version with the given content to a file.
+     */
+    protected void addVersion(Resource file, BlobInfo blob) {
         updateParents(subject);
-        return subject.getModel()
-                .createResource()
-                .addProperty(RDF.type, FS.FileVersion)
+        var version = FileVersions.addVersion(file)
                 .addProperty(FS.blobId, blob.id)
                 .addLiteral(FS.fileSize, blob.size)
                 .addProperty(FS.md5, blob.md5)
                 .addProperty(FS.dateModified, timestampLiteral())
                 .addProperty(FS.modifiedBy, factory.currentUserResource());
+        if (blob.crc32c != null) {
+            version.addProperty(FS.crc32c, blob.crc32c);
+        }
     }
 
     protected static void updateParents(Resource subject) {
@@ -417,18 +343,7 @@ public abstract class BaseResource
         }
         var date = subject.getProperty(FS.dateDeleted).getLiteral();
         var user = subject.getProperty(FS.deletedBy).getResource();
-        undelete(subject, date, user);
+        TreeOperations.undelete(subject, date, user);
         updateParents(subject);
     }
-
-    private void undelete(Resource resource, Literal date, Resource user) {
-        if (resource.hasProperty(FS.deletedBy, user) && resource.hasProperty(FS.dateDeleted, date)) {
-            resource.removeAll(FS.dateDeleted).removeAll(FS.deletedBy);
-
-            resource.getModel()
-                    .listSubjectsWithProperty(FS.belongsTo, resource)
-                    .toSet() // convert to set, to prevent updating a model while iterating over its elements
-                    .forEach(r -> undelete(r, date, user));
-        }
-    }
 }
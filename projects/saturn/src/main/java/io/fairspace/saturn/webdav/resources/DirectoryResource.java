@@ -21,12 +21,14 @@ import io.milton.resource.DeletableCollectionResource;
 import io.milton.resource.FolderResource;
 import io.milton.resource.Resource;
 import org.apache.commons.csv.CSVFormat;
+import org.apache.jena.graph.Node;
 import org.apache.jena.rdf.model.RDFNode;
 import org.apache.jena.rdf.model.Statement;
 import org.apache.jena.shacl.vocabulary.SHACLM;
 import org.apache.jena.vocabulary.RDF;
 import org.apache.jena.vocabulary.RDFS;
 
+import io.fairspace.saturn.services.metadata.LabelIndex;
 import io.fairspace.saturn.services.metadata.MetadataService;
 import io.fairspace.saturn.services.metadata.validation.ValidationException;
 import io.fairspace.saturn.vocabulary.FS;
@@ -38,6 +40,7 @@ import io.fairspace.saturn.webdav.blobstore.BlobInfo;
 
 import static io.fairspace.saturn.config.Services.METADATA_SERVICE;
 import static io.fairspace.saturn.rdf.ModelUtils.getStringProperty;
+import static io.fairspace.saturn.services.metadata.LabelIndex.LABEL_INDEX;
 import static io.fairspace.saturn.vocabulary.Vocabularies.VOCABULARY;
 import static io.fairspace.saturn.webdav.DavFactory.childSubject;
 import static io.fairspace.saturn.webdav.PathUtils.*;
@@ -83,10 +86,8 @@ public class DirectoryResource extends BaseResource implements FolderResource, D
 
     private Resource createNew(String name, BlobInfo blob, String contentType)
             throws NotAuthorizedException, ConflictException, BadRequestException {
-        var subj = createResource(name)
-                .addProperty(RDF.type, FS.File)
-                .addLiteral(FS.currentVersion, 1)
-                .addProperty(FS.versions, subject.getModel().createList(newVersion(blob)));
+        var subj = createResource(name).addProperty(RDF.type, FS.File);
+        addVersion(subj, blob);
 
         if (contentType != null) {
             subj.addProperty(FS.contentType, contentType);
@@ -139,14 +140,6 @@ public class DirectoryResource extends BaseResource implements FolderResource, D
                 .toList();
     }
 
-    @Override
-    public void delete(boolean purge) throws ConflictException, BadRequestException {
-        for (var child : getChildren()) {
-            ((BaseResource) child).delete(purge);
-        }
-        super.delete(purge);
-    }
-
     @Override
     public void sendContent(OutputStream out, Range range, Map<String, String> params, String contentType)
             throws IOException, NotAuthorizedException, BadRequestException, NotFoundException {}
@@ -326,10 +319,7 @@ public class DirectoryResource extends BaseResource implements FolderResource, D
 
                         for (var value : values) {
                             if (class_ != null) {
-                                var object = subject.getModel()
-                                        .listResourcesWithProperty(RDF.type, class_)
-                                        .filterKeep(r -> r.getURI().equals(value) || r.hasProperty(RDFS.label, value))
-                                        .toList();
+                                var object = findObjects(class_, value);
                                 if (object.size() == 1) {
                                     model.add(s, property, object.get(0));
                                 } else if (object.size() > 1) {
@@ -393,4 +383,29 @@ public class DirectoryResource extends BaseResource implements FolderResource, D
             throw new BadRequestException("Error applying metadata", e);
         }
     }
+
+    /**
+     * @return the resources of the class with the IRI or label.
+     */
+    private List<org.apache.jena.rdf.model.Resource> findObjects(
+            org.apache.jena.rdf.model.Resource class_, String value) {
+        var model = subject.getModel();
+        LabelIndex labelIndex = factory.context.get(LABEL_INDEX);
+        if (labelIndex == null || !LabelIndex.isIndexed(class_.asNode())) {
+            return model.listResourcesWithProperty(RDF.type, class_)
+                    .filterKeep(r -> r.getURI().equals(value) || r.hasProperty(RDFS.label, value))
+                    .toList();
+        }
+        var objects = new LinkedHashSet<org.apache.jena.rdf.model.Resource>();
+        var resource = model.createResource(value);
+        if (resource.hasProperty(RDF.type, class_)) {
+            objects.add(resource);
+        }
+        labelIndex.find(class_.asNode(), value).stream()
+                .filter(Node::isURI)
+                .map(model::wrapAsResource)
+                .filter(r -> r.hasProperty(RDF.type, class_) && r.hasProperty(RDFS.label, value))
+                .forEach(objects::add);
+        return List.copyOf(objects);
+    }
 }
@@ -17,7 +17,6 @@ import io.milton.http.exceptions.NotFoundException;
 import io.milton.resource.ReplaceableResource;
 import lombok.SneakyThrows;
 import org.apache.jena.rdf.model.Resource;
-import org.apache.jena.vocabulary.RDF;
 
 import io.fairspace.saturn.vocabulary.FS;
 import io.fairspace.saturn.webdav.Access;
@@ -47,21 +46,20 @@ public class FileResource extends BaseResource implements io.milton.resource.Fil
     }
 
     private void loadVersion() throws BadRequestException {
-        var versions = getListProperty(subject, FS.versions);
+        var currentVersion = FileVersions.currentVersion(subject);
         var ver = fileVersion();
-        version = (ver != null) ? ver : versions.size();
+        version = (ver != null) ? ver : currentVersion;
 
-        if (version < 1 || version > versions.size()) {
+        if (version < 1 || version > currentVersion) {
             throw new BadRequestException("Invalid file version");
         }
 
-        var current = versions.get(subject.getProperty(FS.currentVersion).getInt() - version)
-                .asResource();
+        var current = FileVersions.version(subject, version);
 
         blobId = current.getRequiredProperty(FS.blobId).getString();
         contentLength = current.getRequiredProperty(FS.fileSize).getLong();
         modifiedDate = parseDate(current, FS.dateModified);
-        singleVersion = versions.size() == 1;
+        singleVersion = currentVersion == 1;
     }
 
     @Override
@@ -107,13 +105,7 @@ public class FileResource extends BaseResource implements io.milton.resource.Fil
                             + "Deleted file cannot be overwritten.");
         }
 
-        var versions = getListProperty(subject, FS.versions).cons(newVersion(blobInfo));
-        var current = subject.getRequiredProperty(FS.currentVersion).getInt() + 1;
-
-        subject.removeAll(FS.versions)
-                .removeAll(FS.currentVersion)
-                .addProperty(FS.versions, versions)
-                .addLiteral(FS.currentVersion, current);
+        addVersion(subject, blobInfo);
 
         loadVersion();
     }
@@ -154,28 +146,14 @@ public class FileResource extends BaseResource implements io.milton.resource.Fil
         } catch (Exception e) {
             throw new BadRequestException(this, "No version provided");
         }
-        var versions = getListProperty(subject, FS.versions);
-        var ver = versions.get(subject.getProperty(FS.currentVersion).getInt() - version)
-                .asResource();
-        var newVer = subject.getModel().createResource();
+        if (version < 1 || version > FileVersions.currentVersion(subject)) {
+            throw new BadRequestException(this, "Invalid file version");
+        }
+        var ver = FileVersions.version(subject, version);
+        var newVer = FileVersions.addVersion(subject);
 
-        copyProperties(ver, newVer, RDF.type, FS.blobId, FS.fileSize, FS.md5);
+        copyProperties(ver, newVer, FS.blobId, FS.fileSize, FS.md5, FS.crc32c);
         newVer.addProperty(FS.modifiedBy, factory.currentUserResource())
                 .addLiteral(FS.dateModified, WebDAVServlet.timestampLiteral());
-
-        versions = versions.cons(newVer);
-        var current = subject.getRequiredProperty(FS.currentVersion).getInt() + 1;
-        subject.removeAll(FS.versions)
-                .removeAll(FS.currentVersion)
-                .addProperty(FS.versions, versions)
-                .addLiteral(FS.currentVersion, current);
-    }
-
-    protected void deleteContent() throws ConflictException {
-        try {
-            factory.store.delete(blobId);
-        } catch (IOException e) {
-            throw new ConflictException(this, "File blob cannot be deleted. " + e.getMessage());
-        }
     }
 }
@@ -0,0 +1,121 @@
+package io.fairspace.saturn.webdav.resources;
+
+import org.apache.jena.rdf.model.RDFList;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.vocabulary.RDF;
+
+import io.fairspace.saturn.vocabulary.FS;
+
+import static io.fairspace.saturn.rdf.ModelUtils.getListProperty;
+import static io.fairspace.saturn.rdf.SparqlUtils.generateMetadataIri;
+
+/**
+ * The versions of a file, as numbered resources.
+ * <p>
+ * A file refers to its version history with <code>fs:versionHistory</code> and to the number of its current version
+ * with <code>fs:currentVersion</code>. Version <code>n</code> is the resource <code>&lt;history&gt;/n</code>,
+ * so that any version is a direct lookup. The history IRI does not depend on the path of the file,
+ * so moving a file keeps its versions where they are.
+ * <p>
+ * Files written before had their versions in an <code>rdf:List</code> under <code>fs:versions</code>, newest first;
+ * these are converted by {@link #migrate(Resource)}.
+ */
+public class FileVersions {
+    private FileVersions() {}
+
+    /**
+     * @return the number of the current version, or 0 if the file has no versions.
+     */
+    public static int currentVersion(Resource file) {
+        var current = file.getProperty(FS.currentVersion);
+        return current != null ? current.getInt() : 0;
+    }
+
+    /**
+     * @return the resource of a version, which exists if 1 &lt;= number &lt;= {@link #currentVersion(Resource)}.
+     */
+    public static Resource version(Resource file, int number) {
+        var history = file.getPropertyResourceValue(FS.versionHistory);
+        return history == null ? null : historyVersion(history, number);
+    }
+
+    /**
+     * @return the resource of a version in a version history.
+     */
+    public static Resource historyVersion(Resource history, int number) {
+        return history.getModel().createResource(history.getURI() + "/" + number);
+    }
+
+    /**
+     * @return the file of a version, or null if the resource is not a version of a file.
+     * Any resource <code>&lt;history&gt;/n</code> is taken for version <code>n</code>, whether it was added or not,
+     * so that the access to its properties is that of the file.
+     */
+    public static Resource file(Resource resource) {
+        if (!resource.isURIResource()) {
+            return null;
+        }
+        var uri = resource.getURI();
+        var separator = uri.lastIndexOf('/');
+        if (separator < 0 || separator == uri.length() - 1 || !isDigits(uri.substring(separator + 1))) {
+            return null;
+        }
+        var history = resource.getModel().createResource(uri.substring(0, separator));
+        var files = resource.getModel().listSubjectsWithProperty(FS.versionHistory, history);
+        try {
+            return files.hasNext() ? files.next() : null;
+        } finally {
+            files.close();
+        }
+    }
+
+    private static boolean isDigits(String s) {
+        return s.chars().allMatch(c -> c >= '0' && c <= '9');
+    }
+
+    /**
+     * Adds a version, which becomes the current version.
+     *
+     * @return the new version, to which the caller adds the properties of its content.
+     */
+    public static Resource addVersion(Resource file) {
+        if (!file.hasProperty(FS.versionHistory)) {
+            file.addProperty(FS.versionHistory, file.getModel().wrapAsResource(generateMetadataIri()));
+        }
+        var number = currentVersion(file) + 1;
+        file.removeAll(FS.currentVersion).addLiteral(FS.currentVersion, number);
+        // Properties that were added to the version before it existed are dropped
+        return version(file, number)
+                .removeProperties()
+                .addProperty(RDF.type, FS.FileVersion)
+                .addLiteral(FS.versionNumber, number);
+    }
+
+    /**
+     * Converts the versions of a file from an <code>rdf:List</code> to numbered resources.
+     *
+     * @return false if the file has no list of versions.
+     */
+    public static boolean migrate(Resource file) {
+        RDFList list = getListProperty(file, FS.versions);
+        if (list == null) {
+            return false;
+        }
+        var versions = list.asJavaList();
+        file.removeAll(FS.versions).removeAll(FS.currentVersion).removeAll(FS.versionHistory);
+        list.removeList();
+        // The list is newest first
+        for (var i = versions.size() - 1; i >= 0; i--) {
+            var old = versions.get(i).asResource();
+            var version = addVersion(file);
+            old.listProperties()
+                    .filterDrop(stmt -> stmt.getPredicate().equals(RDF.type))
+                    .toList()
+                    .forEach(stmt -> version.addProperty(stmt.getPredicate(), stmt.getObject()));
+            if (old.isAnon()) {
+                old.removeProperties();
+            }
+        }
+        return true;
+    }
+}
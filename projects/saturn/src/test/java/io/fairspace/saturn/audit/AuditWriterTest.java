@@ -0,0 +1,187 @@
+package io.fairspace.saturn.audit;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.BooleanSupplier;
+
+import org.junit.After;
+import org.junit.Test;
+
+import io.fairspace.saturn.config.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AuditWriterTest {
+    private final List<List<AuditEvent>> batches = new CopyOnWriteArrayList<>();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final CountDownLatch writing = new CountDownLatch(1);
+
+    /**
+     * Records the batches, blocking the first write until released.
+     */
+    private final AuditSink sink = events -> {
+        writing.countDown();
+        release.await();
+        batches.add(new ArrayList<>(events));
+    };
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        Audit.stop();
+    }
+
+    private static Config.Audit config(Config.Audit.Overflow overflow) {
+        var config = new Config.Audit();
+        config.bufferSize = 2;
+        config.batchSize = 10;
+        config.overflow = overflow;
+        config.blockTimeout = 50;
+        return config;
+    }
+
+    private static AuditEvent event(String name) {
+        return new AuditEvent(Instant.now(), name, Map.of());
+    }
+
+    private static List<String> names(List<List<AuditEvent>> batches) {
+        return batches.stream().flatMap(List::stream).map(AuditEvent::event).toList();
+    }
+
+    /**
+     * Blocks the writer on the first event and fills the buffer.
+     */
+    private void fill(AuditWriter writer) throws InterruptedException {
+        writer.submit(event("first"));
+        writing.await();
+        writer.submit(event("second"));
+        writer.submit(event("third"));
+    }
+
+    @Test
+    public void eventsAreWrittenInBatchesOnClose() throws Exception {
+        var writer = new AuditWriter(sink, config(Config.Audit.Overflow.DROP));
+        fill(writer);
+
+        release.countDown();
+        writer.close();
+
+        assertEquals(List.of("first", "second", "third"), names(batches));
+        assertEquals(List.of("second", "third"), names(batches.subList(1, 2)));
+    }
+
+    @Test
+    public void anIdleWriterParksUntilAnEventIsSubmitted() throws Exception {
+        release.countDown();
+        var writer = new AuditWriter(sink, config(Config.Audit.Overflow.DROP));
+        var worker = Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().equals("Audit writer"))
+                .findFirst()
+                .orElseThrow();
+
+        awaitState(worker, Thread.State.WAITING);
+        writer.submit(event("first"));
+        await(() -> batches.size() == 1);
+        awaitState(worker, Thread.State.WAITING);
+        writer.submit(event("second"));
+        await(() -> batches.size() == 2);
+        writer.close();
+
+        assertEquals(List.of("first", "second"), names(batches));
+    }
+
+    @Test
+    public void theDropPolicyDropsEventsWhenTheBufferIsFull() throws Exception {
+        var writer = new AuditWriter(sink, config(Config.Audit.Overflow.DROP));
+        fill(writer);
+
+        writer.submit(event("dropped"));
+        release.countDown();
+        writer.close();
+
+        assertEquals(List.of("first", "second", "third"), names(batches));
+    }
+
+    @Test
+    public void theBlockPolicyDropsEventsAfterTheTimeout() throws Exception {
+        var writer = new AuditWriter(sink, config(Config.Audit.Overflow.BLOCK));
+        fill(writer);
+
+        var start = System.nanoTime();
+        writer.submit(event("dropped"));
+        assertTrue(System.nanoTime() - start >= 50_000_000);
+        release.countDown();
+        writer.close();
+
+        assertEquals(List.of("first", "second", "third"), names(batches));
+    }
+
+    @Test
+    public void theBlockPolicyWaitsForRoom() throws Exception {
+        var writer = new AuditWriter(sink, config(Config.Audit.Overflow.BLOCK));
+        fill(writer);
+
+        new Thread(() -> {
+                    try {
+                        Thread.sleep(10);
+                    } catch (InterruptedException ignored) {
+                    }
+                    release.countDown();
+                })
+                .start();
+        writer.submit(event("fourth"));
+        writer.close();
+
+        assertEquals(List.of("first", "second", "third", "fourth"), names(batches));
+    }
+
+    @Test
+    public void theSynchronousPolicyWritesOnTheCallingThread() throws Exception {
+        var writer = new AuditWriter(sink, config(Config.Audit.Overflow.SYNCHRONOUS));
+        fill(writer);
+
+        var caller = new Thread(() -> writer.submit(event("fourth")));
+        caller.start();
+        release.countDown();
+        caller.join();
+        writer.close();
+
+        assertEquals(4, names(batches).size());
+        assertTrue(names(batches).contains("fourth"));
+    }
+
+    @Test
+    public void bulkEventsListTheAffectedIris() throws Exception {
+        var config = config(Config.Audit.Overflow.BLOCK);
+        release.countDown();
+        Audit.start(sink, config);
+
+        Audit.auditBulk("METADATA_BULK_UPDATED", List.of("http://example.com/a", "http://example.com/b"));
+        Audit.stop();
+
+        var events = batches.stream().flatMap(List::stream).toList();
+        assertEquals(1, events.size());
+        assertEquals("METADATA_BULK_UPDATED", events.get(0).event());
+        assertEquals("2", events.get(0).fields().get("count"));
+        assertEquals(
+                List.of("http://example.com/a", "http://example.com/b"),
+                events.get(0).fields().get("iris"));
+    }
+
+    private static void awaitState(Thread thread, Thread.State state) throws InterruptedException {
+        await(() -> thread.getState() == state);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        var deadline = System.nanoTime() + 5_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package io.fairspace.saturn.audit;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RingBufferTest {
+    @Test
+    public void theCapacityIsRoundedUpToAPowerOfTwo() {
+        assertEquals(2, new RingBuffer<>(1).capacity());
+        assertEquals(8, new RingBuffer<>(8).capacity());
+        assertEquals(16, new RingBuffer<>(9).capacity());
+    }
+
+    @Test
+    public void elementsArePolledInOrderAndOfferingFailsWhenFull() {
+        var buffer = new RingBuffer<Integer>(4);
+
+        for (var i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(i));
+        }
+        assertFalse(buffer.offer(4));
+
+        assertEquals(0, (int) buffer.poll());
+        assertTrue(buffer.offer(4));
+
+        var drained = new ArrayList<Integer>();
+        assertEquals(3, buffer.drainTo(drained, 3));
+        assertEquals(List.of(1, 2, 3), drained);
+        assertEquals(4, (int) buffer.poll());
+        assertNull(buffer.poll());
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    public void concurrentProducersLoseNoElements() throws InterruptedException {
+        var buffer = new RingBuffer<Integer>(64);
+        var producers = 4;
+        var perProducer = 10_000;
+        var start = new CountDownLatch(1);
+        var threads = new ArrayList<Thread>();
+        for (var p = 0; p < producers; p++) {
+            var offset = p * perProducer;
+            var thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (var i = 0; i < perProducer; i++) {
+                    while (!buffer.offer(offset + i)) {
+                        Thread.onSpinWait();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        start.countDown();
+        var received = new HashSet<Integer>();
+        while (received.size() < producers * perProducer) {
+            var element = buffer.poll();
+            if (element != null) {
+                assertTrue(received.add(element));
+            }
+        }
+        for (var thread : threads) {
+            thread.join();
+        }
+        assertTrue(buffer.isEmpty());
+    }
+}
@@ -0,0 +1,171 @@
+package io.fairspace.saturn.auth;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.keycloak.common.VerificationException;
+import org.keycloak.crypto.Algorithm;
+import org.keycloak.crypto.AsymmetricSignatureSignerContext;
+import org.keycloak.crypto.KeyType;
+import org.keycloak.crypto.KeyUse;
+import org.keycloak.crypto.KeyWrapper;
+import org.keycloak.jose.jwk.JSONWebKeySet;
+import org.keycloak.jose.jwk.JWK;
+import org.keycloak.jose.jwk.JWKBuilder;
+import org.keycloak.jose.jws.JWSBuilder;
+import org.keycloak.representations.AccessToken;
+import org.keycloak.util.JsonSerialization;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class AccessTokenVerifierTest {
+    private static final String REALM_URL = "http://localhost/realms/test";
+
+    private HttpServer jwksServer;
+    private final List<JWK> publishedKeys = new ArrayList<>();
+    private final AtomicInteger jwksRequests = new AtomicInteger();
+    private volatile CountDownLatch jwksResponse = new CountDownLatch(0);
+    private KeyPair keyPair;
+    private AccessTokenVerifier verifier;
+
+    @Before
+    public void before() throws Exception {
+        keyPair = generateKeyPair();
+        publish("key1", keyPair);
+
+        // A stand-in for the JWKS endpoint of the realm
+        jwksServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        jwksServer.createContext("/certs", exchange -> {
+            jwksRequests.incrementAndGet();
+            try {
+                jwksResponse.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            var jwks = new JSONWebKeySet();
+            jwks.setKeys(publishedKeys.toArray(new JWK[0]));
+            var body = JsonSerialization.writeValueAsString(jwks).getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (var out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        jwksServer.start();
+
+        var jwksUri = URI.create("http://localhost:" + jwksServer.getAddress().getPort() + "/certs");
+        verifier = new AccessTokenVerifier(REALM_URL, new JwksKeyCache(jwksUri, 0));
+    }
+
+    @After
+    public void after() {
+        jwksServer.stop(0);
+    }
+
+    private static KeyPair generateKeyPair() throws Exception {
+        var generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        return generator.generateKeyPair();
+    }
+
+    private void publish(String kid, KeyPair keyPair) {
+        publishedKeys.add(JWKBuilder.create().kid(kid).rs256(keyPair.getPublic()));
+    }
+
+    private static String token(String kid, KeyPair keyPair, String issuer, long expiresIn) {
+        var now = System.currentTimeMillis() / 1000;
+        var token = new AccessToken();
+        token.issuer(issuer);
+        token.subject("user");
+        token.type("Bearer");
+        token.iat(now);
+        token.exp(now + expiresIn);
+        var key = new KeyWrapper();
+        key.setKid(kid);
+        key.setAlgorithm(Algorithm.RS256);
+        key.setType(KeyType.RSA);
+        key.setUse(KeyUse.SIG);
+        key.setPrivateKey(keyPair.getPrivate());
+        return new JWSBuilder().jsonContent(token).sign(new AsymmetricSignatureSignerContext(key));
+    }
+
+    @Test
+    public void testVerifiedTokensAreCached() throws Exception {
+        var tokenString = token("key1", keyPair, REALM_URL, 60);
+
+        var token = verifier.verify(tokenString);
+        assertEquals("user", token.getSubject());
+        assertSame(token, verifier.verify(tokenString));
+        assertEquals(1, jwksRequests.get());
+    }
+
+    @Test(expected = VerificationException.class)
+    public void testTokensWithAnInvalidSignatureAreRejected() throws Exception {
+        verifier.verify(token("key1", generateKeyPair(), REALM_URL, 60));
+    }
+
+    @Test(expected = VerificationException.class)
+    public void testTokensOfAnotherRealmAreRejected() throws Exception {
+        verifier.verify(token("key1", keyPair, "http://localhost/realms/other", 60));
+    }
+
+    @Test(expected = VerificationException.class)
+    public void testExpiredTokensAreRejected() throws Exception {
+        verifier.verify(token("key1", keyPair, REALM_URL, -1));
+    }
+
+    @Test
+    public void testKeysAreFetchedAgainForAnUnknownKey() throws Exception {
+        verifier.verify(token("key1", keyPair, REALM_URL, 60));
+
+        var rotated = generateKeyPair();
+        publish("key2", rotated);
+
+        assertEquals(
+                "user", verifier.verify(token("key2", rotated, REALM_URL, 60)).getSubject());
+        assertEquals(2, jwksRequests.get());
+    }
+
+    @Test
+    public void testUnknownKeysAreNotFetchedMoreThanOncePerInterval() throws Exception {
+        var keys = new JwksKeyCache(
+                URI.create("http://localhost:" + jwksServer.getAddress().getPort() + "/certs"), 60_000);
+        keys.getKey("key1");
+        for (var i = 0; i < 3; i++) {
+            try {
+                keys.getKey("unknown");
+            } catch (VerificationException ignore) {
+            }
+        }
+        assertEquals(1, jwksRequests.get());
+    }
+
+    @Test
+    public void testOldKeysAreReturnedWhileTheyAreFetchedAgain() throws Exception {
+        var keys = new JwksKeyCache(
+                URI.create("http://localhost:" + jwksServer.getAddress().getPort() + "/certs"), 60_000, 0);
+        var key = keys.getKey("key1");
+        // The keys become old
+        Thread.sleep(10);
+
+        jwksResponse = new CountDownLatch(1);
+        for (var i = 0; i < 3; i++) {
+            assertSame(key, keys.getKey("key1"));
+        }
+        jwksResponse.countDown();
+        keys.awaitRefresh();
+
+        assertEquals(2, jwksRequests.get());
+    }
+}
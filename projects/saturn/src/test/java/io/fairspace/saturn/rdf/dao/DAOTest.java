@@ -4,6 +4,7 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import lombok.Data;
@@ -192,6 +193,27 @@ public class DAOTest {
                 dao.read(Entity.class, entity.getIri()).getInstantValue().toEpochMilli());
     }
 
+    @Test
+    public void testReadAll() {
+        var deleted = new LifecycleAwareEntity();
+        dao.write(deleted);
+        dao.markAsDeleted(deleted);
+        var first = dao.write(new LifecycleAwareEntity());
+        var second = dao.write(new LifecycleAwareEntity());
+
+        var entities = dao.readAll(
+                LifecycleAwareEntity.class,
+                List.of(
+                        second.getIri(),
+                        deleted.getIri(),
+                        createURI("http://example.com/iri/unknown"),
+                        first.getIri()));
+
+        assertEquals(
+                List.of(second.getIri(), first.getIri()),
+                entities.stream().map(PersistentEntity::getIri).toList());
+    }
+
     @Test
     public void testDelete() {
         dao.write(entity);
@@ -1,9 +1,13 @@
 package io.fairspace.saturn.rdf.transactions;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 
 import com.pivovarit.function.ThrowingFunction;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.data.SpanData;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.Resource;
 import org.apache.jena.sparql.JenaTransactionException;
@@ -12,6 +16,10 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import io.fairspace.saturn.tracing.Tracer;
+
+import static io.fairspace.saturn.metrics.SaturnMetrics.REGISTRY;
+
 import static org.apache.jena.query.DatasetFactory.createTxnMem;
 import static org.apache.jena.rdf.model.ResourceFactory.createResource;
 import static org.junit.Assert.*;
@@ -43,6 +51,53 @@ public class BulkTransactionsTest {
         });
     }
 
+    @Test
+    public void batchesAreRecordedInTheMetrics() {
+        var batches = REGISTRY.get("saturn.transactions.batch").timer();
+        var count = batches.count();
+
+        txn.executeWrite(m -> m.add(RESOURCE, RDFS.label, "blah"));
+
+        assertEquals(count + 1, batches.count());
+        assertTrue(REGISTRY.scrape().contains("saturn_transactions_batch_seconds_count"));
+    }
+
+    @Test
+    public void writesAreTracedOnTheWorkerThread() {
+        var exporter = InMemorySpanExporter.create();
+        Tracer.start(exporter, 1.0);
+        List<SpanData> exported;
+        try {
+            try (var ignored = Tracer.startRequest("PUT /api/metadata", null)) {
+                txn.executeWrite(m -> m.add(RESOURCE, RDFS.label, "blah"));
+            }
+            Tracer.flush();
+            exported = exporter.getFinishedSpanItems();
+        } finally {
+            Tracer.stop();
+        }
+
+        var names = exported.stream().map(SpanData::getName).toList();
+        assertEquals(
+                List.of(
+                        "transaction.queue",
+                        "transaction.execute",
+                        "transaction.batch",
+                        "transaction.write",
+                        "PUT /api/metadata"),
+                names);
+        var write = exported.get(names.indexOf("transaction.write"));
+        var batch = exported.get(names.indexOf("transaction.batch"));
+        assertEquals(
+                write.getSpanId(),
+                exported.get(names.indexOf("transaction.queue")).getParentSpanId());
+        assertEquals(write.getSpanId(), batch.getParentSpanId());
+        assertEquals(
+                write.getSpanId(),
+                exported.get(names.indexOf("transaction.execute")).getParentSpanId());
+        assertEquals(1L, (long) batch.getAttributes().get(AttributeKey.longKey("transactions")));
+    }
+
     @Test
     public void nestedCallsAreAllowed() throws Exception {
         assertEquals("blah", txn.calculateWrite(ds1 -> txn.calculateWrite(ds2 -> txn.calculateRead(ds3 -> "blah"))));
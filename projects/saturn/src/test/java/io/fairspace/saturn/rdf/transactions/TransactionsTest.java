@@ -14,6 +14,7 @@ import io.fairspace.saturn.config.Config;
 import io.fairspace.saturn.rdf.SaturnDatasetFactory;
 
 import static java.util.UUID.randomUUID;
+import static junit.framework.TestCase.assertEquals;
 import static junit.framework.TestCase.assertTrue;
 import static org.apache.commons.io.FileUtils.deleteDirectory;
 import static org.apache.commons.io.FileUtils.getTempDirectory;
@@ -43,6 +44,25 @@ public class TransactionsTest {
         assertTrue(ds.getLock() instanceof LockMRSW);
     }
 
+    @Test
+    public void theStableDataVersionChangesWithEveryWriteTransaction() {
+        var tx = new SimpleTransactions(ds);
+        var version = tx.getStableDataVersion();
+        assertTrue(version >= 0);
+
+        tx.executeWrite(m -> assertEquals(-1, tx.getStableDataVersion()));
+        var written = tx.getStableDataVersion();
+        assertTrue(written > version);
+
+        try {
+            tx.executeWrite(m -> {
+                throw new IllegalStateException();
+            });
+        } catch (IllegalStateException ignored) {
+        }
+        assertTrue(tx.getStableDataVersion() > written);
+    }
+
     @Test
     public void onlyOneWriteTransactionAtATime() throws InterruptedException {
         ds.begin(WRITE);
@@ -0,0 +1,52 @@
+package io.fairspace.saturn.rdf.transactions;
+
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.DatasetFactory;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.vocabulary.RDFS;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.fairspace.saturn.services.metadata.LabelIndex;
+import io.fairspace.saturn.services.views.TermLabelDictionary;
+
+import static io.fairspace.saturn.TestUtils.setupRequestContext;
+
+import static org.apache.jena.rdf.model.ResourceFactory.createProperty;
+import static org.apache.jena.rdf.model.ResourceFactory.createResource;
+import static org.apache.jena.sparql.core.DatasetGraphFactory.createTxnMem;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class TxnLabelDatasetGraphTest {
+    private static final String TYPE = "http://example.com/Term";
+    private static final Resource term = createResource("http://example.com/term");
+
+    private TermLabelDictionary labelDictionary;
+    private BulkTransactions txn;
+
+    @Before
+    public void before() {
+        setupRequestContext();
+        labelDictionary = new TermLabelDictionary(100);
+        Dataset ds = DatasetFactory.wrap(new TxnLabelDatasetGraph(createTxnMem(), labelDictionary, new LabelIndex()));
+        txn = new BulkTransactions(ds);
+        labelDictionary.put(term.getURI(), TYPE, "Old");
+    }
+
+    @Test
+    public void shouldRemoveRelabeledTerms() {
+        txn.executeWrite(m -> m.add(term, RDFS.label, "New"));
+
+        assertNull(labelDictionary.getLabel(term.getURI()));
+        assertNull(labelDictionary.getIri(TYPE, "Old"));
+    }
+
+    @Test
+    public void shouldKeepTermsWithUnchangedLabels() {
+        txn.executeWrite(m -> m.add(term, createProperty("http://example.com/p"), "value"));
+
+        assertEquals("Old", labelDictionary.getLabel(term.getURI()));
+        assertEquals(term.getURI(), labelDictionary.getIri(TYPE, "Old"));
+    }
+}
@@ -5,13 +5,16 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import io.fairspace.saturn.config.Config;
 import io.fairspace.saturn.services.AccessDeniedException;
 import io.fairspace.saturn.services.ConflictException;
 import io.fairspace.saturn.services.NotAvailableException;
 import io.fairspace.saturn.services.users.User;
 import io.fairspace.saturn.services.users.UserService;
+import io.fairspace.saturn.services.views.SlowQueryLog;
 import io.fairspace.saturn.services.views.ViewService;
 import io.fairspace.saturn.services.views.ViewStoreClientFactory;
+import io.fairspace.saturn.webdav.blobstore.BlobGarbageCollector;
 
 import static io.fairspace.saturn.services.maintenance.MaintenanceService.REINDEXING_IS_ALREADY_IN_PROGRESS;
 import static io.fairspace.saturn.services.maintenance.MaintenanceService.SERVICE_NOT_AVAILABLE;
@@ -31,8 +34,14 @@ public class MaintenanceServiceTest {
     private final Dataset dataset = mock(Dataset.class);
     private final ViewStoreClientFactory viewStoreClientFactory = mock(ViewStoreClientFactory.class);
     private final ViewService viewService = mock(ViewService.class);
-    private final MaintenanceService sut =
-            spy(new MaintenanceService(userService, dataset, viewStoreClientFactory, viewService));
+    private final BlobGarbageCollector blobGarbageCollector = mock(BlobGarbageCollector.class);
+    private final MaintenanceService sut = spy(new MaintenanceService(
+            userService,
+            dataset,
+            viewStoreClientFactory,
+            viewService,
+            new SlowQueryLog(new Config.Search()),
+            blobGarbageCollector));
 
     @Test
     public void testReindexingIsNotAllowedForNotAdmins() {
@@ -45,6 +54,43 @@ public class MaintenanceServiceTest {
         assertThrows(AccessDeniedException.class, sut::startRecreateIndexTask);
     }
 
+    @Test
+    public void testSlowQueriesAreNotAvailableForNotAdmins() {
+        // give
+        var currentUser = new User();
+        currentUser.setAdmin(false);
+        when(userService.currentUser()).thenReturn(currentUser);
+
+        // when/then
+        assertThrows(AccessDeniedException.class, () -> sut.slowQueries(10));
+    }
+
+    @Test
+    public void testBlobCollectionIsNotAllowedForNotAdmins() {
+        // give
+        var currentUser = new User();
+        currentUser.setAdmin(false);
+        when(userService.currentUser()).thenReturn(currentUser);
+
+        // when/then
+        assertThrows(AccessDeniedException.class, () -> sut.collectOrphanBlobs(true));
+        assertThrows(AccessDeniedException.class, sut::lastOrphanBlobCollection);
+    }
+
+    @Test
+    public void testDryRunsOfBlobCollectionRunInTheBackground() {
+        // give
+        var currentUser = new User();
+        currentUser.setAdmin(true);
+        when(userService.currentUser()).thenReturn(currentUser);
+
+        // when
+        sut.collectOrphanBlobs(true);
+
+        // then
+        verify(blobGarbageCollector).submit(true);
+    }
+
     @Test
     public void testReindexingIsNotAllowedWhenDisabled() {
         // give
@@ -0,0 +1,156 @@
+package io.fairspace.saturn.services.metadata;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.DatasetFactory;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.vocabulary.RDF;
+import org.apache.jena.vocabulary.RDFS;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.fairspace.saturn.rdf.transactions.BulkTransactions;
+import io.fairspace.saturn.rdf.transactions.TxnLabelDatasetGraph;
+import io.fairspace.saturn.services.metadata.validation.UniqueLabelValidator;
+import io.fairspace.saturn.services.views.TermLabelDictionary;
+import io.fairspace.saturn.vocabulary.FS;
+
+import static io.fairspace.saturn.TestUtils.setupRequestContext;
+import static io.fairspace.saturn.rdf.ModelUtils.EMPTY_MODEL;
+import static io.fairspace.saturn.rdf.ModelUtils.updatedView;
+
+import static org.apache.jena.rdf.model.ModelFactory.createDefaultModel;
+import static org.apache.jena.rdf.model.ResourceFactory.createResource;
+import static org.apache.jena.sparql.core.DatasetGraphFactory.createTxnMem;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LabelIndexTest {
+    private static final Resource type = createResource("http://example.com/Type");
+    private static final Resource resource1 = createResource("http://example.com/1");
+    private static final Resource resource2 = createResource("http://example.com/2");
+
+    private LabelIndex labelIndex;
+    private Dataset ds;
+    private BulkTransactions txn;
+
+    @Before
+    public void before() {
+        setupRequestContext();
+        labelIndex = new LabelIndex();
+        ds = DatasetFactory.wrap(new TxnLabelDatasetGraph(createTxnMem(), new TermLabelDictionary(100), labelIndex));
+        txn = new BulkTransactions(ds);
+    }
+
+    @Test
+    public void findsResourcesByTypeAndNormalisedLabel() {
+        txn.executeWrite(m -> m.add(resource1, RDF.type, type).add(resource1, RDFS.label, "Label"));
+
+        assertEquals(Set.of(resource1.asNode()), labelIndex.find(type.asNode(), " label "));
+        assertTrue(labelIndex.find(FS.User.asNode(), "Label").isEmpty());
+    }
+
+    @Test
+    public void keepsTheIndexCurrent() {
+        txn.executeWrite(m -> m.add(resource1, RDF.type, type)
+                .add(resource1, RDFS.label, "Label")
+                .add(resource2, RDF.type, type)
+                .add(resource2, RDFS.label, "Other"));
+
+        txn.executeWrite(m -> m.removeAll(resource1, RDFS.label, null).add(resource1, RDFS.label, "Renamed"));
+
+        assertTrue(labelIndex.find(type.asNode(), "Label").isEmpty());
+        assertEquals(Set.of(resource1.asNode()), labelIndex.find(type.asNode(), "Renamed"));
+        assertEquals(Set.of(resource2.asNode()), labelIndex.find(type.asNode(), "Other"));
+    }
+
+    @Test
+    public void changesAreOnlyVisibleToTheWriteTransaction() throws Exception {
+        var executor = Executors.newSingleThreadExecutor();
+        try {
+            txn.executeWrite(m -> {
+                m.add(resource1, RDF.type, type).add(resource1, RDFS.label, "Label");
+
+                assertEquals(Set.of(resource1.asNode()), labelIndex.find(type.asNode(), "Label"));
+                try {
+                    assertTrue(executor.submit(() -> labelIndex.find(type.asNode(), "Label"))
+                            .get()
+                            .isEmpty());
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void changesOfAbortedTransactionsAreDiscarded() {
+        try {
+            txn.executeWrite(m -> {
+                m.add(resource1, RDF.type, type).add(resource1, RDFS.label, "Label");
+                throw new IllegalStateException();
+            });
+        } catch (IllegalStateException ignored) {
+        }
+
+        assertTrue(labelIndex.find(type.asNode(), "Label").isEmpty());
+    }
+
+    @Test
+    public void changesLeftByAnUnfinishedTransactionAreDiscardedByTheNextOne() {
+        var stale = createDefaultModel().add(resource2, RDF.type, type).add(resource2, RDFS.label, "Stale");
+        labelIndex.onChange(stale.getGraph(), resource2.asNode());
+
+        txn.executeWrite(m -> {
+            m.add(resource1, RDF.type, type).add(resource1, RDFS.label, "Label");
+
+            assertTrue(labelIndex.find(type.asNode(), "Stale").isEmpty());
+        });
+
+        assertTrue(labelIndex.find(type.asNode(), "Stale").isEmpty());
+        assertEquals(Set.of(resource1.asNode()), labelIndex.find(type.asNode(), "Label"));
+    }
+
+    @Test
+    public void duplicateLabelsAreFoundInTheIndex() {
+        txn.executeWrite(m -> m.add(resource1, RDF.type, type).add(resource1, RDFS.label, "Label"));
+
+        var validator = new UniqueLabelValidator(labelIndex);
+        var violations = new ArrayList<Node>();
+        txn.executeRead(before -> {
+            var added = createDefaultModel().add(resource2, RDF.type, type).add(resource2, RDFS.label, "Label");
+            validator.validate(
+                    before,
+                    updatedView(before, EMPTY_MODEL, added),
+                    EMPTY_MODEL,
+                    added,
+                    (message, subject, predicate, object) -> violations.add(subject));
+        });
+
+        assertEquals(List.of(resource2.asNode()), violations);
+    }
+
+    @Test
+    public void filesAreNotIndexed() {
+        txn.executeWrite(m -> m.add(resource1, RDF.type, FS.File).add(resource1, RDFS.label, "file.txt"));
+
+        assertTrue(labelIndex.find(FS.File.asNode(), "file.txt").isEmpty());
+    }
+
+    @Test
+    public void loadsTheLabelsOfTheDataset() {
+        txn.executeWrite(m -> m.add(resource1, RDF.type, type).add(resource1, RDFS.label, "Label"));
+
+        var loaded = new LabelIndex();
+        loaded.load(ds);
+
+        assertEquals(Set.of(resource1.asNode()), loaded.find(type.asNode(), "Label"));
+    }
+}
@@ -0,0 +1,169 @@
+package io.fairspace.saturn.services.metadata;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.apache.jena.query.Dataset;
+import org.apache.jena.riot.Lang;
+import org.eclipse.jetty.server.Request;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import io.fairspace.saturn.rdf.transactions.SimpleTransactions;
+import io.fairspace.saturn.services.AccessDeniedException;
+import io.fairspace.saturn.services.PayloadParsingException;
+import io.fairspace.saturn.services.metadata.validation.ValidationException;
+
+import static io.fairspace.saturn.TestUtils.mockAuthentication;
+import static io.fairspace.saturn.TestUtils.setupRequestContext;
+import static io.fairspace.saturn.auth.RequestContext.setCurrentRequest;
+
+import static org.apache.jena.query.DatasetFactory.createTxnMem;
+import static org.apache.jena.rdf.model.ResourceFactory.createProperty;
+import static org.apache.jena.rdf.model.ResourceFactory.createResource;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class MetadataImportServiceTest {
+    private static final String INPUT =
+            """
+            <http://localhost/iri/S1> <http://example.com/p> "a" .
+            <http://localhost/iri/S1> <http://example.com/q> "b" .
+            <http://localhost/iri/S1> <http://example.com/r> "c" .
+            <http://localhost/iri/S2> <http://example.com/p> "d" .
+            <http://localhost/iri/S3> <http://example.com/p> "e" .
+            <http://localhost/iri/S3> <http://example.com/q> "f" .
+            """;
+
+    private final Dataset ds = createTxnMem();
+
+    @Rule
+    public TemporaryFolder workDir = new TemporaryFolder();
+
+    @Mock
+    private MetadataPermissions permissions;
+
+    private boolean rejectS3;
+    private MetadataImportService importService;
+
+    @Before
+    public void setUp() {
+        setupRequestContext();
+        when(permissions.canWriteMetadata(any())).thenReturn(true);
+
+        var txn = new SimpleTransactions(ds);
+        var metadataService = new MetadataService(
+                txn,
+                ds.getDefaultModel(),
+                (before, after, removed, added, violationHandler) -> {
+                    if (rejectS3 && added.containsResource(createResource("http://localhost/iri/S3"))) {
+                        violationHandler.onViolation("Rejected", createResource("http://localhost/iri/S3"), null, null);
+                    }
+                },
+                permissions);
+        importService = new MetadataImportService(metadataService, ds, null, 2, workDir.getRoot());
+    }
+
+    @Test
+    public void importsMetadataInChunks() {
+        var job = importService.startJob(null);
+
+        importService.importMetadata(job, input(INPUT), Lang.NTRIPLES, false);
+
+        assertEquals(MetadataImportJob.Status.COMPLETED, job.getStatus());
+        assertEquals(6, job.getTriples());
+        // The triples of a subject are committed together: S1, then S2 and S3
+        assertEquals(2, job.getChunks());
+        assertTrue(ds.getDefaultModel()
+                .contains(createResource("http://localhost/iri/S3"), createProperty("http://example.com/q")));
+        assertEquals(job, importService.getJob(job.getId()));
+    }
+
+    @Test
+    public void failedImportsCanBeResumed() {
+        rejectS3 = true;
+        var job = importService.startJob(null);
+
+        assertThrows(
+                ValidationException.class, () -> importService.importMetadata(job, input(INPUT), Lang.NTRIPLES, false));
+
+        assertEquals(MetadataImportJob.Status.FAILED, job.getStatus());
+        assertEquals(3, job.getTriples());
+        assertTrue(ds.getDefaultModel()
+                .contains(createResource("http://localhost/iri/S1"), createProperty("http://example.com/r")));
+        assertFalse(ds.getDefaultModel().containsResource(createResource("http://localhost/iri/S2")));
+
+        rejectS3 = false;
+        var resumed = importService.startJob(job.getId());
+        importService.importMetadata(resumed, input(INPUT), Lang.NTRIPLES, false);
+
+        assertEquals(MetadataImportJob.Status.COMPLETED, resumed.getStatus());
+        assertEquals(6, resumed.getTriples());
+        assertEquals(2, resumed.getChunks());
+        assertTrue(ds.getDefaultModel()
+                .contains(createResource("http://localhost/iri/S3"), createProperty("http://example.com/q")));
+    }
+
+    @Test
+    public void namedGraphsAreRejected() {
+        var job = importService.startJob(null);
+
+        assertThrows(
+                PayloadParsingException.class,
+                () -> importService.importMetadata(
+                        job,
+                        input("<http://localhost/iri/S1> <http://example.com/p> \"a\" <http://example.com/g> .\n"),
+                        Lang.NQUADS,
+                        false));
+        assertEquals(MetadataImportJob.Status.FAILED, job.getStatus());
+    }
+
+    @Test
+    public void jobsCanOnlyBeSeenAndResumedByTheirOwner() {
+        rejectS3 = true;
+        var job = importService.startJob(null);
+        assertThrows(
+                ValidationException.class, () -> importService.importMetadata(job, input(INPUT), Lang.NTRIPLES, false));
+
+        var request = mock(Request.class);
+        var auth = mockAuthentication("other");
+        when(request.getAuthentication()).thenReturn(auth);
+        setCurrentRequest(request);
+
+        assertThrows(AccessDeniedException.class, () -> importService.getJob(job.getId()));
+        assertThrows(AccessDeniedException.class, () -> importService.startJob(job.getId()));
+        assertEquals(MetadataImportJob.Status.FAILED, job.getStatus());
+    }
+
+    @Test
+    public void subjectsOfJobsAreKeptInTheWorkDirectory() throws Exception {
+        rejectS3 = true;
+        var job = importService.startJob(null);
+        assertThrows(
+                ValidationException.class, () -> importService.importMetadata(job, input(INPUT), Lang.NTRIPLES, false));
+
+        assertEquals(workDir.getRoot().toPath(), job.getSubjects().getParent());
+        assertTrue(Files.exists(job.getSubjects()));
+
+        // The jobs of a previous run cannot be resumed, so their files are deleted on startup
+        new MetadataImportService(null, ds, null, 2, workDir.getRoot());
+
+        assertFalse(Files.exists(job.getSubjects()));
+    }
+
+    private static ByteArrayInputStream input(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
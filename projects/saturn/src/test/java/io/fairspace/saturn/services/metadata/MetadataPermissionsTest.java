@@ -16,7 +16,9 @@ import io.fairspace.saturn.services.workspaces.WorkspaceService;
 import io.fairspace.saturn.vocabulary.FS;
 import io.fairspace.saturn.webdav.Access;
 import io.fairspace.saturn.webdav.DavFactory;
+import io.fairspace.saturn.webdav.resources.FileVersions;
 
+import static org.apache.jena.rdf.model.ModelFactory.createDefaultModel;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
@@ -348,4 +350,43 @@ public class MetadataPermissionsTest {
         // then
         assertFalse(actual);
     }
+
+    @Test
+    public void testVersionsOfFilesAreAccessibleAsTheirFiles() {
+        var currentUser = new User();
+        currentUser.setAdmin(false);
+        currentUser.setCanViewPublicMetadata(true);
+        currentUser.setCanAddSharedMetadata(true);
+        when(userService.currentUser()).thenReturn(currentUser);
+
+        var model = createDefaultModel();
+        var file = model.createResource("http://localhost/api/webdav/coll/file.txt");
+        var history = model.createResource("http://localhost/iri/history");
+        file.addProperty(FS.versionHistory, history);
+        var version = FileVersions.addVersion(file).addProperty(FS.blobId, "blob");
+        var nextVersion = FileVersions.historyVersion(history, 2);
+        when(davFactory.getAccess(file)).thenReturn(Access.None);
+
+        assertFalse(sut.canReadMetadata(version));
+        assertFalse(sut.canWriteMetadata(version));
+        assertFalse(sut.canWriteMetadata(nextVersion));
+
+        when(davFactory.getAccess(file)).thenReturn(Access.Write);
+
+        assertTrue(sut.canReadMetadata(version));
+        assertTrue(sut.canWriteMetadata(nextVersion));
+    }
+
+    @Test
+    public void testVersionsThatWereAddedBeforehandLoseTheirProperties() {
+        var model = createDefaultModel();
+        var file = model.createResource("http://localhost/api/webdav/coll/file.txt");
+        var history = model.createResource("http://localhost/iri/history");
+        file.addProperty(FS.versionHistory, history);
+        FileVersions.historyVersion(history, 1).addProperty(FS.blobId, "someone else's blob");
+
+        var version = FileVersions.addVersion(file);
+
+        assertFalse(version.hasProperty(FS.blobId));
+    }
 }
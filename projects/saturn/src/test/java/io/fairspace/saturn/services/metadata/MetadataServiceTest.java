@@ -1,10 +1,17 @@
 package io.fairspace.saturn.services.metadata;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import org.apache.jena.graph.Triple;
 import org.apache.jena.query.Dataset;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.Property;
 import org.apache.jena.rdf.model.Resource;
 import org.apache.jena.rdf.model.Statement;
+import org.apache.jena.riot.system.StreamRDFLib;
+import org.apache.jena.riot.system.StreamRDFWrapper;
 import org.apache.jena.sparql.core.DatasetGraphFactory;
 import org.apache.jena.vocabulary.RDF;
 import org.apache.jena.vocabulary.RDFS;
@@ -90,6 +97,112 @@ public class MetadataServiceTest {
         assertFalse(api.get(S1.getURI(), false).contains(statement));
     }
 
+    @Test
+    public void testGetWritesEachStatementOnceToTheStream() {
+        // S2 links back to S1, and is linked twice from S1, with important properties
+        txn.executeWrite(
+                m -> m.add(S1, RDF.type, createResource("https://institut-curie.org/ontology#BiologicalSample"))
+                        .add(S1, RDFS.label, "Sample 1")
+                        .add(STMT1)
+                        .add(S1, P2, S2)
+                        .add(S2, createProperty("https://institut-curie.org/ontology#sample"), S1)
+                        .add(S2, RDF.type, FS.File)
+                        .add(S2, RDFS.label, "File 1"));
+
+        var model = createDefaultModel();
+        var triples = new ArrayList<Triple>();
+        api.get(S1.getURI(), true, new StreamRDFWrapper(StreamRDFLib.graph(model.getGraph())) {
+            @Override
+            public void triple(Triple triple) {
+                triples.add(triple);
+                super.triple(triple);
+            }
+        });
+
+        assertEquals(new HashSet<>(triples).size(), triples.size());
+        assertTrue(model.isIsomorphicWith(api.get(S1.getURI(), true)));
+    }
+
+    @Test
+    public void testExportWritesTheEntitiesOfAType() {
+        var sampleType = createResource("https://institut-curie.org/ontology#BiologicalSample");
+        txn.executeWrite(m -> m.add(S1, RDF.type, sampleType)
+                .add(S1, RDFS.label, "Sample 1")
+                .add(S2, RDF.type, sampleType)
+                .add(S2, RDFS.label, "Sample 2")
+                .add(S2, FS.dateDeleted, "2021-07-06")
+                .add(S3, RDF.type, FS.File));
+
+        var model = createDefaultModel();
+        api.export(sampleType, null, StreamRDFLib.graph(model.getGraph()));
+
+        assertTrue(model.contains(S1, RDFS.label, "Sample 1"));
+        assertFalse(model.containsResource(S2));
+        assertFalse(model.containsResource(S3));
+    }
+
+    @Test
+    public void testExportWritesTheContentsOfACollection() {
+        txn.executeWrite(m -> m.add(S1, RDF.type, FS.Collection)
+                .add(S2, RDF.type, FS.Directory)
+                .add(S2, FS.belongsTo, S1)
+                .add(S3, RDF.type, FS.File)
+                .add(S3, FS.belongsTo, S2));
+
+        var model = createDefaultModel();
+        api.export(null, S1, StreamRDFLib.graph(model.getGraph()));
+        assertTrue(model.contains(S1, RDF.type, FS.Collection));
+        assertTrue(model.contains(S3, FS.belongsTo, S2));
+
+        var files = createDefaultModel();
+        api.export(FS.File, S1, StreamRDFLib.graph(files.getGraph()));
+        assertTrue(files.contains(S3, RDF.type, FS.File));
+        assertFalse(files.contains(S2, null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testExportRequiresATypeOrACollection() {
+        api.export(null, null, StreamRDFLib.sinkNull());
+    }
+
+    @Test
+    public void testInverseLinksArePaged() {
+        var sampleProperty = createProperty("https://institut-curie.org/ontology#sample");
+        txn.executeWrite(m -> {
+            m.add(S1, RDF.type, createResource("https://institut-curie.org/ontology#BiologicalSample"));
+            for (var i = 0; i < 5; i++) {
+                var file = m.createResource("http://localhost/iri/F" + i)
+                        .addProperty(RDF.type, FS.File)
+                        .addProperty(sampleProperty, S1);
+                if (i == 2) {
+                    file.addProperty(FS.dateDeleted, "2021-07-06");
+                }
+            }
+        });
+
+        var links = new ArrayList<Resource>();
+        String token = null;
+        var pages = 0;
+        do {
+            var page = api.getInverseLinks(S1.getURI(), sampleProperty.getURI(), token, 2, false);
+            page.getModel().listSubjects().forEachRemaining(links::add);
+            token = page.getContinuationToken();
+            pages++;
+        } while (token != null);
+
+        assertEquals(2, pages);
+        assertEquals(
+                List.of("F0", "F1", "F3", "F4"),
+                links.stream().map(Resource::getLocalName).sorted().toList());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInverseLinksRequireAnInversePropertyOfTheShape() {
+        txn.executeWrite(
+                m -> m.add(S1, RDF.type, createResource("https://institut-curie.org/ontology#BiologicalSample")));
+        api.getInverseLinks(S1.getURI(), P1.getURI(), null, 10, false);
+    }
+
     @Test
     public void testPutWillAddStatements() {
         var delta = modelOf(STMT1, STMT2);
@@ -98,4 +98,23 @@ public class ProtectMachineOnlyPredicatesValidatorTest {
         validator.validate(EMPTY_MODEL, EMPTY_MODEL, EMPTY_MODEL, EMPTY_MODEL, violationHandler);
         verifyNoInteractions(violationHandler);
     }
+
+    @Test
+    public void testTheContentOfFileVersionsIsMachineOnly() {
+        var before = modelOf(S1, RDF.type, FS.FileVersion, S1, FS.blobId, createStringLiteral("blob"));
+        var after = modelOf(S1, RDF.type, FS.FileVersion, S1, FS.blobId, createStringLiteral("other blob"));
+        var removed = modelOf(S1, FS.blobId, createStringLiteral("blob"));
+        var added = modelOf(S1, FS.blobId, createStringLiteral("other blob"));
+
+        validator.validate(before, after, removed, added, violationHandler);
+
+        verify(violationHandler)
+                .onViolation(
+                        "The given model contains a machine-only predicate",
+                        createStatement(S1, FS.blobId, createStringLiteral("blob")));
+        verify(violationHandler)
+                .onViolation(
+                        "The given model contains a machine-only predicate",
+                        createStatement(S1, FS.blobId, createStringLiteral("other blob")));
+    }
 }
@@ -223,6 +223,43 @@ public class ShaclValidatorTest {
         verifyNoMoreInteractions(violationHandler);
     }
 
+    @Test
+    public void largeChangesAreValidatedInParallel() {
+        var before = modelOf(resource2, RDF.type, FS.User);
+        var model = createDefaultModel();
+        for (int i = 0; i < ShaclValidator.PARALLEL_THRESHOLD; i++) {
+            var resource = createResource("http://example.com/file" + i);
+            model.add(resource, RDF.type, FS.File).add(resource, FS.createdBy, i % 2 == 0 ? resource2 : resource1);
+        }
+
+        validator.validate(before, before.union(model), EMPTY_MODEL, model, violationHandler);
+
+        model.listSubjectsWithProperty(FS.createdBy, resource1)
+                .forEachRemaining(resource -> expect(resource, FS.createdBy, resource1));
+
+        verifyNoMoreInteractions(violationHandler);
+    }
+
+    @Test
+    public void onlyChangedPropertiesAreValidated() {
+        var before = createDefaultModel()
+                .add(resource1, RDF.type, FS.File)
+                .add(resource1, FS.createdBy, createTypedLiteral(123));
+        var toAdd = modelOf(resource1, RDFS.comment, createStringLiteral("comment"));
+
+        validator.validate(before, before.union(toAdd), EMPTY_MODEL, toAdd, violationHandler);
+
+        verifyNoInteractions(violationHandler);
+
+        toAdd = modelOf(resource1, FS.deletedBy, createTypedLiteral(123));
+
+        validator.validate(before, before.union(toAdd), EMPTY_MODEL, toAdd, violationHandler);
+
+        expect(resource1, FS.deletedBy, createTypedLiteral(123));
+
+        verifyNoMoreInteractions(violationHandler);
+    }
+
     private void expect(Resource subject, Property predicate, RDFNode object) {
         verify(violationHandler)
                 .onViolation(anyString(), eq(asNode(subject)), eq(asNode(predicate)), eq(asNode(object)));
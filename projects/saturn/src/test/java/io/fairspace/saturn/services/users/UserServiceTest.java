@@ -3,6 +3,8 @@ package io.fairspace.saturn.services.users;
 import java.util.*;
 import java.util.stream.*;
 
+import com.pivovarit.function.ThrowingFunction;
+import org.apache.jena.rdf.model.Model;
 import org.eclipse.jetty.server.*;
 import org.junit.*;
 import org.junit.runner.*;
@@ -28,7 +30,16 @@ import static org.mockito.Mockito.when;
 @RunWith(MockitoJUnitRunner.class)
 public class UserServiceTest {
     private org.eclipse.jetty.server.Request request;
-    private Transactions tx = new SimpleTransactions(createTxnMem());
+    private boolean failWrites;
+    private Transactions tx = new SimpleTransactions(createTxnMem()) {
+        @Override
+        public <R, E extends Exception> R calculateWrite(ThrowingFunction<? super Model, R, E> job) throws E {
+            if (failWrites) {
+                throw new IllegalStateException("The database is not available");
+            }
+            return super.calculateWrite(job);
+        }
+    };
     private WorkspaceService workspaceService;
 
     @Mock
@@ -111,7 +122,7 @@ public class UserServiceTest {
      * ongoing read transaction.
      */
     @Test
-    public void testFetchUsersWhileFetchingWorkspaces() throws InterruptedException {
+    public void testFetchUsersWhileFetchingWorkspaces() throws Exception {
         var pristineUser = tx.calculateRead(model -> new DAO(model).read(User.class, generateMetadataIri("user")));
         Assert.assertEquals("user", pristineUser.getName());
 
@@ -122,9 +133,106 @@ public class UserServiceTest {
         // This will trigger saving the updated user (in a write transactions) during a read transaction.
         workspaceService.listWorkspaces();
 
-        Thread.sleep(500);
+        userService.awaitBackgroundTasks();
         var updatedUser = tx.calculateRead(model -> new DAO(model).read(User.class, generateMetadataIri("user")));
         // Check that the updated user was correctly saved to the database.
         Assert.assertEquals("Updated", updatedUser.getName());
     }
+
+    @Test
+    public void testUsersAreSynchronisedInTheBackground() throws Exception {
+        selectAdmin();
+        var pristineAdmin = userService.findUserByUsername("admin");
+        Assert.assertNotNull(pristineAdmin);
+
+        keycloakUsers.get(0).setLastName("Updated");
+        var update = new UserRolesUpdate();
+        update.setId("user");
+        update.setCanAddSharedMetadata(true);
+        userService.update(update);
+        // The update is visible at once, without waiting for a synchronisation.
+        // The lookup returns the users as they are and synchronises them in the background
+        Assert.assertTrue(userService.findUserByUsername("user").isCanAddSharedMetadata());
+
+        userService.awaitBackgroundTasks();
+        var user = userService.getUsersMap().get(generateMetadataIri("user"));
+        Assert.assertEquals("Updated", user.getName());
+        Assert.assertTrue(user.isCanAddSharedMetadata());
+        // Users that did not change in Keycloak are not read again
+        Assert.assertSame(pristineAdmin, userService.findUserByUsername("admin"));
+    }
+
+    @Test
+    public void testFailedWritesOfNewUsersAreRetried() throws Exception {
+        var newUser = new UserRepresentation();
+        newUser.setId("new");
+        newUser.setUsername("new");
+        keycloakUsers.add(newUser);
+        var update = new UserRolesUpdate();
+        update.setId("user");
+
+        userService.update(update);
+        failWrites = true;
+        userService.getUsers();
+        userService.awaitBackgroundTasks();
+
+        Assert.assertNotNull(userService.findUserByUsername("new"));
+        Assert.assertNull(tx.calculateRead(model -> new DAO(model).read(User.class, generateMetadataIri("new"))));
+
+        failWrites = false;
+        userService.update(update);
+        userService.getUsers();
+        userService.awaitBackgroundTasks();
+
+        Assert.assertNotNull(tx.calculateRead(model -> new DAO(model).read(User.class, generateMetadataIri("new"))));
+    }
+
+    @Test
+    public void testUnsavedUsersAreNotChangedInPlace() throws Exception {
+        var newUser = new UserRepresentation();
+        newUser.setId("new");
+        newUser.setUsername("new");
+        keycloakUsers.add(newUser);
+        var update = new UserRolesUpdate();
+        update.setId("user");
+
+        userService.update(update);
+        failWrites = true;
+        userService.getUsers();
+        userService.awaitBackgroundTasks();
+        var unsaved = userService.findUserByUsername("new");
+
+        newUser.setEmail("new@example.com");
+        failWrites = false;
+        userService.update(update);
+        failWrites = true;
+        userService.getUsers();
+        userService.awaitBackgroundTasks();
+
+        Assert.assertNull(unsaved.getEmail());
+        Assert.assertEquals(
+                "new@example.com", userService.findUserByUsername("new").getEmail());
+    }
+
+    @Test
+    public void testUsersAreReloadedFromTheDatabase() throws Exception {
+        userService = new UserService(ConfigLoader.CONFIG.auth, tx, usersResource, 0);
+        Assert.assertFalse(userService.findUserByUsername("admin").isCanAddSharedMetadata());
+
+        // Changed in the database, not through the user service
+        tx.executeWrite(model -> {
+            var dao = new DAO(model);
+            var stored = dao.read(User.class, generateMetadataIri("admin"));
+            stored.setCanAddSharedMetadata(true);
+            dao.write(stored);
+        });
+        selectAdmin();
+        var update = new UserRolesUpdate();
+        update.setId("user");
+        userService.update(update);
+        userService.getUsers();
+        userService.awaitBackgroundTasks();
+
+        Assert.assertTrue(userService.findUserByUsername("admin").isCanAddSharedMetadata());
+    }
 }
@@ -1,8 +1,15 @@
 package io.fairspace.saturn.services.views;
 
 import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -16,6 +23,7 @@ import org.apache.jena.query.Dataset;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.sparql.core.DatasetGraphFactory;
 import org.apache.jena.sparql.util.Context;
+import org.apache.jena.vocabulary.RDFS;
 import org.eclipse.jetty.server.Authentication;
 import org.junit.Assert;
 import org.junit.Before;
@@ -44,6 +52,7 @@ import io.fairspace.saturn.services.workspaces.Workspace;
 import io.fairspace.saturn.services.workspaces.WorkspaceRole;
 import io.fairspace.saturn.services.workspaces.WorkspaceService;
 import io.fairspace.saturn.webdav.DavFactory;
+import io.fairspace.saturn.webdav.blobstore.BlobGarbageCollector;
 import io.fairspace.saturn.webdav.blobstore.BlobInfo;
 import io.fairspace.saturn.webdav.blobstore.BlobStore;
 
@@ -54,8 +63,13 @@ import static io.fairspace.saturn.TestUtils.setupRequestContext;
 import static io.fairspace.saturn.auth.RequestContext.getCurrentRequest;
 
 import static org.apache.jena.query.DatasetFactory.wrap;
+import static org.apache.jena.rdf.model.ResourceFactory.createProperty;
+import static org.apache.jena.rdf.model.ResourceFactory.createResource;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -79,6 +93,9 @@ public class JdbcQueryServiceTest extends PostgresAwareTest {
     MetadataService api;
     QueryService sut;
     MaintenanceService maintenanceService;
+    ViewStoreClientFactory viewStoreClientFactory;
+    Dataset ds;
+    Transactions tx;
 
     User user;
     Authentication.User userAuthentication;
@@ -107,17 +124,23 @@ public class JdbcQueryServiceTest extends PostgresAwareTest {
         viewDatabase.password = postgres.getPassword();
         viewDatabase.maxPoolSize = 5;
         ViewsConfig config = loadViewsConfig("src/test/resources/test-views.yaml");
-        var viewStoreClientFactory = new ViewStoreClientFactory(config, viewDatabase, new Config.Search());
+        viewStoreClientFactory = new ViewStoreClientFactory(config, viewDatabase, new Config.Search());
 
         var dsg = new TxnIndexDatasetGraph(DatasetGraphFactory.createTxnMem(), viewStoreClientFactory);
-        Dataset ds = wrap(dsg);
-        Transactions tx = new SimpleTransactions(ds);
+        ds = wrap(dsg);
+        tx = new SimpleTransactions(ds);
         Model model = ds.getDefaultModel();
         var vocabulary = model.read("test-vocabulary.ttl");
 
         var viewService = new ViewService(ConfigLoader.CONFIG, config, ds, viewStoreClientFactory, permissions);
 
-        maintenanceService = new MaintenanceService(userService, ds, viewStoreClientFactory, viewService);
+        maintenanceService = new MaintenanceService(
+                userService,
+                ds,
+                viewStoreClientFactory,
+                viewService,
+                viewStoreClientFactory.slowQueryLog,
+                mock(BlobGarbageCollector.class));
 
         workspaceService = new WorkspaceService(tx, userService);
 
@@ -263,6 +286,110 @@ public class JdbcQueryServiceTest extends PostgresAwareTest {
         Assert.assertEquals(1, page.getRows().size());
     }
 
+    @Test
+    public void testRetrieveSamplePageUsingSampleFilterIncludeCounts() {
+        var request = new ViewRequest();
+        request.setView("Sample");
+        request.setPage(1);
+        request.setSize(10);
+        request.setIncludeCounts(true);
+        request.setFilters(Collections.singletonList(ViewFilter.builder()
+                .field("Sample_nature")
+                .values(Collections.singletonList(SAMPLE_NATURE_BLOOD))
+                .build()));
+        var page = sut.retrieveViewPage(request);
+        Assert.assertEquals(1, page.getRows().size());
+        // The filter is applied to the count as well
+        Assert.assertEquals(1L, page.getTotalCount().longValue());
+    }
+
+    @Test
+    public void testQueriesWithTheSameShapeShareTheirSql() {
+        var request = new CountRequest();
+        request.setView("Sample");
+        request.setFilters(new ArrayList<>(List.of(
+                ViewFilter.builder()
+                        .field("Sample_nature")
+                        .values(List.of(SAMPLE_NATURE_BLOOD))
+                        .build(),
+                ViewFilter.builder().field("Sample_tumorCellularity").min(0).build())));
+        Assert.assertEquals(1, sut.count(request).getCount());
+        var shapes = viewStoreClientFactory.queryCompiler.size();
+
+        // Different number of values and a different filter order
+        request.setFilters(new ArrayList<>(List.of(
+                ViewFilter.builder().field("Sample_tumorCellularity").min(0).build(),
+                ViewFilter.builder()
+                        .field("Sample_nature")
+                        .values(List.of(SAMPLE_NATURE_BLOOD, "http://example.com/unknown"))
+                        .build())));
+        Assert.assertEquals(1, sut.count(request).getCount());
+        Assert.assertEquals(shapes, viewStoreClientFactory.queryCompiler.size());
+    }
+
+    @Test
+    public void testPagesShareTheirSql() {
+        var request = new ViewRequest();
+        request.setView("Sample");
+        request.setPage(1);
+        request.setSize(1);
+        Assert.assertEquals(1, sut.retrieveViewPage(request).getRows().size());
+        var shapes = viewStoreClientFactory.queryCompiler.size();
+
+        request.setPage(2);
+        Assert.assertEquals(1, sut.retrieveViewPage(request).getRows().size());
+        request.setPage(1);
+        request.setSize(10);
+        Assert.assertEquals(2, sut.retrieveViewPage(request).getRows().size());
+        Assert.assertEquals(shapes, viewStoreClientFactory.queryCompiler.size());
+    }
+
+    @Test
+    public void testTermLabelsAreKeptInTheLabelDictionary() {
+        var labelDictionary = viewStoreClientFactory.labelDictionary;
+        Assert.assertEquals("Blood", labelDictionary.getLabel(SAMPLE_NATURE_BLOOD));
+
+        labelDictionary.invalidate(SAMPLE_NATURE_BLOOD);
+        var request = new CountRequest();
+        request.setView("Sample");
+        request.setFilters(new ArrayList<>(List.of(ViewFilter.builder()
+                .field("Sample_nature")
+                .values(List.of(SAMPLE_NATURE_BLOOD))
+                .build())));
+        // The label is read from the label table for the filter and kept for subsequent requests
+        Assert.assertEquals(1, sut.count(request).getCount());
+        Assert.assertEquals("Blood", labelDictionary.getLabel(SAMPLE_NATURE_BLOOD));
+    }
+
+    @Test
+    public void testViewsGetTheLabelsOfRenamedTermsFromTheGraph() throws SQLException {
+        var labelDictionary = viewStoreClientFactory.labelDictionary;
+        var blood = createResource(SAMPLE_NATURE_BLOOD);
+        tx.executeWrite(m -> m.removeAll(blood, RDFS.label, null).add(blood, RDFS.label, "Whole blood"));
+        // A concurrent request has put the old label back in the dictionary
+        labelDictionary.put(SAMPLE_NATURE_BLOOD, "https://institut-curie.org/ontology#SampleNature", "Blood");
+
+        tx.executeRead(m -> {
+            try (var viewUpdater = new ViewUpdater(viewStoreClientFactory.build(), ds.asDatasetGraph())) {
+                m.listSubjectsWithProperty(createProperty("https://institut-curie.org/ontology#isOfNature"), blood)
+                        .forEachRemaining(sample -> viewUpdater.updateSubject(sample.asNode()));
+                viewUpdater.commit();
+            }
+        });
+
+        Assert.assertEquals("Whole blood", labelDictionary.getLabel(SAMPLE_NATURE_BLOOD));
+        var request = new ViewRequest();
+        request.setView("Sample");
+        request.setPage(1);
+        request.setSize(10);
+        var natures = sut.retrieveViewPage(request).getRows().stream()
+                .flatMap(row -> row.get("Sample_nature").stream())
+                .map(ValueDTO::getLabel)
+                .collect(Collectors.toSet());
+        Assert.assertTrue(natures.contains("Whole blood"));
+        Assert.assertFalse(natures.contains("Blood"));
+    }
+
     @Test
     public void testRetrieveSamplePageForAccessibleCollection() {
         var request = new ViewRequest();
@@ -350,6 +477,48 @@ public class JdbcQueryServiceTest extends PostgresAwareTest {
         Assert.assertEquals(2, result.getCount());
     }
 
+    @Test
+    public void testCountFacetValuesOfSamples() {
+        var request = new CountRequest();
+        request.setView("Sample");
+        request.setFilters(new ArrayList<>(List.of(ViewFilter.builder()
+                .field("Sample_nature")
+                .values(List.of(SAMPLE_NATURE_BLOOD))
+                .build())));
+        var result = sut.countFacetValues(request);
+        Assert.assertFalse(result.isTimeout());
+
+        var nature = result.getFacets().stream()
+                .filter(facet -> facet.getName().equals("Sample_nature"))
+                .findFirst()
+                .orElseThrow();
+        // The filter on the nature column itself is not applied when counting its values
+        Assert.assertEquals(2, nature.getValues().size());
+        var blood = nature.getValues().stream()
+                .filter(value -> value.getValue().equals(SAMPLE_NATURE_BLOOD))
+                .findFirst()
+                .orElseThrow();
+        Assert.assertEquals("Blood", blood.getLabel());
+        Assert.assertEquals(1, blood.getCount());
+
+        var cellularity = result.getFacets().stream()
+                .filter(facet -> facet.getName().equals("Sample_tumorCellularity"))
+                .findFirst()
+                .orElseThrow();
+        // Only the blood sample, with the highest cellularity, matches the filter
+        Assert.assertEquals(
+                1,
+                cellularity
+                        .getBuckets()
+                        .get(cellularity.getBuckets().size() - 1)
+                        .getCount());
+        Assert.assertEquals(
+                1,
+                cellularity.getBuckets().stream()
+                        .mapToLong(FacetBucketDTO::getCount)
+                        .sum());
+    }
+
     @Test
     public void testSearchFiles() {
         var request = new FileSearchRequest();
@@ -418,4 +587,62 @@ public class JdbcQueryServiceTest extends PostgresAwareTest {
         var results = sut.searchFiles(request);
         Assert.assertEquals(1, results.size());
     }
+
+    @Test
+    public void testPagesAreReturnedWhenExplainingASlowQueryTimesOut() throws Exception {
+        var viewDatabase = new Config.ViewDatabase();
+        viewDatabase.url = postgres.getJdbcUrl();
+        viewDatabase.username = postgres.getUsername();
+        viewDatabase.password = postgres.getPassword();
+        var search = new Config.Search();
+        search.slowQueryThreshold = 0;
+        search.explainSlowQueries = true;
+        search.explainTimeout = 1;
+        var factory = spy(new ViewStoreClientFactory(
+                loadViewsConfig("src/test/resources/test-views.yaml"), viewDatabase, search));
+        doAnswer(invocation -> withSlowExplains((Connection) invocation.callRealMethod()))
+                .when(factory)
+                .getConnection();
+
+        try (var reader = new ViewStoreReader(search, factory)) {
+            Assert.assertEquals(
+                    2, reader.retrieveRows("Sample", List.of(), 0, 10, false).size());
+            // The query after the failed explanation is executed in the same transaction
+            Assert.assertEquals(2, reader.countRows("Sample", List.of()));
+        }
+    }
+
+    /**
+     * @return a connection on which explaining a query takes longer than the query timeout.
+     */
+    private static Connection withSlowExplains(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(), new Class<?>[] {Connection.class}, (proxy, method, args) -> {
+                    var result = invoke(connection, method, args);
+                    if (method.getName().equals("prepareStatement") && ((String) args[0]).startsWith("explain")) {
+                        var statement = (PreparedStatement) result;
+                        return Proxy.newProxyInstance(
+                                PreparedStatement.class.getClassLoader(),
+                                new Class<?>[] {PreparedStatement.class},
+                                (statementProxy, statementMethod, statementArgs) -> {
+                                    if (statementMethod.getName().equals("executeQuery")) {
+                                        try (var sleep = connection.prepareStatement("select pg_sleep(5)")) {
+                                            sleep.setQueryTimeout(statement.getQueryTimeout());
+                                            sleep.executeQuery();
+                                        }
+                                    }
+                                    return invoke(statement, statementMethod, statementArgs);
+                                });
+                    }
+                    return result;
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
 }
@@ -0,0 +1,146 @@
+package io.fairspace.saturn.services.views;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.jena.query.QueryFactory;
+import org.junit.Test;
+
+import io.fairspace.saturn.config.Config;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SlowQueryLogTest {
+    private static SlowQueryLog slowQueryLog(int shapes, boolean explain) {
+        var config = new Config.Search();
+        config.slowQueryThreshold = 100;
+        config.slowQueryShapes = shapes;
+        config.explainSlowQueries = explain;
+        return new SlowQueryLog(config);
+    }
+
+    @Test
+    public void queriesAreSlowFromTheThresholdOrWhenTheyTimeOut() {
+        var log = slowQueryLog(10, false);
+
+        assertFalse(log.isSlow(MILLISECONDS.toNanos(99), false));
+        assertTrue(log.isSlow(MILLISECONDS.toNanos(100), false));
+        assertTrue(log.isSlow(MILLISECONDS.toNanos(1), true));
+    }
+
+    @Test
+    public void theShapeOfSqlQueriesHasNoLiteralsOrPlaceholderLists() {
+        assertEquals(
+                "select id from sample where label = ? and size > ? and type in (?)",
+                SlowQueryLog.sqlShape(
+                        "select id\n  from sample where label = 'it''s' and size > 10\n  and type in (?, ?, ?)"));
+        assertEquals(
+                "select * from sample_1 where col = any(?)",
+                SlowQueryLog.sqlShape("select * from sample_1 where col = any(?)"));
+    }
+
+    @Test
+    public void theShapeOfSparqlQueriesKeepsIrisAndRedactsStrings() {
+        var parameters = new ArrayList<String>();
+        var shape = SlowQueryLog.sparqlShape(
+                """
+                SELECT ?s WHERE {
+                  ?s <http://www.w3.org/2000/01/rdf-schema#label> "secret label" .
+                  ?s <https://fairspace.nl/ontology#size> ?size
+                  FILTER (?size > 42)
+                  VALUES ?type { <https://example.com/a> <https://example.com/b> }
+                }
+                """,
+                parameters);
+
+        assertEquals(
+                "SELECT ?s WHERE { ?s <http://www.w3.org/2000/01/rdf-schema#label> ? . "
+                        + "?s <https://fairspace.nl/ontology#size> ?size FILTER (?size > ?) VALUES ?type { ? } }",
+                shape);
+        assertEquals(
+                List.of("<https://example.com/a>", "<https://example.com/b>", "<redacted, 12 characters>", "42"),
+                parameters);
+    }
+
+    @Test
+    public void typedNumbersAndDatesAreNotRedacted() {
+        var parameters = new ArrayList<String>();
+        SlowQueryLog.sparqlShape(
+                "SELECT * WHERE { ?s ?p \"2024-01-01\"^^<http://www.w3.org/2001/XMLSchema#date> }", parameters);
+
+        assertEquals(List.of("\"2024-01-01\"^^<http://www.w3.org/2001/XMLSchema#date>"), parameters);
+    }
+
+    @Test
+    public void sqlParametersAreRedactedUnlessTheyAreNumbersOrIris() {
+        assertEquals("12", SlowQueryLog.redact(12L));
+        assertEquals("https://example.com/a", SlowQueryLog.redact("https://example.com/a"));
+        assertEquals("<redacted, 6 characters>", SlowQueryLog.redact("secret"));
+    }
+
+    @Test
+    public void slowQueriesAreAggregatedByShape() {
+        var log = slowQueryLog(10, false);
+        var first = new ViewQueryCompiler.SqlQuery("select * from sample where label = ?", List.of("a"));
+        var second = new ViewQueryCompiler.SqlQuery("select * from sample where label = ?", List.of("bb"));
+        var other = new ViewQueryCompiler.SqlQuery("select count(*) from sample", List.of());
+
+        log.recordSql("view.rows", first, MILLISECONDS.toNanos(200), 5, false, null);
+        log.recordSql("view.rows", second, MILLISECONDS.toNanos(300), 7, true, null);
+        log.recordSql("count", other, MILLISECONDS.toNanos(400), 1, false, null);
+
+        var top = log.top(10);
+        assertEquals(2, top.size());
+        var rows = top.get(0);
+        assertEquals("select * from sample where label = ?", rows.getShape());
+        assertEquals(2, rows.getCount());
+        assertEquals(1, rows.getTimeouts());
+        assertEquals(500, rows.getTotalMillis());
+        assertEquals(300, rows.getMaxMillis());
+        assertEquals(7, rows.getLastRows());
+        assertEquals(List.of("<redacted, 2 characters>"), rows.getLastParameters());
+        assertEquals("count", top.get(1).getOperation());
+        assertEquals(1, log.top(1).size());
+    }
+
+    @Test
+    public void theShapeWithTheLeastTimeSpentIsEvicted() {
+        var log = slowQueryLog(2, false);
+
+        log.recordSql(
+                "a",
+                new ViewQueryCompiler.SqlQuery("select 'a'", List.of()),
+                MILLISECONDS.toNanos(300),
+                1,
+                false,
+                null);
+        log.recordSql(
+                "b", new ViewQueryCompiler.SqlQuery("select a", List.of()), MILLISECONDS.toNanos(100), 1, false, null);
+        log.recordSql(
+                "c", new ViewQueryCompiler.SqlQuery("select b", List.of()), MILLISECONDS.toNanos(200), 1, false, null);
+
+        var operations = log.top(10).stream().map(SlowQueryDTO::getOperation).toList();
+        assertEquals(List.of("a", "c"), operations);
+    }
+
+    @Test
+    public void thePlanOfSparqlQueriesIsCapturedOnlyIfEnabled() {
+        var query = QueryFactory.create("SELECT ?s WHERE { ?s ?p \"secret\" }");
+
+        var log = slowQueryLog(10, false);
+        log.recordSparql("sparql.page", query, MILLISECONDS.toNanos(200), 0, false);
+        assertNull(log.top(1).get(0).getLastPlan());
+
+        log = slowQueryLog(10, true);
+        log.recordSparql("sparql.page", query, MILLISECONDS.toNanos(200), 0, false);
+        var plan = log.top(1).get(0).getLastPlan();
+        assertNotNull(plan);
+        assertTrue(plan.contains("bgp"));
+        assertFalse(plan.contains("secret"));
+    }
+}
@@ -56,6 +56,8 @@ public class SparqlQueryServiceTest {
     WorkspaceService workspaceService;
     MetadataService api;
     QueryService queryService;
+    Dataset filteredDataset;
+    Transactions tx;
 
     User user;
     Authentication.User userAuthentication;
@@ -102,7 +104,7 @@ public class SparqlQueryServiceTest {
     public void before() throws NotAuthorizedException, BadRequestException, ConflictException, IOException {
         var dsg = DatasetGraphFactory.createTxnMem();
         Dataset ds = wrap(dsg);
-        Transactions tx = new SimpleTransactions(ds);
+        tx = new SimpleTransactions(ds);
         Model model = ds.getDefaultModel();
         var vocabulary = model.read("test-vocabulary.ttl");
 
@@ -112,10 +114,10 @@ public class SparqlQueryServiceTest {
         var davFactory = new DavFactory(model.createResource(baseUri), store, userService, context);
         var metadataPermissions = new MetadataPermissions(workspaceService, davFactory, userService);
         var filteredDatasetGraph = new FilteredDatasetGraph(ds.asDatasetGraph(), metadataPermissions);
-        var filteredDataset = DatasetImpl.wrap(filteredDatasetGraph);
+        filteredDataset = DatasetImpl.wrap(filteredDatasetGraph);
 
         queryService = new SparqlQueryService(
-                ConfigLoader.CONFIG.search, loadViewsConfig("src/test/resources/test-views.yaml"), filteredDataset);
+                ConfigLoader.CONFIG.search, loadViewsConfig("src/test/resources/test-views.yaml"), filteredDataset, tx);
 
         when(permissions.canWriteMetadata(any())).thenReturn(true);
         api = new MetadataService(tx, vocabulary, new ComposedValidator(new UniqueLabelValidator()), permissions);
@@ -183,6 +185,85 @@ public class SparqlQueryServiceTest {
                 0.01);
     }
 
+    @Test
+    public void testRetrieveSamplePageIncludesJoinedViews() {
+        var viewRequest = new ViewRequest();
+        viewRequest.setView("Sample");
+        viewRequest.setPage(1);
+        viewRequest.setSize(10);
+        var page = queryService.retrieveViewPage(viewRequest);
+        assertEquals(2, page.getRows().size());
+        for (var row : page.getRows()) {
+            var sample = row.get("Sample").iterator().next().getValue();
+            var subject = row.get("Subject").iterator().next();
+            assertEquals(
+                    sample.equals("http://example.com/samples#s1-a") ? "Subject 1" : "Subject 2", subject.getLabel());
+            assertEquals(
+                    "Homo sapiens", row.get("Subject_species").iterator().next().getLabel());
+            // Columns without values are present as empty sets
+            assertTrue(row.get("Sample_collectDate").isEmpty());
+        }
+    }
+
+    @Test
+    public void testRetrieveSamplePageSequentiallyAndInParallel() {
+        var viewRequest = new ViewRequest();
+        viewRequest.setView("Subject");
+        viewRequest.setPage(1);
+        viewRequest.setSize(10);
+        var search = new Config.Search();
+        search.pageHydrationThreads = 1;
+        var sequentialService = new SparqlQueryService(
+                search, loadViewsConfig("src/test/resources/test-views.yaml"), filteredDataset, tx);
+
+        var parallel = queryService.retrieveViewPage(viewRequest);
+        assertEquals(3, parallel.getRows().size());
+        assertEquals(sequentialService.retrieveViewPage(viewRequest).getRows(), parallel.getRows());
+    }
+
+    @Test
+    public void testRowsAreFetchedAgainWhenTheDataChangesMeanwhile() {
+        var viewRequest = new ViewRequest();
+        viewRequest.setView("Subject");
+        viewRequest.setPage(1);
+        viewRequest.setSize(10);
+        var expected = queryService.retrieveViewPage(viewRequest).getRows();
+        // A write transaction is committed while the rows are fetched in parallel
+        var changing = spy(tx);
+        when(changing.getStableDataVersion()).thenReturn(1L, 2L);
+        var service = new SparqlQueryService(
+                ConfigLoader.CONFIG.search,
+                loadViewsConfig("src/test/resources/test-views.yaml"),
+                filteredDataset,
+                changing);
+
+        assertEquals(expected, service.retrieveViewPage(viewRequest).getRows());
+        verify(changing, times(2)).getStableDataVersion();
+    }
+
+    @Test
+    public void testRetrieveSamplePageUsingMultipleFilters() {
+        var request = new ViewRequest();
+        request.setView("Sample");
+        request.setPage(1);
+        request.setSize(10);
+        request.setFilters(List.of(
+                ViewFilter.builder().field("Sample_tumorCellularity").min(10).build(),
+                ViewFilter.builder()
+                        .field("Sample_nature")
+                        .values(List.of(SAMPLE_NATURE_BLOOD))
+                        .build(),
+                ViewFilter.builder()
+                        .field("Subject_gender")
+                        .values(List.of("http://hl7.org/fhir/administrative-gender#female"))
+                        .build()));
+        var page = queryService.retrieveViewPage(request);
+        assertEquals(1, page.getRows().size());
+        assertEquals(
+                "http://example.com/samples#s1-a",
+                page.getRows().get(0).get("Sample").iterator().next().getValue());
+    }
+
     @Test
     public void testCountSamples() {
         selectRegularUser();
@@ -192,6 +273,69 @@ public class SparqlQueryServiceTest {
         assertEquals(2, result.getCount());
     }
 
+    @Test
+    public void testCountFacetValuesOfSamples() {
+        var request = new CountRequest();
+        request.setView("Sample");
+        request.setFilters(List.of(ViewFilter.builder()
+                .field("Sample_nature")
+                .values(List.of(SAMPLE_NATURE_BLOOD))
+                .build()));
+        var result = queryService.countFacetValues(request);
+        assertFalse(result.isTimeout());
+
+        var nature = result.getFacets().stream()
+                .filter(facet -> facet.getName().equals("Sample_nature"))
+                .findFirst()
+                .orElseThrow();
+        // The filter on the nature column itself is not applied when counting its values
+        assertEquals(2, nature.getValues().size());
+        var blood = nature.getValues().stream()
+                .filter(value -> value.getValue().equals(SAMPLE_NATURE_BLOOD))
+                .findFirst()
+                .orElseThrow();
+        assertEquals("Blood", blood.getLabel());
+        assertEquals(1, blood.getCount());
+
+        var cellularity = result.getFacets().stream()
+                .filter(facet -> facet.getName().equals("Sample_tumorCellularity"))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(
+                ConfigLoader.CONFIG.search.facetHistogramBuckets,
+                cellularity.getBuckets().size());
+        // Only the blood sample, with the highest cellularity, matches the filter
+        assertEquals(
+                1,
+                cellularity
+                        .getBuckets()
+                        .get(cellularity.getBuckets().size() - 1)
+                        .getCount());
+        assertEquals(
+                1,
+                cellularity.getBuckets().stream()
+                        .mapToLong(FacetBucketDTO::getCount)
+                        .sum());
+    }
+
+    @Test
+    public void testCountFacetValuesIgnoresTheCaseOfFilterFields() {
+        var request = new CountRequest();
+        request.setView("Sample");
+        request.setFilters(List.of(ViewFilter.builder()
+                .field("Sample_NATURE")
+                .values(List.of(SAMPLE_NATURE_BLOOD))
+                .build()));
+        var result = queryService.countFacetValues(request);
+
+        var nature = result.getFacets().stream()
+                .filter(facet -> facet.getName().equals("Sample_nature"))
+                .findFirst()
+                .orElseThrow();
+        // As with the view database, the filter is recognised as a filter on the nature column
+        assertEquals(2, nature.getValues().size());
+    }
+
     @Test
     public void testCountSamplesWithoutViewAccess() {
         selectExternalUser();
@@ -1,10 +1,12 @@
 package io.fairspace.saturn.services.workspaces;
 
+import java.util.List;
 import javax.mail.Session;
 
 import org.apache.jena.rdf.model.Property;
 import org.apache.jena.rdf.model.Resource;
 import org.apache.jena.vocabulary.RDF;
+import org.apache.jena.vocabulary.RDFS;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -63,6 +65,44 @@ public class WorkspaceServiceTest {
                 .add(EMPTY_WORKSPACE, PROPERTY_2, RESOURCE_2));
     }
 
+    @Test
+    public void testListWorkspacesSummarizesWorkspaces() {
+        user.setAdmin(true);
+        // The workspaces of the fixture have no lifecycle properties, so they can't be read
+        txn.executeWrite(model -> model.removeAll(WORKSPACE_1, null, null).removeAll(EMPTY_WORKSPACE, null, null));
+        var ws1 = service.createWorkspace(Workspace.builder().code("ws1").build());
+        var ws2 = service.createWorkspace(Workspace.builder().code("ws2").build());
+        var res1 = createResource(ws1.getIri().getURI());
+        var manager = createResource("http://localhost/iri/manager");
+        var member = createResource("http://localhost/iri/member");
+        var collection = createResource("http://localhost/iri/C2");
+        txn.executeWrite(model -> model.add(manager, RDF.type, FS.User)
+                .add(manager, FS.id, "manager")
+                .add(manager, RDFS.label, "Manager")
+                .add(manager, FS.isManagerOf, res1)
+                .add(member, RDF.type, FS.User)
+                .add(member, FS.isMemberOf, res1)
+                .add(collection, RDF.type, FS.Collection)
+                .add(collection, FS.ownedBy, res1));
+
+        assertEquals(new WorkspaceSummary(1, 1, 2), getWorkspace(ws1).getSummary());
+        assertEquals(
+                List.of("manager"),
+                getWorkspace(ws1).getManagers().stream().map(User::getId).toList());
+        assertEquals(new WorkspaceSummary(0, 0, 0), getWorkspace(ws2).getSummary());
+
+        txn.executeWrite(model -> model.add(collection, FS.dateDeleted, "2021-07-06"));
+
+        assertEquals(new WorkspaceSummary(1, 0, 2), getWorkspace(ws1).getSummary());
+    }
+
+    private Workspace getWorkspace(Workspace workspace) {
+        return service.listWorkspaces().stream()
+                .filter(ws -> ws.getIri().equals(workspace.getIri()))
+                .findFirst()
+                .orElseThrow();
+    }
+
     @Test
     public void testDeleteEmptyWorkspace() {
         user.setAdmin(true);
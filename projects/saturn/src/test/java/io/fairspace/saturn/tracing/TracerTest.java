@@ -0,0 +1,190 @@
+package io.fairspace.saturn.tracing;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TracerTest {
+    private static final String CALLER = "00-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-01";
+
+    private final InMemorySpanExporter exporter = InMemorySpanExporter.create();
+
+    @Before
+    public void before() {
+        Tracer.start(exporter, 1.0);
+    }
+
+    @After
+    public void after() {
+        Tracer.stop();
+    }
+
+    @Test
+    public void spansAreNotRecordedWhenTracingIsDisabled() {
+        Tracer.stop();
+
+        try (var request = Tracer.startRequest("GET /api/views", CALLER);
+                var child = Tracer.span("transaction.read")) {
+            assertFalse(request.isRecording());
+            assertFalse(child.isRecording());
+            assertSame(request, Tracer.current());
+        }
+        assertTrue(exporter.getFinishedSpanItems().isEmpty());
+    }
+
+    @Test
+    public void spansOutsideOfRequestsAreNotRecorded() {
+        try (var span = Tracer.span("transaction.read")) {
+            assertFalse(span.isRecording());
+        }
+        Tracer.flush();
+
+        assertTrue(exporter.getFinishedSpanItems().isEmpty());
+    }
+
+    @Test
+    public void spansStartedWithinARequestAreItsDescendants() {
+        try (var request = Tracer.startRequest("GET /api/views", null)) {
+            try (var read = Tracer.span("transaction.read")) {
+                assertEquals(read.getSpanId(), Tracer.current().getSpanId());
+                try (var ignored = Tracer.span("sql.view.rows", Span.Kind.CLIENT)) {}
+            }
+            assertEquals(request.getSpanId(), Tracer.current().getSpanId());
+        }
+        assertFalse(Tracer.current().isRecording());
+        Tracer.flush();
+
+        var spans = exporter.getFinishedSpanItems();
+        assertEquals(List.of("sql.view.rows", "transaction.read", "GET /api/views"), names(spans));
+        var sql = spans.get(0);
+        var read = spans.get(1);
+        var request = spans.get(2);
+        assertEquals(SpanKind.CLIENT, sql.getKind());
+        assertEquals(read.getSpanId(), sql.getParentSpanId());
+        assertEquals(request.getSpanId(), read.getParentSpanId());
+        assertFalse(request.getParentSpanContext().isValid());
+        assertEquals(SpanKind.SERVER, request.getKind());
+        assertEquals(request.getTraceId(), sql.getTraceId());
+    }
+
+    @Test
+    public void requestsContinueTheTraceOfTheCaller() {
+        try (var request = Tracer.startRequest("GET /api/views", CALLER)) {
+            assertEquals("0af7651916cd43dd8448eb211c80319c", request.getTraceId());
+        }
+        Tracer.flush();
+
+        assertEquals("b7ad6b7169203331", exporter.getFinishedSpanItems().get(0).getParentSpanId());
+    }
+
+    @Test
+    public void requestsNotSampledByTheCallerAreNotRecorded() {
+        try (var request = Tracer.startRequest("GET /api/views", CALLER.replaceAll("01$", "00"))) {
+            assertFalse(request.isRecording());
+        }
+        Tracer.flush();
+
+        assertTrue(exporter.getFinishedSpanItems().isEmpty());
+    }
+
+    @Test
+    public void requestsAreSampledWithTheConfiguredRatio() {
+        Tracer.start(exporter, 0.0);
+
+        try (var request = Tracer.startRequest("GET /api/views", null)) {
+            assertFalse(request.isRecording());
+        }
+        try (var request = Tracer.startRequest("GET /api/views", CALLER)) {
+            assertTrue(request.isRecording());
+        }
+    }
+
+    @Test
+    public void spansCanBeContinuedOnAnotherThread() throws Exception {
+        try (var request = Tracer.startRequest("PUT /api/metadata", null)) {
+            var queuedAt = System.nanoTime();
+            var worker = new Thread(() -> {
+                Tracer.record("queue", request, queuedAt);
+                try (var ignored = Tracer.span("execute", request)) {
+                    try (var ignored2 = Tracer.span("commit")) {}
+                }
+            });
+            worker.start();
+            worker.join();
+        }
+        Tracer.flush();
+
+        var spans = exporter.getFinishedSpanItems();
+        assertEquals(List.of("queue", "commit", "execute", "PUT /api/metadata"), names(spans));
+        var request = spans.get(3);
+        assertEquals(request.getSpanId(), spans.get(0).getParentSpanId());
+        assertEquals(spans.get(2).getSpanId(), spans.get(1).getParentSpanId());
+        assertEquals(request.getSpanId(), spans.get(2).getParentSpanId());
+        assertTrue(spans.get(0).getEndEpochNanos() >= spans.get(0).getStartEpochNanos());
+    }
+
+    @Test
+    public void spansAreContinuedByTheTasksOfWrappedExecutors() throws Exception {
+        var executor = Context.taskWrapping(Executors.newSingleThreadExecutor());
+        try (var request = Tracer.startRequest("GET /api/views", null)) {
+            executor.submit(() -> {
+                        try (var ignored = Tracer.span("sparql.rows")) {}
+                    })
+                    .get();
+        } finally {
+            executor.shutdown();
+        }
+        Tracer.flush();
+
+        var spans = exporter.getFinishedSpanItems();
+        assertEquals(List.of("sparql.rows", "GET /api/views"), names(spans));
+        assertEquals(spans.get(1).getSpanId(), spans.get(0).getParentSpanId());
+    }
+
+    @Test
+    public void failuresAreRecorded() {
+        try (var request = Tracer.startRequest("GET /api/views", null)) {
+            request.error(new IllegalStateException("Boom")).attribute("http.status_code", 500);
+        }
+        Tracer.flush();
+
+        var span = exporter.getFinishedSpanItems().get(0);
+        assertEquals(StatusCode.ERROR, span.getStatus().getStatusCode());
+        assertEquals("java.lang.IllegalStateException: Boom", span.getStatus().getDescription());
+        assertEquals(500L, (long) span.getAttributes().get(AttributeKey.longKey("http.status_code")));
+    }
+
+    @Test
+    public void closingTheCurrentSpanDoesNotEndIt() {
+        try (var request = Tracer.startRequest("GET /api/views", null)) {
+            try (var ignored = Tracer.current()) {}
+            assertTrue(request.isRecording());
+        }
+    }
+
+    @Test
+    public void routesAreTheFirstTwoSegmentsOfThePath() {
+        assertEquals("/api/webdav", TracingHandler.route("/api/webdav/coll1/data/file.txt"));
+        assertEquals("/api/views", TracingHandler.route("/api/views/"));
+        assertEquals("/api/users", TracingHandler.route("/api/users"));
+        assertEquals("/", TracingHandler.route("/"));
+    }
+
+    private static List<String> names(List<SpanData> spans) {
+        return spans.stream().map(SpanData::getName).toList();
+    }
+}
@@ -2,8 +2,11 @@ package io.fairspace.saturn.util;
 
 import org.junit.Test;
 
+import static io.fairspace.saturn.util.ValidationUtils.parsePositiveInt;
 import static io.fairspace.saturn.util.ValidationUtils.validateIRI;
 
+import static org.junit.Assert.assertEquals;
+
 public class ValidationUtilsTest {
 
     @Test
@@ -15,4 +18,19 @@ public class ValidationUtilsTest {
     public void testValidateSPARQLInjection() {
         validateIRI(">; INSERT something");
     }
+
+    @Test
+    public void testParsePositiveInt() {
+        assertEquals(10, parsePositiveInt("10", "limit"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParsePositiveIntRejectsText() {
+        parsePositiveInt("abc", "limit");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParsePositiveIntRejectsNegativeNumbers() {
+        parsePositiveInt("-1", "limit");
+    }
 }
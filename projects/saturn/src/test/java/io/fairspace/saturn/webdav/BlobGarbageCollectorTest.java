@@ -0,0 +1,84 @@
+package io.fairspace.saturn.webdav;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.jena.query.Dataset;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import io.fairspace.saturn.config.Config;
+import io.fairspace.saturn.rdf.transactions.SimpleTransactions;
+import io.fairspace.saturn.vocabulary.FS;
+import io.fairspace.saturn.webdav.blobstore.BlobGarbageCollector;
+import io.fairspace.saturn.webdav.blobstore.LocalBlobStore;
+
+import static org.apache.jena.query.DatasetFactory.createTxnMem;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BlobGarbageCollectorTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Dataset ds = createTxnMem();
+    private final Config.BlobGc config = new Config.BlobGc();
+    private File dir;
+    private BlobGarbageCollector gc;
+
+    @Before
+    public void before() throws IOException {
+        dir = folder.newFolder("blobs");
+        var store = new LocalBlobStore(dir);
+        config.gracePeriod = 60;
+        config.maxDeletionsPerSecond = 1_000;
+        gc = new BlobGarbageCollector(config, new SimpleTransactions(ds), Map.of("webdav", store));
+
+        ds.getDefaultModel().createResource("http://localhost/iri/history/1").addProperty(FS.blobId, "referenced");
+        blob("referenced", Instant.now().minus(2, ChronoUnit.HOURS));
+        blob("orphan", Instant.now().minus(2, ChronoUnit.HOURS));
+        blob("recent", Instant.now());
+    }
+
+    private void blob(String id, Instant lastModified) throws IOException {
+        var file = new File(dir, id);
+        Files.writeString(file.toPath(), id);
+        Files.setLastModifiedTime(file.toPath(), FileTime.from(lastModified));
+    }
+
+    @Test
+    public void aDryRunReportsOrphansOlderThanTheGracePeriod() throws IOException {
+        var report = gc.collect(true);
+
+        assertTrue(report.isDryRun());
+        assertEquals(1, report.getReferenced());
+        var store = report.getStores().get(0);
+        assertEquals("webdav", store.getName());
+        assertEquals(3, store.getBlobs());
+        assertEquals(1, store.getOrphans());
+        assertEquals("orphan".length(), store.getOrphanBytes());
+        assertEquals(0, store.getDeleted());
+        assertEquals(List.of("orphan"), store.getSample());
+        assertTrue(new File(dir, "orphan").exists());
+        assertEquals(report, gc.getLastReport());
+    }
+
+    @Test
+    public void orphansOlderThanTheGracePeriodAreDeleted() throws IOException {
+        var report = gc.collect(false);
+
+        assertEquals(1, report.getStores().get(0).getDeleted());
+        assertFalse(new File(dir, "orphan").exists());
+        assertTrue(new File(dir, "referenced").exists());
+        assertTrue(new File(dir, "recent").exists());
+    }
+}
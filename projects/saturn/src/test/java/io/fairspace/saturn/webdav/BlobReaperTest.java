@@ -0,0 +1,63 @@
+package io.fairspace.saturn.webdav;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import io.fairspace.saturn.webdav.blobstore.BlobReaper;
+import io.fairspace.saturn.webdav.blobstore.DeletableLocalBlobStore;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BlobReaperTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File blobs;
+    private File queue;
+    private DeletableLocalBlobStore store;
+
+    @Before
+    public void before() throws IOException {
+        blobs = folder.newFolder("blobs");
+        queue = new File(folder.getRoot(), "queue");
+        store = new DeletableLocalBlobStore(blobs);
+        for (var id : List.of("a", "b", "c")) {
+            Files.writeString(new File(blobs, id).toPath(), id);
+        }
+    }
+
+    private static void awaitEmpty(File dir) throws InterruptedException {
+        for (var i = 0; i < 100 && dir.list().length > 0; i++) {
+            Thread.sleep(50);
+        }
+        assertEquals(0, dir.list().length);
+    }
+
+    @Test
+    public void blobsAreDeletedAndRemovedFromTheQueue() throws InterruptedException {
+        new BlobReaper(store, queue, 2).reap(List.of("a", "b"));
+
+        awaitEmpty(queue);
+        assertEquals(List.of("c"), List.of(blobs.list()));
+    }
+
+    @Test
+    public void pendingDeletionsAreResumed() throws IOException, InterruptedException {
+        assertTrue(queue.mkdirs());
+        Files.writeString(new File(queue, "batch.pending").toPath(), "a\nb\nc");
+        Files.writeString(new File(queue, "incomplete.tmp").toPath(), "a");
+
+        new BlobReaper(store, queue, 2);
+
+        awaitEmpty(queue);
+        awaitEmpty(blobs);
+    }
+}
@@ -5,6 +5,8 @@ import java.io.InputStream;
 import java.util.Map;
 import javax.xml.namespace.QName;
 
+import io.milton.http.Handler;
+import io.milton.http.Request;
 import io.milton.http.ResourceFactory;
 import io.milton.http.exceptions.BadRequestException;
 import io.milton.http.exceptions.ConflictException;
@@ -17,6 +19,7 @@ import org.eclipse.jetty.server.Authentication;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
@@ -35,6 +38,7 @@ import io.fairspace.saturn.webdav.resources.FileResource;
 
 import static io.fairspace.saturn.TestUtils.*;
 import static io.fairspace.saturn.auth.RequestContext.getCurrentRequest;
+import static io.fairspace.saturn.webdav.WebDAVServlet.POST_COMMIT_ACTION_ATTRIBUTE;
 
 import static java.lang.String.format;
 import static org.apache.jena.query.DatasetFactory.createTxnMem;
@@ -81,6 +85,15 @@ public class DavFactoryExtraStorageTest {
         lenient().when(userService.currentUser()).thenReturn(admin);
     }
 
+    /**
+     * Runs the actions that {@link TransactionalHandlerWrapper} runs after the transaction is committed.
+     */
+    private void commit() {
+        var actions = ArgumentCaptor.forClass(Runnable.class);
+        verify(request, atLeastOnce()).setAttribute(eq(POST_COMMIT_ACTION_ATTRIBUTE), actions.capture());
+        actions.getAllValues().forEach(Runnable::run);
+    }
+
     @Before
     public void before() {
         factory = new DavFactory(model.createResource(extraStorageUri), store, userService, context);
@@ -201,26 +214,59 @@ public class DavFactoryExtraStorageTest {
 
         assertTrue(file instanceof DeletableResource);
         ((DeletableResource) file).delete();
+        commit();
 
-        verify(store, times(1)).delete("id"); // check if blob is deleted
+        verify(store, timeout(1000)).delete("id"); // check if blob is deleted
 
         assertEquals(0, extraStorageSubdir1.getChildren().size());
         assertNull(extraStorageSubdir1.child("file"));
     }
 
+    @Test
+    public void testBlobIsNotDeletedWhenTheTransactionFails() throws Exception {
+        var extraStorageSubdir1 = ((DavFactory) factory).root.createCollection(defaultExtraStorageRootName);
+        var file = ((FolderResource) extraStorageSubdir1).createNew("file", input, FILE_SIZE, "text/abc");
+
+        var handler = mock(Handler.class);
+        doAnswer(invocation -> {
+                    ((DeletableResource) file).delete();
+                    throw new ConflictException("Failed");
+                })
+                .when(handler)
+                .process(any(), any(), any());
+        var davRequest = mock(Request.class);
+        when(davRequest.getMethod()).thenReturn(Request.Method.DELETE);
+
+        assertThrows(ConflictException.class, () -> new TransactionalHandlerWrapper(handler, tx)
+                .process(null, davRequest, null));
+
+        verify(request).removeAttribute(POST_COMMIT_ACTION_ATTRIBUTE);
+        verify(store, after(500).never()).delete("id");
+        assertNotNull(extraStorageSubdir1.child("file"));
+    }
+
     @Test
     public void testDeleteAllInFolder()
             throws NotAuthorizedException, BadRequestException, ConflictException, IOException {
         var root = (MakeCollectionableResource) factory.getResource(null, EXTRA_STORAGE_PATH);
         var coll = (FolderResource) root.createCollection(defaultExtraStorageRootName);
+        when(request.getAttribute("BLOB"))
+                .thenReturn(
+                        new BlobInfo("id1", FILE_SIZE, "md5"),
+                        new BlobInfo("id2", FILE_SIZE, "md5"),
+                        new BlobInfo("id3", FILE_SIZE, "md5"));
         var file1 = coll.createNew("file1", input, FILE_SIZE, "text/abc");
         var file2 = coll.createNew("file2", input, FILE_SIZE, "text/abc");
         var file3 = coll.createNew("file3", input, FILE_SIZE, "text/abc");
 
         ((PostableResource) root.child(defaultExtraStorageRootName))
                 .processForm(Map.of("action", "delete_all_in_directory"), Map.of());
+        commit();
 
-        verify(store, times(3)).delete(any()); // check if all blob are deleted
+        // check if all blobs are deleted
+        verify(store, timeout(1000)).delete("id1");
+        verify(store, timeout(1000)).delete("id2");
+        verify(store, timeout(1000)).delete("id3");
 
         assertEquals(0, coll.getChildren().size());
         assertNull(coll.child("file1"));
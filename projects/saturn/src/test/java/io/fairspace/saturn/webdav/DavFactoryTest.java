@@ -14,6 +14,7 @@ import io.milton.resource.*;
 import org.apache.jena.query.Dataset;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.sparql.util.Context;
+import org.apache.jena.vocabulary.RDF;
 import org.eclipse.jetty.server.Authentication;
 import org.junit.Before;
 import org.junit.Test;
@@ -440,6 +441,30 @@ public class DavFactoryTest {
         assertNotNull(coll.child("new"));
     }
 
+    @Test
+    public void testRenameFileKeepsVersions()
+            throws NotAuthorizedException, BadRequestException, ConflictException, IOException {
+        var root = (MakeCollectionableResource) factory.getResource(null, BASE_PATH);
+        var coll = (FolderResource) root.createCollection("coll");
+
+        var file = coll.createNew("old", input, FILE_SIZE, "text/abc");
+        when(request.getAttribute("BLOB")).thenReturn(new BlobInfo("id2", FILE_SIZE + 1, "md5"));
+        ((ReplaceableResource) file).replaceContent(input, FILE_SIZE + 1);
+
+        ((MoveableResource) coll.child("old")).moveTo(coll, "new");
+
+        when(request.getHeader("Version")).thenReturn("1");
+        var ver1 = coll.child("new");
+        assertEquals(1, ((MultiNamespaceCustomPropertyResource) ver1).getProperty(VERSION));
+        assertEquals(FILE_SIZE, ((GetableResource) ver1).getContentLength().longValue());
+
+        when(request.getHeader("Version")).thenReturn(null);
+        var current = coll.child("new");
+        assertEquals(2, ((MultiNamespaceCustomPropertyResource) current).getProperty(VERSION));
+        assertEquals(
+                FILE_SIZE + 1, ((GetableResource) current).getContentLength().longValue());
+    }
+
     @Test
     public void testRenameDirectory()
             throws NotAuthorizedException, BadRequestException, ConflictException, IOException {
@@ -510,6 +535,63 @@ public class DavFactoryTest {
         assertNotNull(factory.getResource(null, BASE_PATH + "/c2/dir2/new/file"));
     }
 
+    @Test
+    public void testMoveCopyAndDeleteDirectoryTree()
+            throws NotAuthorizedException, BadRequestException, ConflictException, IOException {
+        var root = (MakeCollectionableResource) factory.getResource(null, BASE_PATH);
+        var coll = (FolderResource) root.createCollection("coll");
+        var dir = (FolderResource) coll.createCollection("old");
+        for (var i = 0; i < 10; i++) {
+            var subdir = (FolderResource) dir.createCollection("dir" + i);
+            for (var j = 0; j < 20; j++) {
+                subdir.createNew("file" + j, input, FILE_SIZE, "text/abc");
+            }
+        }
+        var versions = model.listSubjectsWithProperty(RDF.type, FS.FileVersion)
+                .toList()
+                .size();
+
+        dir.moveTo(coll, "new");
+
+        assertNull(factory.getResource(null, BASE_PATH + "/coll/old/dir9/file19"));
+        assertNotNull(factory.getResource(null, BASE_PATH + "/coll/new/dir9/file19"));
+        assertEquals(
+                20,
+                ((FolderResource) factory.getResource(null, BASE_PATH + "/coll/new/dir0"))
+                        .getChildren()
+                        .size());
+
+        ((CopyableResource) coll.child("new")).copyTo(coll, "copy");
+
+        var copy = factory.getResource(null, BASE_PATH + "/coll/copy/dir9/file19");
+        assertEquals(1, ((MultiNamespaceCustomPropertyResource) copy).getProperty(VERSION));
+        assertEquals(FILE_SIZE, ((GetableResource) copy).getContentLength().longValue());
+        assertNotNull(factory.getResource(null, BASE_PATH + "/coll/new/dir9/file19"));
+
+        ((DeletableResource) coll.child("copy")).delete();
+
+        assertNull(factory.getResource(null, BASE_PATH + "/coll/copy/dir0/file0"));
+        when(request.getHeader("Show-Deleted")).thenReturn("on");
+        ((PostableResource) coll.child("copy")).processForm(Map.of("action", "undelete"), Map.of());
+        when(request.getHeader("Show-Deleted")).thenReturn(null);
+        assertNotNull(factory.getResource(null, BASE_PATH + "/coll/copy/dir0/file0"));
+
+        ((DeletableResource) coll.child("copy")).delete();
+        when(request.getHeader("Show-Deleted")).thenReturn("on");
+        selectAdmin();
+        ((DeletableResource) coll.child("copy")).delete();
+
+        assertNull(coll.child("copy"));
+        assertFalse(model.listSubjects()
+                .filterKeep(r -> r.isURIResource() && r.getURI().startsWith(baseUri + "/coll/copy"))
+                .hasNext());
+        assertEquals(
+                versions,
+                model.listSubjectsWithProperty(RDF.type, FS.FileVersion)
+                        .toList()
+                        .size());
+    }
+
     @Test(expected = ConflictException.class)
     public void testCopyCollectionToExistingFails()
             throws NotAuthorizedException, BadRequestException, ConflictException, IOException {
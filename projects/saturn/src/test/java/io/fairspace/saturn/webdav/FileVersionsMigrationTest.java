@@ -0,0 +1,72 @@
+package io.fairspace.saturn.webdav;
+
+import org.apache.jena.query.Dataset;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.vocabulary.RDF;
+import org.junit.Test;
+
+import io.fairspace.saturn.rdf.transactions.SimpleTransactions;
+import io.fairspace.saturn.vocabulary.FS;
+import io.fairspace.saturn.webdav.resources.FileVersions;
+
+import static org.apache.jena.query.DatasetFactory.createTxnMem;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class FileVersionsMigrationTest {
+    private final Dataset ds = createTxnMem();
+    private final Model model = ds.getDefaultModel();
+
+    private Resource oldVersion(String blobId, long size) {
+        return model.createResource()
+                .addProperty(RDF.type, FS.FileVersion)
+                .addProperty(FS.blobId, blobId)
+                .addLiteral(FS.fileSize, size)
+                .addProperty(FS.md5, "md5-" + blobId);
+    }
+
+    @Test
+    public void versionListsAreConvertedToNumberedVersions() {
+        var file = model.createResource("http://localhost/api/webdav/coll/file")
+                .addProperty(RDF.type, FS.File)
+                .addLiteral(FS.currentVersion, 3)
+                // Newest first
+                .addProperty(FS.versions, model.createList(oldVersion("c", 3), oldVersion("b", 2), oldVersion("a", 1)));
+
+        FileVersionsMigration.migrate(new SimpleTransactions(ds));
+
+        assertFalse(file.hasProperty(FS.versions));
+        assertEquals(3, FileVersions.currentVersion(file));
+        for (var number = 1; number <= 3; number++) {
+            var version = FileVersions.version(file, number);
+            assertTrue(version.hasProperty(RDF.type, FS.FileVersion));
+            assertEquals(number, version.getRequiredProperty(FS.versionNumber).getInt());
+            assertEquals(number, version.getRequiredProperty(FS.fileSize).getLong());
+            assertEquals(
+                    "md5-" + (char) ('a' + number - 1),
+                    version.getRequiredProperty(FS.md5).getString());
+        }
+        // Only the statements of the file and of its numbered versions are left
+        assertFalse(model.listStatements(null, RDF.first, (String) null).hasNext());
+        assertEquals(3 + 3 * 5, model.size());
+    }
+
+    @Test
+    public void migratingTwiceChangesNothing() {
+        var file = model.createResource("http://localhost/api/webdav/coll/file")
+                .addProperty(RDF.type, FS.File)
+                .addLiteral(FS.currentVersion, 1)
+                .addProperty(FS.versions, model.createList(oldVersion("a", 1)));
+
+        FileVersionsMigration.migrate(new SimpleTransactions(ds));
+        var size = model.size();
+        FileVersionsMigration.migrate(new SimpleTransactions(ds));
+
+        assertEquals(size, model.size());
+        assertEquals(1, FileVersions.currentVersion(file));
+        assertNull(FileVersions.version(file, 1).getProperty(FS.versions));
+    }
+}
@@ -4,16 +4,24 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.CRC32C;
 
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import io.fairspace.saturn.config.Config;
 import io.fairspace.saturn.webdav.blobstore.BlobStore;
+import io.fairspace.saturn.webdav.blobstore.InsufficientStorageException;
 import io.fairspace.saturn.webdav.blobstore.LocalBlobStore;
 
 import static java.util.UUID.randomUUID;
+import static org.apache.commons.codec.digest.DigestUtils.md5Hex;
 import static org.apache.commons.io.FileUtils.getTempDirectory;
+import static org.apache.commons.io.FileUtils.writeByteArrayToFile;
 import static org.junit.Assert.*;
 
 public class LocalBlobStoreTest {
@@ -47,4 +55,105 @@ public class LocalBlobStoreTest {
         var id2 = blobStore.write(new ByteArrayInputStream(contents2));
         assertNotEquals(id1, id2);
     }
+
+    @Test
+    public void blobsAreStoredInShardDirectories() throws IOException {
+        var id = blobStore.write(new ByteArrayInputStream(contents1));
+
+        assertFalse(new File(dir, id).exists());
+        var blobs = new ArrayList<String>();
+        ((LocalBlobStore) blobStore).forEachBlob(blob -> blobs.add(blob.id()));
+        assertEquals(List.of(id), blobs);
+    }
+
+    @Test
+    public void legacyBlobsAreFoundAndMovedToShards() throws IOException {
+        var id = randomUUID().toString();
+        writeByteArrayToFile(new File(dir, id), contents2);
+        var store = (LocalBlobStore) blobStore;
+
+        var out = new ByteArrayOutputStream();
+        store.read(id, out, 0, null);
+        assertArrayEquals(contents2, out.toByteArray());
+
+        assertEquals(1, store.migrateToShards());
+        assertFalse(new File(dir, id).exists());
+        assertEquals(0, store.migrateToShards());
+
+        out = new ByteArrayOutputStream();
+        store.read(id, out, 0, null);
+        assertArrayEquals(contents2, out.toByteArray());
+        var blobs = new ArrayList<String>();
+        store.forEachBlob(blob -> blobs.add(blob.id()));
+        assertEquals(List.of(id), blobs);
+    }
+
+    @Test
+    public void migrationDoesNotReplaceBlobsInShards() throws IOException {
+        var id = blobStore.write(new ByteArrayInputStream(contents1));
+        writeByteArrayToFile(new File(dir, id), contents2);
+        var store = (LocalBlobStore) blobStore;
+
+        assertEquals(0, store.migrateToShards());
+
+        assertTrue(new File(dir, id).exists());
+        var out = new ByteArrayOutputStream();
+        store.read(id, out, 0, null);
+        assertArrayEquals(contents1, out.toByteArray());
+    }
+
+    @Test
+    public void checksumsAreComputedWhileBlobsAreWritten() throws IOException {
+        var config = new Config.BlobWrite();
+        config.bufferSize = 64;
+        config.crc32c = true;
+        var store = new LocalBlobStore(dir, config);
+        var contents = new byte[1000];
+        new Random(1).nextBytes(contents);
+
+        var blob = store.store(new ByteArrayInputStream(contents), contents.length);
+
+        assertEquals(contents.length, blob.size);
+        assertEquals(md5Hex(contents), blob.md5);
+        var crc32c = new CRC32C();
+        crc32c.update(contents);
+        assertEquals(String.format("%08x", crc32c.getValue()), blob.crc32c);
+        var out = new ByteArrayOutputStream();
+        store.read(blob.id, out, 0, null);
+        assertArrayEquals(contents, out.toByteArray());
+
+        var empty = store.store(new ByteArrayInputStream(new byte[0]));
+        assertEquals(0, empty.size);
+        assertEquals(md5Hex(new byte[0]), empty.md5);
+        assertNull(blobStore.store(new ByteArrayInputStream(contents1)).crc32c);
+    }
+
+    @Test
+    public void blobsAreWrittenWithEveryDurability() throws IOException {
+        for (var durability : Config.BlobWrite.Durability.values()) {
+            var config = new Config.BlobWrite();
+            config.durability = durability;
+            config.syncInterval = 10;
+            var store = new LocalBlobStore(dir, config);
+
+            var blob = store.store(new ByteArrayInputStream(contents2));
+
+            var out = new ByteArrayOutputStream();
+            store.read(blob.id, out, 0, null);
+            assertArrayEquals(contents2, out.toByteArray());
+        }
+    }
+
+    @Test
+    public void blobsThatDoNotFitAreRejectedBeforeWriting() throws IOException {
+        var store = (LocalBlobStore) blobStore;
+
+        assertThrows(
+                InsufficientStorageException.class,
+                () -> store.store(new ByteArrayInputStream(contents1), Long.MAX_VALUE));
+
+        var blobs = new ArrayList<String>();
+        store.forEachBlob(blob -> blobs.add(blob.id()));
+        assertEquals(List.of(), blobs);
+    }
 }
@@ -19,6 +19,7 @@ import org.mockito.junit.MockitoJUnitRunner;
 import io.fairspace.saturn.rdf.transactions.Transactions;
 import io.fairspace.saturn.webdav.blobstore.BlobInfo;
 import io.fairspace.saturn.webdav.blobstore.BlobStore;
+import io.fairspace.saturn.webdav.blobstore.InsufficientStorageException;
 
 import static io.fairspace.saturn.TestUtils.setupRequestContext;
 
@@ -105,18 +106,31 @@ public class WebDAVServletTest {
         var blob = new BlobInfo("id", 1, "md5");
 
         when(req.getMethod()).thenReturn("PUT");
-        when(store.store(in)).thenReturn(blob);
+        when(req.getContentLengthLong()).thenReturn(1L);
+        when(store.store(in, 1)).thenReturn(blob);
 
         servlet.service(req, res);
 
         var order = inOrder(store, req, txn);
 
-        order.verify(store).store(in);
+        order.verify(store).store(in, 1);
         order.verify(req).setAttribute("BLOB", blob);
         // Transaction is executed afterwards
         order.verify(txn).executeWrite(any());
     }
 
+    @Test
+    public void testPutIsRejectedWhenTheBlobDoesNotFit() throws IOException {
+        when(req.getMethod()).thenReturn("PUT");
+        when(req.getContentLengthLong()).thenReturn(1L);
+        when(store.store(in, 1)).thenThrow(new InsufficientStorageException("full"));
+
+        servlet.service(req, res);
+
+        verify(res).setStatus(507);
+        verifyNoInteractions(txn);
+    }
+
     @Test
     public void testGetPayloadIsReadOutsideTransaction() throws Exception {
         when(req.getMethod()).thenReturn("GET");